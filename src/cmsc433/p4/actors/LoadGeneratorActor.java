@@ -0,0 +1,276 @@
+package cmsc433.p4.actors;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import cmsc433.p4.enums.AccessRequestType;
+import cmsc433.p4.enums.AccessType;
+import cmsc433.p4.enums.ArrivalProcess;
+import cmsc433.p4.enums.ManagementRequestType;
+import cmsc433.p4.messages.AccessReleaseMsg;
+import cmsc433.p4.messages.AccessRequestDeniedMsg;
+import cmsc433.p4.messages.AccessRequestGrantedMsg;
+import cmsc433.p4.messages.AccessRequestMsg;
+import cmsc433.p4.messages.LoadReportMsg;
+import cmsc433.p4.messages.LoadStartMsg;
+import cmsc433.p4.messages.ManagementRequestDeniedMsg;
+import cmsc433.p4.messages.ManagementRequestGrantedMsg;
+import cmsc433.p4.messages.ManagementRequestMsg;
+import cmsc433.p4.util.AccessRelease;
+import cmsc433.p4.util.AccessRequest;
+import cmsc433.p4.util.IntMap;
+import cmsc433.p4.util.LatencyHistogram;
+import cmsc433.p4.util.LoadProfile;
+import cmsc433.p4.util.ManagementRequest;
+import cmsc433.p4.util.ResourceLockState;
+import cmsc433.p4.util.ResourceRegistry;
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import akka.actor.AbstractActorWithTimers;
+import scala.concurrent.duration.Duration;
+
+/**
+ * Class of open-loop load generators.
+ *
+ * Unlike a user, which waits for the responses to one step before sending the next, a
+ * load generator issues requests at a fixed offered rate whatever the responses are
+ * doing, so a manager that falls behind sees its queue grow rather than its load drop.
+ * Each request goes to a manager and names a resource of the generator's registry, both
+ * chosen uniformly at random, and carries the resource's ID, as users' requests do.
+ * Access that is granted is released at once.
+ *
+ * Latency is measured from the time a request was due to be issued, not the time it
+ * was actually sent, so time the generator itself falls behind is counted too.  The
+ * scheduler runs timers only every few milliseconds, so all requests falling due
+ * between two ticks are issued together.
+ *
+ * Locks are re-entrant per user, and the generator is a single user, so its own
+ * requests never wait for one another; they queue in managers' mailboxes and behind
+ * other users' access.  Generators log nothing themselves, but managers log their
+ * requests as they log users', so a generator run alongside a simulation adds its
+ * traffic to the simulation's log.  Managers given a policy suppressing their events,
+ * such as LoadRunner.silentPolicy(), log none of it.  When the profile's duration is
+ * over and every request is answered, or the drain timeout passes, the generator sends
+ * a LoadReportMsg to the sender of its LoadStartMsg and stops.
+ *
+ */
+public class LoadGeneratorActor extends AbstractActorWithTimers {
+
+	private ArrayList<ActorRef> managers;		// Managers to send requests to
+	private ResourceRegistry resources;			// Resources to name in requests
+	private LoadProfile profile;				// Rate and kind of requests
+
+	/**
+	 * Props structure-generator for this class.
+	 * @param managers		Managers to send requests to
+	 * @param resources		Resources to name in requests
+	 * @param profile		Rate and kind of requests
+	 * @return  Props structure
+	 */
+	static Props props (ArrayList<ActorRef> managers, ResourceRegistry resources, LoadProfile profile) {
+		return Props.create(LoadGeneratorActor.class, managers, resources, profile);
+	}
+
+	/**
+	 * Factory method for creating load generators
+	 * @param managers		Managers to send requests to
+	 * @param resources		Resources to name in requests; the managers should be given the same registry
+	 * @param profile		Rate and kind of requests
+	 * @param system		Actor system in which generator will execute
+	 * @return				Reference to new generator
+	 */
+	public static ActorRef makeLoadGenerator (ArrayList<ActorRef> managers, ResourceRegistry resources, LoadProfile profile,
+			ActorSystem system) {
+		if (managers.isEmpty() || resources.size() == 0) {
+			throw new IllegalArgumentException("A load generator needs at least one manager and one resource");
+		}
+		ActorRef newGenerator = system.actorOf(props(managers, resources, profile));
+		return newGenerator;
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param managers		Managers to send requests to
+	 * @param resources		Resources to name in requests
+	 * @param profile		Rate and kind of requests
+	 */
+	private LoadGeneratorActor(ArrayList<ActorRef> managers, ResourceRegistry resources, LoadProfile profile) {
+		super();
+		this.managers = managers;
+		this.resources = resources;
+		this.profile = profile;
+		this.random = new Random(profile.getSeed());
+		for (int i = 0; i < managers.size(); i++) {
+			latencies.add(new LatencyHistogram());
+		}
+	}
+
+	/**
+	 * Request awaiting a response.
+	 */
+	private static class PendingRequest {
+		final long dueNanos;		// Time, relative to start, at which request was due
+		final int manager;			// Index of manager request was sent to
+		final int resourceId;		// ID of resource request is about
+
+		PendingRequest(long dueNanos, int manager, int resourceId) {
+			this.dueNanos = dueNanos;
+			this.manager = manager;
+			this.resourceId = resourceId;
+		}
+	}
+
+	private static final Object ARRIVAL = "Arrival";				// Timer key and message for issuing due requests
+	private static final Object DRAIN_TIMEOUT = "DrainTimeout";		// Timer key and message for giving up on responses
+
+	private Random random;												// Source of random choices
+	private ArrayList<LatencyHistogram> latencies = new ArrayList<>();	// Latency of answered requests, per manager
+	private IntMap<PendingRequest> pendingRequests = new IntMap<>();	// Requests awaiting responses, by correlation ID
+	private int nextCorrelationId = 1;									// Correlation ID of next request; 0 means none
+	private ActorRef reportTo;											// Where to send the report
+	private long startNanos;											// Time generator started
+	private long nextDueNanos;											// Time, relative to start, next request is due
+	private boolean issuing = false;									// True while requests are still being issued
+	private long issued = 0;											// Requests issued
+	private long denied = 0;											// Requests denied
+
+	@Override
+	public Receive createReceive() {
+		return receiveBuilder()
+				.match(LoadStartMsg.class, this::start)
+				.matchEquals(ARRIVAL, tick -> issueDueRequests())
+				.matchEquals(DRAIN_TIMEOUT, tick -> report())
+				.match(AccessRequestGrantedMsg.class, this::accessGranted)
+				.match(AccessRequestDeniedMsg.class, msg -> answered(msg.getCorrelationId(), true))
+				.match(ManagementRequestGrantedMsg.class, msg -> answered(msg.getCorrelationId(), false))
+				.match(ManagementRequestDeniedMsg.class, msg -> answered(msg.getCorrelationId(), true))
+				.build();
+	}
+
+	// ---- Issuing requests ----
+
+	public void start(LoadStartMsg msg) {
+		if (issuing || reportTo != null) {
+			return;
+		}
+		reportTo = getSender();
+		startNanos = System.nanoTime();
+		nextDueNanos = nextGap();
+		issuing = true;
+		issueDueRequests();
+	}
+
+	/**
+	 * Issue every request that has fallen due, then wait for the next one to fall due,
+	 * or for the outstanding responses once the profile's duration is over.
+	 */
+	private void issueDueRequests() {
+		long durationNanos = TimeUnit.MILLISECONDS.toNanos(profile.getDurationMs());
+		long now = System.nanoTime() - startNanos;
+		while (nextDueNanos <= now && nextDueNanos < durationNanos) {
+			issue(nextDueNanos);
+			nextDueNanos += nextGap();
+		}
+		if (nextDueNanos < durationNanos) {
+			long delayMs = Math.max(1, TimeUnit.NANOSECONDS.toMillis(nextDueNanos - now));
+			getTimers().startSingleTimer(ARRIVAL, ARRIVAL, Duration.create(delayMs, TimeUnit.MILLISECONDS));
+		} else {
+			issuing = false;
+			if (pendingRequests.isEmpty()) {
+				report();
+			} else {
+				getTimers().startSingleTimer(DRAIN_TIMEOUT, DRAIN_TIMEOUT, Duration.create(profile.getDrainTimeoutMs(), TimeUnit.MILLISECONDS));
+			}
+		}
+	}
+
+	/**
+	 * Issue one request to a random manager about a random resource.
+	 *
+	 * @param dueNanos	Time, relative to start, at which request was due
+	 */
+	private void issue(long dueNanos) {
+		int manager = random.nextInt(managers.size());
+		int resourceId = random.nextInt(resources.size());
+		String name = resources.nameOf(resourceId);
+		int id = nextCorrelationId++;
+		if (nextCorrelationId == 0) {
+			nextCorrelationId = 1;
+		}
+		pendingRequests.put(id, new PendingRequest(dueNanos, manager, resourceId));
+		issued++;
+
+		Object msg;
+		if (random.nextDouble() < profile.getManagementFraction()) {
+			msg = new ManagementRequestMsg(new ManagementRequest(name, ManagementRequestType.ENABLE), getSelf(), id, 0, resourceId);
+		} else {
+			boolean read = random.nextDouble() < profile.getReadFraction();
+			AccessRequestType type;
+			if (profile.isBlocking()) {
+				type = read ? AccessRequestType.CONCURRENT_READ_BLOCKING : AccessRequestType.EXCLUSIVE_WRITE_BLOCKING;
+			} else {
+				type = read ? AccessRequestType.CONCURRENT_READ_NONBLOCKING : AccessRequestType.EXCLUSIVE_WRITE_NONBLOCKING;
+			}
+			msg = new AccessRequestMsg(new AccessRequest(name, type), getSelf(), id, 0, resourceId);
+		}
+		managers.get(manager).tell(msg, getSelf());
+	}
+
+	/**
+	 * @return	Time until the next request is due, in nanoseconds
+	 */
+	private long nextGap() {
+		double meanNanos = 1e9 / profile.getRatePerSecond();
+		if (profile.getArrivalProcess() == ArrivalProcess.CONSTANT) {
+			return Math.max(1, (long) meanNanos);
+		}
+		return Math.max(1, (long) (-Math.log(1 - random.nextDouble()) * meanNanos));
+	}
+
+	// ---- Responses ----
+
+	public void accessGranted(AccessRequestGrantedMsg msg) {
+		PendingRequest request = pendingRequests.get(msg.getCorrelationId());
+		if (request != null) {
+			AccessType type = ResourceLockState.toAccessType(msg.getRequest().getType());
+			ActorRef owner = (msg.getManager() != null) ? msg.getManager() : managers.get(request.manager);
+			owner.tell(new AccessReleaseMsg(new AccessRelease(msg.getRequest().getResourceName(), type), getSelf(), 0, request.resourceId),
+					getSelf());
+		}
+		answered(msg.getCorrelationId(), false);
+	}
+
+	/**
+	 * Record the latency of an answered request.  Responses arriving after the report
+	 * has been sent are ignored.
+	 *
+	 * @param correlationId	Correlation ID carried by the response
+	 * @param wasDenied		True if the request was denied
+	 */
+	private void answered(int correlationId, boolean wasDenied) {
+		PendingRequest request = pendingRequests.remove(correlationId);
+		if (request == null) {
+			return;
+		}
+		latencies.get(request.manager).record(System.nanoTime() - startNanos - request.dueNanos);
+		if (wasDenied) {
+			denied++;
+		}
+		if (!issuing && pendingRequests.isEmpty()) {
+			report();
+		}
+	}
+
+	/**
+	 * Send the report and stop.
+	 */
+	private void report() {
+		getTimers().cancel(DRAIN_TIMEOUT);
+		reportTo.tell(new LoadReportMsg(managers, latencies, issued, denied, pendingRequests.size(),
+				profile.getRatePerSecond(), System.nanoTime() - startNanos), getSelf());
+		getContext().stop(getSelf());
+	}
+}
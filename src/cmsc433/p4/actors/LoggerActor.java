@@ -1,9 +1,23 @@
 package cmsc433.p4.actors;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashSet;
 
+import cmsc433.p4.messages.LogAggregateMsg;
+import cmsc433.p4.messages.LogBatchMsg;
+import cmsc433.p4.messages.LogFlushRequestMsg;
 import cmsc433.p4.messages.LogMsg;
 import cmsc433.p4.messages.LogResultMsg;
+import cmsc433.p4.messages.UserThroughputMsg;
+import cmsc433.p4.util.BinaryEventLogWriter;
+import cmsc433.p4.util.CausalLogMerger;
+import cmsc433.p4.util.EventRecord;
+import cmsc433.p4.util.EventRing;
+import cmsc433.p4.util.LogFormatter;
+import cmsc433.p4.util.LogSinkOptions;
+import cmsc433.p4.util.LogSummary;
+import cmsc433.p4.util.RotatingLogWriter;
 import akka.actor.ActorRef;
 import akka.actor.ActorSystem;
 import akka.actor.Props;
@@ -11,13 +25,64 @@ import akka.actor.AbstractActor.Receive;
 import akka.actor.AbstractActor;
 
 /**
-
+ * Class of actors collecting the event log of a simulation.
+ * 
+ * By default every event is kept in memory and the whole log is sent to the simulation
+ * manager once all users have terminated.  A logger given LogSinkOptions instead streams
+ * events, in batches, to rotating files written on a thread of its own, or as binary
+ * records to a memory-mapped file; it keeps only counts in memory, and sends an empty log
+ * with a LogSummary naming the files.
+ * 
+ * Counts sent in place of events under an aggregating LoggingPolicy are kept in the log,
+ * or written as lines of text, where the events would have been; a binary log has no
+ * record for them, so they appear only in the summary's counts.
+ * 
+ * Actors keeping local event logs send them in stamped LogBatchMsgs instead.  Once every
+ * user has terminated, the logger asks each such actor that has not sent its last batch
+ * for the rest of its log, merges all the local logs (see CausalLogMerger for the order
+ * this gives) and records the merged events as above before sending the result.
+ * Managers that aggregate events without a local log register the same way, with an
+ * empty batch, and send their last counts as their last batch, so no count is lost.
+ * 
+ * A logger given an EventRing starts the ring's consumer, which writes every event
+ * published to the ring to a binary log; managers publish their events to the ring
+ * directly, and the logger publishes the events it receives.  The order of the log is
+ * then the order events were published in, so a user's start may follow a manager's
+ * first event about it.  The logger still sends the result once every user has
+ * terminated, after waiting for the ring to be written out.
  */
 public class LoggerActor extends AbstractActor {
 	
-	// Event log
+	// Event log, if kept in memory
 	private ArrayList<Object> log = new ArrayList<Object>();
 	
+	// Streaming sink settings, or null to keep the log in memory
+	private LogSinkOptions sinkOptions;
+	
+	// Event ring feeding a binary log, or null
+	private EventRing eventRing;
+	private String ringFilename;
+	private String ringDictionaryFilename;
+	private volatile long ringBytesWritten = 0;	// Size of ring's log at its last flush, set by the ring's consumer
+	
+	// State of streaming sink
+	private RotatingLogWriter writer;
+	private BinaryEventLogWriter binaryWriter;
+	private StringBuilder batch = new StringBuilder();
+	private int batchEvents = 0;
+	
+	// Events logged, in total and by type
+	private long eventCount = 0;
+	private long[] countsByType = new long[LogMsg.EventType.values().length];
+	
+	// Throughput reported by pipelined users, kept out of the event log
+	private ArrayList<UserThroughputMsg> throughputReports = new ArrayList<UserThroughputMsg>();
+	
+	// Local event logs received, and actors whose local logs are not yet complete
+	private CausalLogMerger merger = null;
+	private HashSet<ActorRef> openSources = new HashSet<ActorRef>();
+	private boolean flushing = false;	// True once the rest of every local log has been asked for
+	
 	// Users who have started but not terminated.
 	private ArrayList<ActorRef> activeUsers = new ArrayList<ActorRef>();
 	
@@ -30,7 +95,23 @@ public class LoggerActor extends AbstractActor {
 	 * @return  Props structure
 	 */
 	static Props props (ActorRef simulationManager) {
-		return Props.create(LoggerActor.class, simulationManager);
+		return props(simulationManager, null);
+	}
+	
+	/**
+	 * Props structure-generator for this class.
+	 * @return  Props structure
+	 */
+	static Props props (ActorRef simulationManager, LogSinkOptions sinkOptions) {
+		return props(simulationManager, sinkOptions, null);
+	}
+	
+	/**
+	 * Props structure-generator for this class.
+	 * @return  Props structure
+	 */
+	static Props props (ActorRef simulationManager, LogSinkOptions sinkOptions, EventRing eventRing) {
+		return Props.create(LoggerActor.class, simulationManager, sinkOptions, eventRing);
 	}
 	
 	/**
@@ -44,14 +125,264 @@ public class LoggerActor extends AbstractActor {
 		return newLogger;
 	}
 	
+	/**
+	 * Factory method for creating loggers that stream events to files
+	 * @param simulationManager	Actor to whom to send log summary when simulation is done
+	 * @param system			Actor system in which logger will execute
+	 * @param sinkOptions		Where and how to write events, or null to keep them in memory
+	 * @return					Reference to new logger
+	 */
+	public static ActorRef makeLogger (ActorRef simulationManager, ActorSystem system, LogSinkOptions sinkOptions) {
+		ActorRef newLogger = system.actorOf(props(simulationManager, sinkOptions));
+		return newLogger;
+	}
+	
+	/**
+	 * Factory method for creating loggers that write the events of an event ring to a
+	 * binary log.  The logger starts the ring, and closes it when it stops.
+	 * @param simulationManager	Actor to whom to send log summary when simulation is done
+	 * @param system			Actor system in which logger will execute
+	 * @param sinkOptions		Where to write events; must call for the binary format
+	 * @param eventRing			Ring that managers publish events to
+	 * @return					Reference to new logger
+	 */
+	public static ActorRef makeLogger (ActorRef simulationManager, ActorSystem system, LogSinkOptions sinkOptions, EventRing eventRing) {
+		if (sinkOptions == null || !sinkOptions.isBinaryFormat()) {
+			throw new IllegalArgumentException("An event ring is written to a binary log");
+		}
+		ActorRef newLogger = system.actorOf(props(simulationManager, sinkOptions, eventRing));
+		return newLogger;
+	}
+	
 	/**
 	 * Constructor
 	 * 
 	 * @param simulationManager	Actor to send result to when simulation is finished.
+	 * @param sinkOptions		Where and how to write events, or null to keep them in memory
+	 * @param eventRing			Ring whose events to write to a binary log, or null
 	 */
-	private LoggerActor(ActorRef simulationManager) {
+	private LoggerActor(ActorRef simulationManager, LogSinkOptions sinkOptions, EventRing eventRing) {
 		super();
 		this.simulationManager = simulationManager;
+		this.sinkOptions = sinkOptions;
+		this.eventRing = eventRing;
+	}
+	
+	@Override
+	public void preStart() throws IOException {
+		if (eventRing != null) {
+			startRing();
+		} else if (sinkOptions != null && sinkOptions.isBinaryFormat()) {
+			binaryWriter = new BinaryEventLogWriter(sinkOptions.binaryFileName());
+		} else if (sinkOptions != null) {
+			writer = new RotatingLogWriter(sinkOptions);
+		}
+	}
+	
+	@Override
+	public void postStop() throws Exception {
+		if (eventRing != null) {
+			eventRing.close();
+		}
+		if (writer != null) {
+			writer.close();
+		}
+		if (binaryWriter != null) {
+			binaryWriter.close();
+		}
+	}
+	
+	// ---- Streaming sink ----
+	
+	/**
+	 * Start the event ring's consumer, writing to a binary log owned by the consumer thread.
+	 * 
+	 * @throws IOException	Thrown if the log cannot be created
+	 */
+	private void startRing() throws IOException {
+		final BinaryEventLogWriter ringWriter = new BinaryEventLogWriter(sinkOptions.binaryFileName());
+		ringFilename = ringWriter.getFilename();
+		ringDictionaryFilename = ringWriter.getDictionaryFilename();
+		eventRing.start(new EventRing.Handler() {
+			@Override
+			public void onEvent(EventRecord event, boolean endOfBatch) throws IOException {
+				ringWriter.append(event, event.getNanos());
+			}
+			
+			@Override
+			public void onFlush() throws IOException {
+				ringWriter.flush();
+				ringBytesWritten = ringWriter.getBytesWritten();
+			}
+			
+			@Override
+			public void onClose() throws IOException {
+				ringWriter.close();
+			}
+		});
+	}
+	
+	/**
+	 * Record an event, in the log or in the current batch.  A full batch is handed to
+	 * the writer.
+	 * 
+	 * @param lMsg	Event
+	 * @throws IOException	Thrown if the writer has failed
+	 */
+	private void record(LogMsg lMsg) throws IOException {
+		if (eventRing != null) {	// Counted by the ring
+			eventRing.publish(lMsg);
+			return;
+		}
+		eventCount++;
+		countsByType[lMsg.getType().ordinal()]++;
+		if (binaryWriter != null) {
+			binaryWriter.append(lMsg, System.nanoTime());
+			return;
+		}
+		if (writer == null) {
+			log.add(lMsg);
+			return;
+		}
+		LogFormatter.format(lMsg, batch).append(System.lineSeparator());
+		if (++batchEvents >= sinkOptions.getBatchSize()) {
+			writer.write(batch.toString());
+			batch.setLength(0);
+			batchEvents = 0;
+		}
+	}
+	
+	/**
+	 * Record a count of events an actor aggregated rather than logged.
+	 * 
+	 * @param aMsg	Count of events
+	 * @throws IOException	Thrown if the writer has failed
+	 */
+	private void recordAggregate(LogAggregateMsg aMsg) throws IOException {
+		eventCount += aMsg.getCount();
+		countsByType[aMsg.getType().ordinal()] += aMsg.getCount();
+		if (binaryWriter != null) {
+			return;
+		}
+		if (writer == null) {
+			log.add(aMsg);
+			return;
+		}
+		batch.append(aMsg.toString()).append(System.lineSeparator());
+		if (++batchEvents >= sinkOptions.getBatchSize()) {
+			writer.write(batch.toString());
+			batch.setLength(0);
+			batchEvents = 0;
+		}
+	}
+	
+	/**
+	 * Build the result for the simulation manager.  A streaming logger first writes out its
+	 * partial batch and waits until everything so far is on file.
+	 * 
+	 * @return	Result message
+	 * @throws IOException	Thrown if the writer has failed
+	 */
+	private LogResultMsg result() throws IOException {
+		if (eventRing != null) {
+			eventRing.flush();
+			ArrayList<String> files = new ArrayList<String>();
+			files.add(ringFilename);
+			files.add(ringDictionaryFilename);
+			long[] counts = eventRing.getCountsByType();
+			for (int i = 0; i < counts.length; i++) {
+				counts[i] += countsByType[i];	// Aggregated events, which the ring does not carry
+			}
+			LogSummary summary = new LogSummary(eventCount + eventRing.getEventCount(), counts, files, ringBytesWritten);
+			return new LogResultMsg(new ArrayList<Object>(), throughputReports, summary);
+		}
+		if (binaryWriter != null) {
+			binaryWriter.flush();
+			ArrayList<String> files = new ArrayList<String>();
+			files.add(binaryWriter.getFilename());
+			files.add(binaryWriter.getDictionaryFilename());
+			LogSummary summary = new LogSummary(eventCount, countsByType, files, binaryWriter.getBytesWritten());
+			return new LogResultMsg(new ArrayList<Object>(), throughputReports, summary);
+		}
+		if (writer == null) {
+			// A copy, since events logged after the result is sent still go into log
+			return new LogResultMsg(new ArrayList<Object>(log), throughputReports);
+		}
+		if (batchEvents > 0) {
+			writer.write(batch.toString());
+			batch.setLength(0);
+			batchEvents = 0;
+		}
+		writer.flush();
+		LogSummary summary = new LogSummary(eventCount, countsByType, writer.getFiles(), writer.getBytesWritten());
+		return new LogResultMsg(new ArrayList<Object>(), throughputReports, summary);
+	}
+
+	// ---- Local event logs ----
+	
+	/**
+	 * Add a batch of a local event log to the logs to merge, noting the users it shows
+	 * starting and terminating.
+	 * 
+	 * @param bMsg	Batch of events
+	 * @throws IOException	Thrown if the writer has failed
+	 */
+	private void addBatch(LogBatchMsg bMsg) throws IOException {
+		if (merger == null) {
+			merger = new CausalLogMerger();
+		}
+		merger.add(bMsg);
+		if (bMsg.isLast()) {
+			openSources.remove(bMsg.getSource());
+		} else {
+			openSources.add(bMsg.getSource());
+		}
+		boolean terminated = false;
+		for (Object event : bMsg.getEvents()) {
+			if (event instanceof LogMsg) {
+				LogMsg lMsg = (LogMsg) event;
+				if (lMsg.getType() == LogMsg.EventType.USER_START) {
+					activeUsers.add(lMsg.getUser());
+				} else if (lMsg.getType() == LogMsg.EventType.USER_TERMINATE) {
+					activeUsers.remove(lMsg.getUser());
+					terminated = true;
+				}
+			}
+		}
+		if ((terminated || flushing) && activeUsers.isEmpty()) {
+			usersDone();
+		}
+	}
+	
+	/**
+	 * Every user has terminated:  ask for the rest of any incomplete local logs, or, once
+	 * they are all in, record the merged log and send the result.
+	 * 
+	 * @throws IOException	Thrown if the writer has failed
+	 */
+	private void usersDone() throws IOException {
+		if (!openSources.isEmpty()) {
+			if (!flushing) {
+				flushing = true;
+				LogFlushRequestMsg request = new LogFlushRequestMsg();
+				for (ActorRef source : openSources) {
+					source.tell(request, getSelf());
+				}
+			}
+			return;
+		}
+		if (merger != null) {
+			for (Object event : merger.merge()) {
+				if (event instanceof LogMsg) {
+					record((LogMsg) event);
+				} else {
+					recordAggregate((LogAggregateMsg) event);
+				}
+			}
+			merger = null;
+			flushing = false;
+		}
+		simulationManager.tell(result(), getSelf());
 	}
 
 	@Override
@@ -66,8 +397,8 @@ public class LoggerActor extends AbstractActor {
 	public void onReceive(Object msg) throws Exception {
 		// TODO Auto-generated method stub
 		if (msg instanceof LogMsg) {  // Message is event to log.
-			log.add(msg);
 			LogMsg lMsg = (LogMsg)msg;
+			record(lMsg);
 
 			// Check if event corresponds to user start; if so, add to list of users
 			if (lMsg.getType() == LogMsg.EventType.USER_START) {
@@ -79,10 +410,19 @@ public class LoggerActor extends AbstractActor {
 			else if (lMsg.getType() == LogMsg.EventType.USER_TERMINATE) {
 				activeUsers.remove(lMsg.getUser());
 				if (activeUsers.isEmpty()) {
-					simulationManager.tell(new LogResultMsg(log), getSelf());
+					usersDone();
 				}
 			}
 		}
+		else if (msg instanceof LogBatchMsg) {
+			addBatch((LogBatchMsg) msg);
+		}
+		else if (msg instanceof LogAggregateMsg) {
+			recordAggregate((LogAggregateMsg) msg);
+		}
+		else if (msg instanceof UserThroughputMsg) {
+			throughputReports.add((UserThroughputMsg) msg);
+		}
 		else {
 			throw new Exception ("Invalid message sent to logger");
 		}
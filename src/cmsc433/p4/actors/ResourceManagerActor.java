@@ -1,5 +1,6 @@
 package cmsc433.p4.actors;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -7,6 +8,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
+import java.util.concurrent.TimeUnit;
 
 import cmsc433.p4.enums.*;
 import cmsc433.p4.messages.*;
@@ -15,18 +17,41 @@ import akka.actor.ActorRef;
 import akka.actor.ActorSystem;
 import akka.actor.Props;
 import akka.actor.AbstractActor.Receive;
-import akka.actor.AbstractActor;
+import akka.actor.AbstractActorWithTimers;
+import scala.concurrent.duration.Duration;
 
-public class ResourceManagerActor extends AbstractActor {
+public class ResourceManagerActor extends AbstractActorWithTimers {
 	
 	private ActorRef logger;					// Actor to send logging messages to
+	private ManagerOptions options;				// Settings this manager was created with
+	private boolean shard;						// True if this manager is a shard behind a ShardedResourceManagerActor
+	private ActorRef identity;					// Manager reference seen by loggers and remote managers
 	
 	/**
 	 * Props structure-generator for this class.
 	 * @return  Props structure
 	 */
 	static Props props (ActorRef logger) {
-		return Props.create(ResourceManagerActor.class, logger);
+		return props(logger, new ManagerOptions());
+	}
+	
+	/**
+	 * Props structure-generator for this class.
+	 * @param options			Settings for new manager
+	 * @return  Props structure
+	 */
+	static Props props (ActorRef logger, ManagerOptions options) {
+		return Props.create(ResourceManagerActor.class, logger, options, false);
+	}
+	
+	/**
+	 * Props structure-generator for shards created by a ShardedResourceManagerActor.
+	 * A shard logs and answers discovery requests under its parent's reference.
+	 * @param options			Settings for new shard
+	 * @return  Props structure
+	 */
+	static Props shardProps (ActorRef logger, ManagerOptions options) {
+		return Props.create(ResourceManagerActor.class, logger, options, true);
 	}
 	
 	/**
@@ -41,21 +66,153 @@ public class ResourceManagerActor extends AbstractActor {
 	}
 	
 	/**
-	 * Sends a message to the Logger Actor
+	 * Factory method for creating resource managers with a given grant policy
+	 * @param logger			Actor to send logging messages to
+	 * @param system			Actor system in which manager will execute
+	 * @param grantPolicy		Ordering of grants for contended resources
+	 * @return					Reference to new manager
+	 */
+	public static ActorRef makeResourceManager (ActorRef logger, ActorSystem system, AccessGrantPolicy grantPolicy) {
+		return makeResourceManager(logger, system, new ManagerOptions().withGrantPolicy(grantPolicy));
+	}
+	
+	/**
+	 * Factory method for creating resource managers whose local resources are split
+	 * across several shard actors.  With a shard count of one, a plain manager is created.
+	 * @param logger			Actor to send logging messages to
+	 * @param system			Actor system in which manager will execute
+	 * @param grantPolicy		Ordering of grants for contended resources
+	 * @param shardCount		Number of shard actors to split local resources across
+	 * @return					Reference to new manager
+	 */
+	public static ActorRef makeResourceManager (ActorRef logger, ActorSystem system, AccessGrantPolicy grantPolicy, int shardCount) {
+		return makeResourceManager(logger, system, new ManagerOptions().withGrantPolicy(grantPolicy).withShardCount(shardCount));
+	}
+	
+	/**
+	 * Factory method for creating resource managers with the given settings.  If the
+	 * settings call for more than one shard, the manager is a ShardedResourceManagerActor.
+	 * @param logger			Actor to send logging messages to
+	 * @param system			Actor system in which manager will execute
+	 * @param options			Settings for new manager
+	 * @return					Reference to new manager
+	 */
+	public static ActorRef makeResourceManager (ActorRef logger, ActorSystem system, ManagerOptions options) {
+		Props props = (options.getShardCount() > 1) 
+				? ShardedResourceManagerActor.props(logger, options) 
+				: props(logger, options);
+		ActorRef newManager = system.actorOf(props);
+		return newManager;
+	}
+	
+	/**
+	 * Sends a message to the Logger Actor, unless the logging policy filters it out.
+	 * Events of an aggregated type are counted, and the counts sent when the aggregation
+	 * window closes.
 	 * @param msg The message to be sent to the logger
 	 */
 	public void log (LogMsg msg) {
-		logger.tell(msg, getSelf());
+		if (eventFilter == null) {
+			emit(msg);
+			return;
+		}
+		boolean hadPendingCounts = eventFilter.hasPendingCounts();
+		if (eventFilter.admit(msg.getType())) {
+			emit(msg);
+		} else if (!hadPendingCounts && eventFilter.hasPendingCounts()) {
+			getTimers().startSingleTimer(AGGREGATE_FLUSH, AGGREGATE_FLUSH, 
+					Duration.create(options.getLoggingPolicy().getAggregationWindowMs(), TimeUnit.MILLISECONDS));
+		}
+	}
+	
+	/**
+	 * Send an event to the logger, or add it to the local event log if there is one.
+	 * @param event LogMsg or LogAggregateMsg
+	 */
+	private void emit (Object event) {
+		if (localLog != null) {
+			localLog.append(event, getSelf(), logger);
+		} else {
+			logger.tell(event, getSelf());
+		}
+	}
+	
+	/**
+	 * @return Time to stamp a message about to be sent with, or 0 if there is no local event log
+	 */
+	private long stamp () {
+		return (localLog != null) ? clock.tick() : 0;
+	}
+	
+	/**
+	 * @param msg Request about to be forwarded
+	 * @return Request stamped with the time, or the request itself if there is no local event log
+	 */
+	private AccessRequestMsg stamped (AccessRequestMsg msg) {
+		return (localLog != null) ? msg.withTimestamp(clock.tick()) : msg;
+	}
+	
+	/**
+	 * @param msg Release about to be forwarded
+	 * @return Release stamped with the time, or the release itself if there is no local event log
+	 */
+	private AccessReleaseMsg stamped (AccessReleaseMsg msg) {
+		return (localLog != null) ? msg.withTimestamp(clock.tick()) : msg;
+	}
+	
+	/**
+	 * @param msg Request about to be forwarded
+	 * @return Request stamped with the time, or the request itself if there is no local event log
+	 */
+	private ManagementRequestMsg stamped (ManagementRequestMsg msg) {
+		return (localLog != null) ? msg.withTimestamp(clock.tick()) : msg;
 	}
 	
 	/**
 	 * Constructor
 	 * 
 	 * @param logger			Actor to send logging messages to
+	 * @param options			Settings for this manager
+	 * @param shard				True if manager is a shard of a ShardedResourceManagerActor
 	 */
-	private ResourceManagerActor(ActorRef logger) {
+	private ResourceManagerActor(ActorRef logger, ManagerOptions options, boolean shard) {
 		super();
 		this.logger = logger;
+		this.options = options;
+		this.shard = shard;
+		this.sharedIds = options.getResourceRegistry() != null;
+		this.resourceRegistry = sharedIds ? options.getResourceRegistry() : new ResourceRegistry();
+		this.negativeCache = new NegativeCache(options.getNegativeCacheTtlMs());
+	}
+	
+	@Override
+	public void preStart() {
+		identity = shard ? getContext().getParent() : getSelf();
+		if (options.getEventRing() != null) {
+			events = options.getEventRing();
+		} else {
+			events = new EventPublisher() {
+				@Override
+				public void publish(LogMsg msg) {
+					log(msg);
+				}
+			};
+		}
+		if (!options.getLoggingPolicy().logsEverything()) {
+			eventFilter = new EventFilter(options.getLoggingPolicy());
+		}
+		if (options.isLocalLogBuffered()) {
+			localLog = new LocalEventLog(options.getLocalLogBatchSize(), clock);
+			localLog.send(getSelf(), logger, false);	// Register with logger, before any user starts
+		} else if (eventFilter != null && options.getLoggingPolicy().aggregatesAny()) {
+			// Register with logger too, so that it asks for the last counts before its result
+			logger.tell(new LogBatchMsg(getSelf(), new ArrayList<Object>(), new long[0], false), getSelf());
+		}
+	}
+	
+	@Override
+	public void postStop() {
+		flushEventCounts();
 	}
 	
 	@Override
@@ -64,11 +221,19 @@ public class ResourceManagerActor extends AbstractActor {
 				.match(AddRemoteManagersRequestMsg.class, this::addRemoteManagersRequest)
 				.match(AddLocalUsersRequestMsg.class, this::addLocalUsersRequest)
 				.match(AddInitialLocalResourcesRequestMsg.class, this::addInitialLocalResourcesRequest)
+				.match(AddPlacementRingRequestMsg.class, this::addPlacementRingRequest)
 				.match(AccessRequestMsg.class, this::accessRequest)
 				.match(ManagementRequestMsg.class, this::managementRequest)
 				.match(AccessReleaseMsg.class, this::accessRelease)
 				.match(WhoHasResourceRequestMsg.class, this::whoHasResourceRequest)
 				.match(WhoHasResourceResponseMsg.class, this::whoHasResourceResponse)
+				.match(WhoHasResourcesBatchRequestMsg.class, this::whoHasResourcesBatchRequest)
+				.match(WhoHasResourcesBatchResponseMsg.class, this::whoHasResourcesBatchResponse)
+				.match(ResourceAdvertisementMsg.class, this::resourceAdvertisement)
+				.matchEquals(DISCOVERY_FLUSH, tick -> flushDiscovery())
+				.matchEquals(AGGREGATE_FLUSH, tick -> flushEventCounts())
+				.match(LogFlushRequestMsg.class, this::logFlushRequest)
+				.match(ManagerStatsRequestMsg.class, this::managerStatsRequest)
 				.build();
 	}
 
@@ -78,14 +243,34 @@ public class ResourceManagerActor extends AbstractActor {
 	// REMEMBER:  YOU ARE NOT ALLOWED TO CREATE MUTABLE DATA STRUCTURES THAT ARE SHARED BY
 	// MULTIPLE ACTORS!
 	
-	private HashMap<String, Resource> localResources = new HashMap<>(); 
+	// Tables about local resources are keyed by resource ID (see ResourceRegistry); tables
+	// about remote or unknown resources, which are used only until their owner is known,
+	// are keyed by name.
+	private ResourceRegistry resourceRegistry;	// IDs of the system's resources and of this manager's own
+	private boolean sharedIds;					// True if requests carry IDs from resourceRegistry
+	private IntMap<Resource> localResources = new IntMap<>(); 
 	private HashSet<ActorRef> remoteManagers = new HashSet<>(); 
 	private HashSet<ActorRef> localUsers = new HashSet<>();
 	private HashMap<String, ActorRef> knownManagers = new HashMap<>(); 
-	private Queue<AccessRequestMsg> accessRequestQueue = new LinkedList<>();
-	private HashMap<String, List<UserAccessTuple>> userAccess = new HashMap<>();
-	private HashMap<String, List<ManagementRequestMsg>> disableRequests = new HashMap<>();
+	private HashMap<String, ActorRef> advertisedManagers = new HashMap<>();	// Owners pushed by peers, not yet used
+	private ConsistentHashRing placementRing = null;	// Resource placement shared by all managers, if any
+	private IntMap<Queue<AccessRequestMsg>> waitQueues = new IntMap<>();
+	private IntMap<Queue<AccessRequestMsg>> writerQueues = new IntMap<>();	// Waiting writers, kept apart only under WRITER_PREFERRING
+	private IntMap<ResourceLockState> lockStates = new IntMap<>();
+	private IntMap<List<ManagementRequestMsg>> disableRequests = new IntMap<>();
 	private HashMap<String, List<HashMap<Object, Integer>>> unknownResources = new HashMap<>();
+	private NegativeCache negativeCache;	// Names recently found to exist nowhere
+	private ArrayList<String> pendingDiscovery = new ArrayList<>();	// Names waiting for the next discovery batch
+	private long releasesHandled = 0;	// Releases carried out or ignored here, rather than forwarded
+	private long requestsReceived = 0;	// Requests, releases and management requests received, forwarded ones too
+	
+	private EventFilter eventFilter = null;	// Filter applying the logging policy, or null if every event is logged
+	private HybridLogicalClock clock = new HybridLogicalClock();	// Clock stamping the local event log and messages
+	private LocalEventLog localLog = null;	// Events not yet sent to the logger, or null if each is sent at once
+	private EventPublisher events;			// Front end events are logged through:  the event ring, or log()
+	
+	private static final Object DISCOVERY_FLUSH = "DiscoveryFlush";	// Timer key and message for sending a discovery batch
+	private static final Object AGGREGATE_FLUSH = "AggregateFlush";	// Timer key and message for sending event counts
 	
 	/* (non-Javadoc)
 	 * 
@@ -98,13 +283,21 @@ public class ResourceManagerActor extends AbstractActor {
 		
 	public void addRemoteManagersRequest(AddRemoteManagersRequestMsg msg) throws Exception {		
 		for (ActorRef manager : msg.getManagerList()) {
-			if (!manager.equals(getSelf())){
+			if (!manager.equals(identity)){
 				remoteManagers.add(manager);
 			}
 		}
+		if (options.isAdvertisingResources()) {
+			advertiseLocalResources();
+		}
 		getSender().tell(new AddRemoteManagersResponseMsg(msg), getSelf());
 	}
 	
+	public void addPlacementRingRequest(AddPlacementRingRequestMsg msg) throws Exception {
+		placementRing = msg.getRing();
+		getSender().tell(new AddPlacementRingResponseMsg(msg), getSelf());
+	}
+	
 	public void addLocalUsersRequest(AddLocalUsersRequestMsg msg) throws Exception {		
 		for (ActorRef user : msg.getLocalUsers()) {
 			localUsers.add(user);
@@ -113,13 +306,22 @@ public class ResourceManagerActor extends AbstractActor {
 	}
 
 	public void addInitialLocalResourcesRequest(AddInitialLocalResourcesRequestMsg msg) throws Exception {		
+		ArrayList<String> names = new ArrayList<>();
+		for (Resource r : msg.getLocalResources()) {
+			names.add(r.name);
+		}
+		resourceRegistry = resourceRegistry.withNames(names);	// Registers only names not already registered
 		for (Resource r : msg.getLocalResources()) {
-			localResources.put(r.name, r);
-			userAccess.put(r.getName(), new LinkedList<>());
-			disableRequests.put(r.getName(), new LinkedList<ManagementRequestMsg>());
+			int id = resourceRegistry.idOf(r.name);
+			localResources.put(id, r);
+			negativeCache.invalidate(r.name);
+			lockStates.put(id, new ResourceLockState());
+			waitQueues.put(id, new LinkedList<AccessRequestMsg>());
+			writerQueues.put(id, new LinkedList<AccessRequestMsg>());
+			disableRequests.put(id, new LinkedList<ManagementRequestMsg>());
 			r.enable();
-			log(LogMsg.makeLocalResourceCreatedLogMsg(getSelf(), r.name));
-			log(LogMsg.makeResourceStatusChangedLogMsg(getSelf(), r.name, ResourceStatus.ENABLED));
+			events.makeLocalResourceCreatedLogMsg(identity, r.name);
+			events.makeResourceStatusChangedLogMsg(identity, r.name, ResourceStatus.ENABLED);
 		}
 		getSender().tell(new AddInitialLocalResourcesResponseMsg(msg), getSelf());
 	}
@@ -127,181 +329,138 @@ public class ResourceManagerActor extends AbstractActor {
 	// ---------------------- Load Request Processing ---------------------------------
 	
 	public void accessRequest(AccessRequestMsg msg) throws Exception {		
-		if (accessRequestQueue.contains(msg)) {
-			accessRequestQueue.remove(msg);
-		} else {
-			log(LogMsg.makeAccessRequestReceivedLogMsg(msg.getReplyTo(), getSelf(), msg.getAccessRequest()));
-		}
+		requestsReceived++;
+		clock.receive(msg.getTimestamp());
+		events.makeAccessRequestReceivedLogMsg(msg.getReplyTo(), identity, msg.getAccessRequest());
+		int id = localIdOf(msg.getResourceId(), msg.getAccessRequest().getResourceName());
 		
-		if (!localResources.containsKey(msg.getAccessRequest().getResourceName())) {
-			if (knownManagers.containsKey(msg.getAccessRequest().getResourceName())) {
-				ActorRef forwardTo = knownManagers.get(msg.getAccessRequest().getResourceName());
-				log(LogMsg.makeAccessRequestForwardedLogMsg(forwardTo, getSelf(), msg.getAccessRequest()));
-				forwardTo.tell(msg, msg.getReplyTo());
+		if (id == ResourceRegistry.NO_ID) {
+			ActorRef forwardTo = remoteOwnerOf(msg.getAccessRequest().getResourceName());
+			if (forwardTo != null) {
+				events.makeAccessRequestForwardedLogMsg(forwardTo, identity, msg.getAccessRequest());
+				forwardTo.tell(stamped(msg), msg.getReplyTo());
 			} else {
-				searchForResourceRequest(msg);
+				searchForResource(msg.getAccessRequest().getResourceName(), msg);
 			}
 		} else {
 			// If the resource is disabled or going to be disabled
-			if (localResources.get(msg.getAccessRequest().getResourceName()).getStatus() == ResourceStatus.DISABLED
-				|| (disableRequests.get(msg.getAccessRequest().getResourceName()) != null 
-					&& disableRequests.get(msg.getAccessRequest().getResourceName()).size() != 0)) {
+			if (localResources.get(id).getStatus() == ResourceStatus.DISABLED
+				|| (disableRequests.get(id) != null 
+					&& disableRequests.get(id).size() != 0)) {
 				
-				log(LogMsg.makeAccessRequestDeniedLogMsg(msg.getReplyTo(), getSelf(), msg.getAccessRequest(), AccessRequestDenialReason.RESOURCE_DISABLED));
-				msg.getReplyTo().tell(new AccessRequestDeniedMsg(msg.getAccessRequest(), AccessRequestDenialReason.RESOURCE_DISABLED), getSelf());
+				events.makeAccessRequestDeniedLogMsg(msg.getReplyTo(), identity, msg.getAccessRequest(), AccessRequestDenialReason.RESOURCE_DISABLED);
+				msg.getReplyTo().tell(new AccessRequestDeniedMsg(msg, AccessRequestDenialReason.RESOURCE_DISABLED, stamp()), getSelf());
 			} else {
-				List<UserAccessTuple> usersWaiting = userAccess.get(msg.getAccessRequest().getResourceName());
-					
-				boolean canAccess = true;
-				
-				for (int i = 0; i < usersWaiting.size(); i++) {
-					UserAccessTuple tup = usersWaiting.get(i);
-					if (tup.getUser().equals(msg.getReplyTo())) { // re-entrant lock
-						break;
-					} else { // non-reentrant lock
-						if(tup.getAccessType().equals(AccessType.EXCLUSIVE_WRITE)) { // can't write while others are reading or writing
-							canAccess = false;
-							break;
-						} else if (tup.getAccessType().equals(AccessType.CONCURRENT_READ)) { // can't read while others are writing
-							if (msg.getAccessRequest().getType() == AccessRequestType.EXCLUSIVE_WRITE_NONBLOCKING 
-								|| msg.getAccessRequest().getType() == AccessRequestType.EXCLUSIVE_WRITE_BLOCKING) {
-								canAccess = false;
-								break;
-							}	
-						}
-					}
-				}
+				ResourceLockState lock = lockStates.get(id);
+				AccessRequestType type = msg.getAccessRequest().getType();
 				
-				if (canAccess == false) {
-					AccessRequestType type = msg.getAccessRequest().getType();
+				if (!lock.canGrant(msg.getReplyTo(), type) || mustWaitBehindQueue(id, msg, lock)) {
 					if (type == AccessRequestType.CONCURRENT_READ_NONBLOCKING || type == AccessRequestType.EXCLUSIVE_WRITE_NONBLOCKING) {
-						log(LogMsg.makeAccessRequestDeniedLogMsg(msg.getReplyTo(), getSelf(), msg.getAccessRequest(), AccessRequestDenialReason.RESOURCE_BUSY));
-						msg.getReplyTo().tell(new AccessRequestDeniedMsg(msg.getAccessRequest(), AccessRequestDenialReason.RESOURCE_BUSY), getSelf());
+						events.makeAccessRequestDeniedLogMsg(msg.getReplyTo(), identity, msg.getAccessRequest(), AccessRequestDenialReason.RESOURCE_BUSY);
+						msg.getReplyTo().tell(new AccessRequestDeniedMsg(msg, AccessRequestDenialReason.RESOURCE_BUSY, stamp()), getSelf());
 					} else if (type == AccessRequestType.CONCURRENT_READ_BLOCKING || type == AccessRequestType.EXCLUSIVE_WRITE_BLOCKING) {
-						accessRequestQueue.add(msg);
+						queueFor(id, type).add(msg);
 					}
 				} else {
-					AccessRequestType type = msg.getAccessRequest().getType();
-					if (type == AccessRequestType.CONCURRENT_READ_BLOCKING || type == AccessRequestType.CONCURRENT_READ_NONBLOCKING) {
-						
-						UserAccessTuple tmp = new UserAccessTuple(msg.getReplyTo(), AccessType.CONCURRENT_READ);
-						userAccess.get(msg.getAccessRequest().getResourceName()).add(tmp);
-					} else if (type == AccessRequestType.EXCLUSIVE_WRITE_BLOCKING || type == AccessRequestType.EXCLUSIVE_WRITE_NONBLOCKING) {
-						UserAccessTuple tmp = new UserAccessTuple(msg.getReplyTo(), AccessType.EXCLUSIVE_WRITE);
-						userAccess.get(msg.getAccessRequest().getResourceName()).add(tmp);
-					}
-					
-					log(LogMsg.makeAccessRequestGrantedLogMsg(msg.getReplyTo(), getSelf(), msg.getAccessRequest()));
-					msg.getReplyTo().tell(new AccessRequestGrantedMsg(msg.getAccessRequest()), getSelf());
+					grantAccess(msg, lock);
 				}	
 			}
 		}
 	}
 	
 	public void accessRelease(AccessReleaseMsg msg) throws Exception {		
-		log(LogMsg.makeAccessReleaseReceivedLogMsg(msg.getSender(), getSelf(), msg.getAccessRelease()));
+		requestsReceived++;
+		clock.receive(msg.getTimestamp());
+		events.makeAccessReleaseReceivedLogMsg(msg.getSender(), identity, msg.getAccessRelease());
+		int id = localIdOf(msg.getResourceId(), msg.getAccessRelease().getResourceName());
 		
-		if (!localResources.containsKey(msg.getAccessRelease().getResourceName())) {
-			if (knownManagers.containsKey(msg.getAccessRelease().getResourceName())) {
-				ActorRef forwardTo = knownManagers.get(msg.getAccessRelease().getResourceName());
-				log(LogMsg.makeAccessReleaseForwardedLogMsg(getSelf(), forwardTo, msg.getAccessRelease()));
-				forwardTo.tell(msg, msg.getSender());
+		if (id == ResourceRegistry.NO_ID) {
+			ActorRef forwardTo = remoteOwnerOf(msg.getAccessRelease().getResourceName());
+			if (forwardTo != null) {
+				events.makeAccessReleaseForwardedLogMsg(identity, forwardTo, msg.getAccessRelease());
+				forwardTo.tell(stamped(msg), msg.getSender());
 			} else {
-				searchForResourceRelease(msg);
+				searchForResource(msg.getAccessRelease().getResourceName(), msg);
 			}
 		} else {
 			// resource is here
-			List<UserAccessTuple> lst = userAccess.get(msg.getAccessRelease().getResourceName());
-			Iterator<UserAccessTuple> iterator = lst.iterator();
-			boolean holdsAccess = false;
+			releasesHandled++;
+			ResourceLockState lock = lockStates.get(id);
 			
-			while(iterator.hasNext()) {
-				UserAccessTuple tup = iterator.next();
-				if (tup.getUser().equals(msg.getSender()) && tup.getAccessType().equals(msg.getAccessRelease().getType())) {
-					holdsAccess = true;
-					log(LogMsg.makeAccessReleasedLogMsg(msg.getSender(), getSelf(), msg.getAccessRelease()));
-					iterator.remove();
-					break;
-				}
-			}
-			
-			if (holdsAccess == false) {
-				log(LogMsg.makeAccessReleaseIgnoredLogMsg(msg.getSender(), getSelf(), msg.getAccessRelease()));
+			if (lock.release(msg.getSender(), msg.getAccessRelease().getType())) {
+				events.makeAccessReleasedLogMsg(msg.getSender(), identity, msg.getAccessRelease());
+				// Now that a user relinquished their access, waiters on this resource may be able to gain access
+				processQueueAndGrantAccess(id);
+			} else {
+				events.makeAccessReleaseIgnoredLogMsg(msg.getSender(), identity, msg.getAccessRelease());
 			}
 			
-			if(lst.size() == 0) {
-				if (localResources.get(msg.getAccessRelease().getResourceName()).getStatus() == ResourceStatus.ENABLED 
-					&& disableRequests.containsKey(msg.getAccessRelease().getResourceName())) {
-					
-					for(ManagementRequestMsg disableReq : disableRequests.get(msg.getAccessRelease().getResourceName())) {
-						disableReq.getReplyTo().tell(new ManagementRequestGrantedMsg(disableReq.getRequest()), getSelf());
-						log(LogMsg.makeManagementRequestGrantedLogMsg(disableReq.getReplyTo(), getSelf(), disableReq.getRequest()));
-						log(LogMsg.makeResourceStatusChangedLogMsg(getSelf(), msg.getAccessRelease().getResourceName(), localResources.get(msg.getAccessRelease().getResourceName()).getStatus()));
+			// The last holder is gone, so pending disables can now take effect, once
+			if (lock.isFree()) {
+				List<ManagementRequestMsg> pendingDisables = disableRequests.get(id);
+				if (localResources.get(id).getStatus() == ResourceStatus.ENABLED
+					&& pendingDisables != null && !pendingDisables.isEmpty()) {
+
+					localResources.get(id).disable();
+					events.makeResourceStatusChangedLogMsg(identity, msg.getAccessRelease().getResourceName(), ResourceStatus.DISABLED);
+					for(ManagementRequestMsg disableReq : pendingDisables) {
+						events.makeManagementRequestGrantedLogMsg(disableReq.getReplyTo(), identity, disableReq.getRequest());
+						disableReq.getReplyTo().tell(new ManagementRequestGrantedMsg(disableReq, identity, stamp()), getSelf());
 					}
+					pendingDisables.clear();
 				}
 			}
 		}
-		// Now that a user relinquished their access, we can go over the queue and allow another user to gain access 
-		if (accessRequestQueue.size() > 0) {
-			processQueueAndGrantAccess();
-		}
-		
 	}
 	
 	public void managementRequest(ManagementRequestMsg msg) throws Exception {		
-		log(LogMsg.makeManagementRequestReceivedLogMsg(msg.getReplyTo(), getSelf(), msg.getRequest()));
+		requestsReceived++;
+		clock.receive(msg.getTimestamp());
+		events.makeManagementRequestReceivedLogMsg(msg.getReplyTo(), identity, msg.getRequest());
+		int id = localIdOf(msg.getResourceId(), msg.getRequest().getResourceName());
 		
-		if (!localResources.containsKey(msg.getRequest().getResourceName())) { // resource not in local resources
-			if (knownManagers.containsKey(msg.getRequest().getResourceName())) {
-				ActorRef forwardTo = knownManagers.get(msg.getRequest().getResourceName());
-				log(LogMsg.makeManagementRequestForwardedLogMsg(getSelf(), forwardTo, msg.getRequest()));
-				forwardTo.tell(msg, msg.getReplyTo());
+		if (id == ResourceRegistry.NO_ID) { // resource not in local resources
+			ActorRef forwardTo = remoteOwnerOf(msg.getRequest().getResourceName());
+			if (forwardTo != null) {
+				events.makeManagementRequestForwardedLogMsg(identity, forwardTo, msg.getRequest());
+				forwardTo.tell(stamped(msg), msg.getReplyTo());
 			} else {
-				searchForManagerRequest(msg);
+				searchForResource(msg.getRequest().getResourceName(), msg);
 			}
 		} else { // resource is in local resources
 			if (msg.getRequest().getType() == ManagementRequestType.ENABLE) {
 				// if status is already enabled, don't log anything. Only log if previous status is disabled
-				if (localResources.get(msg.getRequest().getResourceName()).getStatus() == ResourceStatus.DISABLED) {
-					localResources.get(msg.getRequest().getResourceName()).enable();
-					log(LogMsg.makeResourceStatusChangedLogMsg(getSelf(), msg.getRequest().getResourceName(), ResourceStatus.ENABLED));
+				if (localResources.get(id).getStatus() == ResourceStatus.DISABLED) {
+					localResources.get(id).enable();
+					events.makeResourceStatusChangedLogMsg(identity, msg.getRequest().getResourceName(), ResourceStatus.ENABLED);
 				}
-				log(LogMsg.makeManagementRequestGrantedLogMsg(msg.getReplyTo(), getSelf(), msg.getRequest()));
-				msg.getReplyTo().tell(new ManagementRequestGrantedMsg(msg.getRequest()), getSelf());
+				events.makeManagementRequestGrantedLogMsg(msg.getReplyTo(), identity, msg.getRequest());
+				msg.getReplyTo().tell(new ManagementRequestGrantedMsg(msg, identity, stamp()), getSelf());
 			} else if (msg.getRequest().getType() == ManagementRequestType.DISABLE) {
-				if (localResources.get(msg.getRequest().getResourceName()).getStatus() == ResourceStatus.ENABLED) {
+				if (localResources.get(id).getStatus() == ResourceStatus.ENABLED) {
 					// Checking if the user already holds access rights to the resource
-					for (UserAccessTuple tup : userAccess.get(msg.getRequest().getResourceName())) {
-						if (tup.getUser().equals(msg.getReplyTo())) {
-							msg.getReplyTo().tell(new ManagementRequestDeniedMsg(msg.getRequest(), ManagementRequestDenialReason.ACCESS_HELD_BY_USER), getSelf());
-							log(LogMsg.makeManagementRequestDeniedLogMsg(msg.getReplyTo(), getSelf(), msg.getRequest(), ManagementRequestDenialReason.ACCESS_HELD_BY_USER));
-							return;
-						}
+					if (lockStates.get(id).isHeldBy(msg.getReplyTo())) {
+						events.makeManagementRequestDeniedLogMsg(msg.getReplyTo(), identity, msg.getRequest(), ManagementRequestDenialReason.ACCESS_HELD_BY_USER);
+						msg.getReplyTo().tell(new ManagementRequestDeniedMsg(msg, ManagementRequestDenialReason.ACCESS_HELD_BY_USER, stamp()), getSelf());
+						return;
 					}
 					
-					if(userAccess.get(msg.getRequest().getResourceName()).size() == 0) {
-						localResources.get(msg.getRequest().getResourceName()).disable();
-						log(LogMsg.makeResourceStatusChangedLogMsg(getSelf(), msg.getRequest().getResourceName(), ResourceStatus.DISABLED));
-						log(LogMsg.makeManagementRequestGrantedLogMsg(msg.getReplyTo(), getSelf(), msg.getRequest()));
-						msg.getReplyTo().tell(new ManagementRequestGrantedMsg(msg.getRequest()), getSelf());
+					if (lockStates.get(id).isFree()) {
+						localResources.get(id).disable();
+						events.makeResourceStatusChangedLogMsg(identity, msg.getRequest().getResourceName(), ResourceStatus.DISABLED);
+						events.makeManagementRequestGrantedLogMsg(msg.getReplyTo(), identity, msg.getRequest());
+						msg.getReplyTo().tell(new ManagementRequestGrantedMsg(msg, identity, stamp()), getSelf());
 					} else { // CHECK
-						List<ManagementRequestMsg> currDisableReqs = disableRequests.get(msg.getRequest().getResourceName());
+						List<ManagementRequestMsg> currDisableReqs = disableRequests.get(id);
 						currDisableReqs.add(msg);
-						disableRequests.put(msg.getRequest().getResourceName(), currDisableReqs);
+						disableRequests.put(id, currDisableReqs);
 					} 
 					
-					Iterator<AccessRequestMsg> iterator = accessRequestQueue.iterator();
-					while (iterator.hasNext()){
-						AccessRequestMsg accessMsg = iterator.next();
-						if (accessMsg.getAccessRequest().getResourceName().equals(msg.getRequest().getResourceName())) {
-							accessMsg.getReplyTo().tell(new AccessRequestDeniedMsg(accessMsg.getAccessRequest(), AccessRequestDenialReason.RESOURCE_DISABLED), getSelf());
-							log(LogMsg.makeAccessRequestDeniedLogMsg(accessMsg.getReplyTo(), getSelf(), accessMsg.getAccessRequest(), AccessRequestDenialReason.RESOURCE_DISABLED));
-							iterator.remove();
-						}
-					}
-				} else if (localResources.get(msg.getRequest().getResourceName()).getStatus() == ResourceStatus.DISABLED) {
-					log(LogMsg.makeManagementRequestGrantedLogMsg(msg.getReplyTo(), getSelf(), msg.getRequest()));
-					msg.getReplyTo().tell(new ManagementRequestGrantedMsg(msg.getRequest()), getSelf());
+					denyWaiters(writerQueues.get(id));
+					denyWaiters(waitQueues.get(id));
+				} else if (localResources.get(id).getStatus() == ResourceStatus.DISABLED) {
+					events.makeManagementRequestGrantedLogMsg(msg.getReplyTo(), identity, msg.getRequest());
+					msg.getReplyTo().tell(new ManagementRequestGrantedMsg(msg, identity, stamp()), getSelf());
 				}
 			}
 			
@@ -311,60 +470,89 @@ public class ResourceManagerActor extends AbstractActor {
 	// ---------------------- Locating Resource Handlers -------------------------------------
 	
 	public void whoHasResourceRequest(WhoHasResourceRequestMsg msg) throws Exception {
-		boolean containsResource = localResources.containsKey(msg.getResourceName());
-		getSender().tell(new WhoHasResourceResponseMsg(msg.getResourceName(), containsResource, getSelf()), getSelf());
+		boolean containsResource = isLocal(msg.getResourceName());
+		getSender().tell(new WhoHasResourceResponseMsg(msg.getResourceName(), containsResource, identity), getSelf());
 	}
 	
 	public void whoHasResourceResponse(WhoHasResourceResponseMsg msg) throws Exception {
-		if (msg.getResult() == true) { // found remote manager with required resource
-			if (unknownResources.containsKey(msg.getResourceName())) {
-				log(LogMsg.makeRemoteResourceDiscoveredLogMsg(getSelf(), msg.getSender(), msg.getResourceName()));
-				knownManagers.put(msg.getResourceName(), msg.getSender());
-				for(HashMap<Object, Integer> map : unknownResources.get(msg.getResourceName())) {
+		resourceLocated(msg.getResourceName(), msg.getResult(), msg.getSender());
+	}
+	
+	public void whoHasResourcesBatchRequest(WhoHasResourcesBatchRequestMsg msg) throws Exception {
+		ArrayList<String> names = msg.getResourceNames();
+		BitSet results = new BitSet(names.size());
+		for (int i = 0; i < names.size(); i++) {
+			results.set(i, isLocal(names.get(i)));
+		}
+		getSender().tell(new WhoHasResourcesBatchResponseMsg(msg, results, identity), getSelf());
+	}
+	
+	public void whoHasResourcesBatchResponse(WhoHasResourcesBatchResponseMsg msg) throws Exception {
+		ArrayList<String> names = msg.getResourceNames();
+		for (int i = 0; i < names.size(); i++) {
+			resourceLocated(names.get(i), msg.getResult(i), msg.getSender());
+		}
+	}
+	
+	public void resourceAdvertisement(ResourceAdvertisementMsg msg) throws Exception {
+		for (String name : msg.getResourceNames()) {
+			if (isLocal(name) || knownManagers.containsKey(name)) {
+				continue;
+			}
+			negativeCache.invalidate(name);
+			if (unknownResources.containsKey(name)) {
+				resourceLocated(name, true, msg.getOwner());
+			} else {
+				advertisedManagers.put(name, msg.getOwner());
+			}
+		}
+	}
+	
+	/**
+	 * Process one manager's answer to whether it manages a resource being discovered.
+	 * Once a manager has the resource, all requests waiting on it are forwarded there;
+	 * once every remote manager has said no, they are all denied.
+	 * 
+	 * @param resourceName	Name of resource being discovered
+	 * @param found			True if the answering manager has the resource
+	 * @param owner			Answering manager
+	 */
+	private void resourceLocated(String resourceName, boolean found, ActorRef owner) {
+		if (found) { // found remote manager with required resource
+			negativeCache.invalidate(resourceName);
+			if (unknownResources.containsKey(resourceName)) {
+				events.makeRemoteResourceDiscoveredLogMsg(identity, owner, resourceName);
+				knownManagers.put(resourceName, owner);
+				for(HashMap<Object, Integer> map : unknownResources.get(resourceName)) {
 					for (Object obj : map.keySet()) {
 						if (obj instanceof AccessRequestMsg) {
 							AccessRequestMsg m = (AccessRequestMsg) obj;
-							msg.getSender().tell(m, m.getReplyTo());
+							owner.tell(stamped(m), m.getReplyTo());
 						} else if (obj instanceof AccessReleaseMsg) {
 							AccessReleaseMsg m = (AccessReleaseMsg) obj;
-							msg.getSender().tell(m, m.getSender());
+							owner.tell(stamped(m), m.getSender());
 						} else if (obj instanceof ManagementRequestMsg) {
 							ManagementRequestMsg m = (ManagementRequestMsg) obj;
-							msg.getSender().tell(m, m.getReplyTo());						
+							owner.tell(stamped(m), m.getReplyTo());						
 						}
 					}
 				}
-				unknownResources.remove(msg.getResourceName());
+				unknownResources.remove(resourceName);
 			}
 		} else {
-			if (unknownResources.containsKey(msg.getResourceName()) && unknownResources.get(msg.getResourceName()).size() != 0) {
-				for (HashMap<Object, Integer> outerMap : unknownResources.get(msg.getResourceName())) {
+			if (unknownResources.containsKey(resourceName) && unknownResources.get(resourceName).size() != 0) {
+				for (HashMap<Object, Integer> outerMap : unknownResources.get(resourceName)) {
 					for (Object msgKey : outerMap.keySet()) {
 						outerMap.compute(msgKey, (key, val) -> (val == null) ? null : val - 1);
 
 						if (outerMap.get(msgKey) == 0) { // base case: no one has resource
-							for (HashMap<Object, Integer> map : unknownResources.get(msg.getResourceName())) {
+							for (HashMap<Object, Integer> map : unknownResources.get(resourceName)) {
 								for (Object o : map.keySet()) {
-									if (o instanceof AccessRequestMsg) {
-										AccessRequestMsg m = (AccessRequestMsg) o;
-										m.getReplyTo().tell(new AccessRequestDeniedMsg(m,
-												AccessRequestDenialReason.RESOURCE_NOT_FOUND), getSelf());
-										log(LogMsg.makeAccessRequestDeniedLogMsg(m.getReplyTo(), getSelf(),
-												m.getAccessRequest(), AccessRequestDenialReason.RESOURCE_NOT_FOUND));
-									} else if (o instanceof AccessReleaseMsg) {
-										AccessReleaseMsg m = (AccessReleaseMsg) o;
-										log(LogMsg.makeAccessReleaseIgnoredLogMsg(m.getSender(), getSelf(),
-												m.getAccessRelease()));
-									} else if (o instanceof ManagementRequestMsg) {
-										ManagementRequestMsg m = (ManagementRequestMsg) o;
-										m.getReplyTo().tell(new ManagementRequestDeniedMsg(m,
-												ManagementRequestDenialReason.RESOURCE_NOT_FOUND), getSelf());
-										log(LogMsg.makeManagementRequestDeniedLogMsg(m.getReplyTo(), getSelf(),
-												m.getRequest(), ManagementRequestDenialReason.RESOURCE_NOT_FOUND));
-									}
+									denyResourceNotFound(o);
 								}
 							}
-							unknownResources.remove(msg.getResourceName());
+							negativeCache.add(resourceName);
+							unknownResources.remove(resourceName);
 						}
 					}
 				}
@@ -374,125 +562,300 @@ public class ResourceManagerActor extends AbstractActor {
 	
 	// ---------------------- Private Methods ----------------------------------
 	
-	private void processQueueAndGrantAccess() throws Exception{
-		for(AccessRequestMsg accessMsg : accessRequestQueue) {
-			boolean accessPossible = true;
-			for(UserAccessTuple tup : userAccess.get(accessMsg.getAccessRequest().getResourceName())) {
-				// If user already has a write request, he can get another
-				if (tup.getAccessType() == AccessType.EXCLUSIVE_WRITE 
-					&& !tup.getUser().equals(accessMsg.getReplyTo())) {
-					accessPossible = false;
-					break;
-				} else if (tup.getAccessType() == AccessType.CONCURRENT_READ
-					&& !tup.getUser().equals(accessMsg.getReplyTo())
-					&& (accessMsg.getAccessRequest().getType() == AccessRequestType.EXCLUSIVE_WRITE_BLOCKING
-						|| accessMsg.getAccessRequest().getType() == AccessRequestType.EXCLUSIVE_WRITE_NONBLOCKING)) {
-					accessPossible = false;
-					break;
-				}
-			}
-			
-			if (accessPossible) {
-				accessRequest(accessMsg);
+	/**
+	 * Answer a request for a resource that no manager has.
+	 * 
+	 * @param o		AccessRequestMsg, AccessReleaseMsg or ManagementRequestMsg to answer
+	 */
+	private void denyResourceNotFound(Object o) {
+		if (o instanceof AccessRequestMsg) {
+			AccessRequestMsg m = (AccessRequestMsg) o;
+			events.makeAccessRequestDeniedLogMsg(m.getReplyTo(), identity,
+					m.getAccessRequest(), AccessRequestDenialReason.RESOURCE_NOT_FOUND);
+			m.getReplyTo().tell(new AccessRequestDeniedMsg(m,
+					AccessRequestDenialReason.RESOURCE_NOT_FOUND, stamp()), getSelf());
+		} else if (o instanceof AccessReleaseMsg) {
+			AccessReleaseMsg m = (AccessReleaseMsg) o;
+			releasesHandled++;
+			events.makeAccessReleaseIgnoredLogMsg(m.getSender(), identity,
+					m.getAccessRelease());
+		} else if (o instanceof ManagementRequestMsg) {
+			ManagementRequestMsg m = (ManagementRequestMsg) o;
+			events.makeManagementRequestDeniedLogMsg(m.getReplyTo(), identity,
+					m.getRequest(), ManagementRequestDenialReason.RESOURCE_NOT_FOUND);
+			m.getReplyTo().tell(new ManagementRequestDeniedMsg(m,
+					ManagementRequestDenialReason.RESOURCE_NOT_FOUND, stamp()), getSelf());
+		}
+	}
+	
+	/**
+	 * @param resourceName	Name of resource
+	 * @return				True if the resource is local
+	 */
+	private boolean isLocal(String resourceName) {
+		return localIdOf(ResourceRegistry.NO_ID, resourceName) != ResourceRegistry.NO_ID;
+	}
+	
+	/**
+	 * Find the ID of a resource named in a request, if the resource is local.  The ID
+	 * the request carries is used when it comes from this manager's registry; otherwise
+	 * the name is looked up, without registering it.
+	 * 
+	 * @param carriedId		ID carried by the request, or ResourceRegistry.NO_ID
+	 * @param resourceName	Name of resource
+	 * @return				ID of the resource, or ResourceRegistry.NO_ID if it is not local
+	 */
+	private int localIdOf(int carriedId, String resourceName) {
+		int id = (sharedIds && carriedId != ResourceRegistry.NO_ID) ? carriedId : resourceRegistry.idOf(resourceName);
+		return (id != ResourceRegistry.NO_ID && localResources.containsKey(id)) ? id : ResourceRegistry.NO_ID;
+	}
+	
+	/**
+	 * Find the remote manager to forward a request for a non-local resource to, without
+	 * discovery.  Managers learned through discovery or advertisement take precedence; otherwise the
+	 * placement ring, if any, names the owner.  A resource the ring places on this
+	 * manager but which is not local was placed outside the ring, and must be discovered.
+	 * 
+	 * @param resourceName	Name of non-local resource
+	 * @return				Manager to forward to, or null if the resource must be discovered
+	 */
+	private ActorRef remoteOwnerOf(String resourceName) {
+		ActorRef owner = knownManagers.get(resourceName);
+		if (owner == null && advertisedManagers.containsKey(resourceName)) {
+			// First use of an advertised resource counts as its discovery
+			owner = advertisedManagers.remove(resourceName);
+			events.makeRemoteResourceDiscoveredLogMsg(identity, owner, resourceName);
+			knownManagers.put(resourceName, owner);
+		}
+		if (owner == null && placementRing != null) {
+			owner = placementRing.ownerOf(resourceName);
+			if (identity.equals(owner)) {
+				owner = null;
 			}
 		}
+		return owner;
+	}
+	
+	/**
+	 * Grant a request that has been checked against the lock state of its resource.
+	 * 
+	 * @param msg	Request being granted
+	 * @param lock	Lock state of the requested resource
+	 */
+	private void grantAccess(AccessRequestMsg msg, ResourceLockState lock) {
+		lock.grant(msg.getReplyTo(), msg.getAccessRequest().getType());
+		events.makeAccessRequestGrantedLogMsg(msg.getReplyTo(), identity, msg.getAccessRequest());
+		msg.getReplyTo().tell(new AccessRequestGrantedMsg(msg, identity, stamp()), getSelf());
+	}
+	
+	/**
+	 * Under WRITER_PREFERRING, a new request may not overtake a writer already waiting
+	 * for its resource, unless the user already holds access (the writer would otherwise
+	 * wait for the user, and the user for the writer).
+	 * 
+	 * @param id	ID of the requested resource
+	 * @param msg	New request
+	 * @param lock	Lock state of the requested resource
+	 * @return		True if the request must be treated as conflicting
+	 */
+	private boolean mustWaitBehindQueue(int id, AccessRequestMsg msg, ResourceLockState lock) {
+		return options.getGrantPolicy() == AccessGrantPolicy.WRITER_PREFERRING
+			&& !writerQueues.get(id).isEmpty()
+			&& !lock.isHeldBy(msg.getReplyTo());
 	}
 	
-	private void searchForResourceRequest(AccessRequestMsg msg) {
-		if (!userAccess.containsKey(msg.getAccessRequest().getResourceName())) {
-			userAccess.put(msg.getAccessRequest().getResourceName(), new LinkedList<>());
+	/**
+	 * @param id	ID of resource
+	 * @param type	Type of blocked request
+	 * @return		Queue the request waits in:  its own queue for a writer under
+	 * 				WRITER_PREFERRING, and the resource's FIFO wait queue otherwise
+	 */
+	private Queue<AccessRequestMsg> queueFor(int id, AccessRequestType type) {
+		if (options.getGrantPolicy() == AccessGrantPolicy.WRITER_PREFERRING
+			&& ResourceLockState.toAccessType(type) == AccessType.EXCLUSIVE_WRITE) {
+			return writerQueues.get(id);
 		}
-		
-		if (!disableRequests.containsKey(msg.getAccessRequest().getResourceName())) {
-			disableRequests.put(msg.getAccessRequest().getResourceName(), new LinkedList<ManagementRequestMsg>());
+		return waitQueues.get(id);
+	}
+	
+	/**
+	 * Grant blocked requests for a single resource in FIFO order, stopping at the first
+	 * waiter that still conflicts with the current holders.  Once a writer releases, the
+	 * whole contiguous run of readers at the head of the queue is admitted in this one
+	 * pass.  Under WRITER_PREFERRING, waiting writers are served first, and readers only
+	 * once no writer waits.  Cost is proportional to the number of waiters unblocked, not
+	 * to the number of blocked requests on this node.
+	 * 
+	 * @param id	ID of resource whose access was just released
+	 */
+	private void processQueueAndGrantAccess(int id) {
+		ResourceLockState lock = lockStates.get(id);
+		Queue<AccessRequestMsg> writers = writerQueues.get(id);
+		grantWhileCompatible(writers, lock);
+		if (writers.isEmpty()) {
+			grantWhileCompatible(waitQueues.get(id), lock);
 		}
-		
-		HashMap<Object, Integer> unknown = new HashMap<>();
-		unknown.put(msg, 0);
-		
-		if (!unknownResources.containsKey(msg.getAccessRequest().getResourceName())) {
-			for (ActorRef manager : remoteManagers) {
-				unknown.compute(msg, (key, val)-> (val == null) ? null : val + 1);
-				manager.tell(new WhoHasResourceRequestMsg(msg.getAccessRequest().getResourceName()), getSelf());
-			}
-			List<HashMap<Object, Integer>> requestsSent = new LinkedList<>();
-			requestsSent.add(unknown);
-			unknownResources.put(msg.getAccessRequest().getResourceName(), requestsSent);
-		} else {
-			unknownResources.get(msg.getAccessRequest().getResourceName()).add(unknown);
+	}
+	
+	/**
+	 * Grant requests from the head of a wait queue until one conflicts with the current holders.
+	 * 
+	 * @param waiters	Wait queue of a resource
+	 * @param lock		Lock state of the resource
+	 */
+	private void grantWhileCompatible(Queue<AccessRequestMsg> waiters, ResourceLockState lock) {
+		while (!waiters.isEmpty() 
+			&& lock.canGrant(waiters.peek().getReplyTo(), waiters.peek().getAccessRequest().getType())) {
+			grantAccess(waiters.poll(), lock);
 		}
-		
 	}
 	
-	private void searchForResourceRelease(AccessReleaseMsg msg) {
-		if (!userAccess.containsKey(msg.getAccessRelease().getResourceName())) {
-			userAccess.put(msg.getAccessRelease().getResourceName(), new LinkedList<>());
+	/**
+	 * Deny every request in a wait queue of a resource being disabled, emptying the queue.
+	 * 
+	 * @param waiters	Wait queue of the resource
+	 */
+	private void denyWaiters(Queue<AccessRequestMsg> waiters) {
+		while (!waiters.isEmpty()) {
+			AccessRequestMsg accessMsg = waiters.poll();
+			events.makeAccessRequestDeniedLogMsg(accessMsg.getReplyTo(), identity, accessMsg.getAccessRequest(), AccessRequestDenialReason.RESOURCE_DISABLED);
+			accessMsg.getReplyTo().tell(new AccessRequestDeniedMsg(accessMsg, AccessRequestDenialReason.RESOURCE_DISABLED, stamp()), getSelf());
 		}
-		
-		if (!disableRequests.containsKey(msg.getAccessRelease().getResourceName())) {
-			disableRequests.put(msg.getAccessRelease().getResourceName(), new LinkedList<ManagementRequestMsg>());
+	}
+	
+	/**
+	 * Start, or join, discovery of the manager of a resource that is neither local nor known.
+	 * The request is held until discovery finishes.
+	 * 
+	 * @param resourceName	Name of resource to discover
+	 * @param msg			AccessRequestMsg, AccessReleaseMsg or ManagementRequestMsg waiting on discovery
+	 */
+	private void searchForResource(String resourceName, Object msg) {
+		if (negativeCache.contains(resourceName) || remoteManagers.isEmpty()) {
+			denyResourceNotFound(msg);
+			return;
 		}
 		
 		HashMap<Object, Integer> unknown = new HashMap<>();
 		unknown.put(msg, 0);
 		
-		if (!unknownResources.containsKey(msg.getAccessRelease().getResourceName())) {
-			for (ActorRef manager : remoteManagers) {
-				unknown.compute(msg, (key, val)-> (val == null) ? null : val + 1);
-				manager.tell(new WhoHasResourceRequestMsg(msg.getAccessRelease().getResourceName()), getSelf());
+		if (!unknownResources.containsKey(resourceName)) {
+			unknown.put(msg, remoteManagers.size());
+			if (options.isDiscoveryBatched()) {
+				pendingDiscovery.add(resourceName);
+				if (pendingDiscovery.size() >= options.getDiscoveryBatchSize()) {
+					flushDiscovery();
+				} else if (pendingDiscovery.size() == 1) {
+					getTimers().startSingleTimer(DISCOVERY_FLUSH, DISCOVERY_FLUSH, 
+							Duration.create(options.getDiscoveryWindowMs(), TimeUnit.MILLISECONDS));
+				}
+			} else {
+				for (ActorRef manager : remoteManagers) {
+					manager.tell(new WhoHasResourceRequestMsg(resourceName), getSelf());
+				}
 			}
 			List<HashMap<Object, Integer>> requestsSent = new LinkedList<>();
 			requestsSent.add(unknown);
-			unknownResources.put(msg.getAccessRelease().getResourceName(), requestsSent);
+			unknownResources.put(resourceName, requestsSent);
 		} else {
-			unknownResources.get(msg.getAccessRelease().getResourceName()).add(unknown);
+			unknownResources.get(resourceName).add(unknown);
 		}
 		
 	}
 	
-	private void searchForManagerRequest(ManagementRequestMsg msg) {
-		if (!userAccess.containsKey(msg.getRequest().getResourceName())) {
-			userAccess.put(msg.getRequest().getResourceName(), new LinkedList<>());
+	/**
+	 * Push the names of all local resources to every remote manager, in advertisements
+	 * of at most ResourceAdvertisementMsg.MAX_NAMES names.  Each advertisement is built
+	 * once and shared by all recipients.
+	 */
+	private void advertiseLocalResources() {
+		ArrayList<String> names = new ArrayList<>();
+		for (Resource r : localResources.values()) {
+			names.add(r.getName());
+			if (names.size() == ResourceAdvertisementMsg.MAX_NAMES) {
+				sendAdvertisement(names);
+				names = new ArrayList<>();
+			}
 		}
-		
-		if (!disableRequests.containsKey(msg.getRequest().getResourceName())) {
-			disableRequests.put(msg.getRequest().getResourceName(), new LinkedList<ManagementRequestMsg>());
+		if (!names.isEmpty()) {
+			sendAdvertisement(names);
 		}
-		
-		HashMap<Object, Integer> unknown = new HashMap<>();
-		unknown.put(msg, 0);
-		
-		if (!unknownResources.containsKey(msg.getRequest().getResourceName())) {
-			for (ActorRef manager : remoteManagers) {
-				unknown.compute(msg, (key, val)-> (val == null) ? null : val + 1);
-				manager.tell(new WhoHasResourceRequestMsg(msg.getRequest().getResourceName()), getSelf());
+	}
+	
+	/**
+	 * @param names		Names of local resources to advertise to every remote manager
+	 */
+	private void sendAdvertisement(ArrayList<String> names) {
+		ResourceAdvertisementMsg ad = new ResourceAdvertisementMsg(names, identity);
+		for (ActorRef manager : remoteManagers) {
+			manager.tell(ad, getSelf());
+		}
+	}
+	
+	/**
+	 * Send all resource names collected for discovery to every remote manager, as one
+	 * batch per manager.
+	 */
+	private void flushDiscovery() {
+		getTimers().cancel(DISCOVERY_FLUSH);
+		if (pendingDiscovery.isEmpty()) {
+			return;
+		}
+		WhoHasResourcesBatchRequestMsg batch = new WhoHasResourcesBatchRequestMsg(pendingDiscovery);
+		for (ActorRef manager : remoteManagers) {
+			manager.tell(batch, getSelf());
+		}
+		pendingDiscovery = new ArrayList<>();
+	}
+	
+	/**
+	 * Send the logger the counts of aggregated events since the last flush.
+	 */
+	private void flushEventCounts() {
+		if (eventFilter != null) {
+			for (LogAggregateMsg count : eventFilter.takePendingCounts(identity)) {
+				emit(count);
 			}
-			List<HashMap<Object, Integer>> requestsSent = new LinkedList<>();
-			requestsSent.add(unknown);
-			unknownResources.put(msg.getRequest().getResourceName(), requestsSent);
-		} else {
-			unknownResources.get(msg.getRequest().getResourceName()).add(unknown);
 		}
-		
 	}
 	
-	// ------------------------ Private Class(es) -----------------------------------
+	/**
+	 * Send the logger the rest of the local event log, or the counts not yet sent, as
+	 * the last batch, once every user has terminated.
+	 */
+	public void logFlushRequest(LogFlushRequestMsg msg) {
+		getTimers().cancel(AGGREGATE_FLUSH);
+		if (localLog != null) {
+			flushEventCounts();
+			localLog.send(getSelf(), logger, true);
+		} else if (eventFilter != null) {
+			ArrayList<Object> counts = new ArrayList<Object>(eventFilter.takePendingCounts(identity));
+			long[] stamps = new long[counts.size()];
+			for (int i = 0; i < stamps.length; i++) {
+				stamps[i] = clock.tick();
+			}
+			logger.tell(new LogBatchMsg(getSelf(), counts, stamps, true), getSelf());
+		}
+	}
 	
-	private class UserAccessTuple {
-		private ActorRef user; 
-		private AccessType accessType;
-		
-		public UserAccessTuple(ActorRef u, AccessType a) {
-			this.user = u;
-			this.accessType  = a;
+	/**
+	 * Answer with the counts of this manager's negative cache:  requests for missing
+	 * resources denied without discovery, and requests that needed discovery.  The
+	 * answer also carries the counts a simulation clock tracks outstanding work by:
+	 * releases carried out or ignored, requests queued, and requests received.
+	 */
+	public void managerStatsRequest(ManagerStatsRequestMsg msg) {
+		long waiting = 0;
+		for (Queue<AccessRequestMsg> q : waitQueues.values()) {
+			waiting += q.size();
 		}
-		
-		public ActorRef getUser() {
-			return this.user;
+		for (Queue<AccessRequestMsg> q : writerQueues.values()) {
+			waiting += q.size();
 		}
-		
-		public AccessType getAccessType() {
-			return this.accessType;
+		for (List<ManagementRequestMsg> l : disableRequests.values()) {
+			waiting += l.size();
 		}
+		getSender().tell(new ManagerStatsResponseMsg(msg, negativeCache.getHits(), negativeCache.getMisses(),
+				releasesHandled, waiting, requestsReceived), getSelf());
 	}
 }
\ No newline at end of file
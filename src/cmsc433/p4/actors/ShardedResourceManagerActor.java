@@ -0,0 +1,278 @@
+package cmsc433.p4.actors;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import cmsc433.p4.messages.AccessReleaseMsg;
+import cmsc433.p4.messages.AccessRequestMsg;
+import cmsc433.p4.messages.AddInitialLocalResourcesRequestMsg;
+import cmsc433.p4.messages.AddInitialLocalResourcesResponseMsg;
+import cmsc433.p4.messages.AddLocalUsersRequestMsg;
+import cmsc433.p4.messages.AddLocalUsersResponseMsg;
+import cmsc433.p4.messages.AddPlacementRingRequestMsg;
+import cmsc433.p4.messages.AddPlacementRingResponseMsg;
+import cmsc433.p4.messages.AddRemoteManagersRequestMsg;
+import cmsc433.p4.messages.AddRemoteManagersResponseMsg;
+import cmsc433.p4.messages.ManagementRequestMsg;
+import cmsc433.p4.messages.ManagerStatsRequestMsg;
+import cmsc433.p4.messages.ManagerStatsResponseMsg;
+import cmsc433.p4.messages.ResourceAdvertisementMsg;
+import cmsc433.p4.messages.WhoHasResourceRequestMsg;
+import cmsc433.p4.messages.WhoHasResourcesBatchRequestMsg;
+import cmsc433.p4.util.ManagerOptions;
+import cmsc433.p4.util.Resource;
+import akka.actor.ActorRef;
+import akka.actor.Props;
+import akka.actor.AbstractActor;
+
+/**
+ * Front actor of a sharded resource manager.
+ *
+ * The local resources of one node are split across several ResourceManagerActor
+ * shards by hashing resource names, so that requests for different resources are
+ * processed in parallel.  Each shard owns a disjoint slice of the node's resources,
+ * lock states and pending disable requests.  All requests for a given resource name,
+ * local or remote, are routed to the same shard.  Shards log and answer discovery
+ * requests under the reference of this front actor, so to users, remote managers and
+ * the logger a sharded manager is indistinguishable from a single ResourceManagerActor.
+ *
+ */
+public class ShardedResourceManagerActor extends AbstractActor {
+
+	private ActorRef logger;					// Actor to send logging messages to
+	private ManagerOptions options;				// Settings used by every shard
+	private ActorRef[] shards;					// Shard actors, indexed by resource-name hash
+
+	/**
+	 * Props structure-generator for this class.
+	 * @param logger			Actor to send logging messages to
+	 * @param options			Settings used by every shard, including the shard count
+	 * @return  Props structure
+	 */
+	static Props props (ActorRef logger, ManagerOptions options) {
+		return Props.create(ShardedResourceManagerActor.class, logger, options);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param logger			Actor to send logging messages to
+	 * @param options			Settings used by every shard, including the shard count
+	 */
+	private ShardedResourceManagerActor(ActorRef logger, ManagerOptions options) {
+		super();
+		this.logger = logger;
+		this.options = options;
+		this.shards = new ActorRef[options.getShardCount()];
+	}
+
+	@Override
+	public void preStart() {
+		for (int i = 0; i < shards.length; i++) {
+			shards[i] = getContext().actorOf(ResourceManagerActor.shardProps(logger, options));
+		}
+	}
+
+	@Override
+	public Receive createReceive() {
+		return receiveBuilder()
+				.match(AccessRequestMsg.class, msg -> route(msg.getAccessRequest().getResourceName(), msg))
+				.match(AccessReleaseMsg.class, msg -> route(msg.getAccessRelease().getResourceName(), msg))
+				.match(ManagementRequestMsg.class, msg -> route(msg.getRequest().getResourceName(), msg))
+				.match(WhoHasResourceRequestMsg.class, msg -> route(msg.getResourceName(), msg))
+				.match(WhoHasResourcesBatchRequestMsg.class, this::whoHasResourcesBatchRequest)
+				.match(ResourceAdvertisementMsg.class, this::resourceAdvertisement)
+				.match(AddInitialLocalResourcesRequestMsg.class, this::addInitialLocalResourcesRequest)
+				.match(AddRemoteManagersRequestMsg.class, this::broadcastInitialization)
+				.match(AddLocalUsersRequestMsg.class, this::broadcastInitialization)
+				.match(AddPlacementRingRequestMsg.class, this::broadcastInitialization)
+				.match(AddInitialLocalResourcesResponseMsg.class, msg -> shardAcknowledged(msg.getRequest()))
+				.match(AddRemoteManagersResponseMsg.class, msg -> shardAcknowledged(msg.getRequestMsg()))
+				.match(AddLocalUsersResponseMsg.class, msg -> shardAcknowledged(msg.getRequestMsg()))
+				.match(AddPlacementRingResponseMsg.class, msg -> shardAcknowledged(msg.getRequestMsg()))
+				.match(ManagerStatsRequestMsg.class, this::managerStatsRequest)
+				.match(ManagerStatsResponseMsg.class, this::shardStats)
+				.build();
+	}
+
+	// Initialization and stats requests awaiting acknowledgements from shards
+
+	private HashMap<Object, Object> originalRequests = new HashMap<>();		// Shard request -> request received by front
+	private HashMap<Object, Integer> pendingAcks = new HashMap<>();			// Request received by front -> shards yet to reply
+	private HashMap<Object, ActorRef> initReplyTo = new HashMap<>();		// Request received by front -> requester
+	private HashMap<Object, long[]> statsTotals = new HashMap<>();			// Stats request -> counts summed so far
+
+	// ----------------------- Routing ------------------------------
+
+	/**
+	 * @param resourceName	Name of resource
+	 * @return				Index of shard owning the resource with the given name
+	 */
+	private int shardIndex (String resourceName) {
+		return Math.floorMod(resourceName.hashCode(), shards.length);
+	}
+
+	/**
+	 * @param resourceName	Name of resource
+	 * @return				Shard owning the resource with the given name
+	 */
+	private ActorRef shardFor (String resourceName) {
+		return shards[shardIndex(resourceName)];
+	}
+
+	/**
+	 * Forward message to the shard owning the resource, preserving the original sender.
+	 *
+	 * @param resourceName	Name of resource message is about
+	 * @param msg			Message to forward
+	 */
+	private void route (String resourceName, Object msg) {
+		shardFor(resourceName).forward(msg, getContext());
+	}
+
+	/**
+	 * Split a discovery batch by owning shard.  Each shard answers the requester directly
+	 * for its own slice of the names.
+	 *
+	 * @param msg	Discovery batch from a remote manager
+	 */
+	public void whoHasResourcesBatchRequest(WhoHasResourcesBatchRequestMsg msg) {
+		ArrayList<ArrayList<String>> slices = sliceByShard(msg.getResourceNames());
+		for (int i = 0; i < shards.length; i++) {
+			if (!slices.get(i).isEmpty()) {
+				shards[i].forward(new WhoHasResourcesBatchRequestMsg(slices.get(i)), getContext());
+			}
+		}
+	}
+
+	/**
+	 * Split an advertisement from a peer by the shard that handles each name.
+	 *
+	 * @param msg	Advertisement from a remote manager
+	 */
+	public void resourceAdvertisement(ResourceAdvertisementMsg msg) {
+		ArrayList<ArrayList<String>> slices = sliceByShard(msg.getResourceNames());
+		for (int i = 0; i < shards.length; i++) {
+			if (!slices.get(i).isEmpty()) {
+				shards[i].forward(new ResourceAdvertisementMsg(slices.get(i), msg.getOwner()), getContext());
+			}
+		}
+	}
+
+	/**
+	 * @param names		Resource names
+	 * @return			Names split into one list per shard, indexed as the shards are
+	 */
+	private ArrayList<ArrayList<String>> sliceByShard(ArrayList<String> names) {
+		ArrayList<ArrayList<String>> slices = new ArrayList<>();
+		for (int i = 0; i < shards.length; i++) {
+			slices.add(new ArrayList<String>());
+		}
+		for (String name : names) {
+			slices.get(shardIndex(name)).add(name);
+		}
+		return slices;
+	}
+
+	// ----------------------- Initialization Handlers ------------------------------
+
+	public void addInitialLocalResourcesRequest(AddInitialLocalResourcesRequestMsg msg) {
+		ArrayList<ArrayList<Resource>> slices = new ArrayList<>();
+		for (int i = 0; i < shards.length; i++) {
+			slices.add(new ArrayList<Resource>());
+		}
+		for (Resource r : msg.getLocalResources()) {
+			slices.get(shardIndex(r.getName())).add(r);
+		}
+
+		awaitAcks(msg, shards.length);
+		for (int i = 0; i < shards.length; i++) {
+			AddInitialLocalResourcesRequestMsg slice = new AddInitialLocalResourcesRequestMsg(slices.get(i));
+			originalRequests.put(slice, msg);
+			shards[i].tell(slice, getSelf());
+		}
+	}
+
+	public void broadcastInitialization(Object msg) {
+		awaitAcks(msg, shards.length);
+		originalRequests.put(msg, msg);
+		for (ActorRef shard : shards) {
+			shard.tell(msg, getSelf());
+		}
+	}
+
+	// ----------------------- Stats Handlers ------------------------------
+
+	/**
+	 * Ask every shard for its counts; the sums are sent to the requester once every shard
+	 * has answered.
+	 *
+	 * @param msg	Stats request
+	 */
+	public void managerStatsRequest(ManagerStatsRequestMsg msg) {
+		statsTotals.put(msg, new long[5]);
+		awaitAcks(msg, shards.length);
+		originalRequests.put(msg, msg);
+		for (ActorRef shard : shards) {
+			shard.tell(msg, getSelf());
+		}
+	}
+
+	/**
+	 * Add a shard's counts to the sums, and count its answer as an acknowledgement.
+	 *
+	 * @param msg	Counts of one shard
+	 */
+	public void shardStats(ManagerStatsResponseMsg msg) {
+		long[] totals = statsTotals.get(msg.getRequest());
+		totals[0] += msg.getNegativeCacheHits();
+		totals[1] += msg.getNegativeCacheMisses();
+		totals[2] += msg.getReleasesHandled();
+		totals[3] += msg.getRequestsWaiting();
+		totals[4] += msg.getRequestsReceived();
+		shardAcknowledged(msg.getRequest());
+	}
+
+	/**
+	 * Record that a reply to the sender is due once the given number of shards acknowledge.
+	 *
+	 * @param msg		Request received by this actor
+	 * @param count		Number of shard acknowledgements to wait for
+	 */
+	private void awaitAcks(Object msg, int count) {
+		pendingAcks.put(msg, count);
+		initReplyTo.put(msg, getSender());
+	}
+
+	/**
+	 * Count a shard acknowledgement, replying to the original requester once every shard
+	 * has acknowledged.
+	 *
+	 * @param shardRequest	Request that was sent to the shard
+	 */
+	private void shardAcknowledged(Object shardRequest) {
+		Object msg = originalRequests.get(shardRequest);
+		int remaining = pendingAcks.get(msg) - 1;
+		if (remaining > 0) {
+			pendingAcks.put(msg, remaining);
+			return;
+		}
+
+		pendingAcks.remove(msg);
+		originalRequests.values().removeIf(original -> original == msg);
+		ActorRef replyTo = initReplyTo.remove(msg);
+		if (msg instanceof AddInitialLocalResourcesRequestMsg) {
+			replyTo.tell(new AddInitialLocalResourcesResponseMsg((AddInitialLocalResourcesRequestMsg) msg), getSelf());
+		} else if (msg instanceof AddRemoteManagersRequestMsg) {
+			replyTo.tell(new AddRemoteManagersResponseMsg((AddRemoteManagersRequestMsg) msg), getSelf());
+		} else if (msg instanceof AddLocalUsersRequestMsg) {
+			replyTo.tell(new AddLocalUsersResponseMsg((AddLocalUsersRequestMsg) msg), getSelf());
+		} else if (msg instanceof AddPlacementRingRequestMsg) {
+			replyTo.tell(new AddPlacementRingResponseMsg((AddPlacementRingRequestMsg) msg), getSelf());
+		} else if (msg instanceof ManagerStatsRequestMsg) {
+			long[] totals = statsTotals.remove(msg);
+			replyTo.tell(new ManagerStatsResponseMsg((ManagerStatsRequestMsg) msg, totals[0], totals[1],
+					totals[2], totals[3], totals[4]), getSelf());
+		}
+	}
+}
@@ -0,0 +1,273 @@
+package cmsc433.p4.actors;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+
+import cmsc433.p4.messages.AddLocalUsersRequestMsg;
+import cmsc433.p4.messages.AddLocalUsersResponseMsg;
+import cmsc433.p4.messages.AddRemoteManagersRequestMsg;
+import cmsc433.p4.messages.AddRemoteManagersResponseMsg;
+import cmsc433.p4.messages.ManagerStatsRequestMsg;
+import cmsc433.p4.messages.ManagerStatsResponseMsg;
+import cmsc433.p4.messages.SleepFinishedMsg;
+import cmsc433.p4.messages.SleepRequestMsg;
+import cmsc433.p4.messages.UserStatusRequestMsg;
+import cmsc433.p4.messages.UserStatusResponseMsg;
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import akka.actor.AbstractActorWithTimers;
+import scala.concurrent.duration.Duration;
+
+/**
+ * Class of actors keeping virtual time for a discrete-event simulation.
+ *
+ * Users of a virtual-time simulation ask the clock to end their sleeps instead of
+ * starting timers.  Virtual time stands still while the system is active.  Once it is
+ * quiescent, the clock jumps to the earliest pending wake-up and wakes every user
+ * sleeping until that time, in the order the sleeps were requested.  Sleeps thus cost
+ * no real time, and all activity that a sleep would have separated in real time is
+ * still separated by it.
+ *
+ * The clock is told the system's users and managers (as an AddLocalUsersRequestMsg and
+ * an AddRemoteManagersRequestMsg) before any user starts, and tracks their outstanding
+ * work explicitly.  While a sleep is pending it asks, in rounds, every live user for its
+ * requests awaiting responses, the releases it has sent and the messages it has handled
+ * (see UserStatusResponseMsg), and every manager for the requests queued there, the
+ * releases it has carried out or ignored and the requests it has received (see
+ * ManagerStatsResponseMsg).  The system is quiescent when every user has started, every
+ * request awaiting a response is queued behind a lock, every release sent has been
+ * handled, and no user or manager handled anything since the previous round.  The last
+ * condition makes the counts of a round a consistent snapshot of the system:  nothing
+ * changed between the rounds, so at that moment no request, response or release was in
+ * flight, and every live user was sleeping or waiting on a lock held by a sleeping user.
+ * Nothing but the clock can then make the system act, whatever the managers log.
+ *
+ */
+public class SimulationClockActor extends AbstractActorWithTimers {
+
+	public static final long DEFAULT_PROBE_INTERVAL_MS = 1;	// Default time between rounds
+
+	private long probeIntervalMs;	// Real time between rounds of questions while the system is active
+
+	/**
+	 * Props structure-generator for this class.
+	 * @param probeIntervalMs	Time between rounds, in real milliseconds
+	 * @return  Props structure
+	 */
+	static Props props (long probeIntervalMs) {
+		return Props.create(SimulationClockActor.class, probeIntervalMs);
+	}
+
+	/**
+	 * Factory method for creating simulation clocks
+	 * @param system	Actor system in which clock will execute
+	 * @return			Reference to new clock
+	 */
+	public static ActorRef makeClock (ActorSystem system) {
+		return makeClock(system, DEFAULT_PROBE_INTERVAL_MS);
+	}
+
+	/**
+	 * Factory method for creating simulation clocks with a given time between rounds
+	 * @param system			Actor system in which clock will execute
+	 * @param probeIntervalMs	Time between rounds, in real milliseconds
+	 * @return					Reference to new clock
+	 */
+	public static ActorRef makeClock (ActorSystem system, long probeIntervalMs) {
+		ActorRef newClock = system.actorOf(props(probeIntervalMs));
+		return newClock;
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param probeIntervalMs	Time between rounds, in real milliseconds
+	 */
+	private SimulationClockActor(long probeIntervalMs) {
+		super();
+		this.probeIntervalMs = probeIntervalMs;
+	}
+
+	/**
+	 * Sleep that has been requested but not yet ended.
+	 */
+	private static class WakeUp implements Comparable<WakeUp> {
+		final long time;		// Virtual time at which sleep ends
+		final long sequence;	// Order in which sleep was requested
+		final ActorRef user;	// Sleeping user
+
+		WakeUp(long time, long sequence, ActorRef user) {
+			this.time = time;
+			this.sequence = sequence;
+			this.user = user;
+		}
+
+		@Override
+		public int compareTo(WakeUp other) {
+			if (time != other.time) {
+				return Long.compare(time, other.time);
+			}
+			return Long.compare(sequence, other.sequence);
+		}
+	}
+
+	private static final Object PROBE = "Probe";	// Timer key and message for starting a round
+
+	private long now = 0;										// Current virtual time, in milliseconds
+	private long nextSequence = 0;								// Sequence number of next sleep
+	private PriorityQueue<WakeUp> wakeUps = new PriorityQueue<>();	// Pending sleeps, earliest first
+	private HashSet<ActorRef> users = null;						// Users not yet terminated, once told
+	private ArrayList<ActorRef> managers = null;				// Managers, once told
+
+	private long releasesOfTerminated = 0;						// Releases sent by terminated users
+	private long activityOfTerminated = 0;						// Messages handled by terminated users
+	private long lastActivity = -1;								// Messages handled by all, as of the previous round
+
+	// Round in progress, if any, and what has been answered so far
+	private UserStatusRequestMsg userProbe = null;				// Question put to users, or null if no round is in progress
+	private ManagerStatsRequestMsg managerProbe = null;			// Question put to managers
+	private HashSet<ActorRef> unansweredUsers = new HashSet<>();	// Users yet to answer
+	private int unansweredManagers = 0;							// Managers yet to answer
+	private boolean allStarted;									// True if every user has started
+	private long pending;										// Requests awaiting responses
+	private long waiting;										// Requests queued behind locks
+	private long releasesSent;									// Releases sent
+	private long releasesHandled;								// Releases carried out or ignored
+	private long activity;										// Messages handled by users and requests received by managers
+
+	@Override
+	public Receive createReceive() {
+		return receiveBuilder()
+				.match(SleepRequestMsg.class, this::sleepRequest)
+				.match(AddLocalUsersRequestMsg.class, this::addLocalUsersRequest)
+				.match(AddRemoteManagersRequestMsg.class, this::addRemoteManagersRequest)
+				.matchEquals(PROBE, tick -> startRound())
+				.match(UserStatusResponseMsg.class, this::userStatusResponse)
+				.match(ManagerStatsResponseMsg.class, this::managerStatsResponse)
+				.build();
+	}
+
+	public void addLocalUsersRequest(AddLocalUsersRequestMsg msg) {
+		users = new HashSet<ActorRef>(msg.getLocalUsers());
+		getSender().tell(new AddLocalUsersResponseMsg(msg), getSelf());
+	}
+
+	public void addRemoteManagersRequest(AddRemoteManagersRequestMsg msg) {
+		managers = new ArrayList<ActorRef>(msg.getManagerList());
+		getSender().tell(new AddRemoteManagersResponseMsg(msg), getSelf());
+	}
+
+	public void sleepRequest(SleepRequestMsg msg) {
+		wakeUps.add(new WakeUp(now + msg.getDurationMs(), nextSequence++, getSender()));
+		if (userProbe == null && !getTimers().isTimerActive(PROBE)) {
+			scheduleProbe();
+		}
+	}
+
+	/**
+	 * Put the round's questions to every live user and every manager.  No round starts
+	 * until the clock has been told both.
+	 */
+	private void startRound() {
+		if (users == null || managers == null) {
+			scheduleProbe();
+			return;
+		}
+		userProbe = new UserStatusRequestMsg();
+		managerProbe = new ManagerStatsRequestMsg();
+		unansweredUsers = new HashSet<ActorRef>(users);
+		unansweredManagers = managers.size();
+		allStarted = true;
+		pending = 0;
+		waiting = 0;
+		releasesSent = releasesOfTerminated;
+		releasesHandled = 0;
+		activity = activityOfTerminated;
+		for (ActorRef u : users) {
+			u.tell(userProbe, getSelf());
+		}
+		for (ActorRef m : managers) {
+			m.tell(managerProbe, getSelf());
+		}
+		roundAnswered();
+	}
+
+	/**
+	 * Record a user's answer, or the report it sends as it terminates.  A terminating
+	 * user may have been asked and will not answer, so its report stands for its answer.
+	 *
+	 * @param msg	User's status
+	 */
+	public void userStatusResponse(UserStatusResponseMsg msg) {
+		ActorRef user = getSender();
+		if (msg.getRequest() == null) {
+			users.remove(user);
+			releasesOfTerminated += msg.getReleasesSent();
+			activityOfTerminated += msg.getMessagesHandled();
+		} else if (msg.getRequest() != userProbe) {
+			return;		// Answer to an earlier round
+		}
+		if (userProbe != null && unansweredUsers.remove(user)) {
+			allStarted &= msg.isStarted();
+			pending += msg.getPendingRequests();
+			releasesSent += msg.getReleasesSent();
+			activity += msg.getMessagesHandled();
+			roundAnswered();
+		}
+	}
+
+	public void managerStatsResponse(ManagerStatsResponseMsg msg) {
+		if (msg.getRequest() != managerProbe || managerProbe == null) {
+			return;		// Answer to an earlier round
+		}
+		unansweredManagers--;
+		releasesHandled += msg.getReleasesHandled();
+		waiting += msg.getRequestsWaiting();
+		activity += msg.getRequestsReceived();
+		roundAnswered();
+	}
+
+	/**
+	 * Once every user and manager has answered, advance time if the system is quiescent.
+	 * While any sleep is pending, start another round:  at once if this round's counts
+	 * balance and only need confirming, and after the interval otherwise.
+	 */
+	private void roundAnswered() {
+		if (!unansweredUsers.isEmpty() || unansweredManagers > 0) {
+			return;
+		}
+		userProbe = null;
+		managerProbe = null;
+		boolean balanced = allStarted && pending == waiting && releasesSent == releasesHandled;
+		boolean quiescent = balanced && activity == lastActivity;
+		lastActivity = activity;
+		if (quiescent && !wakeUps.isEmpty()) {
+			advance();
+		}
+		if (wakeUps.isEmpty()) {
+			return;
+		}
+		if (balanced && !quiescent) {
+			startRound();
+		} else {
+			scheduleProbe();
+		}
+	}
+
+	/**
+	 * Jump to the earliest pending wake-up time and wake every user sleeping until then.
+	 */
+	private void advance() {
+		now = wakeUps.peek().time;
+		while (!wakeUps.isEmpty() && wakeUps.peek().time == now) {
+			wakeUps.poll().user.tell(new SleepFinishedMsg(), getSelf());
+		}
+	}
+
+	private void scheduleProbe() {
+		getTimers().startSingleTimer(PROBE, PROBE, Duration.create(probeIntervalMs, TimeUnit.MILLISECONDS));
+	}
+}
@@ -2,13 +2,17 @@ package cmsc433.p4.actors;
 
 import java.util.ArrayList;
 
+import cmsc433.p4.enums.ResourcePlacement;
 import cmsc433.p4.messages.LogResultMsg;
 import cmsc433.p4.messages.SimulationFinishMsg;
 import cmsc433.p4.messages.SimulationStartMsg;
 import cmsc433.p4.messages.UserStartMsg;
+import cmsc433.p4.util.LogSinkOptions;
+import cmsc433.p4.util.ManagerOptions;
 import cmsc433.p4.util.NodeSpecification;
 import cmsc433.p4.util.SystemActors;
 import cmsc433.p4.util.Systems;
+import cmsc433.p4.util.UserOptions;
 import akka.actor.ActorRef;
 import akka.actor.ActorSystem;
 import akka.actor.Props;
@@ -28,6 +32,8 @@ public class SimulationManagerActor extends AbstractActor {
 	
 	private ArrayList<NodeSpecification> nodes;	// Nodes in simulated system
 	private ActorSystem system;	
+	private boolean virtualTime;	// True if sleeps are simulated by a clock rather than taken
+	private LogSinkOptions logSink;	// Where the logger streams events, or null to keep them in memory
 	
 	/**
 	 * Constructor
@@ -36,9 +42,34 @@ public class SimulationManagerActor extends AbstractActor {
 	 * @param system
 	 */
 	public SimulationManagerActor(ArrayList<NodeSpecification> nodes, ActorSystem system) {
+		this(nodes, system, false);
+	}
+	
+	/**
+	 * Constructor
+	 * 
+	 * @param nodes
+	 * @param system
+	 * @param virtualTime	True to run the simulation in virtual time
+	 */
+	public SimulationManagerActor(ArrayList<NodeSpecification> nodes, ActorSystem system, boolean virtualTime) {
+		this(nodes, system, virtualTime, null);
+	}
+	
+	/**
+	 * Constructor
+	 * 
+	 * @param nodes
+	 * @param system
+	 * @param virtualTime	True to run the simulation in virtual time
+	 * @param logSink		Where the logger streams events, or null to keep them in memory
+	 */
+	public SimulationManagerActor(ArrayList<NodeSpecification> nodes, ActorSystem system, boolean virtualTime, LogSinkOptions logSink) {
 		super();
 		this.nodes = nodes;
 		this.system = system;
+		this.virtualTime = virtualTime;
+		this.logSink = logSink;
 	}
 	
 	/**
@@ -46,7 +77,23 @@ public class SimulationManagerActor extends AbstractActor {
 	 * @return  Props structure
 	 */
 	static Props props (ArrayList<NodeSpecification> nodes, ActorSystem system) {
-		return Props.create(SimulationManagerActor.class, nodes, system);
+		return props(nodes, system, false);
+	}
+	
+	/**
+	 * Props structure-generator for this class.
+	 * @return  Props structure
+	 */
+	static Props props (ArrayList<NodeSpecification> nodes, ActorSystem system, boolean virtualTime) {
+		return props(nodes, system, virtualTime, null);
+	}
+	
+	/**
+	 * Props structure-generator for this class.
+	 * @return  Props structure
+	 */
+	static Props props (ArrayList<NodeSpecification> nodes, ActorSystem system, boolean virtualTime, LogSinkOptions logSink) {
+		return Props.create(SimulationManagerActor.class, nodes, system, virtualTime, logSink);
 	}
 	
 	/**
@@ -60,9 +107,45 @@ public class SimulationManagerActor extends AbstractActor {
 		ActorRef newManager = system.actorOf(props(nodes, system));
 		return newManager;
 	}
+	
+	/**
+	 * Factory method for creating simulation managers that run in real or virtual time.
+	 * In virtual time, user sleeps are ended by a SimulationClockActor as soon as the
+	 * system is otherwise idle, so scripts with long sleeps finish quickly while producing
+	 * the same kinds of log events.
+	 * 
+	 * @param nodes			Nodes in simulated system
+	 * @param system		Actor system in which manager will execute
+	 * @param virtualTime	True to run the simulation in virtual time
+	 * @return				Reference to new manager
+	 */
+	public static ActorRef makeSimulationManager (ArrayList<NodeSpecification> nodes, ActorSystem system, boolean virtualTime) {
+		ActorRef newManager = system.actorOf(props(nodes, system, virtualTime));
+		return newManager;
+	}
+	
+	/**
+	 * Factory method for creating simulation managers whose logger streams the event log
+	 * to files.  The SimulationFinishMsg then carries an empty log and a LogSummary.
+	 * 
+	 * @param nodes			Nodes in simulated system
+	 * @param system		Actor system in which manager will execute
+	 * @param virtualTime	True to run the simulation in virtual time
+	 * @param logSink		Where the logger streams events, or null to keep them in memory
+	 * @return				Reference to new manager
+	 */
+	public static ActorRef makeSimulationManager (ArrayList<NodeSpecification> nodes, ActorSystem system, boolean virtualTime,
+			LogSinkOptions logSink) {
+		ActorRef newManager = system.actorOf(props(nodes, system, virtualTime, logSink));
+		return newManager;
+	}
 
 	
 	private ActorRef replyTo;	// Where to send simulation results when they are ready
+	private ActorRef clock;		// Clock of a virtual-time simulation, else null
+	private ActorRef logger;	// Logger of the simulated system
+	private SystemActors actors;	// Managers and users of the simulated system
+	private long startNanos;	// Time at which users were started
 
 	@Override
 	public Receive createReceive() {
@@ -79,10 +162,16 @@ public class SimulationManagerActor extends AbstractActor {
 			replyTo = getSender();
 			
 			// Create logger for use in simulated system, then system
-			ActorRef logger = LoggerActor.makeLogger(getSelf(), system);
-			SystemActors actors = Systems.makeSystem (nodes, logger, system);
+			logger = LoggerActor.makeLogger(getSelf(), system, logSink);
+			if (virtualTime) {
+				clock = SimulationClockActor.makeClock(system);
+				actors = Systems.makeSystem (nodes, logger, system, ResourcePlacement.NODE_LOCAL, new ManagerOptions(), new UserOptions().withClock(clock));
+			} else {
+				actors = Systems.makeSystem (nodes, logger, system);
+			}
 			
 			// Start simulation by sending each user a start message.
+			startNanos = System.nanoTime();
 			ArrayList<ActorRef> users = actors.getUsers();
 			UserStartMsg sMsg = new UserStartMsg();
 			for (ActorRef u : users) {
@@ -91,9 +180,19 @@ public class SimulationManagerActor extends AbstractActor {
 		}
 		else if (msg instanceof LogResultMsg) {
 			
-			// Forward simulation results caller and stop.
+			// Forward simulation results caller, and stop the simulated system and self.
 			LogResultMsg lMsg = (LogResultMsg)msg;
-			replyTo.tell(new SimulationFinishMsg(lMsg.getLog()), getSelf());
+			if (clock != null) {
+				system.stop(clock);
+			}
+			for (ActorRef u : actors.getUsers()) {
+				system.stop(u);
+			}
+			for (ActorRef m : actors.getResourceManagers()) {
+				system.stop(m);
+			}
+			system.stop(logger);
+			replyTo.tell(new SimulationFinishMsg(lMsg.getLog(), lMsg.getThroughputReports(), System.nanoTime() - startNanos, lMsg.getSummary()), getSelf());
 			getContext().stop(getSelf());
 		}
 		else {
@@ -1,26 +1,41 @@
 package cmsc433.p4.actors;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
 
+import cmsc433.p4.enums.AccessRequestDenialReason;
+import cmsc433.p4.enums.ManagementRequestDenialReason;
 import cmsc433.p4.messages.AccessReleaseMsg;
 import cmsc433.p4.messages.AccessRequestDeniedMsg;
 import cmsc433.p4.messages.AccessRequestGrantedMsg;
 import cmsc433.p4.messages.AccessRequestMsg;
+import cmsc433.p4.messages.LogBatchMsg;
 import cmsc433.p4.messages.LogMsg;
 import cmsc433.p4.messages.ManagementRequestDeniedMsg;
 import cmsc433.p4.messages.ManagementRequestGrantedMsg;
 import cmsc433.p4.messages.ManagementRequestMsg;
+import cmsc433.p4.messages.SleepFinishedMsg;
+import cmsc433.p4.messages.SleepRequestMsg;
 import cmsc433.p4.messages.UserStartMsg;
+import cmsc433.p4.messages.UserStatusRequestMsg;
+import cmsc433.p4.messages.UserStatusResponseMsg;
+import cmsc433.p4.messages.UserThroughputMsg;
 import cmsc433.p4.util.AccessRelease;
 import cmsc433.p4.util.AccessRequest;
+import cmsc433.p4.util.HybridLogicalClock;
+import cmsc433.p4.util.IntMap;
 import cmsc433.p4.util.ManagementRequest;
+import cmsc433.p4.util.ResourceRegistry;
 import cmsc433.p4.util.SleepStep;
+import cmsc433.p4.util.UserOptions;
 import cmsc433.p4.util.UserScript;
 import akka.actor.ActorRef;
 import akka.actor.ActorSystem;
 import akka.actor.Props;
 import akka.actor.AbstractActor.Receive;
-import akka.actor.AbstractActor;
+import akka.actor.AbstractActorWithTimers;
+import scala.concurrent.duration.Duration;
 
 /**
  * Class of user actors.
@@ -31,13 +46,35 @@ import akka.actor.AbstractActor;
  * on to the next step in the script.  When the script is finished, the user actor
  * should stop.
  * 
+ * For load generation, a user may instead be pipelined with a window of K steps:  it
+ * sends a step while up to K - 1 earlier steps still await responses.  A step is held
+ * back while an earlier step still awaits a response about any resource it names, so
+ * a release is never sent before the grant it releases.  A step containing a sleep is
+ * never overlapped with other steps, so sleeps still separate what comes before them
+ * from what comes after.  A pipelined user reports its throughput to the logger when
+ * it terminates.  With a window of one, the user behaves as described above.
+ * 
+ * In a virtual-time simulation, sleeps are ended by a SimulationClockActor rather than
+ * by a timer, and so take no real time.  The user tells the clock how much of its work
+ * is outstanding when asked, and once more when it terminates, so the clock can tell
+ * when the system has no work left.
+ * 
+ * In a system whose managers keep local event logs, a user stamps the messages it sends
+ * with a HybridLogicalClock, and sends its own two events to the logger as stamped
+ * LogBatchMsgs so they can be merged with the managers' logs.  Its start is sent at once,
+ * so the logger knows the user is active, and its termination is its last batch; with
+ * no other events to log, the user keeps no buffer between them.
  *
  */
-public class UserActor extends AbstractActor {
+public class UserActor extends AbstractActorWithTimers {
 	
 	private UserScript script;	// Script of messages to send
 	private ActorRef localResourceManager;	// Local resource manager for user
 	private ActorRef logger;	// Actor to send logging messages to
+	private int window;			// Maximum number of steps awaiting responses at once
+	private ActorRef clock;		// Simulation clock ending sleeps in virtual time, or null for real time
+	private boolean stampedLog;	// True if messages and events are stamped for merging with local event logs
+	private ResourceRegistry resourceRegistry;	// IDs of the system's resources, put in requests, or null if none
 	
 	/**
 	 * Props structure-generator for this class.  Assumption:  script is list of 
@@ -49,7 +86,20 @@ public class UserActor extends AbstractActor {
 	 * @return			Props structure
 	 */
 	static Props props(UserScript script, ActorRef localResourceManager, ActorRef logger) {
-		return Props.create(UserActor.class, script, localResourceManager, logger);
+		return props(script, localResourceManager, logger, new UserOptions());
+	}
+	
+	/**
+	 * Props structure-generator for users with the given settings.
+	 * 
+	 * @param script	Script of requests to make
+	 * @param localResourceManager	Local resource manager for user
+	 * @param logger	Actor to send logging messages to
+	 * @param options	Settings for the user
+	 * @return			Props structure
+	 */
+	static Props props(UserScript script, ActorRef localResourceManager, ActorRef logger, UserOptions options) {
+		return Props.create(UserActor.class, script, localResourceManager, logger, options);
 	}
 	
 	/**
@@ -64,126 +114,310 @@ public class UserActor extends AbstractActor {
 		ActorRef newUser = system.actorOf(props(script, localResourceManager, logger));
 		return newUser;
 	}
-		
+	
+	/**
+	 * Make a new user actor with the given settings and install it in the given actor system
+	 * @param script	Script of requests to make
+	 * @param localResourceManager	Local resource manager for user
+	 * @param logger	Actor to send logging messages to
+	 * @param system	Actor system
+	 * @param options	Settings for the user:  pipelining window, simulation clock, stamping
+	 * @return			Reference to new user actor
+	 */
+	public static ActorRef makeUser (UserScript script, ActorRef localResourceManager, ActorRef logger, ActorSystem system, UserOptions options) {
+		ActorRef newUser = system.actorOf(props(script, localResourceManager, logger, options));
+		return newUser;
+	}
+	
 	/**
 	 * Constructor.
 	 * 
 	 * @param script	Script of requests to be made by user
 	 * @param localResourceManager	Local resource manager for user
 	 * @param logger	Actor to send logging messages to
+	 * @param options	Settings for the user
 	 */
-	private UserActor(UserScript script, ActorRef localResourceManager, ActorRef logger) {
+	private UserActor(UserScript script, ActorRef localResourceManager, ActorRef logger, UserOptions options) {
 		super();
 		this.script = script;
 		this.localResourceManager = localResourceManager;
 		this.logger = logger;
+		this.window = options.getWindow();
+		this.clock = options.getClock();
+		this.stampedLog = options.isLogStamped();
+		this.resourceRegistry = options.getResourceRegistry();
+	}
+	
+	/**
+	 * Progress of a step that has been sent but still awaits responses.
+	 */
+	private static class StepInFlight {
+		int awaiting = 0;		// Responses, and the sleep if any, the step still waits for
+	}
+	
+	/**
+	 * Request awaiting a response.
+	 */
+	private static class PendingRequest {
+		final StepInFlight step;	// Step request belongs to
+		final String resourceName;	// Resource request is about
+		
+		PendingRequest(StepInFlight step, String resourceName) {
+			this.step = step;
+			this.resourceName = resourceName;
+		}
 	}
 
-	private ArrayList<Object> currentPendingRequests;	// Requests that need responses
+	private IntMap<PendingRequest> pendingRequests = new IntMap<>();	// Requests awaiting responses, by correlation ID
+	private HashMap<String, Integer> pendingPerResource = new HashMap<>();	// Number of requests awaiting responses, by resource
+	private int nextCorrelationId = 1;							// Correlation ID of next request; 0 means none
+	private int stepsInFlight = 0;								// Steps sent that still await responses
+	private StepInFlight sleepingStep = null;					// Step whose sleep is running, if any
+	private static final SleepFinishedMsg SLEEP_FINISHED = new SleepFinishedMsg();	// Wake-up for sleeping steps
+	private HashMap<String, ActorRef> resourceOwners = new HashMap<>();	// Managers that granted access to resources
+	private long startNanos;									// Time user started
+	private long requestsCompleted = 0;							// Responses received
+	private long releasesSent = 0;								// Releases sent, reported to a simulation clock
+	private long messagesHandled = 0;							// Messages handled, other than a clock's status requests
+	private HybridLogicalClock logicalClock = new HybridLogicalClock();	// Clock stamping messages and events, if stampedLog
+	
+	/**
+	 * Find the manager to send a request for the resource to:  the manager that owns
+	 * it, if a grant has told us, and the local manager otherwise.
+	 * 
+	 * @param resourceName	Name of resource
+	 * @return				Manager to send request to
+	 */
+	private ActorRef managerFor (String resourceName) {
+		ActorRef owner = resourceOwners.get(resourceName);
+		return (owner != null) ? owner : localResourceManager;
+	}
+	
+	/**
+	 * Remember the manager named in a grant as the owner of the resource.
+	 * 
+	 * @param resourceName	Name of resource
+	 * @param owner			Manager that granted access, or null if not supplied
+	 */
+	private void cacheOwner (String resourceName, ActorRef owner) {
+		if (owner != null) {
+			resourceOwners.put(resourceName, owner);
+		}
+	}
+	
+	/**
+	 * Record a request as awaiting a response.
+	 * 
+	 * @param step			Step request belongs to
+	 * @param resourceName	Resource request is about
+	 * @return				Correlation ID for the request message
+	 */
+	private int trackRequest(StepInFlight step, String resourceName) {
+		int id = nextCorrelationId++;
+		if (nextCorrelationId == 0) {
+			nextCorrelationId = 1;
+		}
+		pendingRequests.put(id, new PendingRequest(step, resourceName));
+		pendingPerResource.put(resourceName, pendingPerResource.containsKey(resourceName) ? pendingPerResource.get(resourceName) + 1 : 1);
+		step.awaiting++;
+		return id;
+	}
 	
 	/**
-	 * Remove access-release requests.
+	 * Record that a step received one of the responses, or the wake-up, it awaits.
+	 * 
+	 * @param step	Step to update
 	 */
-	private void removeResponselessRequests() {
-		for (int j = currentPendingRequests.size() - 1; j >= 0; j--) {
-			if (currentPendingRequests.get(j) instanceof AccessRelease || currentPendingRequests.get(j) instanceof SleepStep) {
-				currentPendingRequests.remove(j);
+	private void stepProgressed(StepInFlight step) {
+		if (--step.awaiting == 0) {
+			stepsInFlight--;
+		}
+	}
+	
+	/**
+	 * Determine if the step may be sent while the steps now in flight await responses.
+	 * 
+	 * @param step	Next step of script
+	 * @return		True if the step neither sleeps nor names a resource with a pending request
+	 */
+	private boolean canOverlap(ArrayList<Object> step) {
+		for (Object req : step) {
+			if (req instanceof SleepStep || pendingPerResource.containsKey(resourceNameOf(req))) {
+				return false;
 			}
 		}
+		return true;
+	}
+	
+	/**
+	 * @param req	AccessRequest, ManagementRequest or AccessRelease
+	 * @return		Name of resource the request is about
+	 * @throws IllegalArgumentException	Thrown if req is not a request or release
+	 */
+	private static String resourceNameOf(Object req) {
+		if (req instanceof AccessRequest) {
+			return ((AccessRequest) req).getResourceName();
+		}
+		else if (req instanceof ManagementRequest) {
+			return ((ManagementRequest) req).getResourceName();
+		}
+		else if (req instanceof AccessRelease) {
+			return ((AccessRelease) req).getResourceName();
+		}
+		throw new IllegalArgumentException ("Bad access request in script: " + req);
+	}
+	
+	/**
+	 * @param resourceName	Name of resource
+	 * @return				ID of resource to put in a request, or ResourceRegistry.NO_ID if none
+	 */
+	private int resourceIdOf(String resourceName) {
+		return (resourceRegistry != null) ? resourceRegistry.idOf(resourceName) : ResourceRegistry.NO_ID;
+	}
+	
+	/**
+	 * @return	Time to stamp a message about to be sent with, or 0 if not stamping
+	 */
+	private long stamp() {
+		return stampedLog ? logicalClock.tick() : 0;
+	}
+	
+	/**
+	 * Send an event to the logger, stamped if managers keep local event logs.
+	 * 
+	 * @param event	Event to log
+	 * @param last	True if the user will log nothing more
+	 */
+	private void log(LogMsg event, boolean last) {
+		if (stampedLog) {
+			ArrayList<Object> events = new ArrayList<Object>(1);
+			events.add(event);
+			logger.tell(new LogBatchMsg(getSelf(), events, new long[] { logicalClock.tick() }, last), getSelf());
+		} else {
+			logger.tell(event, getSelf());
+		}
 	}
 	
 	/**
 	 * Method for logging start of user.
 	 */
 	private void logStart() {
-		logger.tell(LogMsg.makeUserStartLogMsg(getSelf()), getSelf());
+		log(LogMsg.makeUserStartLogMsg(getSelf()), false);
 	}
 	
 	/**
-	 * Method for logging termination of user.
+	 * Method for logging termination of user.  A pipelined user first reports its throughput.
 	 */
 	private void logTerminate() {
-		logger.tell(LogMsg.makeUserTerminateLogMsg(getSelf()), getSelf());
+		if (window > 1) {
+			logger.tell(new UserThroughputMsg(getSelf(), window, requestsCompleted, System.nanoTime() - startNanos), getSelf());
+		}
+		log(LogMsg.makeUserTerminateLogMsg(getSelf()), true);
 	}
 
 	/**
-	 * If script is non-empty, retrieve next step, delete it from script,
-	 * then send all messages.  Otherwise, stop actor.
+	 * Send as many of the next steps of the script as the window allows, deleting them
+	 * from the script.  Once the script is empty and no step awaits responses, stop actor.
 	 * 
-	 * @return	Next list of messages to send, if it exists, and null otherwise
 	 * @throws Exception 
 	 */
 	private void sendNextMsgs () throws Exception {
-		if (script.isDone()) {  // No more messages to send, so log this and stop
-			logTerminate();
-			getContext().stop(getSelf());
-		}
-		else {	// Get next requests, record them, and send request messages.
-			try {
-				currentPendingRequests = script.firstStep();
-				script = script.rest();
-			} catch (Exception e) {
-				e.printStackTrace();
+		while (stepsInFlight < window && (sleepingStep == null)) {
+			if (script.isDone()) {  // No more messages to send
+				if (stepsInFlight == 0) {	// ... and none awaited, so log this and stop
+					logTerminate();
+					if (clock != null) {
+						clock.tell(new UserStatusResponseMsg(null, true, 0, releasesSent, messagesHandled), getSelf());
+					}
+					getContext().stop(getSelf());
+				}
+				return;
 			}
 			
-			// Send all messages corresponding to current requests.
-			long longestSleep = 0;
-			for (Object req : currentPendingRequests) {
-				
-				if (req instanceof SleepStep) {
-					if (((SleepStep) req).getDurationMs() > longestSleep)
-						longestSleep = ((SleepStep) req).getDurationMs();
-				} 
+			// Get next requests, record them, and send request messages.
+			ArrayList<Object> currentStep = script.firstStep();
+			if (stepsInFlight > 0 && !canOverlap(currentStep)) {
+				return;
+			}
+			script = script.rest();
+			sendStep(currentStep);
+		}
+	}
+	
+	/**
+	 * Send all messages of a step.  Releases and sleeps get no response, so only requests
+	 * are tracked.
+	 * 
+	 * @param currentStep	Step to send
+	 * @throws Exception 
+	 */
+	private void sendStep (ArrayList<Object> currentStep) throws Exception {
+		StepInFlight progress = new StepInFlight();
+		long longestSleep = 0;
+		for (Object req : currentStep) {
+			
+			if (req instanceof SleepStep) {
+				if (((SleepStep) req).getDurationMs() > longestSleep)
+					longestSleep = ((SleepStep) req).getDurationMs();
+			} 
+			else {
+				// Create request message to send
+				Object msg = null;
+				String resourceName = resourceNameOf(req);
+				int resourceId = resourceIdOf(resourceName);
+				if (req instanceof AccessRequest) {
+					msg = new AccessRequestMsg ((AccessRequest)req, getSelf(), trackRequest(progress, resourceName), stamp(), resourceId);
+				}
+				else if (req instanceof ManagementRequest) {
+					msg = new ManagementRequestMsg ((ManagementRequest)req, getSelf(), trackRequest(progress, resourceName), stamp(), resourceId);
+				}
 				else {
-					// Create request message to send
-					Object msg = null;
-					if (req instanceof AccessRequest) {
-						msg = new AccessRequestMsg ((AccessRequest)req, getSelf());
-					}
-					else if (req instanceof ManagementRequest) {
-						msg = new ManagementRequestMsg ((ManagementRequest)req, getSelf());
-					}
-					else if (req instanceof AccessRelease) {
-						msg = new AccessReleaseMsg ((AccessRelease) req, getSelf());
-					}
-					else {
-						throw new Exception ("Bad access request in sendNextMsgs()");
-					}
-					// send message
-					localResourceManager.tell(msg, getSelf());
+					msg = new AccessReleaseMsg ((AccessRelease) req, getSelf(), stamp(), resourceId);
+					releasesSent++;
 				}
+				// send message
+				managerFor(resourceName).tell(msg, getSelf());
 			}
-			// Remove requests from current pending list that do not involve awaiting a
-			// response
-			removeResponselessRequests();
-			
-			// Sleep for the duration of the longest sleep statement in this step, if there was a sleep statement
-			if (longestSleep > 0)
-				Thread.sleep(longestSleep);
-		
-			// Send the next messages in the case that no requests warranted a response.
-			if (currentPendingRequests.isEmpty())
-				sendNextMsgs();
+		}
+		// Wait for the duration of the longest sleep statement in this step, if there was a sleep statement.
+		// Rather than blocking a dispatcher thread, schedule a wake-up that ends the sleep.
+		if (longestSleep > 0) {
+			progress.awaiting++;
+			sleepingStep = progress;
+			if (clock != null) {
+				clock.tell(new SleepRequestMsg(longestSleep), getSelf());
+			} else {
+				getTimers().startSingleTimer(SLEEP_FINISHED, SLEEP_FINISHED, Duration.create(longestSleep, TimeUnit.MILLISECONDS));
+			}
+		}
+		if (progress.awaiting > 0) {
+			stepsInFlight++;
 		}
 	}
 	
 	
 	
 	/**
-	 * Process request from list of pending requests by removing.  Throw exception if message
-	 * is not in list.
+	 * Process response to a pending request by removing the request.  Managers answer
+	 * each request exactly once, so a response whose correlation ID is not pending is a
+	 * manager bug (such as a disable granted again on a later release) and fails the user.
 	 * 
-	 * @param msg	Request to remove.
-	 * @throws Exception 
+	 * @param correlationId	Correlation ID carried by the response
+	 * @throws Exception	Thrown if no request with the correlation ID is pending
 	 */
-	private void processPendingRequest (Object msg) throws Exception {
-		int i = currentPendingRequests.indexOf(msg);
-		if (i != -1) {
-			currentPendingRequests.remove(i);
+	private void processPendingRequest (int correlationId) throws Exception {
+		PendingRequest request = pendingRequests.remove(correlationId);
+		if (request == null) {
+			throw new Exception("Message not found in pending message list");
 		}
-		else {
-			throw (new Exception ("Message not found in pending message list"));
+		int remaining = pendingPerResource.get(request.resourceName) - 1;
+		if (remaining == 0) {
+			pendingPerResource.remove(request.resourceName);
+		} else {
+			pendingPerResource.put(request.resourceName, remaining);
 		}
+		requestsCompleted++;
+		stepProgressed(request.step);
 	}
 	
 	
@@ -196,33 +430,63 @@ public class UserActor extends AbstractActor {
 	
 	
 	public void onReceive(Object msg) throws Exception {
-		// Start up user and send first round of messages.		
+		if (!(msg instanceof UserStatusRequestMsg)) {
+			messagesHandled++;
+		}
+		
+		// Start up user; first round of messages is sent below.		
 		if (msg instanceof UserStartMsg) {
+			startNanos = System.nanoTime();
 			logStart();		// Log starting of user
-			sendNextMsgs();
 		}
 		
-		// Find correspond request in pending request list and delete it.		
+		// Simulation clock asking how much work is outstanding; answered without moving on,
+		// since a user that has not started must not start.  A user's first message is
+		// always its start.
+		else if (msg instanceof UserStatusRequestMsg) {
+			getSender().tell(new UserStatusResponseMsg((UserStatusRequestMsg) msg, messagesHandled > 0,
+					pendingRequests.size(), releasesSent, messagesHandled), getSelf());
+			return;
+		}
+		
+		// Sleep of current step is over.
+		else if (msg instanceof SleepFinishedMsg) {
+			StepInFlight step = sleepingStep;
+			sleepingStep = null;
+			stepProgressed(step);
+		}
+		
+		// Find corresponding request in pending requests by correlation ID and delete it.		
 		else if (msg instanceof AccessRequestDeniedMsg) {
 			AccessRequestDeniedMsg aMsg = (AccessRequestDeniedMsg) msg;
-			processPendingRequest (aMsg.getRequest());
+			logicalClock.receive(aMsg.getTimestamp());
+			if (aMsg.getReason() == AccessRequestDenialReason.RESOURCE_NOT_FOUND) {
+				resourceOwners.remove(aMsg.getRequest().getResourceName());
+			}
+			processPendingRequest (aMsg.getCorrelationId());
 		}
 		else if (msg instanceof AccessRequestGrantedMsg) {
 			AccessRequestGrantedMsg aMsg = (AccessRequestGrantedMsg) msg;
-			processPendingRequest (aMsg.getRequest());	
+			logicalClock.receive(aMsg.getTimestamp());
+			cacheOwner(aMsg.getRequest().getResourceName(), aMsg.getManager());
+			processPendingRequest (aMsg.getCorrelationId());	
 		}
 		else if (msg instanceof ManagementRequestDeniedMsg) {
 			ManagementRequestDeniedMsg mMsg = (ManagementRequestDeniedMsg) msg;
-			processPendingRequest (mMsg.getRequest());
+			logicalClock.receive(mMsg.getTimestamp());
+			if (mMsg.getReason() == ManagementRequestDenialReason.RESOURCE_NOT_FOUND) {
+				resourceOwners.remove(mMsg.getRequest().getResourceName());
+			}
+			processPendingRequest (mMsg.getCorrelationId());
 		}
 		else if (msg instanceof ManagementRequestGrantedMsg) {
 			ManagementRequestGrantedMsg mMsg = (ManagementRequestGrantedMsg) msg;
-			processPendingRequest (mMsg.getRequest());
+			logicalClock.receive(mMsg.getTimestamp());
+			cacheOwner(mMsg.getRequest().getResourceName(), mMsg.getManager());
+			processPendingRequest (mMsg.getCorrelationId());
 		}
 		
-		// Check to see if pending request list is empty, and if so, move on to next step.
-		if (currentPendingRequests.isEmpty()) {
-			sendNextMsgs();
-		}
+		// Move on to as many next steps as the window now allows.
+		sendNextMsgs();
 	} // end of onReceive
 }
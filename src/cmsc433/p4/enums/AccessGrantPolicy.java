@@ -0,0 +1,10 @@
+package cmsc433.p4.enums;
+
+/**
+ * Policies a resource manager may use to order grants of contended resources.
+ * 
+ */
+public enum AccessGrantPolicy {
+	READER_BATCHING,	// Compatible requests are granted on arrival, even past waiting writers; a release admits the whole run of waiting readers at the head of the queue
+	WRITER_PREFERRING	// Waiting writers are served, in order, before any waiting reader and before readers arriving after them, so readers cannot starve a writer
+}
@@ -0,0 +1,10 @@
+package cmsc433.p4.enums;
+
+/**
+ * Ways an open-loop load generator spaces out the requests it issues.
+ * 
+ */
+public enum ArrivalProcess {
+	CONSTANT,		// Requests arrive exactly 1/rate seconds apart
+	POISSON			// Gaps between requests are exponentially distributed with mean 1/rate seconds
+}
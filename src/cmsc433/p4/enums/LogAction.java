@@ -0,0 +1,12 @@
+package cmsc433.p4.enums;
+
+/**
+ * What an actor does with events of one type under a logging policy.
+ * 
+ */
+public enum LogAction {
+	LOG,			// Send every event to the logger
+	SAMPLE,			// Send one event in every N to the logger
+	AGGREGATE,		// Count events, and send the logger the counts now and then
+	SUPPRESS		// Send nothing
+}
@@ -0,0 +1,10 @@
+package cmsc433.p4.enums;
+
+/**
+ * Ways of assigning the resources of a system to resource managers.
+ * 
+ */
+public enum ResourcePlacement {
+	NODE_LOCAL,			// Resources stay with the manager of the node they are specified on
+	CONSISTENT_HASH		// Resources are placed on managers by a consistent-hash ring known to every manager
+}
@@ -0,0 +1,39 @@
+package cmsc433.p4.enums;
+
+/**
+ * Kinds of generated user scripts run in parameter sweeps.
+ * 
+ * Each step of a generated script either requests blocking access to a resource, which
+ * is released by the following step, or disables a resource, which is re-enabled by the
+ * following step.  A mix gives the share of accesses that are reads and the share of
+ * steps that are management requests.
+ * 
+ */
+public enum ScriptMix {
+	READ_HEAVY (0.9, 0.0),		// Mostly concurrent reads
+	WRITE_HEAVY (0.1, 0.0),		// Mostly exclusive writes
+	BALANCED (0.5, 0.0),		// Equal reads and writes
+	MANAGEMENT (0.5, 0.1);		// Equal reads and writes, with resources disabled now and then
+
+	private final double readFraction;
+	private final double managementFraction;
+
+	private ScriptMix (double readFraction, double managementFraction) {
+		this.readFraction = readFraction;
+		this.managementFraction = managementFraction;
+	}
+
+	/**
+	 * @return	Share of access requests that are for concurrent reads
+	 */
+	public double getReadFraction () {
+		return readFraction;
+	}
+
+	/**
+	 * @return	Share of steps that disable and re-enable a resource
+	 */
+	public double getManagementFraction () {
+		return managementFraction;
+	}
+}
@@ -1,6 +1,7 @@
 package cmsc433.p4.messages;
 
 import cmsc433.p4.util.AccessRelease;
+import cmsc433.p4.util.ResourceRegistry;
 import akka.actor.ActorRef;
 
 /**
@@ -12,10 +13,41 @@ import akka.actor.ActorRef;
 public class AccessReleaseMsg {
 	private final AccessRelease access_release;
 	private final ActorRef sender;
+	private final long timestamp;			// Sender's HybridLogicalClock time when sent, or 0 if none
+	private final int resourceId;			// ID of resource in the system's ResourceRegistry, or ResourceRegistry.NO_ID
 
 	public AccessReleaseMsg(AccessRelease access_release, ActorRef sender) {
+		this(access_release, sender, 0);
+	}
+	
+	/**
+	 * @param access_release	Release
+	 * @param sender			User releasing access
+	 * @param timestamp			Sender's HybridLogicalClock time
+	 */
+	public AccessReleaseMsg(AccessRelease access_release, ActorRef sender, long timestamp) {
+		this(access_release, sender, timestamp, ResourceRegistry.NO_ID);
+	}
+	
+	/**
+	 * @param access_release	Release
+	 * @param sender			User releasing access
+	 * @param timestamp			Sender's HybridLogicalClock time
+	 * @param resourceId		ID of the resource in the system's ResourceRegistry, or ResourceRegistry.NO_ID
+	 */
+	public AccessReleaseMsg(AccessRelease access_release, ActorRef sender, long timestamp, int resourceId) {
 		this.access_release = access_release;
 		this.sender = sender;
+		this.timestamp = timestamp;
+		this.resourceId = resourceId;
+	}
+	
+	/**
+	 * @param timestamp	Time of the manager forwarding this release
+	 * @return			Copy of this message with the given time
+	 */
+	public AccessReleaseMsg withTimestamp(long timestamp) {
+		return new AccessReleaseMsg(access_release, sender, timestamp, resourceId);
 	}
 	
 	public AccessRelease getAccessRelease() {
@@ -25,6 +57,20 @@ public class AccessReleaseMsg {
 	public ActorRef getSender() {
 		return sender;
 	}
+
+	/**
+	 * @return Sender's HybridLogicalClock time when the message was sent, or 0 if none
+	 */
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	/**
+	 * @return ID of the resource in the system's ResourceRegistry, or ResourceRegistry.NO_ID
+	 */
+	public int getResourceId() {
+		return resourceId;
+	}
 	
 	@Override 
 	public String toString () {
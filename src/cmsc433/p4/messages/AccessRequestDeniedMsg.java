@@ -13,10 +13,14 @@ import cmsc433.p4.util.AccessRequest;
 public class AccessRequestDeniedMsg {
 	private final AccessRequest request;			// Message being replied to
 	private final AccessRequestDenialReason reason;	// Why request was denied
+	private final int correlationId;				// Correlation ID of request message, or 0 if none
+	private final long timestamp;					// Sender's HybridLogicalClock time when sent, or 0 if none
 	
 	public AccessRequestDeniedMsg (AccessRequest request, AccessRequestDenialReason reason) {
 		this.request = request;
 		this.reason = reason;
+		this.correlationId = 0;
+		this.timestamp = 0;
 	}
 	
 	/**
@@ -26,8 +30,21 @@ public class AccessRequestDeniedMsg {
 	 * @param reason	Reason for denying request
 	 */
 	public AccessRequestDeniedMsg (AccessRequestMsg msg, AccessRequestDenialReason reason) {
+		this(msg, reason, 0);
+	}
+	
+	/**
+	 * Version of constructor building a stamped response from a request message.
+	 * 
+	 * @param msg		Message containing original request
+	 * @param reason	Reason for denying request
+	 * @param timestamp	Manager's HybridLogicalClock time
+	 */
+	public AccessRequestDeniedMsg (AccessRequestMsg msg, AccessRequestDenialReason reason, long timestamp) {
 		this.request = msg.getAccessRequest();
 		this.reason = reason;
+		this.correlationId = msg.getCorrelationId();
+		this.timestamp = timestamp;
 	}
 
 	/**
@@ -37,6 +54,20 @@ public class AccessRequestDeniedMsg {
 		return request;
 	}
 
+	/**
+	 * @return Correlation ID of the request message, or 0 if none
+	 */
+	public int getCorrelationId() {
+		return correlationId;
+	}
+
+	/**
+	 * @return Sender's HybridLogicalClock time when the message was sent, or 0 if none
+	 */
+	public long getTimestamp() {
+		return timestamp;
+	}
+
 	/**
 	 * @return Reason for denial
 	 */
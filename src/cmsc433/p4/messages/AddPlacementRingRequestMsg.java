@@ -0,0 +1,26 @@
+package cmsc433.p4.messages;
+
+import cmsc433.p4.util.ConsistentHashRing;
+
+/**
+ * Class of messages giving a resource manager the consistent-hash ring used to place
+ * resources on managers, so that it can route requests for remote resources without
+ * discovery.  The ring is immutable and may be shared by all managers.
+ * 
+ * This message should ONLY be used during the initialization stage of a manager,
+ * before the users are started.
+ * 
+ */
+public class AddPlacementRingRequestMsg {
+
+	private final ConsistentHashRing ring;
+
+	public AddPlacementRingRequestMsg(ConsistentHashRing ring) {
+		this.ring = ring;
+	}
+
+	public ConsistentHashRing getRing() {
+		return ring;
+	}
+	
+}
@@ -0,0 +1,19 @@
+package cmsc433.p4.messages;
+
+/**
+ * Class of messages for responding to placement-ring addition requests.
+ * 
+ */
+public class AddPlacementRingResponseMsg {
+
+	private final AddPlacementRingRequestMsg requestMsg;	// Original request
+	
+	public AddPlacementRingResponseMsg (AddPlacementRingRequestMsg msg) {
+		this.requestMsg = msg;
+	}
+
+	public AddPlacementRingRequestMsg getRequestMsg() {
+		return requestMsg;
+	}
+
+}
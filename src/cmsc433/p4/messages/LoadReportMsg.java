@@ -0,0 +1,92 @@
+package cmsc433.p4.messages;
+
+import java.util.ArrayList;
+
+import cmsc433.p4.util.LatencyHistogram;
+import akka.actor.ActorRef;
+
+/**
+ * Class of messages a load generator sends when it has finished, reporting the latency
+ * of the requests it issued to each resource manager.
+ * 
+ */
+public class LoadReportMsg {
+	private final ArrayList<ActorRef> managers;				// Managers requests were sent to
+	private final ArrayList<LatencyHistogram> latencies;	// Latency of answered requests, per manager
+	private final long issued;								// Requests issued
+	private final long denied;								// Requests answered with a denial
+	private final long unanswered;							// Requests still unanswered at the drain timeout
+	private final double offeredRate;						// Configured requests per second
+	private final long elapsedNanos;						// Time from start to report
+	
+	public LoadReportMsg (ArrayList<ActorRef> managers, ArrayList<LatencyHistogram> latencies, long issued, long denied,
+			long unanswered, double offeredRate, long elapsedNanos) {
+		this.managers = managers;
+		this.latencies = latencies;
+		this.issued = issued;
+		this.denied = denied;
+		this.unanswered = unanswered;
+		this.offeredRate = offeredRate;
+		this.elapsedNanos = elapsedNanos;
+	}
+	
+	public ArrayList<ActorRef> getManagers () {
+		return managers;
+	}
+	
+	/**
+	 * @return	Latency histograms, in the same order as getManagers()
+	 */
+	public ArrayList<LatencyHistogram> getLatencies () {
+		return latencies;
+	}
+	
+	public long getIssued () {
+		return issued;
+	}
+	
+	public long getDenied () {
+		return denied;
+	}
+	
+	public long getUnanswered () {
+		return unanswered;
+	}
+	
+	public double getOfferedRate () {
+		return offeredRate;
+	}
+	
+	public long getElapsedNanos () {
+		return elapsedNanos;
+	}
+	
+	/**
+	 * @return	Latency of all answered requests, whichever manager they were sent to
+	 */
+	public LatencyHistogram getOverallLatency () {
+		LatencyHistogram overall = new LatencyHistogram();
+		for (LatencyHistogram h : latencies) {
+			overall.add(h);
+		}
+		return overall;
+	}
+	
+	/**
+	 * @return	Requests answered per second from start to report
+	 */
+	public double getAnsweredRate () {
+		return (elapsedNanos == 0) ? 0 : (issued - unanswered) * 1e9 / elapsedNanos;
+	}
+	
+	@Override 
+	public String toString () {
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format("Offered %.1f requests/s, answered %.1f requests/s; %d issued, %d denied, %d unanswered",
+				offeredRate, getAnsweredRate(), issued, denied, unanswered));
+		for (int i = 0; i < managers.size(); i++) {
+			sb.append("\n\t").append(managers.get(i).path().name()).append(": ").append(latencies.get(i));
+		}
+		return sb.toString();
+	}
+}
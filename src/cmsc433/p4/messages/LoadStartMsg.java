@@ -0,0 +1,10 @@
+package cmsc433.p4.messages;
+
+/**
+ * Class of messages used to tell load generators to start issuing requests.  The
+ * generator sends its LoadReportMsg to the sender of this message.
+ * 
+ */
+public class LoadStartMsg {
+
+}
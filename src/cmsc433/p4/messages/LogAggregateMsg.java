@@ -0,0 +1,38 @@
+package cmsc433.p4.messages;
+
+import akka.actor.ActorRef;
+
+/**
+ * Class of messages standing in for a number of events of one type that an actor
+ * counted, under an aggregating logging policy, instead of logging them one by one.
+ * The logger keeps them in the log in place of the events.
+ * 
+ */
+public class LogAggregateMsg {
+	private final ActorRef source;				// Actor that counted the events
+	private final LogMsg.EventType type;		// Type of events
+	private final long count;					// Number of events
+	
+	public LogAggregateMsg (ActorRef source, LogMsg.EventType type, long count) {
+		this.source = source;
+		this.type = type;
+		this.count = count;
+	}
+	
+	public ActorRef getSource () {
+		return source;
+	}
+	
+	public LogMsg.EventType getType () {
+		return type;
+	}
+	
+	public long getCount () {
+		return count;
+	}
+	
+	@Override 
+	public String toString () {
+		return source.path().name() + " counted " + count + " " + type + " events";
+	}
+}
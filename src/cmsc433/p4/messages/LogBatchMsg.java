@@ -0,0 +1,52 @@
+package cmsc433.p4.messages;
+
+import java.util.ArrayList;
+
+import akka.actor.ActorRef;
+
+/**
+ * Class of messages carrying a batch of events from an actor's local event log to the
+ * logger.  Each event is stamped with the time of the actor's HybridLogicalClock, and
+ * events appear in the order they were logged, which is also increasing time order.
+ * 
+ * An empty batch registers its source with the logger, which then asks the source for
+ * its final batch when the simulation ends.  The final batch has last set.
+ * 
+ */
+public class LogBatchMsg {
+	private final ActorRef source;				// Actor whose events these are
+	private final ArrayList<Object> events;		// LogMsgs and LogAggregateMsgs, in order
+	private final long[] timestamps;			// Time of each event
+	private final boolean last;					// True if source will send no more events
+	
+	public LogBatchMsg (ActorRef source, ArrayList<Object> events, long[] timestamps, boolean last) {
+		this.source = source;
+		this.events = events;
+		this.timestamps = timestamps;
+		this.last = last;
+	}
+	
+	public ActorRef getSource () {
+		return source;
+	}
+	
+	public ArrayList<Object> getEvents () {
+		return events;
+	}
+	
+	/**
+	 * @return	Time of each event, by index in getEvents()
+	 */
+	public long[] getTimestamps () {
+		return timestamps;
+	}
+	
+	public boolean isLast () {
+		return last;
+	}
+	
+	@Override 
+	public String toString () {
+		return events.size() + " events from " + source.path().name() + (last ? " (last)" : "");
+	}
+}
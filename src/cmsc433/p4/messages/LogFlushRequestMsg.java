@@ -0,0 +1,10 @@
+package cmsc433.p4.messages;
+
+/**
+ * Class of messages the logger sends, once every user has terminated, to each actor
+ * keeping a local event log.  The actor answers with its final LogBatchMsg.
+ * 
+ */
+public class LogFlushRequestMsg {
+
+}
@@ -5,6 +5,8 @@ import cmsc433.p4.enums.ManagementRequestDenialReason;
 import cmsc433.p4.enums.ResourceStatus;
 import cmsc433.p4.util.AccessRelease;
 import cmsc433.p4.util.AccessRequest;
+import cmsc433.p4.util.LogEvent;
+import cmsc433.p4.util.LogFormatter;
 import cmsc433.p4.util.ManagementRequest;
 import akka.actor.ActorRef;
 
@@ -14,7 +16,7 @@ import akka.actor.ActorRef;
  * @author Rance Cleaveland
  *
  */
-public class LogMsg {
+public class LogMsg implements LogEvent {
 
 	public static enum EventType {
 		/* Logged by a UserActor when it starts*/
@@ -282,6 +284,7 @@ public class LogMsg {
 	private final ManagementRequest management_request;
 	private final ManagementRequestDenialReason management_request_denial_reason;
 	private final ResourceStatus new_resource_status;
+	private String text = null;							// Text of event, once formatted
 	
 	
 	
@@ -348,48 +351,16 @@ public class LogMsg {
 	}
 	
 	
+	/**
+	 * The text is formatted the first time it is asked for, and kept.  Racing threads may
+	 * each format it, but always to the same string.
+	 */
 	@Override public String toString() {
-		if (type == EventType.USER_START) {
-			return "User Starting: " + actorRefToString(user);
-		} else if (type == EventType.USER_TERMINATE) {
-			return "User Terminating: " + actorRefToString(user);
-		} else if (type == EventType.LOCAL_RESOURCE_CREATED) {
-			return resource_name + " was added to " + actorRefToString(local_resource_manager);
-		} else if (type == EventType.REMOTE_RESOURCE_DISCOVERED) {
-			return actorRefToString(local_resource_manager) + " discovered that " + resource_name + " is managed by " + actorRefToString(remote_resource_manager);
-		} else if (type == EventType.ACCESS_REQUEST_RECEIVED) {
-			return actorRefToString(local_resource_manager) + " received " + access_request.toString() + " from " + actorRefToString(user);
-		} else if (type == EventType.ACCESS_REQUEST_FORWARDED) {
-			return actorRefToString(local_resource_manager) + " forwarded " + access_request.toString() + " to " + actorRefToString(remote_resource_manager);
-		} else if (type == EventType.ACCESS_REQUEST_GRANTED) {
-			return actorRefToString(local_resource_manager) + " granted " + access_request.toString() + " to " + actorRefToString(user);
-		} else if (type == EventType.ACCESS_REQUEST_DENIED) {
-			return actorRefToString(local_resource_manager) + " denied " + access_request.toString() + " to " + actorRefToString(user) + " because " + access_request_denial_reason.toString();
-		} else if (type == EventType.ACCESS_RELEASE_RECEIVED) {
-			return actorRefToString(local_resource_manager) + " received " + access_release.toString()  + " from " + actorRefToString(user);
-		} else if (type == EventType.ACCESS_RELEASE_FORWARDED) {
-			return actorRefToString(local_resource_manager) + " forwarded " + access_release.toString() + " to " + actorRefToString(remote_resource_manager);
-		} else if (type == EventType.ACCESS_RELEASED) {
-			return actorRefToString(user) + " released " + access_release.getType().toString() + " access to " + resource_name + " (managed by " + actorRefToString(local_resource_manager) + ")"; 
-		} else if (type == EventType.ACCESS_RELEASE_IGNORED) {
-			return actorRefToString(user) + "'s release of " + access_release.getType().toString() + " access to" + resource_name + " (managed by " + actorRefToString(local_resource_manager) + ") was ignored";
-		} else if (type == EventType.MANAGEMENT_REQUEST_RECEIVED) {
-			return actorRefToString(local_resource_manager) + " received " + management_request.toString()  + " from " + actorRefToString(user);
-		} else if (type == EventType.MANAGEMENT_REQUEST_FORWARDED) {
-			return actorRefToString(local_resource_manager) + " forwarded " + management_request.toString() + " to " + actorRefToString(remote_resource_manager);
-		} else if (type == EventType.MANAGEMENT_REQUEST_GRANTED) {
-			return actorRefToString(local_resource_manager) + " granted " + management_request.toString() + " to " + actorRefToString(user);
-		} else if (type == EventType.MANAGEMENT_REQUEST_DENIED) {
-			return actorRefToString(local_resource_manager) + " denied " + management_request.toString() + " to " + actorRefToString(user) + " because " + management_request_denial_reason.toString();
-		} else if (type == EventType.RESOURCE_STATUS_CHANGED) {
-			return resource_name + " (managed by " + actorRefToString(local_resource_manager) + ") is now " + new_resource_status.toString(); 
-		} else {
-			throw new AssertionError ("Unrecognized Event Type: " + type);
+		String t = text;
+		if (t == null) {
+			t = LogFormatter.format(this, new StringBuilder(96)).toString();
+			text = t;
 		}
-		
-	}
-	
-	private static String actorRefToString (ActorRef actorRef) {
-		return actorRef.path().name();
+		return t;
 	}
 }
@@ -2,6 +2,8 @@ package cmsc433.p4.messages;
 
 import java.util.ArrayList;
 
+import cmsc433.p4.util.LogSummary;
+
 /**
  * Class of messages to start logging.
  * 
@@ -11,12 +13,39 @@ import java.util.ArrayList;
 public class LogResultMsg {
 	
 	private final ArrayList<Object> log;
+	private final ArrayList<UserThroughputMsg> throughputReports;	// Reports of pipelined users
+	private final LogSummary summary;								// Summary of streamed log, or null
 
 	public LogResultMsg(ArrayList<Object> log) {
+		this(log, new ArrayList<UserThroughputMsg>());
+	}
+
+	public LogResultMsg(ArrayList<Object> log, ArrayList<UserThroughputMsg> throughputReports) {
+		this(log, throughputReports, null);
+	}
+
+	public LogResultMsg(ArrayList<Object> log, ArrayList<UserThroughputMsg> throughputReports, LogSummary summary) {
 		this.log = log;
+		this.throughputReports = throughputReports;
+		this.summary = summary;
 	}
 
 	public ArrayList<Object> getLog() {
 		return log;
 	}
+
+	/**
+	 * @return	Throughput reported by pipelined users, which are not part of the event log
+	 */
+	public ArrayList<UserThroughputMsg> getThroughputReports() {
+		return throughputReports;
+	}
+
+	/**
+	 * @return	Summary of the log if it was streamed to files, in which case getLog() is
+	 * 			empty; null if the log was kept in memory
+	 */
+	public LogSummary getSummary() {
+		return summary;
+	}
 }
@@ -1,19 +1,31 @@
 package cmsc433.p4.messages;
 
 import cmsc433.p4.util.ManagementRequest;
+import akka.actor.ActorRef;
 
 /**
  * Class of messages resource managers send in response to management requests that
- * can be granted.  The message includes the original request.
+ * can be granted.  The message includes the original request, and the manager owning
+ * the resource so that users can address that manager directly.
  * 
  * @author Rance Cleaveland
  *
  */
 public class ManagementRequestGrantedMsg {
 	private final ManagementRequest request;	// Request being replied to
+	private final ActorRef manager;				// Manager owning the resource, or null if unknown
+	private final int correlationId;			// Correlation ID of request message, or 0 if none
+	private final long timestamp;				// Sender's HybridLogicalClock time when sent, or 0 if none
 	
 	public ManagementRequestGrantedMsg (ManagementRequest request) {
+		this(request, null);
+	}
+	
+	public ManagementRequestGrantedMsg (ManagementRequest request, ActorRef manager) {
 		this.request = request;
+		this.manager = manager;
+		this.correlationId = 0;
+		this.timestamp = 0;
 	}
 	
 	/**
@@ -22,13 +34,58 @@ public class ManagementRequestGrantedMsg {
 	 * @param msg	Request message being responded to
 	 */
 	public ManagementRequestGrantedMsg (ManagementRequestMsg msg) {
+		this(msg, null);
+	}
+	
+	/**
+	 * Constructor generating a response, carrying the request's correlation ID, from a request message.
+	 * 
+	 * @param msg		Message conveying original request
+	 * @param manager	Manager owning the resource
+	 */
+	public ManagementRequestGrantedMsg (ManagementRequestMsg msg, ActorRef manager) {
+		this(msg, manager, 0);
+	}
+	
+	/**
+	 * Constructor generating a stamped response from a request message.
+	 * 
+	 * @param msg		Message conveying original request
+	 * @param manager	Manager owning the resource
+	 * @param timestamp	Manager's HybridLogicalClock time
+	 */
+	public ManagementRequestGrantedMsg (ManagementRequestMsg msg, ActorRef manager, long timestamp) {
 		this.request = msg.getRequest();
+		this.manager = manager;
+		this.correlationId = msg.getCorrelationId();
+		this.timestamp = timestamp;
 	}
 
 	public ManagementRequest getRequest() {
 		return request;
 	}
 	
+	/**
+	 * @return Manager owning the resource, or null if not supplied
+	 */
+	public ActorRef getManager() {
+		return manager;
+	}
+	
+	/**
+	 * @return Correlation ID of the request message, or 0 if none
+	 */
+	public int getCorrelationId() {
+		return correlationId;
+	}
+
+	/**
+	 * @return Sender's HybridLogicalClock time when the message was sent, or 0 if none
+	 */
+	public long getTimestamp() {
+		return timestamp;
+	}
+	
 	@Override 
 	public String toString () {
 		return request.getType().toString() + " " + request.getResourceName() + " was successful";
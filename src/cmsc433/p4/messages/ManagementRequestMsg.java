@@ -1,6 +1,7 @@
 package cmsc433.p4.messages;
 
 import cmsc433.p4.util.ManagementRequest;
+import cmsc433.p4.util.ResourceRegistry;
 import akka.actor.ActorRef;
 
 /**
@@ -12,10 +13,54 @@ import akka.actor.ActorRef;
 public class ManagementRequestMsg {
 	private final ManagementRequest request;
 	private final ActorRef replyTo;
+	private final int correlationId;	// Echoed in the response, or 0 if none
+	private final long timestamp;		// Sender's HybridLogicalClock time when sent, or 0 if none
+	private final int resourceId;		// ID of resource in the system's ResourceRegistry, or ResourceRegistry.NO_ID
 	
 	public ManagementRequestMsg (ManagementRequest request, ActorRef user) {
+		this(request, user, 0);
+	}
+	
+	/**
+	 * @param request		Request
+	 * @param user			User to reply to
+	 * @param correlationId	Non-zero identifier, chosen by the user, that the response will carry
+	 */
+	public ManagementRequestMsg (ManagementRequest request, ActorRef user, int correlationId) {
+		this(request, user, correlationId, 0);
+	}
+	
+	/**
+	 * @param request		Request
+	 * @param user			User to reply to
+	 * @param correlationId	Non-zero identifier, chosen by the user, that the response will carry
+	 * @param timestamp		Sender's HybridLogicalClock time
+	 */
+	public ManagementRequestMsg (ManagementRequest request, ActorRef user, int correlationId, long timestamp) {
+		this(request, user, correlationId, timestamp, ResourceRegistry.NO_ID);
+	}
+	
+	/**
+	 * @param request		Request
+	 * @param user			User to reply to
+	 * @param correlationId	Non-zero identifier, chosen by the user, that the response will carry
+	 * @param timestamp		Sender's HybridLogicalClock time
+	 * @param resourceId	ID of the resource in the system's ResourceRegistry, or ResourceRegistry.NO_ID
+	 */
+	public ManagementRequestMsg (ManagementRequest request, ActorRef user, int correlationId, long timestamp, int resourceId) {
 		this.request = request;
 		this.replyTo = user;
+		this.correlationId = correlationId;
+		this.timestamp = timestamp;
+		this.resourceId = resourceId;
+	}
+	
+	/**
+	 * @param timestamp	Time of the manager forwarding this request
+	 * @return			Copy of this message with the given time
+	 */
+	public ManagementRequestMsg withTimestamp(long timestamp) {
+		return new ManagementRequestMsg(request, replyTo, correlationId, timestamp, resourceId);
 	}
 
 	public ManagementRequest getRequest() {
@@ -25,6 +70,24 @@ public class ManagementRequestMsg {
 	public ActorRef getReplyTo() {
 		return replyTo;
 	}
+
+	public int getCorrelationId() {
+		return correlationId;
+	}
+
+	/**
+	 * @return Sender's HybridLogicalClock time when the message was sent, or 0 if none
+	 */
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	/**
+	 * @return ID of the resource in the system's ResourceRegistry, or ResourceRegistry.NO_ID
+	 */
+	public int getResourceId() {
+		return resourceId;
+	}
 	
 	@Override 
 	public String toString () {
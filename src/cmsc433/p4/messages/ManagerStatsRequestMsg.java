@@ -0,0 +1,11 @@
+package cmsc433.p4.messages;
+
+/**
+ * Class of messages asking a resource manager for counts of its work so far.  The manager
+ * answers with a ManagerStatsResponseMsg; a sharded manager answers with the sums over
+ * its shards.
+ * 
+ */
+public class ManagerStatsRequestMsg {
+
+}
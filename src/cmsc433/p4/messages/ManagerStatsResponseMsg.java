@@ -0,0 +1,48 @@
+package cmsc433.p4.messages;
+
+/**
+ * Class of messages a resource manager sends in response to a ManagerStatsRequestMsg.
+ * 
+ */
+public class ManagerStatsResponseMsg {
+	private final ManagerStatsRequestMsg request;	// Original request
+	private final long negativeCacheHits;			// Requests for missing resources denied without discovery
+	private final long negativeCacheMisses;			// Requests for unknown resources that needed discovery
+	private final long releasesHandled;				// Access releases carried out or ignored here, not forwarded
+	private final long requestsWaiting;				// Requests queued here until a resource is released
+	private final long requestsReceived;			// Requests, releases and management requests received so far
+	
+	public ManagerStatsResponseMsg (ManagerStatsRequestMsg request, long negativeCacheHits, long negativeCacheMisses,
+			long releasesHandled, long requestsWaiting, long requestsReceived) {
+		this.request = request;
+		this.negativeCacheHits = negativeCacheHits;
+		this.negativeCacheMisses = negativeCacheMisses;
+		this.releasesHandled = releasesHandled;
+		this.requestsWaiting = requestsWaiting;
+		this.requestsReceived = requestsReceived;
+	}
+	
+	public ManagerStatsRequestMsg getRequest () {
+		return request;
+	}
+	
+	public long getNegativeCacheHits () {
+		return negativeCacheHits;
+	}
+	
+	public long getNegativeCacheMisses () {
+		return negativeCacheMisses;
+	}
+	
+	public long getReleasesHandled () {
+		return releasesHandled;
+	}
+	
+	public long getRequestsWaiting () {
+		return requestsWaiting;
+	}
+	
+	public long getRequestsReceived () {
+		return requestsReceived;
+	}
+}
@@ -0,0 +1,37 @@
+package cmsc433.p4.messages;
+
+import java.util.ArrayList;
+
+import akka.actor.ActorRef;
+
+/**
+ * Class of messages a resource manager pushes to its peers at startup, naming local
+ * resources it manages.  A manager with many resources sends several advertisements,
+ * each carrying at most MAX_NAMES names.  The list of names should not be modified.
+ * 
+ */
+public class ResourceAdvertisementMsg {
+	
+	public static final int MAX_NAMES = 4096;	// Largest number of names in one advertisement
+	
+	private final ArrayList<String> resource_names;
+	private final ActorRef owner;	// Manager of the advertised resources
+	
+	public ResourceAdvertisementMsg (ArrayList<String> resource_names, ActorRef owner) {
+		this.resource_names = resource_names;
+		this.owner = owner;
+	}
+	
+	public ArrayList<String> getResourceNames () {
+		return resource_names;
+	}
+	
+	public ActorRef getOwner () {
+		return owner;
+	}
+	
+	@Override 
+	public String toString () {
+		return "I have " + resource_names.size() + " resources";
+	}
+}
@@ -2,6 +2,8 @@ package cmsc433.p4.messages;
 
 import java.util.ArrayList;
 
+import cmsc433.p4.util.LogSummary;
+
 /**
  * Message class used by simulation managers to return result of simulation (i.e. log).
  * 
@@ -11,12 +13,49 @@ import java.util.ArrayList;
 public class SimulationFinishMsg {
 	
 	private final ArrayList<Object> log;
+	private final ArrayList<UserThroughputMsg> throughputReports;	// Reports of pipelined users
+	private final long elapsedNanos;								// Time from simulation start to end of log
+	private final LogSummary summary;								// Summary of streamed log, or null
 
 	public SimulationFinishMsg(ArrayList<Object> log) {
+		this(log, new ArrayList<UserThroughputMsg>(), 0);
+	}
+
+	public SimulationFinishMsg(ArrayList<Object> log, ArrayList<UserThroughputMsg> throughputReports, long elapsedNanos) {
+		this(log, throughputReports, elapsedNanos, null);
+	}
+
+	public SimulationFinishMsg(ArrayList<Object> log, ArrayList<UserThroughputMsg> throughputReports, long elapsedNanos,
+			LogSummary summary) {
 		this.log = log;
+		this.throughputReports = throughputReports;
+		this.elapsedNanos = elapsedNanos;
+		this.summary = summary;
 	}
 
 	public ArrayList<Object> getLog() {
 		return log;
 	}
+
+	/**
+	 * @return	Throughput reported by pipelined users, which are not part of the event log
+	 */
+	public ArrayList<UserThroughputMsg> getThroughputReports() {
+		return throughputReports;
+	}
+
+	/**
+	 * @return	Real time from the simulation manager starting the users to receiving the log
+	 */
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+
+	/**
+	 * @return	Summary of the log if it was streamed to files, in which case getLog() is
+	 * 			empty; null if the log was kept in memory
+	 */
+	public LogSummary getSummary() {
+		return summary;
+	}
 }
@@ -0,0 +1,13 @@
+package cmsc433.p4.messages;
+
+/**
+ * Class of messages telling a user actor that the sleep of its current step is over.
+ * 
+ */
+public class SleepFinishedMsg {
+
+	@Override 
+	public String toString () {
+		return "Sleep finished";
+	}
+}
@@ -0,0 +1,23 @@
+package cmsc433.p4.messages;
+
+/**
+ * Class of messages a user sends to a simulation clock to sleep in virtual time.  The
+ * clock answers with a SleepFinishedMsg once virtual time has advanced by the duration.
+ * 
+ */
+public class SleepRequestMsg {
+	private final long durationMs;	// Virtual duration of sleep
+	
+	public SleepRequestMsg (long durationMs) {
+		this.durationMs = durationMs;
+	}
+	
+	public long getDurationMs () {
+		return durationMs;
+	}
+	
+	@Override 
+	public String toString () {
+		return "Sleep for " + durationMs + "ms";
+	}
+}
@@ -0,0 +1,10 @@
+package cmsc433.p4.messages;
+
+/**
+ * Class of messages a simulation clock sends to ask a user how much of its work is
+ * outstanding.  The user answers with a UserStatusResponseMsg.
+ * 
+ */
+public class UserStatusRequestMsg {
+
+}
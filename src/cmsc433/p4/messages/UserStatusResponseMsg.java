@@ -0,0 +1,46 @@
+package cmsc433.p4.messages;
+
+/**
+ * Class of messages a user of a virtual-time simulation sends to its clock:  in response
+ * to a UserStatusRequestMsg, and once, unasked, when the user terminates.
+ * 
+ */
+public class UserStatusResponseMsg {
+	private final UserStatusRequestMsg request;	// Original request, or null if the user is terminating
+	private final boolean started;				// True if the user has been started
+	private final int pendingRequests;			// Requests the user sent that await responses
+	private final long releasesSent;			// Access releases the user has sent so far
+	private final long messagesHandled;			// Messages the user has handled so far, other than status requests
+	
+	public UserStatusResponseMsg (UserStatusRequestMsg request, boolean started, int pendingRequests, long releasesSent,
+			long messagesHandled) {
+		this.request = request;
+		this.started = started;
+		this.pendingRequests = pendingRequests;
+		this.releasesSent = releasesSent;
+		this.messagesHandled = messagesHandled;
+	}
+	
+	/**
+	 * @return	Request answered, or null if the user sent this as it terminated
+	 */
+	public UserStatusRequestMsg getRequest () {
+		return request;
+	}
+	
+	public boolean isStarted () {
+		return started;
+	}
+	
+	public int getPendingRequests () {
+		return pendingRequests;
+	}
+	
+	public long getReleasesSent () {
+		return releasesSent;
+	}
+	
+	public long getMessagesHandled () {
+		return messagesHandled;
+	}
+}
@@ -0,0 +1,51 @@
+package cmsc433.p4.messages;
+
+import akka.actor.ActorRef;
+
+/**
+ * Class of messages a pipelined user sends to the logger just before it terminates,
+ * reporting the request rate it achieved.
+ * 
+ */
+public class UserThroughputMsg {
+	private final ActorRef user;			// User reporting
+	private final int window;				// Maximum number of steps user had in flight
+	private final long requestsCompleted;	// Requests answered by resource managers
+	private final long elapsedNanos;		// Time from user start to termination
+	
+	public UserThroughputMsg (ActorRef user, int window, long requestsCompleted, long elapsedNanos) {
+		this.user = user;
+		this.window = window;
+		this.requestsCompleted = requestsCompleted;
+		this.elapsedNanos = elapsedNanos;
+	}
+	
+	public ActorRef getUser () {
+		return user;
+	}
+	
+	public int getWindow () {
+		return window;
+	}
+	
+	public long getRequestsCompleted () {
+		return requestsCompleted;
+	}
+	
+	public long getElapsedNanos () {
+		return elapsedNanos;
+	}
+	
+	/**
+	 * @return	Requests answered per second of the user's lifetime
+	 */
+	public double getRequestsPerSecond () {
+		return (elapsedNanos == 0) ? 0 : requestsCompleted * 1e9 / elapsedNanos;
+	}
+	
+	@Override 
+	public String toString () {
+		return user.path().name() + " completed " + requestsCompleted + " requests at " 
+				+ String.format("%.1f", getRequestsPerSecond()) + " requests/s with window " + window;
+	}
+}
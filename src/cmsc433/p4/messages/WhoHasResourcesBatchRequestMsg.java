@@ -0,0 +1,26 @@
+package cmsc433.p4.messages;
+
+import java.util.ArrayList;
+
+/**
+ * Class of messages asking a resource manager which of several resources it manages.
+ * Sent in place of one WhoHasResourceRequestMsg per resource when discovery batching
+ * is enabled.  The list of names should not be modified.
+ * 
+ */
+public class WhoHasResourcesBatchRequestMsg {
+	private final ArrayList<String> resource_names;
+	
+	public WhoHasResourcesBatchRequestMsg (ArrayList<String> resource_names) {
+		this.resource_names = resource_names;
+	}
+	
+	public ArrayList<String> getResourceNames () {
+		return resource_names;
+	}
+	
+	@Override 
+	public String toString () {
+		return "Who has " + resource_names + "?";
+	}
+}
@@ -0,0 +1,43 @@
+package cmsc433.p4.messages;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+
+import akka.actor.ActorRef;
+
+/**
+ * Class of messages answering a WhoHasResourcesBatchRequestMsg.  Bit i of the result
+ * is set if the sender manages the i-th resource named in the request.
+ * 
+ */
+public class WhoHasResourcesBatchResponseMsg {
+	private final WhoHasResourcesBatchRequestMsg request;	// Request being answered
+	private final BitSet results;
+	private final ActorRef sender; // The actor who sends this response message.
+	
+	public WhoHasResourcesBatchResponseMsg (WhoHasResourcesBatchRequestMsg request, BitSet results, ActorRef sender) {
+		this.request = request;
+		this.results = results;
+		this.sender = sender;
+	}
+	
+	public ArrayList<String> getResourceNames () {
+		return request.getResourceNames();
+	}
+	
+	/**
+	 * @param i		Index of resource name in request
+	 * @return		True if the sender manages the i-th resource
+	 */
+	public boolean getResult (int i) {
+		return results.get(i);
+	}
+	
+	public ActorRef getSender () {
+		return sender;
+	}
+	
+	@Override public String toString () {
+		return "I have " + results.cardinality() + " of " + request.getResourceNames().size() + " resources";
+	}
+}
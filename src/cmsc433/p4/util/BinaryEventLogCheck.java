@@ -0,0 +1,169 @@
+package cmsc433.p4.util;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.EnumSet;
+
+import cmsc433.p4.enums.AccessRequestDenialReason;
+import cmsc433.p4.enums.AccessRequestType;
+import cmsc433.p4.enums.AccessType;
+import cmsc433.p4.enums.ManagementRequestDenialReason;
+import cmsc433.p4.enums.ManagementRequestType;
+import cmsc433.p4.enums.ResourceStatus;
+import cmsc433.p4.messages.LogMsg;
+import cmsc433.p4.messages.LogMsg.EventType;
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Inbox;
+
+/**
+ * Check that every kind of event survives a round trip through BinaryEventLogWriter and
+ * BinaryEventLogReader.
+ *
+ * One event of every EventType is written, and the dictionary flushed.  A second event
+ * of every type, naming only actors and a resource not yet seen, is then written without
+ * a flush.  The check fails, with an exception, unless:
+ * <ul>
+ * <li>read while the log is still open, the first events read back whole, and the
+ *     second read back whole except that every name is null, their IDs being missing
+ *     from the dictionary;</li>
+ * <li>read after close(), every event reads back whole; and</li>
+ * <li>the reader stops after the last event written, both times.</li>
+ * </ul>
+ * An event reads back whole if its type, names, request or release type, denial reason,
+ * new status and time are those written.
+ *
+ */
+public class BinaryEventLogCheck {
+
+	private BinaryEventLogCheck () {
+	}
+
+	private static void check (boolean condition, String message) {
+		if (!condition) {
+			throw new IllegalStateException(message);
+		}
+	}
+
+	/**
+	 * @param user		User named in events
+	 * @param local		Local manager named in events
+	 * @param remote	Remote manager named in events
+	 * @param resource	Resource named in events
+	 * @return			One event of every EventType
+	 */
+	private static ArrayList<LogMsg> makeEvents (ActorRef user, ActorRef local, ActorRef remote, String resource) {
+		AccessRequest read = new AccessRequest(resource, AccessRequestType.CONCURRENT_READ_NONBLOCKING);
+		AccessRequest write = new AccessRequest(resource, AccessRequestType.EXCLUSIVE_WRITE_BLOCKING);
+		AccessRelease readRelease = new AccessRelease(resource, AccessType.CONCURRENT_READ);
+		AccessRelease writeRelease = new AccessRelease(resource, AccessType.EXCLUSIVE_WRITE);
+		ManagementRequest disable = new ManagementRequest(resource, ManagementRequestType.DISABLE);
+		ManagementRequest enable = new ManagementRequest(resource, ManagementRequestType.ENABLE);
+		ArrayList<LogMsg> events = new ArrayList<LogMsg>();
+		events.add(LogMsg.makeUserStartLogMsg(user));
+		events.add(LogMsg.makeUserTerminateLogMsg(user));
+		events.add(LogMsg.makeLocalResourceCreatedLogMsg(local, resource));
+		events.add(LogMsg.makeRemoteResourceDiscoveredLogMsg(local, remote, resource));
+		events.add(LogMsg.makeAccessRequestReceivedLogMsg(user, local, read));
+		events.add(LogMsg.makeAccessRequestForwardedLogMsg(local, remote, write));
+		events.add(LogMsg.makeAccessRequestGrantedLogMsg(user, local, write));
+		events.add(LogMsg.makeAccessRequestDeniedLogMsg(user, local, read, AccessRequestDenialReason.RESOURCE_DISABLED));
+		events.add(LogMsg.makeAccessReleaseReceivedLogMsg(user, local, writeRelease));
+		events.add(LogMsg.makeAccessReleaseForwardedLogMsg(local, remote, readRelease));
+		events.add(LogMsg.makeAccessReleasedLogMsg(user, local, writeRelease));
+		events.add(LogMsg.makeAccessReleaseIgnoredLogMsg(user, local, readRelease));
+		events.add(LogMsg.makeManagementRequestReceivedLogMsg(user, local, disable));
+		events.add(LogMsg.makeManagementRequestForwardedLogMsg(local, remote, enable));
+		events.add(LogMsg.makeManagementRequestGrantedLogMsg(user, local, disable));
+		events.add(LogMsg.makeManagementRequestDeniedLogMsg(user, local, enable, ManagementRequestDenialReason.ACCESS_HELD_BY_USER));
+		events.add(LogMsg.makeResourceStatusChangedLogMsg(local, resource, ResourceStatus.DISABLED));
+
+		EnumSet<EventType> types = EnumSet.noneOf(EventType.class);
+		for (LogMsg e : events) {
+			types.add(e.getType());
+		}
+		check(types.equals(EnumSet.allOf(EventType.class)), "Events written leave out " + EnumSet.complementOf(types));
+		return events;
+	}
+
+	/**
+	 * @param actor		Actor, or null
+	 * @param named		True if the dictionary read holds the actor
+	 * @return			Name the reader should give
+	 */
+	private static String expectedName (ActorRef actor, boolean named) {
+		return (actor == null || !named) ? null : actor.path().name();
+	}
+
+	private static void checkField (Object read, Object written, String field, long index) {
+		check((read == null) ? written == null : read.equals(written),
+				"Record " + index + " has " + field + " " + read + ", not " + written);
+	}
+
+	/**
+	 * Read a log and compare its records with the events written.
+	 *
+	 * @param filename	Name of log file
+	 * @param events	Events written, in order
+	 * @param named		Number of events, from the first, whose names the dictionary holds
+	 * @throws Exception	Thrown if the log cannot be read
+	 */
+	private static void readBack (String filename, ArrayList<LogMsg> events, int named) throws Exception {
+		BinaryEventLogReader reader = new BinaryEventLogReader(filename);
+		try {
+			for (int i = 0; i < events.size(); i++) {
+				check(reader.next(), "Log ends after " + i + " of " + events.size() + " records");
+				LogMsg e = events.get(i);
+				boolean n = i < named;
+				checkField(reader.getRecordIndex(), (long) i, "index", i);
+				checkField(reader.getTimeNanos(), (long) i, "time", i);
+				checkField(reader.getType(), e.getType(), "type", i);
+				checkField(reader.getUserName(), expectedName(e.getUser(), n), "user", i);
+				checkField(reader.getLocalManagerName(), expectedName(e.getLocalResourceManager(), n), "local manager", i);
+				checkField(reader.getRemoteManagerName(), expectedName(e.getRemoteResourceManager(), n), "remote manager", i);
+				checkField(reader.getResourceName(), n ? e.getResourceName() : null, "resource", i);
+				check((reader.getUserId() >= 0) == (e.getUser() != null) && (reader.getResourceId() >= 0) == (e.getResourceName() != null),
+						"Record " + i + " has IDs for the wrong fields");
+				checkField(reader.getAccessRequestType(), (e.getAccessRequest() != null) ? e.getAccessRequest().getType() : null, "access request type", i);
+				checkField(reader.getAccessReleaseType(), (e.getAccessRelease() != null) ? e.getAccessRelease().getType() : null, "access release type", i);
+				checkField(reader.getManagementRequestType(), (e.getManagementRequest() != null) ? e.getManagementRequest().getType() : null, "management request type", i);
+				checkField(reader.getAccessRequestDenialReason(), e.getAccessRequestDenialReason(), "access denial reason", i);
+				checkField(reader.getManagementRequestDenialReason(), e.getManagementRequestDenialReason(), "management denial reason", i);
+				checkField(reader.getNewResourceStatus(), e.getNewResourceStatus(), "new status", i);
+			}
+			check(!reader.next(), "Log has more than the " + events.size() + " records written");
+		} finally {
+			reader.close();
+		}
+	}
+
+	public static void main (String[] args) throws Exception {
+		ActorSystem system = ActorSystem.create("BinaryEventLogCheck");
+		File file = File.createTempFile("BinaryEventLogCheck", ".events");
+		File dictionary = new File(file.getPath() + BinaryEventLogWriter.DICTIONARY_SUFFIX);
+		try {
+			ArrayList<LogMsg> events = makeEvents(Inbox.create(system).getRef(), Inbox.create(system).getRef(),
+					Inbox.create(system).getRef(), "Early");
+			int flushed = events.size();
+			events.addAll(makeEvents(Inbox.create(system).getRef(), Inbox.create(system).getRef(),
+					Inbox.create(system).getRef(), "Late"));
+
+			BinaryEventLogWriter writer = new BinaryEventLogWriter(file.getPath());
+			for (int i = 0; i < events.size(); i++) {
+				if (i == flushed) {
+					writer.flush();
+				}
+				writer.append(events.get(i), i);
+			}
+			readBack(file.getPath(), events, flushed);
+			writer.close();
+			readBack(file.getPath(), events, events.size());
+			System.out.println(String.format("Binary event log checks passed:  %d event types, read while open and after close",
+					EventType.values().length));
+		} finally {
+			file.delete();
+			dictionary.delete();
+			system.terminate();
+		}
+	}
+}
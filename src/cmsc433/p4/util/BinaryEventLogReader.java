@@ -0,0 +1,307 @@
+package cmsc433.p4.util;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+
+import cmsc433.p4.enums.AccessRequestDenialReason;
+import cmsc433.p4.enums.AccessRequestType;
+import cmsc433.p4.enums.AccessType;
+import cmsc433.p4.enums.ManagementRequestDenialReason;
+import cmsc433.p4.enums.ManagementRequestType;
+import cmsc433.p4.enums.ResourceStatus;
+import cmsc433.p4.messages.LogMsg.EventType;
+
+/**
+ * Cursor over the records of a binary event log written by BinaryEventLogWriter.
+ *
+ * The log is memory-mapped a window at a time, and the cursor reads fields straight
+ * from the mapping, so no object is created per record and a scan runs at the speed
+ * the file can be read.  Call next() to move to each record in turn, then the get...()
+ * methods to read fields of the current record.  A log that is still being written may
+ * be read; the cursor stops at the first record not yet written.  Names are read from
+ * the dictionary as the writer last flushed it, so in records written since, the
+ * get...Name() methods return null for actors and resources the dictionary does not
+ * yet hold; their IDs and the records' other fields can still be read.
+ *
+ * Instances must not be shared between threads.
+ */
+public class BinaryEventLogReader {
+
+	private static final long WINDOW_BYTES = (1L << 30) / BinaryEventLogWriter.RECORD_BYTES * BinaryEventLogWriter.RECORD_BYTES;
+
+	private static final EventType[] EVENT_TYPES = EventType.values();
+	private static final AccessRequestType[] ACCESS_REQUEST_TYPES = AccessRequestType.values();
+	private static final AccessType[] ACCESS_TYPES = AccessType.values();
+	private static final ManagementRequestType[] MANAGEMENT_REQUEST_TYPES = ManagementRequestType.values();
+	private static final AccessRequestDenialReason[] ACCESS_DENIAL_REASONS = AccessRequestDenialReason.values();
+	private static final ManagementRequestDenialReason[] MANAGEMENT_DENIAL_REASONS = ManagementRequestDenialReason.values();
+	private static final ResourceStatus[] STATUSES = ResourceStatus.values();
+
+	private final FileChannel channel;
+	private final long fileSize;
+	private final String[] actorNames;							// Actor names, by ID
+	private final HashMap<Integer, String> resourceNames;		// Resource names, by ID
+	private MappedByteBuffer window = null;						// Mapped part of file holding current record
+	private long windowStart = 0;								// File offset of window
+	private long windowEnd = 0;									// File offset after window
+	private long next = BinaryEventLogWriter.HEADER_BYTES;		// File offset of next record
+	private int current = -1;									// Offset in window of current record, or -1 if none
+	private long recordIndex = -1;								// Index of current record
+
+	/**
+	 * Open a log and read its dictionary.
+	 *
+	 * @param filename	Name of log file
+	 * @throws IOException	Thrown if the log or its dictionary cannot be read, or the log
+	 * 						is not a binary event log
+	 */
+	public BinaryEventLogReader (String filename) throws IOException {
+		channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+		try {
+			fileSize = channel.size();
+			ByteBuffer header = ByteBuffer.allocate(BinaryEventLogWriter.HEADER_BYTES);
+			while (header.hasRemaining() && channel.read(header, header.position()) > 0) {
+			}
+			header.flip();
+			if (header.remaining() < BinaryEventLogWriter.HEADER_BYTES || header.getInt() != BinaryEventLogWriter.MAGIC) {
+				throw new IOException(filename + " is not a binary event log");
+			}
+			int version = header.getInt();
+			int recordBytes = header.getInt();
+			if (version != BinaryEventLogWriter.VERSION || recordBytes != BinaryEventLogWriter.RECORD_BYTES) {
+				throw new IOException(filename + " has unsupported event log version " + version);
+			}
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+				new FileInputStream(filename + BinaryEventLogWriter.DICTIONARY_SUFFIX)))) {
+			actorNames = new String[in.readInt()];
+			for (int i = 0; i < actorNames.length; i++) {
+				actorNames[i] = in.readUTF();
+			}
+			int resources = in.readInt();
+			resourceNames = new HashMap<Integer, String>(resources * 2);
+			for (int i = 0; i < resources; i++) {
+				int id = in.readInt();
+				resourceNames.put(id, in.readUTF());
+			}
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Move to the next record.
+	 *
+	 * @return	True if there is a next record, false at the end of the log
+	 * @throws IOException	Thrown if the log cannot be mapped
+	 */
+	public boolean next () throws IOException {
+		if (next + BinaryEventLogWriter.RECORD_BYTES > fileSize) {
+			current = -1;
+			return false;
+		}
+		if (next + BinaryEventLogWriter.RECORD_BYTES > windowEnd) {
+			windowStart = next;
+			windowEnd = Math.min(fileSize, windowStart + WINDOW_BYTES);
+			window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowEnd - windowStart);
+		}
+		int offset = (int) (next - windowStart);
+		if (window.get(offset + BinaryEventLogWriter.TYPE) == 0) {	// Unwritten space at end of log
+			current = -1;
+			return false;
+		}
+		current = offset;
+		next += BinaryEventLogWriter.RECORD_BYTES;
+		recordIndex++;
+		return true;
+	}
+
+	/**
+	 * Close the log.
+	 *
+	 * @throws IOException	Thrown if the log cannot be closed
+	 */
+	public void close () throws IOException {
+		window = null;
+		channel.close();
+	}
+
+	// ---- Fields of current record ----
+
+	/**
+	 * @return	Index of current record in log, starting from 0
+	 */
+	public long getRecordIndex () {
+		checkCurrent();
+		return recordIndex;
+	}
+
+	public EventType getType () {
+		checkCurrent();
+		return EVENT_TYPES[window.get(current + BinaryEventLogWriter.TYPE) - 1];
+	}
+
+	/**
+	 * @return	Time event was logged, from System.nanoTime() of the logging JVM
+	 */
+	public long getTimeNanos () {
+		checkCurrent();
+		return window.getLong(current + BinaryEventLogWriter.TIME);
+	}
+
+	/**
+	 * @return	ID of user, or -1 if the event has none
+	 */
+	public int getUserId () {
+		checkCurrent();
+		return window.getInt(current + BinaryEventLogWriter.USER);
+	}
+
+	/**
+	 * @return	ID of local resource manager, or -1 if the event has none
+	 */
+	public int getLocalManagerId () {
+		checkCurrent();
+		return window.getInt(current + BinaryEventLogWriter.LOCAL_MANAGER);
+	}
+
+	/**
+	 * @return	ID of remote resource manager, or -1 if the event has none
+	 */
+	public int getRemoteManagerId () {
+		checkCurrent();
+		return window.getInt(current + BinaryEventLogWriter.REMOTE_MANAGER);
+	}
+
+	/**
+	 * @return	ID of resource, or -1 if the event has none
+	 */
+	public int getResourceId () {
+		checkCurrent();
+		return window.getInt(current + BinaryEventLogWriter.RESOURCE);
+	}
+
+	/**
+	 * @return	Name of user, or null if the event has none or the dictionary does not hold it
+	 */
+	public String getUserName () {
+		return actorName(getUserId());
+	}
+
+	/**
+	 * @return	Name of local resource manager, or null if the event has none or the
+	 * 			dictionary does not hold it
+	 */
+	public String getLocalManagerName () {
+		return actorName(getLocalManagerId());
+	}
+
+	/**
+	 * @return	Name of remote resource manager, or null if the event has none or the
+	 * 			dictionary does not hold it
+	 */
+	public String getRemoteManagerName () {
+		return actorName(getRemoteManagerId());
+	}
+
+	/**
+	 * @return	Name of resource, or null if the event has none or the dictionary does not hold it
+	 */
+	public String getResourceName () {
+		int id = getResourceId();
+		return (id < 0) ? null : resourceNames.get(id);
+	}
+
+	/**
+	 * @return	Type of access requested, or null if the event is not about an access request
+	 */
+	public AccessRequestType getAccessRequestType () {
+		switch (getType()) {
+		case ACCESS_REQUEST_RECEIVED:
+		case ACCESS_REQUEST_FORWARDED:
+		case ACCESS_REQUEST_GRANTED:
+		case ACCESS_REQUEST_DENIED:
+			return ACCESS_REQUEST_TYPES[window.get(current + BinaryEventLogWriter.REQUEST_TYPE)];
+		default:
+			return null;
+		}
+	}
+
+	/**
+	 * @return	Type of access released, or null if the event is not about an access release
+	 */
+	public AccessType getAccessReleaseType () {
+		switch (getType()) {
+		case ACCESS_RELEASE_RECEIVED:
+		case ACCESS_RELEASE_FORWARDED:
+		case ACCESS_RELEASED:
+		case ACCESS_RELEASE_IGNORED:
+			return ACCESS_TYPES[window.get(current + BinaryEventLogWriter.REQUEST_TYPE)];
+		default:
+			return null;
+		}
+	}
+
+	/**
+	 * @return	Type of management request, or null if the event is not about a management request
+	 */
+	public ManagementRequestType getManagementRequestType () {
+		switch (getType()) {
+		case MANAGEMENT_REQUEST_RECEIVED:
+		case MANAGEMENT_REQUEST_FORWARDED:
+		case MANAGEMENT_REQUEST_GRANTED:
+		case MANAGEMENT_REQUEST_DENIED:
+			return MANAGEMENT_REQUEST_TYPES[window.get(current + BinaryEventLogWriter.REQUEST_TYPE)];
+		default:
+			return null;
+		}
+	}
+
+	/**
+	 * @return	Reason access was denied, or null if the event is not an access denial
+	 */
+	public AccessRequestDenialReason getAccessRequestDenialReason () {
+		return (getType() == EventType.ACCESS_REQUEST_DENIED) ? ACCESS_DENIAL_REASONS[window.get(current + BinaryEventLogWriter.DENIAL_REASON)] : null;
+	}
+
+	/**
+	 * @return	Reason management request was denied, or null if the event is not a management denial
+	 */
+	public ManagementRequestDenialReason getManagementRequestDenialReason () {
+		return (getType() == EventType.MANAGEMENT_REQUEST_DENIED) ? MANAGEMENT_DENIAL_REASONS[window.get(current + BinaryEventLogWriter.DENIAL_REASON)] : null;
+	}
+
+	/**
+	 * @return	New status of resource, or null if the event is not a status change
+	 */
+	public ResourceStatus getNewResourceStatus () {
+		return (getType() == EventType.RESOURCE_STATUS_CHANGED) ? STATUSES[window.get(current + BinaryEventLogWriter.STATUS)] : null;
+	}
+
+	/**
+	 * @param id	ID of actor, or -1
+	 * @return		Name of actor, or null for -1 or an ID not in the dictionary
+	 */
+	private String actorName (int id) {
+		return (id < 0 || id >= actorNames.length) ? null : actorNames[id];
+	}
+
+	private void checkCurrent () {
+		if (current < 0) {
+			throw new IllegalStateException("No current record; call next() first");
+		}
+	}
+}
@@ -0,0 +1,245 @@
+package cmsc433.p4.util;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import akka.actor.ActorRef;
+
+/**
+ * Writer of event logs in a compact binary form, to a memory-mapped append-only file.
+ *
+ * Every event is a fixed-width record of RECORD_BYTES bytes, in big-endian order:
+ * <pre>
+ *   0  long  time the event was logged, from System.nanoTime()
+ *   8  int   user ID, or -1
+ *  12  int   local resource manager ID, or -1
+ *  16  int   remote resource manager ID, or -1
+ *  20  int   resource ID, or -1
+ *  24  byte  EventType ordinal + 1 (0 marks the end of the records)
+ *  25  byte  ordinal of the request's AccessRequestType, the release's AccessType or the
+ *            management request's ManagementRequestType, or -1
+ *  26  byte  ordinal of the AccessRequestDenialReason or ManagementRequestDenialReason, or -1
+ *  27  byte  ordinal of the new ResourceStatus, or -1
+ *  28  int   reserved, 0
+ * </pre>
+ * after a header of HEADER_BYTES bytes:  int MAGIC, int VERSION, int RECORD_BYTES, int 0.
+ * Actors and resources are given IDs in the order they first appear in this file.  The
+ * names belonging to the IDs are written to a dictionary file (the log file's name +
+ * ".names") by flush() and close():  int number of actors, then each actor's name
+ * (writeUTF); int number of resources, then each resource's ID (int) and name (writeUTF).
+ *
+ * The file is mapped and grown a region at a time, so appending a record is a few
+ * stores into memory.  Until close() trims it, the file ends in zeroed space, which
+ * BinaryEventLogReader recognises by the zero type byte.  Where a file cannot be
+ * trimmed while it is mapped, as on Windows, close() leaves the zeroed space in place.
+ *
+ * Instances are owned by exactly one actor and must not be shared.
+ */
+public class BinaryEventLogWriter {
+
+	static final int MAGIC = 0x45564C47;	// "EVLG"
+	static final int VERSION = 1;
+	static final int HEADER_BYTES = 16;
+	static final int RECORD_BYTES = 32;
+	static final String DICTIONARY_SUFFIX = ".names";
+
+	// Offsets of fields within a record
+	static final int TIME = 0;
+	static final int USER = 8;
+	static final int LOCAL_MANAGER = 12;
+	static final int REMOTE_MANAGER = 16;
+	static final int RESOURCE = 20;
+	static final int TYPE = 24;
+	static final int REQUEST_TYPE = 25;
+	static final int DENIAL_REASON = 26;
+	static final int STATUS = 27;
+	static final int RESERVED = 28;
+
+	private static final long REGION_BYTES = (64L << 20) / RECORD_BYTES * RECORD_BYTES;	// Size of each mapped region
+
+	private final String filename;
+	private final FileChannel channel;
+	private MappedByteBuffer region;			// Mapped part of file records are being appended to
+	private long regionStart;					// File offset of region
+	private long end = HEADER_BYTES;			// File offset after last record
+	private final HashMap<ActorRef, Integer> actorIds = new HashMap<>();	// Interned actors
+	private final ArrayList<String> actorNames = new ArrayList<String>();	// Actor names, by ID
+	private final HashMap<String, Integer> resourceIds = new HashMap<>();	// Interned resource names
+	private final ArrayList<String> resourceNames = new ArrayList<String>();	// Resource names, by ID
+
+	/**
+	 * Create the log file, replacing any existing one.
+	 *
+	 * @param filename	Name of log file
+	 * @throws IOException	Thrown if file cannot be created
+	 */
+	public BinaryEventLogWriter (String filename) throws IOException {
+		this.filename = filename;
+		this.channel = FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+		header.putInt(MAGIC).putInt(VERSION).putInt(RECORD_BYTES).putInt(0).flip();
+		while (header.hasRemaining()) {
+			channel.write(header, header.position());
+		}
+		mapRegion();
+	}
+
+	/**
+	 * Append a record of the event.
+	 *
+	 * @param msg		Event
+	 * @param nanos		Time event was logged
+	 * @throws IOException	Thrown if the file cannot be grown
+	 */
+	public void append (LogEvent msg, long nanos) throws IOException {
+		if (end - regionStart == REGION_BYTES) {
+			mapRegion();
+		}
+		int r = (int) (end - regionStart);
+		region.putLong(r + TIME, nanos);
+		region.putInt(r + USER, actorId(msg.getUser()));
+		region.putInt(r + LOCAL_MANAGER, actorId(msg.getLocalResourceManager()));
+		region.putInt(r + REMOTE_MANAGER, actorId(msg.getRemoteResourceManager()));
+		region.putInt(r + RESOURCE, resourceId(msg.getResourceName()));
+		region.put(r + REQUEST_TYPE, requestTypeOrdinal(msg));
+		region.put(r + DENIAL_REASON, denialReasonOrdinal(msg));
+		region.put(r + STATUS, (msg.getNewResourceStatus() != null) ? (byte) msg.getNewResourceStatus().ordinal() : -1);
+		region.putInt(r + RESERVED, 0);
+		region.put(r + TYPE, (byte) (msg.getType().ordinal() + 1));
+		end += RECORD_BYTES;
+	}
+
+	/**
+	 * @return	Number of records appended
+	 */
+	public long getRecordCount () {
+		return (end - HEADER_BYTES) / RECORD_BYTES;
+	}
+
+	/**
+	 * @return	Name of log file
+	 */
+	public String getFilename () {
+		return filename;
+	}
+
+	/**
+	 * @return	Name of dictionary file
+	 */
+	public String getDictionaryFilename () {
+		return filename + DICTIONARY_SUFFIX;
+	}
+
+	/**
+	 * @return	Bytes of log taken by the header and records
+	 */
+	public long getBytesWritten () {
+		return end;
+	}
+
+	/**
+	 * Write the dictionary, so that the records appended so far can be read.
+	 *
+	 * @throws IOException	Thrown if dictionary cannot be written
+	 */
+	public void flush () throws IOException {
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(getDictionaryFilename())))) {
+			out.writeInt(actorNames.size());
+			for (String name : actorNames) {
+				out.writeUTF(name);
+			}
+			out.writeInt(resourceNames.size());
+			for (int id = 0; id < resourceNames.size(); id++) {
+				out.writeInt(id);
+				out.writeUTF(resourceNames.get(id));
+			}
+		}
+	}
+
+	/**
+	 * Write the dictionary, trim the unused end of the file if the platform allows, and
+	 * close it.
+	 *
+	 * @throws IOException	Thrown if the file cannot be finished
+	 */
+	public void close () throws IOException {
+		flush();
+		region = null;		// Unmapped only once collected, so the mapping may still be live below
+		try {
+			channel.truncate(end);
+		} catch (IOException e) {
+			// Mapped files cannot be truncated on some platforms; readers skip the zeroed space left
+		} finally {
+			channel.close();
+		}
+	}
+
+	private void mapRegion () throws IOException {
+		regionStart = end;
+		region = channel.map(FileChannel.MapMode.READ_WRITE, regionStart, REGION_BYTES);
+	}
+
+	/**
+	 * @param actor	Actor, or null
+	 * @return		ID of actor, or -1 for null
+	 */
+	private int actorId (ActorRef actor) {
+		if (actor == null) {
+			return -1;
+		}
+		Integer id = actorIds.get(actor);
+		if (id == null) {
+			id = actorNames.size();
+			actorIds.put(actor, id);
+			actorNames.add(actor.path().name());
+		}
+		return id;
+	}
+
+	/**
+	 * @param name	Resource name, or null
+	 * @return		ID of resource, or -1 for null
+	 */
+	private int resourceId (String name) {
+		if (name == null) {
+			return -1;
+		}
+		Integer id = resourceIds.get(name);
+		if (id == null) {
+			id = resourceNames.size();
+			resourceIds.put(name, id);
+			resourceNames.add(name);
+		}
+		return id;
+	}
+
+	private static byte requestTypeOrdinal (LogEvent msg) {
+		if (msg.getAccessRequest() != null) {
+			return (byte) msg.getAccessRequest().getType().ordinal();
+		} else if (msg.getAccessRelease() != null) {
+			return (byte) msg.getAccessRelease().getType().ordinal();
+		} else if (msg.getManagementRequest() != null) {
+			return (byte) msg.getManagementRequest().getType().ordinal();
+		}
+		return -1;
+	}
+
+	private static byte denialReasonOrdinal (LogEvent msg) {
+		if (msg.getAccessRequestDenialReason() != null) {
+			return (byte) msg.getAccessRequestDenialReason().ordinal();
+		} else if (msg.getManagementRequestDenialReason() != null) {
+			return (byte) msg.getManagementRequestDenialReason().ordinal();
+		}
+		return -1;
+	}
+}
@@ -0,0 +1,201 @@
+package cmsc433.p4.util;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+
+import cmsc433.p4.enums.AccessRequestType;
+import cmsc433.p4.enums.AccessType;
+import cmsc433.p4.enums.ManagementRequestType;
+
+/**
+ * Precompiled binary form of user scripts, which loads without any text parsing.
+ *
+ * A file holds, in big-endian order:
+ * <pre>
+ *   int   MAGIC, int VERSION
+ *   int   number of resource names, then per name:  int byte length, UTF-8 bytes
+ *   int   number of steps, then per step:  int number of requests, then per request:
+ *         byte opcode, then an int index into the name table, or a long duration for SLEEP
+ * </pre>
+ * Every resource name is stored once however often it is used, and loading gives all
+ * requests for a name the same String instance.
+ */
+final class BinaryScriptFormat {
+
+	static final int MAGIC = 0x55534352;	// "USCR"
+	static final int VERSION = 1;
+
+	// Opcodes of requests, in the order commands appear in the text grammar
+	private static final byte WRITE_REQUEST_N = 0;
+	private static final byte WRITE_REQUEST_B = 1;
+	private static final byte READ_REQUEST_N = 2;
+	private static final byte READ_REQUEST_B = 3;
+	private static final byte WRITE_RELEASE = 4;
+	private static final byte READ_RELEASE = 5;
+	private static final byte ENABLE = 6;
+	private static final byte DISABLE = 7;
+	private static final byte SLEEP = 8;
+
+	private BinaryScriptFormat () {
+	}
+
+	/**
+	 * Write steps to a binary script file.
+	 *
+	 * @param steps		List of steps
+	 * @param filename	Name of file to write
+	 * @throws IOException	Thrown if file cannot be written
+	 */
+	static void write (ArrayList<ArrayList<Object>> steps, String filename) throws IOException {
+		LinkedHashMap<String, Integer> nameTable = new LinkedHashMap<>();
+		for (ArrayList<Object> step : steps) {
+			for (Object req : step) {
+				String name = resourceName(req);
+				if (name != null) {
+					nameTable.putIfAbsent(name, nameTable.size());
+				}
+			}
+		}
+
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(nameTable.size());
+			for (String name : nameTable.keySet()) {
+				byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+				out.writeInt(bytes.length);
+				out.write(bytes);
+			}
+			out.writeInt(steps.size());
+			for (ArrayList<Object> step : steps) {
+				out.writeInt(step.size());
+				for (Object req : step) {
+					out.writeByte(opcode(req));
+					if (req instanceof SleepStep) {
+						out.writeLong(((SleepStep) req).getDurationMs());
+					} else {
+						out.writeInt(nameTable.get(resourceName(req)));
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Read steps from a memory-mapped binary script file.
+	 *
+	 * @param filename	Name of file to read
+	 * @return			List of steps
+	 * @throws IOException	Thrown if file cannot be read or is not a binary script
+	 */
+	static ArrayList<ArrayList<Object>> read (String filename) throws IOException {
+		try (RandomAccessFile file = new RandomAccessFile(filename, "r")) {
+			FileChannel channel = file.getChannel();
+			ByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (buf.remaining() < 8 || buf.getInt() != MAGIC) {
+				throw new IOException(filename + " is not a binary user script");
+			}
+			int version = buf.getInt();
+			if (version != VERSION) {
+				throw new IOException(filename + " has unsupported binary script version " + version);
+			}
+
+			String[] names = new String[buf.getInt()];
+			byte[] bytes = new byte[64];
+			for (int i = 0; i < names.length; i++) {
+				int length = buf.getInt();
+				if (bytes.length < length) {
+					bytes = new byte[length];
+				}
+				buf.get(bytes, 0, length);
+				names[i] = new String(bytes, 0, length, StandardCharsets.UTF_8);
+			}
+
+			int stepCount = buf.getInt();
+			ArrayList<ArrayList<Object>> steps = new ArrayList<ArrayList<Object>>(stepCount);
+			for (int i = 0; i < stepCount; i++) {
+				int requestCount = buf.getInt();
+				ArrayList<Object> step = new ArrayList<Object>(requestCount);
+				for (int j = 0; j < requestCount; j++) {
+					byte opcode = buf.get();
+					if (opcode == SLEEP) {
+						step.add(new SleepStep(buf.getLong()));
+					} else {
+						step.add(request(opcode, names[buf.getInt()], filename));
+					}
+				}
+				steps.add(step);
+			}
+			return steps;
+		} catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+			throw new IOException(filename + " is a truncated or corrupt binary user script", e);
+		}
+	}
+
+	/**
+	 * @param req	Request in a script step
+	 * @return		Name of resource request is for, or null for a sleep step
+	 */
+	private static String resourceName (Object req) {
+		if (req instanceof AccessRequest) {
+			return ((AccessRequest) req).getResourceName();
+		} else if (req instanceof AccessRelease) {
+			return ((AccessRelease) req).getResourceName();
+		} else if (req instanceof ManagementRequest) {
+			return ((ManagementRequest) req).getResourceName();
+		}
+		return null;
+	}
+
+	/**
+	 * @param req	Request in a script step
+	 * @return		Opcode of request
+	 */
+	private static byte opcode (Object req) {
+		if (req instanceof AccessRequest) {
+			switch (((AccessRequest) req).getType()) {
+			case EXCLUSIVE_WRITE_NONBLOCKING:	return WRITE_REQUEST_N;
+			case EXCLUSIVE_WRITE_BLOCKING:		return WRITE_REQUEST_B;
+			case CONCURRENT_READ_NONBLOCKING:	return READ_REQUEST_N;
+			case CONCURRENT_READ_BLOCKING:		return READ_REQUEST_B;
+			}
+		} else if (req instanceof AccessRelease) {
+			return (((AccessRelease) req).getType() == AccessType.EXCLUSIVE_WRITE) ? WRITE_RELEASE : READ_RELEASE;
+		} else if (req instanceof ManagementRequest) {
+			return (((ManagementRequest) req).getType() == ManagementRequestType.ENABLE) ? ENABLE : DISABLE;
+		} else if (req instanceof SleepStep) {
+			return SLEEP;
+		}
+		throw new IllegalArgumentException("Bad request in script: " + req);
+	}
+
+	/**
+	 * @param opcode		Opcode of request
+	 * @param name			Name of resource request is for
+	 * @param filename		Name of file, for error messages
+	 * @return				Request
+	 * @throws IOException	Thrown if opcode is unknown
+	 */
+	private static Object request (byte opcode, String name, String filename) throws IOException {
+		switch (opcode) {
+		case WRITE_REQUEST_N:	return new AccessRequest(name, AccessRequestType.EXCLUSIVE_WRITE_NONBLOCKING);
+		case WRITE_REQUEST_B:	return new AccessRequest(name, AccessRequestType.EXCLUSIVE_WRITE_BLOCKING);
+		case READ_REQUEST_N:	return new AccessRequest(name, AccessRequestType.CONCURRENT_READ_NONBLOCKING);
+		case READ_REQUEST_B:	return new AccessRequest(name, AccessRequestType.CONCURRENT_READ_BLOCKING);
+		case WRITE_RELEASE:		return new AccessRelease(name, AccessType.EXCLUSIVE_WRITE);
+		case READ_RELEASE:		return new AccessRelease(name, AccessType.CONCURRENT_READ);
+		case ENABLE:			return new ManagementRequest(name, ManagementRequestType.ENABLE);
+		case DISABLE:			return new ManagementRequest(name, ManagementRequestType.DISABLE);
+		default:				throw new IOException(filename + " contains unknown opcode " + opcode);
+		}
+	}
+}
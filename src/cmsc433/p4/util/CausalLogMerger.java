@@ -0,0 +1,128 @@
+package cmsc433.p4.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.PriorityQueue;
+
+import cmsc433.p4.messages.LogBatchMsg;
+import akka.actor.ActorRef;
+
+/**
+ * Merger of the local event logs of many actors into one global log.
+ *
+ * Batches are collected per source as they arrive.  merge() then does a k-way merge of
+ * the sources by event time, ties broken by the order in which sources first sent a
+ * batch, so the result is a total order that:
+ * <ul>
+ * <li>keeps each source's events in the order the source logged them;</li>
+ * <li>puts an event after every event it causally follows through messages stamped with
+ *     HybridLogicalClock times (requests, releases, responses and forwards between
+ *     users and managers), since such an event always has a strictly greater time; and</li>
+ * <li>orders other events by when they were logged, as far as System.nanoTime() can
+ *     tell across threads.</li>
+ * </ul>
+ * Causality carried by unstamped messages, such as those that set up a system, is only
+ * respected in the last, weaker sense.
+ *
+ * Instances are owned by exactly one actor and must not be shared.
+ */
+public class CausalLogMerger {
+
+	/**
+	 * Events of one source, as the batches it sent.
+	 */
+	private static class SourceLog {
+		final int rank;										// Order in which source first sent a batch
+		final ArrayList<LogBatchMsg> batches = new ArrayList<LogBatchMsg>();
+		long lastTime = Long.MIN_VALUE;						// Time of last event added
+		int batch = 0;										// Merge cursor:  index of current batch
+		int event = 0;										// Merge cursor:  index of current event in batch
+
+		SourceLog (int rank) {
+			this.rank = rank;
+		}
+
+		long currentTime () {
+			return batches.get(batch).getTimestamps()[event];
+		}
+
+		Object currentEvent () {
+			return batches.get(batch).getEvents().get(event);
+		}
+
+		/**
+		 * @return	True if there is another event
+		 */
+		boolean advance () {
+			event++;
+			while (batch < batches.size() && event == batches.get(batch).getEvents().size()) {
+				batch++;
+				event = 0;
+			}
+			return batch < batches.size();
+		}
+	}
+
+	private final HashMap<ActorRef, SourceLog> sources = new HashMap<ActorRef, SourceLog>();
+	private long eventCount = 0;
+
+	/**
+	 * Add a batch to its source's events.
+	 *
+	 * @param batch	Batch of events
+	 * @throws IllegalArgumentException	Thrown if the batch's times do not follow on from
+	 * 									those of the source's earlier batches
+	 */
+	public void add (LogBatchMsg batch) {
+		SourceLog log = sources.get(batch.getSource());
+		if (log == null) {
+			log = new SourceLog(sources.size());
+			sources.put(batch.getSource(), log);
+		}
+		for (long t : batch.getTimestamps()) {
+			if (t <= log.lastTime) {
+				throw new IllegalArgumentException("Events from " + batch.getSource() + " are out of time order");
+			}
+			log.lastTime = t;
+		}
+		if (!batch.getEvents().isEmpty()) {
+			log.batches.add(batch);
+			eventCount += batch.getEvents().size();
+		}
+	}
+
+	/**
+	 * @return	Number of events added
+	 */
+	public long getEventCount () {
+		return eventCount;
+	}
+
+	/**
+	 * Merge the events of all sources.
+	 *
+	 * @return	Every event added, in merged order
+	 */
+	public ArrayList<Object> merge () {
+		ArrayList<Object> merged = new ArrayList<Object>((int) Math.min(eventCount, Integer.MAX_VALUE - 8));
+		PriorityQueue<SourceLog> heads = new PriorityQueue<SourceLog>(Math.max(1, sources.size()), (a, b) -> {
+			int c = Long.compare(a.currentTime(), b.currentTime());
+			return (c != 0) ? c : Integer.compare(a.rank, b.rank);
+		});
+		for (SourceLog log : sources.values()) {
+			log.batch = 0;
+			log.event = 0;
+			if (!log.batches.isEmpty()) {
+				heads.add(log);
+			}
+		}
+		while (!heads.isEmpty()) {
+			SourceLog log = heads.poll();
+			merged.add(log.currentEvent());
+			if (log.advance()) {
+				heads.add(log);
+			}
+		}
+		return merged;
+	}
+}
@@ -0,0 +1,245 @@
+package cmsc433.p4.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.Random;
+
+import cmsc433.p4.messages.LogBatchMsg;
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+
+/**
+ * Check of CausalLogMerger on the local logs of several actors exchanging stamped
+ * messages.
+ *
+ * Each run simulates SOURCES actors, each with its own HybridLogicalClock, taking random
+ * steps as the actors of a system do.  Running in one thread, the actors would share a
+ * perfectly consistent physical clock, which alone would order every receive after its
+ * send; so each clock is first set ahead by its own random skew of up to MAX_SKEW_NS,
+ * as clocks read on different threads may be, and only the stamps on messages keep
+ * causal order.  The steps are:  logging a local event, sending a stamped message
+ * (logged as a send event), or receiving one of the messages in flight to it, in any
+ * order (logged as a receive event after moving the clock up to the message's time).
+ * Each actor cuts its log into batches of random size, and the batches of all actors are
+ * fed to a merger interleaved at random, each actor's in order.  The check fails, with
+ * an exception, unless the merged log holds every event exactly once, keeps each actor's
+ * events in the order it logged them, and puts every receive event after its send event.
+ * It also checks that a batch whose times go backwards is rejected.
+ *
+ */
+public class CausalLogMergerCheck {
+
+	private static final int RUNS = 20;
+	private static final int SOURCES = 8;
+	private static final int STEPS = 20000;
+	private static final int MAX_BATCH = 64;
+	private static final long MAX_SKEW_NS = 1000L * 1000 * 1000;	// Longer than a run, so clocks stay skewed throughout
+
+	/**
+	 * Event of the simulated log.
+	 */
+	private static class Event {
+		final int source;		// Index of actor that logged event
+		final int sequence;		// Position of event in its actor's log
+		final Event cause;		// Send event of the message received, for a receive event, else null
+
+		Event (int source, int sequence, Event cause) {
+			this.source = source;
+			this.sequence = sequence;
+			this.cause = cause;
+		}
+	}
+
+	/**
+	 * Message in flight between simulated actors.
+	 */
+	private static class Message {
+		final int to;			// Index of receiving actor
+		final long timestamp;	// Time the message is stamped with
+		final Event send;		// Event logging the send
+
+		Message (int to, long timestamp, Event send) {
+			this.to = to;
+			this.timestamp = timestamp;
+			this.send = send;
+		}
+	}
+
+	/**
+	 * Local log of one simulated actor, cut into batches.
+	 */
+	private static class SourceState {
+		final ActorRef ref;
+		final HybridLogicalClock clock = new HybridLogicalClock();
+		final LinkedList<LogBatchMsg> batches = new LinkedList<LogBatchMsg>();	// Batches not yet fed to the merger
+		ArrayList<Object> events = new ArrayList<Object>();						// Events of the open batch
+		long[] timestamps = new long[MAX_BATCH];								// Times of the events of the open batch
+		int batchSize;															// Size the open batch is cut at
+		int logged = 0;															// Events logged
+
+		SourceState (ActorRef ref, int batchSize) {
+			this.ref = ref;
+			this.batchSize = batchSize;
+		}
+
+		/**
+		 * Log an event, stamped with a tick of the clock.
+		 *
+		 * @param cause		Send event of the message received, or null
+		 * @param index		Index of this actor
+		 * @param random	Source of batch sizes
+		 * @return			The event
+		 */
+		Event log (Event cause, int index, Random random) {
+			Event e = new Event(index, logged++, cause);
+			timestamps[events.size()] = clock.tick();
+			events.add(e);
+			if (events.size() == batchSize) {
+				cut(false, random);
+			}
+			return e;
+		}
+
+		/**
+		 * Close the open batch, even if it is empty.
+		 *
+		 * @param last		True if the actor logs nothing more
+		 * @param random	Source of batch sizes
+		 */
+		void cut (boolean last, Random random) {
+			batches.add(new LogBatchMsg(ref, events, Arrays.copyOf(timestamps, events.size()), last));
+			events = new ArrayList<Object>();
+			batchSize = 1 + random.nextInt(MAX_BATCH);
+		}
+	}
+
+	private CausalLogMergerCheck () {
+	}
+
+	private static void check (boolean condition, String message) {
+		if (!condition) {
+			throw new IllegalStateException(message);
+		}
+	}
+
+	/**
+	 * Simulate one run, merge its logs and check the merged order.
+	 *
+	 * @param refs	Actors standing for the sources
+	 * @param seed	Seed of the run
+	 * @return		Number of events merged
+	 */
+	private static int run (ArrayList<ActorRef> refs, long seed) {
+		Random random = new Random(seed);
+		SourceState[] sources = new SourceState[refs.size()];
+		for (int i = 0; i < sources.length; i++) {
+			sources[i] = new SourceState(refs.get(i), 1 + random.nextInt(MAX_BATCH));
+			sources[i].clock.receive(System.nanoTime() + (long) (random.nextDouble() * MAX_SKEW_NS));
+		}
+
+		// Take random steps, keeping messages in flight until received in random order
+		ArrayList<Message> inFlight = new ArrayList<Message>();
+		int receives = 0;
+		for (int step = 0; step < STEPS; step++) {
+			int i = random.nextInt(sources.length);
+			SourceState s = sources[i];
+			int action = random.nextInt(3);
+			if (action == 0) {
+				s.log(null, i, random);
+			} else if (action == 1) {
+				Event send = s.log(null, i, random);	// Logged, then stamped, as managers do
+				inFlight.add(new Message(random.nextInt(sources.length), s.clock.tick(), send));
+			} else {
+				for (int k = 0; k < inFlight.size(); k++) {
+					int j = (k + random.nextInt(inFlight.size())) % inFlight.size();
+					if (inFlight.get(j).to == i) {
+						Message m = inFlight.remove(j);
+						s.clock.receive(m.timestamp);
+						s.log(m.send, i, random);
+						receives++;
+						break;
+					}
+				}
+			}
+		}
+		for (SourceState s : sources) {
+			s.cut(true, random);
+		}
+
+		// Feed the batches to the merger, interleaving sources at random
+		CausalLogMerger merger = new CausalLogMerger();
+		ArrayList<SourceState> open = new ArrayList<SourceState>(Arrays.asList(sources));
+		while (!open.isEmpty()) {
+			int k = random.nextInt(open.size());
+			merger.add(open.get(k).batches.poll());
+			if (open.get(k).batches.isEmpty()) {
+				open.remove(k);
+			}
+		}
+
+		// Check the merged log
+		int total = 0;
+		for (SourceState s : sources) {
+			total += s.logged;
+		}
+		ArrayList<Object> merged = merger.merge();
+		check(merged.size() == total, "Merged " + merged.size() + " events of " + total);
+		IdentityHashMap<Event, Integer> position = new IdentityHashMap<Event, Integer>();
+		int[] next = new int[sources.length];
+		for (int p = 0; p < merged.size(); p++) {
+			Event e = (Event) merged.get(p);
+			check(position.put(e, p) == null, "Event merged twice");
+			check(e.sequence == next[e.source]++, "Events of source " + e.source + " out of order at " + p);
+		}
+		int edges = 0;
+		for (Object o : merged) {
+			Event e = (Event) o;
+			if (e.cause != null) {
+				check(position.get(e.cause) < position.get(e), "Receive event merged before its send event");
+				edges++;
+			}
+		}
+		check(edges == receives, "Checked " + edges + " causal edges of " + receives);
+		return total;
+	}
+
+	/**
+	 * Check that a batch whose times do not follow on from its source's earlier ones is rejected.
+	 *
+	 * @param ref	Actor standing for the source
+	 */
+	private static void checkRejectsBackwardTime (ActorRef ref) {
+		CausalLogMerger merger = new CausalLogMerger();
+		ArrayList<Object> events = new ArrayList<Object>();
+		events.add("event");
+		merger.add(new LogBatchMsg(ref, events, new long[] {10}, false));
+		try {
+			merger.add(new LogBatchMsg(ref, events, new long[] {10}, true));
+		} catch (IllegalArgumentException e) {
+			return;
+		}
+		throw new IllegalStateException("Batch with a repeated time was accepted");
+	}
+
+	public static void main (String[] args) throws Exception {
+		ActorSystem system = ActorSystem.create("CausalLogMergerCheck");
+		try {
+			ArrayList<ActorRef> refs = new ArrayList<ActorRef>(SOURCES);
+			for (int i = 0; i < SOURCES; i++) {
+				refs.add(system.actorOf(Props.empty()));
+			}
+			long events = 0;
+			for (int r = 0; r < RUNS; r++) {
+				events += run(refs, r);
+			}
+			checkRejectsBackwardTime(refs.get(0));
+			System.out.println(String.format("%d runs of %d sources merged, %d events in all, in source and causal order",
+					RUNS, SOURCES, events));
+		} finally {
+			system.terminate();
+		}
+	}
+}
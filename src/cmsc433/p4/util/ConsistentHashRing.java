@@ -0,0 +1,78 @@
+package cmsc433.p4.util;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import akka.actor.ActorRef;
+
+/**
+ * Consistent-hash ring mapping resource names onto resource managers.
+ *
+ * Each manager is placed on the ring at a number of virtual points, and a resource
+ * belongs to the manager at the first point at or after the hash of its name.  The
+ * ring is built once at setup time and never modified afterwards, so a single
+ * instance may safely be given to every manager in the system.
+ *
+ */
+public class ConsistentHashRing {
+
+	public static final int DEFAULT_VIRTUAL_NODES = 64;	// Ring points per manager
+
+	private final TreeMap<Long, ActorRef> ring = new TreeMap<>();
+
+	/**
+	 * Create ring with the default number of virtual points per manager.
+	 *
+	 * @param managers	Managers to place on ring, in the same order for every caller
+	 */
+	public ConsistentHashRing (List<ActorRef> managers) {
+		this(managers, DEFAULT_VIRTUAL_NODES);
+	}
+
+	/**
+	 * Create ring.  Managers are placed by their position in the list, so rings built
+	 * from the same list always agree.
+	 *
+	 * @param managers		Managers to place on ring
+	 * @param virtualNodes	Ring points per manager
+	 */
+	public ConsistentHashRing (List<ActorRef> managers, int virtualNodes) {
+		for (int i = 0; i < managers.size(); i++) {
+			for (int v = 0; v < virtualNodes; v++) {
+				ring.put(hash("manager-" + i + "#" + v), managers.get(i));
+			}
+		}
+	}
+
+	/**
+	 * @param resourceName	Name of resource
+	 * @return				Manager the resource is placed on, or null if ring is empty
+	 */
+	public ActorRef ownerOf (String resourceName) {
+		if (ring.isEmpty()) {
+			return null;
+		}
+		Map.Entry<Long, ActorRef> entry = ring.ceilingEntry(hash(resourceName));
+		return (entry != null) ? entry.getValue() : ring.firstEntry().getValue();
+	}
+
+	/**
+	 * 64-bit FNV-1a hash of a string, with a final avalanche step so that names
+	 * differing only in a numeric suffix spread evenly around the ring.
+	 *
+	 * @param key	String to hash
+	 * @return		Position on ring
+	 */
+	private static long hash (String key) {
+		long h = 0xcbf29ce484222325L;
+		for (int i = 0; i < key.length(); i++) {
+			h ^= key.charAt(i);
+			h *= 0x100000001b3L;
+		}
+		h ^= (h >>> 33);
+		h *= 0xff51afd7ed558ccdL;
+		h ^= (h >>> 33);
+		return h;
+	}
+}
@@ -0,0 +1,83 @@
+package cmsc433.p4.util;
+
+import java.util.ArrayList;
+
+import cmsc433.p4.enums.LogAction;
+import cmsc433.p4.messages.LogAggregateMsg;
+import cmsc433.p4.messages.LogMsg.EventType;
+import akka.actor.ActorRef;
+
+/**
+ * State of one actor's filtering of its events under a LoggingPolicy:  how many events
+ * of each sampled type it has seen, and how many of each aggregated type it has counted
+ * but not yet sent.
+ *
+ * Instances are owned by exactly one actor and must not be shared.
+ */
+public class EventFilter {
+
+	private final LoggingPolicy policy;
+	private final long[] seen;			// Events of each sampled type seen, by EventType ordinal
+	private final long[] pending;		// Events of each aggregated type not yet sent, by EventType ordinal
+	private boolean anyPending = false;
+
+	public EventFilter (LoggingPolicy policy) {
+		this.policy = policy;
+		this.seen = new long[EventType.values().length];
+		this.pending = new long[EventType.values().length];
+	}
+
+	/**
+	 * Decide whether an event should be sent to the logger, counting it if its type is
+	 * aggregated.
+	 *
+	 * @param type	Type of event
+	 * @return		True if the event should be sent
+	 */
+	public boolean admit (EventType type) {
+		LogAction action = policy.getAction(type);
+		if (action == LogAction.LOG) {
+			return true;
+		}
+		int t = type.ordinal();
+		switch (action) {
+		case SAMPLE:
+			return seen[t]++ % policy.getSampleEvery(type) == 0;
+		case AGGREGATE:
+			pending[t]++;
+			anyPending = true;
+			return false;
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * @return	True if counts are waiting to be sent
+	 */
+	public boolean hasPendingCounts () {
+		return anyPending;
+	}
+
+	/**
+	 * Take a LogAggregateMsg for every aggregated type with events counted since the last
+	 * call, and reset the counts.
+	 *
+	 * @param source	Actor the events belong to
+	 * @return			Counts to log, possibly none
+	 */
+	public ArrayList<LogAggregateMsg> takePendingCounts (ActorRef source) {
+		ArrayList<LogAggregateMsg> counts = new ArrayList<LogAggregateMsg>();
+		if (!anyPending) {
+			return counts;
+		}
+		for (EventType type : EventType.values()) {
+			if (pending[type.ordinal()] > 0) {
+				counts.add(new LogAggregateMsg(source, type, pending[type.ordinal()]));
+				pending[type.ordinal()] = 0;
+			}
+		}
+		anyPending = false;
+		return counts;
+	}
+}
@@ -0,0 +1,96 @@
+package cmsc433.p4.util;
+
+import cmsc433.p4.enums.AccessRequestDenialReason;
+import cmsc433.p4.enums.ManagementRequestDenialReason;
+import cmsc433.p4.enums.ResourceStatus;
+import cmsc433.p4.messages.LogMsg;
+import akka.actor.ActorRef;
+
+/**
+ * Front end through which an actor logs events, whatever carries them to the log.
+ *
+ * There is one method per LogMsg factory method, with the same name and parameters; each
+ * logs the event that factory method would build.  By default the method builds the
+ * LogMsg and passes it to publish(LogMsg), so a subclass need only say where messages
+ * go.  A subclass that can record events without building LogMsgs, such as EventRing,
+ * overrides the factory methods too.
+ */
+public abstract class EventPublisher {
+
+	/**
+	 * Log an event that has been built as a message.
+	 *
+	 * @param msg	Event
+	 */
+	public abstract void publish (LogMsg msg);
+
+	// ---- Factory methods of LogMsg ----
+
+	public void makeUserStartLogMsg (ActorRef user) {
+		publish(LogMsg.makeUserStartLogMsg(user));
+	}
+
+	public void makeUserTerminateLogMsg (ActorRef user) {
+		publish(LogMsg.makeUserTerminateLogMsg(user));
+	}
+
+	public void makeLocalResourceCreatedLogMsg (ActorRef local_resource_manager, String resource_name) {
+		publish(LogMsg.makeLocalResourceCreatedLogMsg(local_resource_manager, resource_name));
+	}
+
+	public void makeRemoteResourceDiscoveredLogMsg (ActorRef local_resource_manager, ActorRef remote_resource_manager, String resource_name) {
+		publish(LogMsg.makeRemoteResourceDiscoveredLogMsg(local_resource_manager, remote_resource_manager, resource_name));
+	}
+
+	public void makeAccessRequestReceivedLogMsg (ActorRef user, ActorRef local_resource_manager, AccessRequest access_request) {
+		publish(LogMsg.makeAccessRequestReceivedLogMsg(user, local_resource_manager, access_request));
+	}
+
+	public void makeAccessRequestForwardedLogMsg (ActorRef local_resource_manager, ActorRef remote_resource_manager, AccessRequest access_request) {
+		publish(LogMsg.makeAccessRequestForwardedLogMsg(local_resource_manager, remote_resource_manager, access_request));
+	}
+
+	public void makeAccessRequestGrantedLogMsg (ActorRef user, ActorRef local_resource_manager, AccessRequest access_request) {
+		publish(LogMsg.makeAccessRequestGrantedLogMsg(user, local_resource_manager, access_request));
+	}
+
+	public void makeAccessRequestDeniedLogMsg (ActorRef user, ActorRef local_resource_manager, AccessRequest access_request, AccessRequestDenialReason access_request_denial_reason) {
+		publish(LogMsg.makeAccessRequestDeniedLogMsg(user, local_resource_manager, access_request, access_request_denial_reason));
+	}
+
+	public void makeAccessReleaseReceivedLogMsg (ActorRef user, ActorRef local_resource_manager, AccessRelease access_release) {
+		publish(LogMsg.makeAccessReleaseReceivedLogMsg(user, local_resource_manager, access_release));
+	}
+
+	public void makeAccessReleaseForwardedLogMsg (ActorRef local_resource_manager, ActorRef remote_resource_manager, AccessRelease access_release) {
+		publish(LogMsg.makeAccessReleaseForwardedLogMsg(local_resource_manager, remote_resource_manager, access_release));
+	}
+
+	public void makeAccessReleasedLogMsg (ActorRef user, ActorRef local_resource_manager, AccessRelease access_release) {
+		publish(LogMsg.makeAccessReleasedLogMsg(user, local_resource_manager, access_release));
+	}
+
+	public void makeAccessReleaseIgnoredLogMsg (ActorRef user, ActorRef local_resource_manager, AccessRelease access_release) {
+		publish(LogMsg.makeAccessReleaseIgnoredLogMsg(user, local_resource_manager, access_release));
+	}
+
+	public void makeManagementRequestReceivedLogMsg (ActorRef user, ActorRef local_resource_manager, ManagementRequest management_request) {
+		publish(LogMsg.makeManagementRequestReceivedLogMsg(user, local_resource_manager, management_request));
+	}
+
+	public void makeManagementRequestForwardedLogMsg (ActorRef local_resource_manager, ActorRef remote_resource_manager, ManagementRequest management_request) {
+		publish(LogMsg.makeManagementRequestForwardedLogMsg(local_resource_manager, remote_resource_manager, management_request));
+	}
+
+	public void makeManagementRequestGrantedLogMsg (ActorRef user, ActorRef local_resource_manager, ManagementRequest management_request) {
+		publish(LogMsg.makeManagementRequestGrantedLogMsg(user, local_resource_manager, management_request));
+	}
+
+	public void makeManagementRequestDeniedLogMsg (ActorRef user, ActorRef local_resource_manager, ManagementRequest management_request, ManagementRequestDenialReason management_request_denial_reason) {
+		publish(LogMsg.makeManagementRequestDeniedLogMsg(user, local_resource_manager, management_request, management_request_denial_reason));
+	}
+
+	public void makeResourceStatusChangedLogMsg (ActorRef local_resource_manager, String resource_name, ResourceStatus new_resource_status) {
+		publish(LogMsg.makeResourceStatusChangedLogMsg(local_resource_manager, resource_name, new_resource_status));
+	}
+}
@@ -0,0 +1,124 @@
+package cmsc433.p4.util;
+
+import cmsc433.p4.enums.AccessRequestDenialReason;
+import cmsc433.p4.enums.ManagementRequestDenialReason;
+import cmsc433.p4.enums.ResourceStatus;
+import cmsc433.p4.messages.LogMsg.EventType;
+import akka.actor.ActorRef;
+
+/**
+ * Mutable event held in a slot of an EventRing.  A record is filled by the producer that
+ * claimed its slot, read by the ring's consumer, and then reused for a later event, so
+ * a handler must copy any field it needs to keep.
+ */
+public class EventRecord implements LogEvent {
+
+	private EventType type;
+	private ActorRef user;
+	private ActorRef localResourceManager;
+	private ActorRef remoteResourceManager;
+	private String resourceName;
+	private AccessRequest accessRequest;
+	private AccessRequestDenialReason accessRequestDenialReason;
+	private AccessRelease accessRelease;
+	private ManagementRequest managementRequest;
+	private ManagementRequestDenialReason managementRequestDenialReason;
+	private ResourceStatus newResourceStatus;
+	private long nanos;		// Time event was published, from System.nanoTime()
+
+	EventRecord () {
+	}
+
+	/**
+	 * Fill every field of the record, as LogMsg's constructor does.
+	 */
+	void set (EventType type, ActorRef user, ActorRef localResourceManager, ActorRef remoteResourceManager,
+			String resourceName, AccessRequest accessRequest, AccessRequestDenialReason accessRequestDenialReason,
+			AccessRelease accessRelease, ManagementRequest managementRequest,
+			ManagementRequestDenialReason managementRequestDenialReason, ResourceStatus newResourceStatus) {
+		this.type = type;
+		this.user = user;
+		this.localResourceManager = localResourceManager;
+		this.remoteResourceManager = remoteResourceManager;
+		this.resourceName = resourceName;
+		this.accessRequest = accessRequest;
+		this.accessRequestDenialReason = accessRequestDenialReason;
+		this.accessRelease = accessRelease;
+		this.managementRequest = managementRequest;
+		this.managementRequestDenialReason = managementRequestDenialReason;
+		this.newResourceStatus = newResourceStatus;
+		this.nanos = System.nanoTime();
+	}
+
+	/**
+	 * Fill the record from an event.
+	 */
+	void set (LogEvent event) {
+		set(event.getType(), event.getUser(), event.getLocalResourceManager(), event.getRemoteResourceManager(),
+				event.getResourceName(), event.getAccessRequest(), event.getAccessRequestDenialReason(),
+				event.getAccessRelease(), event.getManagementRequest(), event.getManagementRequestDenialReason(),
+				event.getNewResourceStatus());
+	}
+
+	@Override
+	public EventType getType () {
+		return type;
+	}
+
+	@Override
+	public ActorRef getUser () {
+		return user;
+	}
+
+	@Override
+	public ActorRef getLocalResourceManager () {
+		return localResourceManager;
+	}
+
+	@Override
+	public ActorRef getRemoteResourceManager () {
+		return remoteResourceManager;
+	}
+
+	@Override
+	public String getResourceName () {
+		return resourceName;
+	}
+
+	@Override
+	public AccessRequest getAccessRequest () {
+		return accessRequest;
+	}
+
+	@Override
+	public AccessRequestDenialReason getAccessRequestDenialReason () {
+		return accessRequestDenialReason;
+	}
+
+	@Override
+	public AccessRelease getAccessRelease () {
+		return accessRelease;
+	}
+
+	@Override
+	public ManagementRequest getManagementRequest () {
+		return managementRequest;
+	}
+
+	@Override
+	public ManagementRequestDenialReason getManagementRequestDenialReason () {
+		return managementRequestDenialReason;
+	}
+
+	@Override
+	public ResourceStatus getNewResourceStatus () {
+		return newResourceStatus;
+	}
+
+	/**
+	 * @return	Time event was published, from System.nanoTime()
+	 */
+	public long getNanos () {
+		return nanos;
+	}
+}
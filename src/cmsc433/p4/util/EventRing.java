@@ -0,0 +1,523 @@
+package cmsc433.p4.util;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import cmsc433.p4.enums.AccessRequestDenialReason;
+import cmsc433.p4.enums.ManagementRequestDenialReason;
+import cmsc433.p4.enums.ResourceStatus;
+import cmsc433.p4.messages.LogMsg;
+import cmsc433.p4.messages.LogMsg.EventType;
+import akka.actor.ActorRef;
+
+/**
+ * Pipeline carrying events from many producers to one sink without allocating per event,
+ * in the style of the LMAX Disruptor.
+ *
+ * The ring is a preallocated array of capacity EventRecords.  A producer claims the next
+ * sequence number with one atomic increment, fills the record in that sequence's slot,
+ * and marks the slot published.  A single consumer thread hands published records to a
+ * Handler in sequence order, as many at a time as are ready, and then frees their slots
+ * for reuse.  A producer that gets a whole ring ahead of the consumer waits for it, so
+ * memory use is fixed however fast events arrive.  Events appear to the handler in the
+ * order their sequence numbers were claimed.
+ *
+ * Producers never wait for a consumer that is not running.  Before start(), events fill
+ * the ring and those that do not fit are dropped; after close(), every event is dropped.
+ * Dropped events are counted, not handled.
+ *
+ * The factory methods of EventPublisher are overridden to fill records directly, so an
+ * actor logging through a ring builds no LogMsg and sends no message.  The ring is the
+ * one object producers share; it is made for that, and everything a handler touches is
+ * confined to the consumer thread.
+ *
+ * start(), flush() and close() must be called from a single thread.
+ */
+public class EventRing extends EventPublisher {
+
+	/**
+	 * Sink of the events of a ring.  All methods are called on the ring's consumer thread.
+	 */
+	public interface Handler {
+
+		/**
+		 * Record an event.  The record is reused once this returns.
+		 *
+		 * @param event			Event
+		 * @param endOfBatch	True if no further event is ready yet
+		 * @throws IOException	Thrown if the event cannot be recorded
+		 */
+		void onEvent (EventRecord event, boolean endOfBatch) throws IOException;
+
+		/**
+		 * Make every event recorded so far durable or readable.
+		 *
+		 * @throws IOException	Thrown if the sink cannot be flushed
+		 */
+		void onFlush () throws IOException;
+
+		/**
+		 * Finish the sink; no event follows.
+		 *
+		 * @throws IOException	Thrown if the sink cannot be finished
+		 */
+		void onClose () throws IOException;
+	}
+
+	/**
+	 * Request for the consumer to flush once it has handled every event up to a sequence.
+	 */
+	private static class FlushRequest {
+		final long through;
+		final CountDownLatch done = new CountDownLatch(1);
+
+		FlushRequest (long through) {
+			this.through = through;
+		}
+	}
+
+	private static final long IDLE_PARK_NANOS = 50000;	// Consumer's pause when no event is ready
+
+	private final EventRecord[] records;
+	private final int mask;								// capacity - 1
+	private final int indexShift;						// log2(capacity)
+	private final AtomicLong nextSequence = new AtomicLong(0);	// Next sequence to claim
+	private final AtomicIntegerArray published;			// Per slot, the lap of the last sequence published in it
+	private volatile long consumed = -1;				// Last sequence the consumer has handled
+	private final ConcurrentLinkedQueue<FlushRequest> flushRequests = new ConcurrentLinkedQueue<FlushRequest>();
+	private volatile long closeAfter = Long.MAX_VALUE;	// Last sequence to handle before closing
+	private volatile boolean running = false;			// True from start() until close()
+	private final AtomicLong dropped = new AtomicLong(0);	// Events published while not running that were dropped
+	private volatile IOException failure = null;		// First error of the handler, if any
+	private Thread thread = null;						// Consumer thread, once started
+
+	// Owned by the consumer thread; read by others only after a flush or close
+	private final long[] countsByType = new long[EventType.values().length];
+	private long eventCount = 0;
+
+	/**
+	 * Create a ring.  Producers may publish at once, but nothing is consumed until start(),
+	 * and events beyond the ring's capacity are dropped until then.
+	 *
+	 * @param capacity	Number of slots; rounded up to a power of two
+	 */
+	public EventRing (int capacity) {
+		if (capacity < 1 || capacity > (1 << 30)) {
+			throw new IllegalArgumentException("Ring capacity must be between 1 and 2^30: " + capacity);
+		}
+		int size = Integer.highestOneBit(capacity);
+		if (size < capacity) {
+			size <<= 1;
+		}
+		this.records = new EventRecord[size];
+		for (int i = 0; i < size; i++) {
+			records[i] = new EventRecord();
+		}
+		this.mask = size - 1;
+		this.indexShift = Integer.numberOfTrailingZeros(size);
+		this.published = new AtomicIntegerArray(size);
+		for (int i = 0; i < size; i++) {
+			published.set(i, -1);
+		}
+	}
+
+	/**
+	 * Start the consumer thread.
+	 *
+	 * @param handler	Sink of the ring's events
+	 */
+	public void start (Handler handler) {
+		if (thread != null) {
+			throw new IllegalStateException("Event ring already started");
+		}
+		thread = new Thread(() -> run(handler), "event-ring");
+		thread.setDaemon(true);
+		running = true;
+		thread.start();
+	}
+
+	/**
+	 * Wait until every event published so far has been handled, and the handler flushed.
+	 *
+	 * @throws IOException	Thrown if the handler has failed
+	 */
+	public void flush () throws IOException {
+		checkStarted();
+		FlushRequest request = new FlushRequest(nextSequence.get() - 1);
+		flushRequests.add(request);
+		try {
+			request.done.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while flushing event ring", e);
+		}
+		checkFailure();
+	}
+
+	/**
+	 * Handle every event published so far, close the handler and stop the consumer.
+	 * Events published later are never handled.
+	 *
+	 * @throws IOException	Thrown if the handler has failed
+	 */
+	public void close () throws IOException {
+		checkStarted();
+		if (closeAfter != Long.MAX_VALUE) {
+			return;
+		}
+		running = false;
+		closeAfter = nextSequence.get() - 1;
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while closing event ring", e);
+		}
+		checkFailure();
+	}
+
+	/**
+	 * @return	Number of slots
+	 */
+	public int getCapacity () {
+		return records.length;
+	}
+
+	/**
+	 * @return	Number of events claimed by producers so far
+	 */
+	public long getPublishedCount () {
+		return nextSequence.get();
+	}
+
+	/**
+	 * @return	Number of events dropped because they were published while the ring was
+	 * 			full and not yet started, or after it was closed
+	 */
+	public long getDroppedCount () {
+		return dropped.get();
+	}
+
+	/**
+	 * @return	Number of events handled.  Only valid after flush() or close().
+	 */
+	public long getEventCount () {
+		return eventCount;
+	}
+
+	/**
+	 * @param type	Type of event
+	 * @return		Number of events of the given type handled.  Only valid after flush() or close().
+	 */
+	public long getCount (EventType type) {
+		return countsByType[type.ordinal()];
+	}
+
+	/**
+	 * @return	Number of events handled, by EventType ordinal.  Only valid after flush() or close().
+	 */
+	public long[] getCountsByType () {
+		return countsByType.clone();
+	}
+
+	private void checkStarted () {
+		if (thread == null) {
+			throw new IllegalStateException("Event ring not started");
+		}
+	}
+
+	private void checkFailure () throws IOException {
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	// ---- Producers ----
+
+	/**
+	 * Claim the next sequence, waiting while its slot still holds an event the consumer
+	 * has not handled.  Without a running consumer there is nothing to wait for, so the
+	 * event is dropped instead:  always once the ring is closed, and before it is started
+	 * if the ring is full.
+	 *
+	 * @return	Sequence claimed, or -1 if the event is dropped
+	 */
+	private long claim () {
+		while (true) {
+			long sequence = nextSequence.get();
+			if (closeAfter != Long.MAX_VALUE) {
+				dropped.incrementAndGet();
+				return -1;
+			}
+			if (sequence - records.length > consumed) {
+				if (!running) {
+					dropped.incrementAndGet();
+					return -1;
+				}
+				Thread.yield();
+			} else if (nextSequence.compareAndSet(sequence, sequence + 1)) {
+				return sequence;
+			}
+		}
+	}
+
+	/**
+	 * Mark a claimed slot as filled, making its event visible to the consumer.
+	 *
+	 * @param sequence	Sequence claimed
+	 */
+	private void commit (long sequence) {
+		published.lazySet((int) sequence & mask, (int) (sequence >>> indexShift));
+	}
+
+	private boolean isPublished (long sequence) {
+		return published.get((int) sequence & mask) == (int) (sequence >>> indexShift);
+	}
+
+	/**
+	 * Publish an event that has already been built as a message, by copying its fields.
+	 */
+	@Override
+	public void publish (LogMsg msg) {
+		long sequence = claim();
+		if (sequence < 0) {
+			return;
+		}
+		records[(int) sequence & mask].set(msg);
+		commit(sequence);
+	}
+
+	// ---- Factory methods of LogMsg, filling records directly ----
+
+	@Override
+	public void makeUserStartLogMsg (ActorRef user) {
+		long sequence = claim();
+		if (sequence < 0) {
+			return;
+		}
+		records[(int) sequence & mask].set(EventType.USER_START, user, null, null, null, null, null, null, null, null, null);
+		commit(sequence);
+	}
+
+	@Override
+	public void makeUserTerminateLogMsg (ActorRef user) {
+		long sequence = claim();
+		if (sequence < 0) {
+			return;
+		}
+		records[(int) sequence & mask].set(EventType.USER_TERMINATE, user, null, null, null, null, null, null, null, null, null);
+		commit(sequence);
+	}
+
+	@Override
+	public void makeLocalResourceCreatedLogMsg (ActorRef local_resource_manager, String resource_name) {
+		long sequence = claim();
+		if (sequence < 0) {
+			return;
+		}
+		records[(int) sequence & mask].set(EventType.LOCAL_RESOURCE_CREATED, null, local_resource_manager, null, resource_name, null, null, null, null, null, null);
+		commit(sequence);
+	}
+
+	@Override
+	public void makeRemoteResourceDiscoveredLogMsg (ActorRef local_resource_manager, ActorRef remote_resource_manager, String resource_name) {
+		long sequence = claim();
+		if (sequence < 0) {
+			return;
+		}
+		records[(int) sequence & mask].set(EventType.REMOTE_RESOURCE_DISCOVERED, null, local_resource_manager, remote_resource_manager, resource_name, null, null, null, null, null, null);
+		commit(sequence);
+	}
+
+	@Override
+	public void makeAccessRequestReceivedLogMsg (ActorRef user, ActorRef local_resource_manager, AccessRequest access_request) {
+		long sequence = claim();
+		if (sequence < 0) {
+			return;
+		}
+		records[(int) sequence & mask].set(EventType.ACCESS_REQUEST_RECEIVED, user, local_resource_manager, null, access_request.getResourceName(), access_request, null, null, null, null, null);
+		commit(sequence);
+	}
+
+	@Override
+	public void makeAccessRequestForwardedLogMsg (ActorRef local_resource_manager, ActorRef remote_resource_manager, AccessRequest access_request) {
+		long sequence = claim();
+		if (sequence < 0) {
+			return;
+		}
+		records[(int) sequence & mask].set(EventType.ACCESS_REQUEST_FORWARDED, null, local_resource_manager, remote_resource_manager, access_request.getResourceName(), access_request, null, null, null, null, null);
+		commit(sequence);
+	}
+
+	@Override
+	public void makeAccessRequestGrantedLogMsg (ActorRef user, ActorRef local_resource_manager, AccessRequest access_request) {
+		long sequence = claim();
+		if (sequence < 0) {
+			return;
+		}
+		records[(int) sequence & mask].set(EventType.ACCESS_REQUEST_GRANTED, user, local_resource_manager, null, access_request.getResourceName(), access_request, null, null, null, null, null);
+		commit(sequence);
+	}
+
+	@Override
+	public void makeAccessRequestDeniedLogMsg (ActorRef user, ActorRef local_resource_manager, AccessRequest access_request, AccessRequestDenialReason access_request_denial_reason) {
+		long sequence = claim();
+		if (sequence < 0) {
+			return;
+		}
+		records[(int) sequence & mask].set(EventType.ACCESS_REQUEST_DENIED, user, local_resource_manager, null, access_request.getResourceName(), access_request, access_request_denial_reason, null, null, null, null);
+		commit(sequence);
+	}
+
+	@Override
+	public void makeAccessReleaseReceivedLogMsg (ActorRef user, ActorRef local_resource_manager, AccessRelease access_release) {
+		long sequence = claim();
+		if (sequence < 0) {
+			return;
+		}
+		records[(int) sequence & mask].set(EventType.ACCESS_RELEASE_RECEIVED, user, local_resource_manager, null, access_release.getResourceName(), null, null, access_release, null, null, null);
+		commit(sequence);
+	}
+
+	@Override
+	public void makeAccessReleaseForwardedLogMsg (ActorRef local_resource_manager, ActorRef remote_resource_manager, AccessRelease access_release) {
+		long sequence = claim();
+		if (sequence < 0) {
+			return;
+		}
+		records[(int) sequence & mask].set(EventType.ACCESS_RELEASE_FORWARDED, null, local_resource_manager, remote_resource_manager, access_release.getResourceName(), null, null, access_release, null, null, null);
+		commit(sequence);
+	}
+
+	@Override
+	public void makeAccessReleasedLogMsg (ActorRef user, ActorRef local_resource_manager, AccessRelease access_release) {
+		long sequence = claim();
+		if (sequence < 0) {
+			return;
+		}
+		records[(int) sequence & mask].set(EventType.ACCESS_RELEASED, user, local_resource_manager, null, access_release.getResourceName(), null, null, access_release, null, null, null);
+		commit(sequence);
+	}
+
+	@Override
+	public void makeAccessReleaseIgnoredLogMsg (ActorRef user, ActorRef local_resource_manager, AccessRelease access_release) {
+		long sequence = claim();
+		if (sequence < 0) {
+			return;
+		}
+		records[(int) sequence & mask].set(EventType.ACCESS_RELEASE_IGNORED, user, local_resource_manager, null, access_release.getResourceName(), null, null, access_release, null, null, null);
+		commit(sequence);
+	}
+
+	@Override
+	public void makeManagementRequestReceivedLogMsg (ActorRef user, ActorRef local_resource_manager, ManagementRequest management_request) {
+		long sequence = claim();
+		if (sequence < 0) {
+			return;
+		}
+		records[(int) sequence & mask].set(EventType.MANAGEMENT_REQUEST_RECEIVED, user, local_resource_manager, null, management_request.getResourceName(), null, null, null, management_request, null, null);
+		commit(sequence);
+	}
+
+	@Override
+	public void makeManagementRequestForwardedLogMsg (ActorRef local_resource_manager, ActorRef remote_resource_manager, ManagementRequest management_request) {
+		long sequence = claim();
+		if (sequence < 0) {
+			return;
+		}
+		records[(int) sequence & mask].set(EventType.MANAGEMENT_REQUEST_FORWARDED, null, local_resource_manager, remote_resource_manager, management_request.getResourceName(), null, null, null, management_request, null, null);
+		commit(sequence);
+	}
+
+	@Override
+	public void makeManagementRequestGrantedLogMsg (ActorRef user, ActorRef local_resource_manager, ManagementRequest management_request) {
+		long sequence = claim();
+		if (sequence < 0) {
+			return;
+		}
+		records[(int) sequence & mask].set(EventType.MANAGEMENT_REQUEST_GRANTED, user, local_resource_manager, null, management_request.getResourceName(), null, null, null, management_request, null, null);
+		commit(sequence);
+	}
+
+	@Override
+	public void makeManagementRequestDeniedLogMsg (ActorRef user, ActorRef local_resource_manager, ManagementRequest management_request, ManagementRequestDenialReason management_request_denial_reason) {
+		long sequence = claim();
+		if (sequence < 0) {
+			return;
+		}
+		records[(int) sequence & mask].set(EventType.MANAGEMENT_REQUEST_DENIED, user, local_resource_manager, null, management_request.getResourceName(), null, null, null, management_request, management_request_denial_reason, null);
+		commit(sequence);
+	}
+
+	@Override
+	public void makeResourceStatusChangedLogMsg (ActorRef local_resource_manager, String resource_name, ResourceStatus new_resource_status) {
+		long sequence = claim();
+		if (sequence < 0) {
+			return;
+		}
+		records[(int) sequence & mask].set(EventType.RESOURCE_STATUS_CHANGED, null, local_resource_manager, null, resource_name, null, null, null, null, null, new_resource_status);
+		commit(sequence);
+	}
+
+	// ---- Consumer thread ----
+
+	private void run (Handler handler) {
+		long next = 0;		// Next sequence to handle
+		while (true) {
+			if (isPublished(next) && next <= closeAfter) {
+				// Handle every event published in order from here, up to a ring's worth
+				long last = next;
+				long limit = Math.min(next + records.length - 1, closeAfter);
+				while (last < limit && isPublished(last + 1)) {
+					last++;
+				}
+				for (long sequence = next; sequence <= last; sequence++) {
+					EventRecord event = records[(int) sequence & mask];
+					countsByType[event.getType().ordinal()]++;
+					eventCount++;
+					if (failure == null) {	// After a failure, events are dropped but still consumed
+						try {
+							handler.onEvent(event, sequence == last);
+						} catch (IOException e) {
+							failure = e;
+						}
+					}
+				}
+				consumed = last;
+				next = last + 1;
+				continue;
+			}
+			FlushRequest request = flushRequests.peek();
+			if (request != null && request.through < next) {
+				flushRequests.poll();
+				if (failure == null) {
+					try {
+						handler.onFlush();
+					} catch (IOException e) {
+						failure = e;
+					}
+				}
+				request.done.countDown();
+				continue;
+			}
+			if (closeAfter < next) {
+				break;
+			}
+			LockSupport.parkNanos(IDLE_PARK_NANOS);
+		}
+		try {
+			handler.onClose();
+		} catch (IOException e) {
+			if (failure == null) {
+				failure = e;
+			}
+		}
+		for (FlushRequest request : flushRequests) {
+			request.done.countDown();
+		}
+	}
+}
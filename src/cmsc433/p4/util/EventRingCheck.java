@@ -0,0 +1,166 @@
+package cmsc433.p4.util;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Check that producers never wait for an EventRing that is not running, and that a
+ * running ring loses nothing.  The check fails, with an exception, unless:
+ * <ul>
+ * <li>before start(), a producer publishing more than the ring holds returns at once,
+ *     the overflow is counted as dropped, and the events that fit are handled, in
+ *     order, once the ring starts;</li>
+ * <li>while the ring runs, concurrent producers on a small ring have every event
+ *     handled, each producer's in order, and none dropped;</li>
+ * <li>a producer waiting on a full ring is released when the ring is closed; and</li>
+ * <li>after close(), publishing returns at once and every event is counted as dropped.</li>
+ * </ul>
+ *
+ */
+public class EventRingCheck {
+
+	private static final int CAPACITY = 16;
+	private static final int PRODUCERS = 4;
+	private static final int EVENTS_PER_PRODUCER = 100000;
+	private static final long JOIN_TIMEOUT_MS = 10 * 1000L;	// Longest a producer may take, where it must not wait
+
+	private EventRingCheck () {
+	}
+
+	private static void check (boolean condition, String message) {
+		if (!condition) {
+			throw new IllegalStateException(message);
+		}
+	}
+
+	/**
+	 * Handler keeping the name of every event, so order can be checked.
+	 */
+	private static class Recorder implements EventRing.Handler {
+		final ArrayList<String> names = new ArrayList<String>();	// Confined to the consumer thread until a flush or close
+
+		@Override
+		public void onEvent (EventRecord event, boolean endOfBatch) {
+			names.add(event.getResourceName());
+		}
+
+		@Override
+		public void onFlush () {
+		}
+
+		@Override
+		public void onClose () {
+		}
+	}
+
+	/**
+	 * @param ring		Ring to publish to
+	 * @param producer	Index of producer, named in each event
+	 * @param events	Number of events to publish
+	 * @return			Thread publishing the events, started
+	 */
+	private static Thread startProducer (final EventRing ring, final int producer, final int events) {
+		Thread t = new Thread(() -> {
+			for (int i = 0; i < events; i++) {
+				ring.makeLocalResourceCreatedLogMsg(null, producer + ":" + i);
+			}
+		}, "producer-" + producer);
+		t.setDaemon(true);
+		t.start();
+		return t;
+	}
+
+	/**
+	 * @param t		Producer thread
+	 * @param what	Description of what the producer was doing
+	 * @throws InterruptedException	Thrown if interrupted while waiting
+	 */
+	private static void joinProducer (Thread t, String what) throws InterruptedException {
+		t.join(JOIN_TIMEOUT_MS);
+		check(!t.isAlive(), "Producer still waiting after " + JOIN_TIMEOUT_MS + " ms " + what);
+	}
+
+	public static void main (String[] args) throws Exception {
+		EventRing ring = new EventRing(CAPACITY);
+		Recorder recorder = new Recorder();
+
+		// Before start:  what fits is kept, the rest dropped
+		joinProducer(startProducer(ring, 0, 2 * CAPACITY), "publishing before start");
+		check(ring.getDroppedCount() == CAPACITY, "Dropped " + ring.getDroppedCount() + " events before start, not " + CAPACITY);
+		ring.start(recorder);
+		ring.flush();
+		check(recorder.names.size() == CAPACITY, "Handled " + recorder.names.size() + " events published before start");
+		for (int i = 0; i < CAPACITY; i++) {
+			check(recorder.names.get(i).equals("0:" + i), "Events published before start handled out of order");
+		}
+
+		// Running:  nothing lost, each producer's events in order
+		ArrayList<Thread> producers = new ArrayList<Thread>();
+		for (int p = 1; p <= PRODUCERS; p++) {
+			producers.add(startProducer(ring, p, EVENTS_PER_PRODUCER));
+		}
+		for (Thread t : producers) {
+			joinProducer(t, "publishing to a running ring");
+		}
+		ring.flush();
+		check(ring.getDroppedCount() == CAPACITY, "Events dropped while running");
+		check(recorder.names.size() == CAPACITY + PRODUCERS * EVENTS_PER_PRODUCER, "Handled " + recorder.names.size() + " events");
+		int[] next = new int[PRODUCERS + 1];
+		for (String name : recorder.names.subList(CAPACITY, recorder.names.size())) {
+			int colon = name.indexOf(':');
+			int p = Integer.parseInt(name.substring(0, colon));
+			check(Integer.parseInt(name.substring(colon + 1)) == next[p]++, "Events of producer " + p + " handled out of order");
+		}
+
+		// After close:  nothing waits, everything is dropped
+		ring.close();
+		long droppedBefore = ring.getDroppedCount();
+		joinProducer(startProducer(ring, 0, 2 * CAPACITY), "publishing after close");
+		check(ring.getDroppedCount() == droppedBefore + 2 * CAPACITY, "Events published after close not all dropped");
+
+		// A producer waiting on a full ring is released by close()
+		final CountDownLatch release = new CountDownLatch(1);
+		final EventRing blocked = new EventRing(CAPACITY);
+		blocked.start(new EventRing.Handler() {
+			@Override
+			public void onEvent (EventRecord event, boolean endOfBatch) throws IOException {
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					throw new IOException(e);
+				}
+			}
+
+			@Override
+			public void onFlush () {
+			}
+
+			@Override
+			public void onClose () {
+			}
+		});
+		Thread waiting = startProducer(blocked, 0, 4 * CAPACITY);
+		while (blocked.getPublishedCount() < CAPACITY) {	// The consumer is stuck on the first event, so the ring fills
+			Thread.sleep(1);
+		}
+		Thread.sleep(100);
+		check(waiting.isAlive(), "Producer did not wait on a full running ring");
+		Thread closer = new Thread(() -> {
+			try {
+				blocked.close();
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+		}, "closer");
+		closer.start();
+		Thread.sleep(100);
+		release.countDown();
+		joinProducer(waiting, "waiting on a full ring that was closed");
+		closer.join();
+		check(blocked.getDroppedCount() > 0, "No event dropped by a producer released by close()");
+
+		System.out.println(String.format("Event ring checks passed:  %d events handled, %d dropped while not running",
+				recorder.names.size(), ring.getDroppedCount()));
+	}
+}
@@ -0,0 +1,44 @@
+package cmsc433.p4.util;
+
+import cmsc433.p4.enums.AccessGrantPolicy;
+import akka.actor.ActorSystem;
+import com.typesafe.config.ConfigFactory;
+
+/**
+ * Benchmark comparing the throughput of the grant policies under contention:  several
+ * load generators make blocking requests, mostly reads, for a handful of resources of
+ * one manager.  Each policy is run under the same offered load and seeds, and a row of
+ * throughput and latency is printed for each.  A first, unreported run warms up the JVM.
+ *
+ */
+public class GrantPolicyBenchmark {
+
+	private static final int RESOURCES = 4;
+	private static final int GENERATORS = 8;
+	private static final double RATE_PER_GENERATOR = 40000;	// Requests per second
+	private static final long DURATION_MS = 3000;
+	private static final double[] READ_FRACTIONS = {0.5, 0.9};
+
+	private GrantPolicyBenchmark () {
+	}
+
+	public static void main (String[] args) throws Exception {
+		ActorSystem system = ActorSystem.create("GrantPolicyBenchmark",
+				ConfigFactory.parseString("akka.log-dead-letters = off").withFallback(ConfigFactory.load()));
+		try {
+			LoadRunner.run(system, new ManagerOptions(), RESOURCES, GENERATORS,
+					new LoadProfile(RATE_PER_GENERATOR, DURATION_MS).withBlocking(true));
+			System.out.println(String.format("%-20s %6s ", "policy", "reads") + LoadRunner.Result.header());
+			for (double reads : READ_FRACTIONS) {
+				LoadProfile profile = new LoadProfile(RATE_PER_GENERATOR, DURATION_MS).withMix(reads, 0.0).withBlocking(true);
+				for (AccessGrantPolicy policy : AccessGrantPolicy.values()) {
+					LoadRunner.Result result = LoadRunner.run(system, new ManagerOptions().withGrantPolicy(policy),
+							RESOURCES, GENERATORS, profile);
+					System.out.println(String.format("%-20s %6.2f ", policy, reads) + result);
+				}
+			}
+		} finally {
+			system.terminate();
+		}
+	}
+}
@@ -0,0 +1,51 @@
+package cmsc433.p4.util;
+
+/**
+ * Hybrid logical clock of one actor, used to stamp the events it logs and the messages
+ * it sends so that events logged by different actors can later be merged in an order
+ * consistent with causality.
+ *
+ * Times are nanoseconds on the System.nanoTime() scale.  Every event (logging or
+ * sending) takes the later of the current physical time and one more than the clock's
+ * last time, and receiving a stamped message moves the clock up to the message's time.
+ * So, as with a Lamport clock, an event that causally follows another through a chain of
+ * stamped messages always has a strictly greater time; and, unlike a Lamport clock,
+ * events with no such chain between them are ordered by when they happened, up to the
+ * accuracy of System.nanoTime() across the threads of one JVM.  The clock is never
+ * more than a few nanoseconds per event ahead of physical time.
+ *
+ * Instances are owned by exactly one actor and must not be shared.
+ */
+public class HybridLogicalClock {
+
+	private long time = 0;	// Time of last event or message received
+
+	/**
+	 * Advance the clock for an event of this actor.
+	 *
+	 * @return	Time of the event
+	 */
+	public long tick () {
+		long now = System.nanoTime();
+		time = (now > time) ? now : time + 1;
+		return time;
+	}
+
+	/**
+	 * Move the clock up to the time of a received message.
+	 *
+	 * @param timestamp	Time carried by the message, or 0 if it carries none
+	 */
+	public void receive (long timestamp) {
+		if (timestamp > time) {
+			time = timestamp;
+		}
+	}
+
+	/**
+	 * @return	Time of last event or message received
+	 */
+	public long getTime () {
+		return time;
+	}
+}
@@ -0,0 +1,208 @@
+package cmsc433.p4.util;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Hash map from int keys to objects, without boxing of keys.
+ *
+ * Entries are kept in parallel key and value arrays using open addressing with linear
+ * probing; removal shifts later entries of a probe run back rather than leaving
+ * tombstones.  Null values are not allowed, so get() returning null always means the
+ * key is absent.
+ *
+ * Instances are owned by exactly one actor and must not be shared.
+ *
+ * @param <V>	Type of values
+ */
+public class IntMap<V> {
+
+	private static final int DEFAULT_CAPACITY = 16;
+
+	private int[] keys;
+	private Object[] values;	// values[i] == null iff slot i is empty
+	private int size = 0;
+
+	/**
+	 * Create empty map.
+	 */
+	public IntMap () {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Create empty map with room for the given number of entries before resizing.
+	 *
+	 * @param expectedSize	Expected number of entries
+	 */
+	public IntMap (int expectedSize) {
+		int capacity = DEFAULT_CAPACITY;
+		while (capacity * 3 / 4 < expectedSize) {
+			capacity *= 2;
+		}
+		keys = new int[capacity];
+		values = new Object[capacity];
+	}
+
+	/**
+	 * @param key	Key to look up
+	 * @return		Value of key, or null if key is absent
+	 */
+	@SuppressWarnings("unchecked")
+	public V get (int key) {
+		int mask = keys.length - 1;
+		for (int i = slot(key, mask); values[i] != null; i = (i + 1) & mask) {
+			if (keys[i] == key) {
+				return (V) values[i];
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @param key	Key to look up
+	 * @return		True if key has a value
+	 */
+	public boolean containsKey (int key) {
+		return get(key) != null;
+	}
+
+	/**
+	 * Associate value with key.
+	 *
+	 * @param key	Key
+	 * @param value	Non-null value
+	 * @return		Previous value of key, or null if key was absent
+	 */
+	@SuppressWarnings("unchecked")
+	public V put (int key, V value) {
+		if (value == null) {
+			throw new NullPointerException("IntMap does not allow null values");
+		}
+		int mask = keys.length - 1;
+		int i = slot(key, mask);
+		for (; values[i] != null; i = (i + 1) & mask) {
+			if (keys[i] == key) {
+				V old = (V) values[i];
+				values[i] = value;
+				return old;
+			}
+		}
+		keys[i] = key;
+		values[i] = value;
+		if (++size > keys.length * 3 / 4) {
+			resize(keys.length * 2);
+		}
+		return null;
+	}
+
+	/**
+	 * Remove key and its value.
+	 *
+	 * @param key	Key
+	 * @return		Removed value, or null if key was absent
+	 */
+	@SuppressWarnings("unchecked")
+	public V remove (int key) {
+		int mask = keys.length - 1;
+		int i = slot(key, mask);
+		for (; values[i] != null; i = (i + 1) & mask) {
+			if (keys[i] == key) {
+				break;
+			}
+		}
+		if (values[i] == null) {
+			return null;
+		}
+		V old = (V) values[i];
+
+		// Shift back later entries of the probe run that could not otherwise be found
+		int hole = i;
+		for (int j = (i + 1) & mask; values[j] != null; j = (j + 1) & mask) {
+			int home = slot(keys[j], mask);
+			if (((j - home) & mask) >= ((j - hole) & mask)) {
+				keys[hole] = keys[j];
+				values[hole] = values[j];
+				hole = j;
+			}
+		}
+		values[hole] = null;
+		size--;
+		return old;
+	}
+
+	/**
+	 * @return	Number of entries
+	 */
+	public int size () {
+		return size;
+	}
+
+	/**
+	 * @return	True if map has no entries
+	 */
+	public boolean isEmpty () {
+		return size == 0;
+	}
+
+	/**
+	 * @return	Values of map, in no particular order.  The map must not be modified while
+	 * 			they are being iterated over.
+	 */
+	public Iterable<V> values () {
+		return () -> new Iterator<V>() {
+			private int next = advance(0);
+
+			private int advance (int i) {
+				while (i < values.length && values[i] == null) {
+					i++;
+				}
+				return i;
+			}
+
+			@Override
+			public boolean hasNext () {
+				return next < values.length;
+			}
+
+			@Override
+			@SuppressWarnings("unchecked")
+			public V next () {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				V value = (V) values[next];
+				next = advance(next + 1);
+				return value;
+			}
+		};
+	}
+
+	private void resize (int capacity) {
+		int[] oldKeys = keys;
+		Object[] oldValues = values;
+		keys = new int[capacity];
+		values = new Object[capacity];
+		int mask = capacity - 1;
+		for (int j = 0; j < oldKeys.length; j++) {
+			if (oldValues[j] != null) {
+				int i = slot(oldKeys[j], mask);
+				while (values[i] != null) {
+					i = (i + 1) & mask;
+				}
+				keys[i] = oldKeys[j];
+				values[i] = oldValues[j];
+			}
+		}
+	}
+
+	/**
+	 * @param key	Key
+	 * @param mask	Table capacity minus one
+	 * @return		Home slot of key.  Keys are mixed so that dense IDs do not form long runs.
+	 */
+	private static int slot (int key, int mask) {
+		int h = key * 0x9E3779B9;
+		return (h ^ (h >>> 16)) & mask;
+	}
+}
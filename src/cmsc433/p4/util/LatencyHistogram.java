@@ -0,0 +1,121 @@
+package cmsc433.p4.util;
+
+/**
+ * Histogram of latencies, in nanoseconds, with bounded relative error.
+ *
+ * Values below 32 have a bucket each.  Above that, every power of two is split into
+ * 16 equal buckets, so a reported percentile is at most about 6% above the true value,
+ * and the histogram has a fixed size however many values are recorded.
+ *
+ * Instances are owned by exactly one actor and must not be shared while being updated.
+ */
+public class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 4;							// log2 of buckets per power of two
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+	private final long[] counts = new long[BUCKETS];
+	private long count = 0;		// Number of values recorded
+	private long total = 0;		// Sum of values recorded
+	private long max = 0;		// Largest value recorded
+
+	/**
+	 * Record a latency.  Negative values are recorded as 0.
+	 *
+	 * @param nanos	Latency in nanoseconds
+	 */
+	public void record (long nanos) {
+		long value = Math.max(nanos, 0);
+		counts[bucketOf(value)]++;
+		count++;
+		total += value;
+		max = Math.max(max, value);
+	}
+
+	/**
+	 * Add all values recorded in another histogram to this one.
+	 *
+	 * @param other	Histogram to add
+	 */
+	public void add (LatencyHistogram other) {
+		for (int i = 0; i < BUCKETS; i++) {
+			counts[i] += other.counts[i];
+		}
+		count += other.count;
+		total += other.total;
+		max = Math.max(max, other.max);
+	}
+
+	/**
+	 * @return	Number of values recorded
+	 */
+	public long getCount () {
+		return count;
+	}
+
+	/**
+	 * @return	Mean of values recorded, or 0 if there are none
+	 */
+	public double getMean () {
+		return (count == 0) ? 0 : (double) total / count;
+	}
+
+	/**
+	 * @return	Largest value recorded, or 0 if there are none
+	 */
+	public long getMax () {
+		return max;
+	}
+
+	/**
+	 * @param percentile	Percentage of values, from 0 to 100
+	 * @return				Upper bound of the bucket holding the value below which the given
+	 * 						percentage of values lie, or 0 if there are no values
+	 */
+	public long getValueAtPercentile (double percentile) {
+		if (count == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				return Math.min(upperBoundOf(i), max);
+			}
+		}
+		return max;
+	}
+
+	/**
+	 * @param value	Non-negative value
+	 * @return		Index of bucket holding value
+	 */
+	private static int bucketOf (long value) {
+		if (value < 2 * SUB_BUCKETS) {
+			return (int) value;
+		}
+		int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+		return shift * SUB_BUCKETS + (int) (value >>> shift);
+	}
+
+	/**
+	 * @param bucket	Index of bucket
+	 * @return			Largest value held by bucket
+	 */
+	private static long upperBoundOf (int bucket) {
+		if (bucket < 2 * SUB_BUCKETS) {
+			return bucket;
+		}
+		int shift = bucket / SUB_BUCKETS - 1;
+		long mantissa = bucket % SUB_BUCKETS + SUB_BUCKETS;
+		return ((mantissa + 1) << shift) - 1;
+	}
+
+	@Override
+	public String toString () {
+		return String.format("n=%d mean=%.3fms p50=%.3fms p90=%.3fms p99=%.3fms max=%.3fms", count, getMean() / 1e6,
+				getValueAtPercentile(50) / 1e6, getValueAtPercentile(90) / 1e6, getValueAtPercentile(99) / 1e6, max / 1e6);
+	}
+}
@@ -0,0 +1,123 @@
+package cmsc433.p4.util;
+
+import cmsc433.p4.enums.ArrivalProcess;
+
+/**
+ * Settings of an open-loop load generator:  how fast requests arrive, for how long,
+ * and what kind of requests they are.
+ *
+ * Instances are immutable; each with...() method returns a copy with one setting
+ * changed, so a single instance may be given to many generators.
+ */
+public class LoadProfile {
+
+	private final double ratePerSecond;				// Mean number of requests issued per second
+	private final long durationMs;					// How long requests are issued for
+	private final ArrivalProcess arrivalProcess;	// Spacing of requests
+	private final double readFraction;				// Share of access requests that are for reads
+	private final double managementFraction;		// Share of requests that are management requests
+	private final boolean blocking;					// True if access requests wait for busy resources
+	private final long drainTimeoutMs;				// How long outstanding responses are awaited after the last request
+	private final long seed;						// Seed of random choices
+
+	/**
+	 * Create profile issuing Poisson arrivals of nonblocking access requests, half reads
+	 * and half writes, at the given rate.
+	 *
+	 * @param ratePerSecond	Mean number of requests issued per second
+	 * @param durationMs	How long requests are issued for
+	 */
+	public LoadProfile (double ratePerSecond, long durationMs) {
+		this(ratePerSecond, durationMs, ArrivalProcess.POISSON, 0.5, 0.0, false, 1000, 0);
+	}
+
+	private LoadProfile (double ratePerSecond, long durationMs, ArrivalProcess arrivalProcess, double readFraction,
+			double managementFraction, boolean blocking, long drainTimeoutMs, long seed) {
+		if (ratePerSecond <= 0) {
+			throw new IllegalArgumentException("Rate must be positive: " + ratePerSecond);
+		}
+		this.ratePerSecond = ratePerSecond;
+		this.durationMs = durationMs;
+		this.arrivalProcess = arrivalProcess;
+		this.readFraction = readFraction;
+		this.managementFraction = managementFraction;
+		this.blocking = blocking;
+		this.drainTimeoutMs = drainTimeoutMs;
+		this.seed = seed;
+	}
+
+	/**
+	 * @param arrivalProcess	Spacing of requests
+	 * @return					Copy of this profile with the given arrival process
+	 */
+	public LoadProfile withArrivalProcess (ArrivalProcess arrivalProcess) {
+		return new LoadProfile(ratePerSecond, durationMs, arrivalProcess, readFraction, managementFraction, blocking, drainTimeoutMs, seed);
+	}
+
+	/**
+	 * @param readFraction		Share of access requests that are for concurrent reads
+	 * @param managementFraction	Share of requests that are management requests.  These only
+	 * 							enable resources, so they never change the state of the system.
+	 * @return					Copy of this profile with the given request mix
+	 */
+	public LoadProfile withMix (double readFraction, double managementFraction) {
+		return new LoadProfile(ratePerSecond, durationMs, arrivalProcess, readFraction, managementFraction, blocking, drainTimeoutMs, seed);
+	}
+
+	/**
+	 * @param blocking	True if access requests should wait for busy resources, so that
+	 * 					latency includes time queued behind other users
+	 * @return			Copy of this profile with the given kind of access requests
+	 */
+	public LoadProfile withBlocking (boolean blocking) {
+		return new LoadProfile(ratePerSecond, durationMs, arrivalProcess, readFraction, managementFraction, blocking, drainTimeoutMs, seed);
+	}
+
+	/**
+	 * @param drainTimeoutMs	How long outstanding responses are awaited after the last request
+	 * @return					Copy of this profile with the given drain timeout
+	 */
+	public LoadProfile withDrainTimeout (long drainTimeoutMs) {
+		return new LoadProfile(ratePerSecond, durationMs, arrivalProcess, readFraction, managementFraction, blocking, drainTimeoutMs, seed);
+	}
+
+	/**
+	 * @param seed	Seed of random choices
+	 * @return		Copy of this profile with the given seed
+	 */
+	public LoadProfile withSeed (long seed) {
+		return new LoadProfile(ratePerSecond, durationMs, arrivalProcess, readFraction, managementFraction, blocking, drainTimeoutMs, seed);
+	}
+
+	public double getRatePerSecond () {
+		return ratePerSecond;
+	}
+
+	public long getDurationMs () {
+		return durationMs;
+	}
+
+	public ArrivalProcess getArrivalProcess () {
+		return arrivalProcess;
+	}
+
+	public double getReadFraction () {
+		return readFraction;
+	}
+
+	public double getManagementFraction () {
+		return managementFraction;
+	}
+
+	public boolean isBlocking () {
+		return blocking;
+	}
+
+	public long getDrainTimeoutMs () {
+		return drainTimeoutMs;
+	}
+
+	public long getSeed () {
+		return seed;
+	}
+}
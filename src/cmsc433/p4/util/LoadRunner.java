@@ -0,0 +1,164 @@
+package cmsc433.p4.util;
+
+import java.util.ArrayList;
+
+import cmsc433.p4.actors.LoadGeneratorActor;
+import cmsc433.p4.actors.LoggerActor;
+import cmsc433.p4.actors.ResourceManagerActor;
+import cmsc433.p4.messages.AddInitialLocalResourcesRequestMsg;
+import cmsc433.p4.messages.LoadReportMsg;
+import cmsc433.p4.messages.LoadStartMsg;
+import cmsc433.p4.messages.LogMsg;
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.pattern.Patterns;
+import scala.concurrent.Await;
+import scala.concurrent.Future;
+import scala.concurrent.duration.Duration;
+
+/**
+ * Runner of load tests:  several open-loop LoadGeneratorActors offering load to a single
+ * resource manager that owns every resource they name.
+ *
+ * Each generator is a separate user, so generators contend with one another for
+ * resources.  The manager logs nothing, so the logger is never the bottleneck; what is
+ * measured is the manager alone.  Every actor a run creates is stopped once the run is
+ * over, so many runs may share one actor system.
+ *
+ */
+public class LoadRunner {
+
+	private static final long STARTUP_TIMEOUT_MS = 10 * 1000L;		// Longest the manager may take to accept its resources
+
+	/**
+	 * Combined reports of the generators of one run.
+	 */
+	public static class Result {
+		private final ArrayList<LoadReportMsg> reports;
+
+		Result (ArrayList<LoadReportMsg> reports) {
+			this.reports = reports;
+		}
+
+		public ArrayList<LoadReportMsg> getReports () {
+			return reports;
+		}
+
+		/**
+		 * @return	Requests answered per second, summed over all generators
+		 */
+		public double getAnsweredRate () {
+			double rate = 0;
+			for (LoadReportMsg r : reports) {
+				rate += r.getAnsweredRate();
+			}
+			return rate;
+		}
+
+		/**
+		 * @return	Requests left unanswered at the drain timeout, over all generators
+		 */
+		public long getUnanswered () {
+			long unanswered = 0;
+			for (LoadReportMsg r : reports) {
+				unanswered += r.getUnanswered();
+			}
+			return unanswered;
+		}
+
+		/**
+		 * @return	Latency of every answered request of every generator
+		 */
+		public LatencyHistogram getLatency () {
+			LatencyHistogram latency = new LatencyHistogram();
+			for (LoadReportMsg r : reports) {
+				latency.add(r.getOverallLatency());
+			}
+			return latency;
+		}
+
+		/**
+		 * @return	Columns of a row of a table of results:  answered rate, unanswered
+		 * 			requests, and median and 99th-percentile latency in milliseconds
+		 */
+		@Override
+		public String toString () {
+			LatencyHistogram latency = getLatency();
+			return String.format("%12.0f %10d %10.3f %10.3f", getAnsweredRate(), getUnanswered(),
+					latency.getValueAtPercentile(50) / 1e6, latency.getValueAtPercentile(99) / 1e6);
+		}
+
+		/**
+		 * @return	Header of the columns printed by toString()
+		 */
+		public static String header () {
+			return String.format("%12s %10s %10s %10s", "answered/s", "unanswered", "p50 ms", "p99 ms");
+		}
+	}
+
+	private LoadRunner () {
+	}
+
+	/**
+	 * @return	Logging policy under which a manager logs none of its events
+	 */
+	public static LoggingPolicy silentPolicy () {
+		LoggingPolicy policy = new LoggingPolicy();
+		for (LogMsg.EventType type : LogMsg.EventType.values()) {
+			if (type != LogMsg.EventType.USER_START && type != LogMsg.EventType.USER_TERMINATE) {
+				policy = policy.withSuppressed(type);
+			}
+		}
+		return policy;
+	}
+
+	/**
+	 * Offer load to a manager created with the given options, which owns resourceCount
+	 * resources, from generatorCount generators, and wait for every generator's report.
+	 * The options' logging policy is replaced by silentPolicy(), and their resource
+	 * registry by one of the manager's resources, which the generators share.
+	 *
+	 * @param system			Actor system to run in
+	 * @param options			Settings of the manager
+	 * @param resourceCount		Number of resources the manager owns
+	 * @param generatorCount	Number of generators, each offering the profile's load
+	 * @param profile			Load offered by each generator; generators get consecutive seeds
+	 * @return					Reports of all generators
+	 * @throws Exception		Thrown if the manager cannot be set up, or a generator does not report
+	 */
+	public static Result run (ActorSystem system, ManagerOptions options, int resourceCount, int generatorCount,
+			LoadProfile profile) throws Exception {
+		ArrayList<Resource> resources = Systems.makeResources("Load", resourceCount);
+		ArrayList<String> names = new ArrayList<String>(resourceCount);
+		for (Resource r : resources) {
+			names.add(r.getName());
+		}
+		ResourceRegistry registry = new ResourceRegistry(names);
+		ActorRef logger = LoggerActor.makeLogger(system.deadLetters(), system);
+		ActorRef manager = ResourceManagerActor.makeResourceManager(logger, system,
+				options.withLoggingPolicy(silentPolicy()).withResourceRegistry(registry));
+		try {
+			Await.result(Patterns.ask(manager, new AddInitialLocalResourcesRequestMsg(resources), STARTUP_TIMEOUT_MS),
+					Duration.Inf());
+
+			ArrayList<ActorRef> managers = new ArrayList<ActorRef>();
+			managers.add(manager);
+
+			long timeoutMs = profile.getDurationMs() + profile.getDrainTimeoutMs() + STARTUP_TIMEOUT_MS;
+			ArrayList<Future<Object>> futures = new ArrayList<Future<Object>>(generatorCount);
+			for (int i = 0; i < generatorCount; i++) {
+				ActorRef generator = LoadGeneratorActor.makeLoadGenerator(managers, registry,
+						profile.withSeed(profile.getSeed() + i), system);
+				futures.add(Patterns.ask(generator, new LoadStartMsg(), timeoutMs));
+			}
+			ArrayList<LoadReportMsg> reports = new ArrayList<LoadReportMsg>(generatorCount);
+			for (Future<Object> f : futures) {
+				reports.add((LoadReportMsg) Await.result(f, Duration.Inf()));
+			}
+			return new Result(reports);
+		} finally {
+			system.stop(manager);
+			system.stop(logger);
+		}
+	}
+}
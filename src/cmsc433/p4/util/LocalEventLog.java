@@ -0,0 +1,73 @@
+package cmsc433.p4.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import cmsc433.p4.messages.LogBatchMsg;
+import akka.actor.ActorRef;
+
+/**
+ * Buffer of the events one actor has logged but not yet sent to the logger, with the
+ * time of each on the actor's HybridLogicalClock.  Events are sent in batches of up to
+ * batchSize, so the logger handles one message per batch rather than one per event.
+ *
+ * Instances are owned by exactly one actor and must not be shared.
+ */
+public class LocalEventLog {
+
+	private final int batchSize;
+	private final HybridLogicalClock clock;
+	private ArrayList<Object> events;		// Events not yet sent
+	private long[] timestamps;				// Time of each event not yet sent
+
+	/**
+	 * @param batchSize	Number of events sent to the logger at once
+	 * @param clock		Clock of the owning actor
+	 */
+	public LocalEventLog (int batchSize, HybridLogicalClock clock) {
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("Batch size must be at least 1: " + batchSize);
+		}
+		this.batchSize = batchSize;
+		this.clock = clock;
+		this.events = new ArrayList<Object>(batchSize);
+		this.timestamps = new long[batchSize];
+	}
+
+	/**
+	 * Stamp an event and add it to the buffer, sending the buffer to the logger if it is
+	 * full.
+	 *
+	 * @param event		LogMsg or LogAggregateMsg
+	 * @param source	Owning actor
+	 * @param logger	Logger to send full batches to
+	 */
+	public void append (Object event, ActorRef source, ActorRef logger) {
+		timestamps[events.size()] = clock.tick();
+		events.add(event);
+		if (events.size() == batchSize) {
+			send(source, logger, false);
+		}
+	}
+
+	/**
+	 * Send whatever the buffer holds to the logger as one batch, even if it is empty.
+	 *
+	 * @param source	Owning actor
+	 * @param logger	Logger to send batch to
+	 * @param last		True if the owning actor will log nothing more
+	 */
+	public void send (ActorRef source, ActorRef logger, boolean last) {
+		long[] stamps = (events.size() == batchSize) ? timestamps : Arrays.copyOf(timestamps, events.size());
+		logger.tell(new LogBatchMsg(source, events, stamps, last), source);
+		events = new ArrayList<Object>(batchSize);
+		timestamps = new long[batchSize];
+	}
+
+	/**
+	 * @return	Number of events not yet sent
+	 */
+	public int size () {
+		return events.size();
+	}
+}
@@ -0,0 +1,192 @@
+package cmsc433.p4.util;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+
+import cmsc433.p4.enums.AccessRequestType;
+import cmsc433.p4.enums.AccessType;
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+
+/**
+ * Microbenchmark of the lock-state path of a resource manager:  the cost of granting,
+ * checking and releasing access to one resource as the number of readers holding it
+ * grows.
+ *
+ * Each round grants read access to every reader, checks whether each holds access (as a
+ * DISABLE request does), tries a conflicting write, and releases every reader.  The
+ * round is timed both with ResourceLockState and with the list of holders that managers
+ * used to scan, and the mean cost of one operation is printed for each.  The list's cost
+ * grows with the number of readers; the lock state's should not.
+ *
+ */
+public class LockStateBenchmark {
+
+	private static final int[] READER_COUNTS = {1, 10, 100, 1000};
+	private static final int OPERATIONS_PER_RUN = 2000000;	// Roughly equal work for every reader count
+	private static final int WARMUP_RUNS = 3;
+	private static final int MEASURED_RUNS = 5;
+
+	private static volatile long sink;	// Results of timed work, kept so it cannot be optimized away
+
+	/**
+	 * Holders of one resource as managers used to keep them:  a list of (user, access)
+	 * pairs, scanned on every grant, release and DISABLE check.
+	 */
+	private static class HolderList {
+		private static class Holder {
+			final ActorRef user;
+			final AccessType type;
+
+			Holder (ActorRef user, AccessType type) {
+				this.user = user;
+				this.type = type;
+			}
+		}
+
+		private final LinkedList<Holder> holders = new LinkedList<Holder>();
+
+		boolean canGrant (ActorRef user, AccessRequestType type) {
+			boolean write = ResourceLockState.toAccessType(type) == AccessType.EXCLUSIVE_WRITE;
+			for (Holder h : holders) {
+				if (h.user.equals(user)) {	// Re-entrant
+					return true;
+				}
+				if (h.type == AccessType.EXCLUSIVE_WRITE || write) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		void grant (ActorRef user, AccessRequestType type) {
+			holders.add(new Holder(user, ResourceLockState.toAccessType(type)));
+		}
+
+		boolean release (ActorRef user, AccessType type) {
+			Iterator<Holder> it = holders.iterator();
+			while (it.hasNext()) {
+				Holder h = it.next();
+				if (h.user.equals(user) && h.type == type) {
+					it.remove();
+					return true;
+				}
+			}
+			return false;
+		}
+
+		boolean isHeldBy (ActorRef user) {
+			for (Holder h : holders) {
+				if (h.user.equals(user)) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	private LockStateBenchmark () {
+	}
+
+	/**
+	 * Run rounds over the holder list.
+	 *
+	 * @param readers	Users taking read access
+	 * @param writer	User attempting write access
+	 * @param rounds	Number of rounds
+	 * @return			Value depending on every result, so no work is optimized away
+	 */
+	private static long runList (ArrayList<ActorRef> readers, ActorRef writer, int rounds) {
+		long check = 0;
+		HolderList list = new HolderList();
+		for (int r = 0; r < rounds; r++) {
+			for (ActorRef u : readers) {
+				if (list.canGrant(u, AccessRequestType.CONCURRENT_READ_BLOCKING)) {
+					list.grant(u, AccessRequestType.CONCURRENT_READ_BLOCKING);
+				}
+			}
+			for (ActorRef u : readers) {
+				check += list.isHeldBy(u) ? 1 : 0;
+			}
+			check += list.canGrant(writer, AccessRequestType.EXCLUSIVE_WRITE_BLOCKING) ? 1 : 0;
+			for (ActorRef u : readers) {
+				check += list.release(u, AccessType.CONCURRENT_READ) ? 1 : 0;
+			}
+		}
+		return check;
+	}
+
+	/**
+	 * Run rounds over ResourceLockState.
+	 *
+	 * @param readers	Users taking read access
+	 * @param writer	User attempting write access
+	 * @param rounds	Number of rounds
+	 * @return			Value depending on every result, so no work is optimized away
+	 */
+	private static long runLockState (ArrayList<ActorRef> readers, ActorRef writer, int rounds) {
+		long check = 0;
+		ResourceLockState lock = new ResourceLockState();
+		for (int r = 0; r < rounds; r++) {
+			for (ActorRef u : readers) {
+				if (lock.canGrant(u, AccessRequestType.CONCURRENT_READ_BLOCKING)) {
+					lock.grant(u, AccessRequestType.CONCURRENT_READ_BLOCKING);
+				}
+			}
+			for (ActorRef u : readers) {
+				check += lock.isHeldBy(u) ? 1 : 0;
+			}
+			check += lock.canGrant(writer, AccessRequestType.EXCLUSIVE_WRITE_BLOCKING) ? 1 : 0;
+			for (ActorRef u : readers) {
+				check += lock.release(u, AccessType.CONCURRENT_READ) ? 1 : 0;
+			}
+		}
+		return check;
+	}
+
+	/**
+	 * @param readers	Users taking read access
+	 * @param writer	User attempting write access
+	 * @param list		True to time the holder list, false for ResourceLockState
+	 * @return			Mean nanoseconds per operation over the measured runs
+	 */
+	private static double measure (ArrayList<ActorRef> readers, ActorRef writer, boolean list) {
+		int operationsPerRound = 3 * readers.size() + 1;
+		int rounds = Math.max(1, OPERATIONS_PER_RUN / operationsPerRound);
+		long check = 0;
+		for (int i = 0; i < WARMUP_RUNS; i++) {
+			check += list ? runList(readers, writer, rounds) : runLockState(readers, writer, rounds);
+		}
+		long start = System.nanoTime();
+		for (int i = 0; i < MEASURED_RUNS; i++) {
+			check += list ? runList(readers, writer, rounds) : runLockState(readers, writer, rounds);
+		}
+		long elapsed = System.nanoTime() - start;
+		sink += check;
+		return (double) elapsed / ((long) MEASURED_RUNS * rounds * operationsPerRound);
+	}
+
+	public static void main (String[] args) throws Exception {
+		ActorSystem system = ActorSystem.create("LockStateBenchmark");
+		try {
+			int maxReaders = READER_COUNTS[READER_COUNTS.length - 1];
+			ArrayList<ActorRef> users = new ArrayList<ActorRef>(maxReaders + 1);
+			for (int i = 0; i <= maxReaders; i++) {
+				users.add(system.actorOf(Props.empty()));
+			}
+			ActorRef writer = users.get(maxReaders);
+
+			System.out.println(String.format("%8s %16s %16s", "readers", "list ns/op", "lock state ns/op"));
+			for (int readers : READER_COUNTS) {
+				ArrayList<ActorRef> holders = new ArrayList<ActorRef>(users.subList(0, readers));
+				double listNanos = measure(holders, writer, true);
+				double lockNanos = measure(holders, writer, false);
+				System.out.println(String.format("%8d %16.1f %16.1f", readers, listNanos, lockNanos));
+			}
+		} finally {
+			system.terminate();
+		}
+	}
+}
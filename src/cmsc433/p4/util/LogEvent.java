@@ -0,0 +1,36 @@
+package cmsc433.p4.util;
+
+import cmsc433.p4.enums.AccessRequestDenialReason;
+import cmsc433.p4.enums.ManagementRequestDenialReason;
+import cmsc433.p4.enums.ResourceStatus;
+import cmsc433.p4.messages.LogMsg.EventType;
+import akka.actor.ActorRef;
+
+/**
+ * Fields of a logged event, as read by sinks.  Implemented by LogMsg, and by the reused
+ * EventRecords of an EventRing.  A field an event does not have is null.
+ */
+public interface LogEvent {
+
+	EventType getType ();
+
+	ActorRef getUser ();
+
+	ActorRef getLocalResourceManager ();
+
+	ActorRef getRemoteResourceManager ();
+
+	String getResourceName ();
+
+	AccessRequest getAccessRequest ();
+
+	AccessRequestDenialReason getAccessRequestDenialReason ();
+
+	AccessRelease getAccessRelease ();
+
+	ManagementRequest getManagementRequest ();
+
+	ManagementRequestDenialReason getManagementRequestDenialReason ();
+
+	ResourceStatus getNewResourceStatus ();
+}
@@ -0,0 +1,128 @@
+package cmsc433.p4.util;
+
+import cmsc433.p4.messages.LogMsg.EventType;
+import akka.actor.ActorRef;
+
+/**
+ * Formatter of logged events as the text LogMsg.toString() gives.
+ *
+ * Text is appended straight into the caller's buffer, piece by piece, so formatting an
+ * event creates no intermediate strings; a caller that reuses its buffer formats any
+ * number of events without allocating.  Works on any LogEvent, so reused EventRecords
+ * may be formatted as well as LogMsgs.
+ *
+ * All methods are static and safe to use from any thread.
+ */
+public final class LogFormatter {
+
+	private LogFormatter () {
+	}
+
+	/**
+	 * Append the text of an event.
+	 *
+	 * @param event	Event
+	 * @param out	Buffer to append to
+	 * @return		out
+	 */
+	public static StringBuilder format (LogEvent event, StringBuilder out) {
+		EventType type = event.getType();
+		switch (type) {
+		case USER_START:
+			out.append("User Starting: ");
+			return name(event.getUser(), out);
+		case USER_TERMINATE:
+			out.append("User Terminating: ");
+			return name(event.getUser(), out);
+		case LOCAL_RESOURCE_CREATED:
+			out.append(event.getResourceName()).append(" was added to ");
+			return name(event.getLocalResourceManager(), out);
+		case REMOTE_RESOURCE_DISCOVERED:
+			name(event.getLocalResourceManager(), out).append(" discovered that ").append(event.getResourceName()).append(" is managed by ");
+			return name(event.getRemoteResourceManager(), out);
+		case ACCESS_REQUEST_RECEIVED:
+			accessRequest(event, name(event.getLocalResourceManager(), out).append(" received ")).append(" from ");
+			return name(event.getUser(), out);
+		case ACCESS_REQUEST_FORWARDED:
+			accessRequest(event, name(event.getLocalResourceManager(), out).append(" forwarded ")).append(" to ");
+			return name(event.getRemoteResourceManager(), out);
+		case ACCESS_REQUEST_GRANTED:
+			accessRequest(event, name(event.getLocalResourceManager(), out).append(" granted ")).append(" to ");
+			return name(event.getUser(), out);
+		case ACCESS_REQUEST_DENIED:
+			accessRequest(event, name(event.getLocalResourceManager(), out).append(" denied ")).append(" to ");
+			return name(event.getUser(), out).append(" because ").append(event.getAccessRequestDenialReason());
+		case ACCESS_RELEASE_RECEIVED:
+			accessRelease(event, name(event.getLocalResourceManager(), out).append(" received ")).append(" from ");
+			return name(event.getUser(), out);
+		case ACCESS_RELEASE_FORWARDED:
+			accessRelease(event, name(event.getLocalResourceManager(), out).append(" forwarded ")).append(" to ");
+			return name(event.getRemoteResourceManager(), out);
+		case ACCESS_RELEASED:
+			name(event.getUser(), out).append(" released ").append(event.getAccessRelease().getType()).append(" access to ")
+					.append(event.getResourceName()).append(" (managed by ");
+			return name(event.getLocalResourceManager(), out).append(')');
+		case ACCESS_RELEASE_IGNORED:
+			name(event.getUser(), out).append("'s release of ").append(event.getAccessRelease().getType()).append(" access to")
+					.append(event.getResourceName()).append(" (managed by ");
+			return name(event.getLocalResourceManager(), out).append(") was ignored");
+		case MANAGEMENT_REQUEST_RECEIVED:
+			managementRequest(event, name(event.getLocalResourceManager(), out).append(" received ")).append(" from ");
+			return name(event.getUser(), out);
+		case MANAGEMENT_REQUEST_FORWARDED:
+			managementRequest(event, name(event.getLocalResourceManager(), out).append(" forwarded ")).append(" to ");
+			return name(event.getRemoteResourceManager(), out);
+		case MANAGEMENT_REQUEST_GRANTED:
+			managementRequest(event, name(event.getLocalResourceManager(), out).append(" granted ")).append(" to ");
+			return name(event.getUser(), out);
+		case MANAGEMENT_REQUEST_DENIED:
+			managementRequest(event, name(event.getLocalResourceManager(), out).append(" denied ")).append(" to ");
+			return name(event.getUser(), out).append(" because ").append(event.getManagementRequestDenialReason());
+		case RESOURCE_STATUS_CHANGED:
+			out.append(event.getResourceName()).append(" (managed by ");
+			return name(event.getLocalResourceManager(), out).append(") is now ").append(event.getNewResourceStatus());
+		default:
+			throw new AssertionError("Unrecognized Event Type: " + type);
+		}
+	}
+
+	/**
+	 * Append the text of an entry of a log:  a LogEvent as format(LogEvent, ...) gives,
+	 * anything else (such as a LogAggregateMsg) as its toString().
+	 *
+	 * @param entry	Entry of log
+	 * @param out	Buffer to append to
+	 * @return		out
+	 */
+	public static StringBuilder format (Object entry, StringBuilder out) {
+		if (entry instanceof LogEvent) {
+			return format((LogEvent) entry, out);
+		}
+		return out.append(entry);
+	}
+
+	/**
+	 * Actor names are held by their paths, so appending one copies characters and
+	 * creates nothing.
+	 */
+	private static StringBuilder name (ActorRef actor, StringBuilder out) {
+		return out.append(actor.path().name());
+	}
+
+	// Same text as AccessRequest.toString(), AccessRelease.toString() and ManagementRequest.toString()
+
+	private static StringBuilder accessRequest (LogEvent event, StringBuilder out) {
+		AccessRequest request = event.getAccessRequest();
+		return out.append(request.getType()).append(" request for ").append(request.getResourceName());
+	}
+
+	private static StringBuilder accessRelease (LogEvent event, StringBuilder out) {
+		AccessRelease release = event.getAccessRelease();
+		return out.append("Release ").append(release.getType()).append(" access to ").append(release.getResourceName());
+	}
+
+	private static StringBuilder managementRequest (LogEvent event, StringBuilder out) {
+		ManagementRequest request = event.getManagementRequest();
+		return out.append(request.getType()).append(' ').append(request.getResourceName()).append(" request");
+	}
+}
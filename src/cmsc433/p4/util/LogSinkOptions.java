@@ -0,0 +1,138 @@
+package cmsc433.p4.util;
+
+import java.io.File;
+
+/**
+ * Settings of a logger that streams events to files instead of keeping them in memory.
+ *
+ * Events are written as the text LogMsg.toString() gives, one per line, to files named
+ * baseName.0.log, baseName.1.log, ... in the given directory.  A new file is started
+ * once the current one would grow beyond the maximum file size.  In binary format,
+ * events are instead appended as fixed-width records to the single memory-mapped file
+ * baseName.events (see BinaryEventLogWriter); batching and file size do not apply.
+ *
+ * Instances are immutable; each with...() method returns a copy with one setting
+ * changed, so a single instance may be given to many loggers as long as their base
+ * names differ.
+ */
+public class LogSinkOptions {
+
+	private final String directory;		// Directory files are written to
+	private final String baseName;		// Prefix of file names
+	private final long maxFileBytes;	// Size at which a new file is started
+	private final int batchSize;		// Number of events handed to the writer at once
+	private final int queuedBatches;	// Number of batches that may wait to be written
+	private final boolean sync;			// True if every group of writes is forced to disk
+	private final boolean binary;		// True if events are written as binary records
+
+	/**
+	 * Create options writing 64MB files, in batches of 1024 events with up to 16 batches
+	 * waiting, without forcing writes to disk.
+	 *
+	 * @param directory	Directory files are written to
+	 * @param baseName	Prefix of file names
+	 */
+	public LogSinkOptions (String directory, String baseName) {
+		this(directory, baseName, 64L << 20, 1024, 16, false, false);
+	}
+
+	private LogSinkOptions (String directory, String baseName, long maxFileBytes, int batchSize, int queuedBatches,
+			boolean sync, boolean binary) {
+		if (maxFileBytes < 1 || batchSize < 1 || queuedBatches < 1) {
+			throw new IllegalArgumentException("File size, batch size and queue length must be positive");
+		}
+		this.directory = directory;
+		this.baseName = baseName;
+		this.maxFileBytes = maxFileBytes;
+		this.batchSize = batchSize;
+		this.queuedBatches = queuedBatches;
+		this.sync = sync;
+		this.binary = binary;
+	}
+
+	/**
+	 * @param baseName	Prefix of file names
+	 * @return			Copy of these options with the given base name
+	 */
+	public LogSinkOptions withBaseName (String baseName) {
+		return new LogSinkOptions(directory, baseName, maxFileBytes, batchSize, queuedBatches, sync, binary);
+	}
+
+	/**
+	 * @param maxFileBytes	Size at which a new file is started.  Batches are never split,
+	 * 						so a file may exceed this by up to one batch.
+	 * @return				Copy of these options with the given file size
+	 */
+	public LogSinkOptions withMaxFileBytes (long maxFileBytes) {
+		return new LogSinkOptions(directory, baseName, maxFileBytes, batchSize, queuedBatches, sync, binary);
+	}
+
+	/**
+	 * @param batchSize		Number of events handed to the writer at once
+	 * @param queuedBatches	Number of batches that may wait to be written before the
+	 * 						logger waits for the writer
+	 * @return				Copy of these options with the given batching
+	 */
+	public LogSinkOptions withBatching (int batchSize, int queuedBatches) {
+		return new LogSinkOptions(directory, baseName, maxFileBytes, batchSize, queuedBatches, sync, binary);
+	}
+
+	/**
+	 * @param sync	True if each group of writes should be forced to disk
+	 * @return		Copy of these options with the given durability
+	 */
+	public LogSinkOptions withSync (boolean sync) {
+		return new LogSinkOptions(directory, baseName, maxFileBytes, batchSize, queuedBatches, sync, binary);
+	}
+
+	/**
+	 * @param binary	True to write events as binary records rather than text
+	 * @return			Copy of these options with the given format
+	 */
+	public LogSinkOptions withBinaryFormat (boolean binary) {
+		return new LogSinkOptions(directory, baseName, maxFileBytes, batchSize, queuedBatches, sync, binary);
+	}
+
+	public String getDirectory () {
+		return directory;
+	}
+
+	public String getBaseName () {
+		return baseName;
+	}
+
+	public long getMaxFileBytes () {
+		return maxFileBytes;
+	}
+
+	public int getBatchSize () {
+		return batchSize;
+	}
+
+	public int getQueuedBatches () {
+		return queuedBatches;
+	}
+
+	public boolean isSync () {
+		return sync;
+	}
+
+	public boolean isBinaryFormat () {
+		return binary;
+	}
+
+	/**
+	 * @param index	Index of file
+	 * @return		Path of the file with the given index
+	 */
+	public String fileName (int index) {
+		return new File(directory, baseName + "." + index + ".log").getPath();
+	}
+
+	/**
+	 * @return	Path of the file binary records are written to
+	 */
+	public String binaryFileName () {
+		return new File(directory, baseName + ".events").getPath();
+	}
+}
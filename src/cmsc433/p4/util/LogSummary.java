@@ -0,0 +1,59 @@
+package cmsc433.p4.util;
+
+import java.util.ArrayList;
+
+import cmsc433.p4.messages.LogMsg;
+
+/**
+ * Summary of an event log that was streamed to files rather than kept in memory.
+ *
+ */
+public class LogSummary {
+
+	private final long eventCount;				// Events logged
+	private final long[] countsByType;			// Events logged, indexed by EventType ordinal
+	private final ArrayList<String> files;		// Files holding the events, in order
+	private final long bytesWritten;			// Total size of the files
+
+	public LogSummary (long eventCount, long[] countsByType, ArrayList<String> files, long bytesWritten) {
+		this.eventCount = eventCount;
+		this.countsByType = countsByType.clone();
+		this.files = files;
+		this.bytesWritten = bytesWritten;
+	}
+
+	public long getEventCount () {
+		return eventCount;
+	}
+
+	/**
+	 * @param type	Type of event
+	 * @return		Number of events of the given type logged
+	 */
+	public long getCount (LogMsg.EventType type) {
+		return countsByType[type.ordinal()];
+	}
+
+	/**
+	 * @return	Files holding the events, in the order they were written
+	 */
+	public ArrayList<String> getFiles () {
+		return files;
+	}
+
+	public long getBytesWritten () {
+		return bytesWritten;
+	}
+
+	@Override
+	public String toString () {
+		StringBuilder sb = new StringBuilder();
+		sb.append(eventCount).append(" events, ").append(bytesWritten).append(" bytes in ").append(files);
+		for (LogMsg.EventType type : LogMsg.EventType.values()) {
+			if (countsByType[type.ordinal()] > 0) {
+				sb.append("\n\t").append(type).append(": ").append(countsByType[type.ordinal()]);
+			}
+		}
+		return sb.toString();
+	}
+}
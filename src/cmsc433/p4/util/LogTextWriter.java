@@ -0,0 +1,158 @@
+package cmsc433.p4.util;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Writer of logs as text, one entry per line, in the form LogFormatter gives.
+ *
+ * Entries are formatted straight into a reused buffer, which is copied to the
+ * underlying writer whenever it grows past BUFFER_CHARS, so writing a log creates no
+ * string per entry.  writeAll(log, threads) formats a long log in chunks on several
+ * threads; chunks are written in order as they become ready, and only a few are held at
+ * once, so the text is exactly that of writing the entries one by one.
+ *
+ * Instances must not be shared between threads.
+ */
+public class LogTextWriter {
+
+	private static final int BUFFER_CHARS = 64 * 1024;		// Buffered text that triggers a write
+	private static final int CHUNK_ENTRIES = 16 * 1024;		// Entries formatted by each parallel task
+	private static final String LINE_SEPARATOR = System.lineSeparator();
+
+	private final Writer out;
+	private final StringBuilder buffer = new StringBuilder(BUFFER_CHARS + 1024);	// Formatted text awaiting writing
+	private char[] chars = new char[BUFFER_CHARS + 1024];						// Buffer's text, as handed to out
+
+	/**
+	 * @param out	Writer to write text to; should do its own buffering only if it is slow to write to
+	 */
+	public LogTextWriter (Writer out) {
+		this.out = out;
+	}
+
+	/**
+	 * Write one entry of a log.
+	 *
+	 * @param entry	LogEvent, or any other entry (written as its toString())
+	 * @throws IOException	Thrown if the text cannot be written
+	 */
+	public void write (Object entry) throws IOException {
+		LogFormatter.format(entry, buffer).append(LINE_SEPARATOR);
+		if (buffer.length() >= BUFFER_CHARS) {
+			drain();
+		}
+	}
+
+	/**
+	 * Write every entry of a log, in order.
+	 *
+	 * @param log	Entries to write
+	 * @throws IOException	Thrown if the text cannot be written
+	 */
+	public void writeAll (List<?> log) throws IOException {
+		for (Object entry : log) {
+			write(entry);
+		}
+	}
+
+	/**
+	 * Write every entry of a log, in order, formatting chunks of it on the given number of
+	 * threads.  The log must not change while it is being written.
+	 *
+	 * @param log		Entries to write
+	 * @param threads	Number of formatting threads; 1 or less formats on this thread
+	 * @throws IOException	Thrown if the text cannot be written
+	 */
+	public void writeAll (final List<?> log, int threads) throws IOException {
+		if (threads <= 1 || log.size() <= CHUNK_ENTRIES) {
+			writeAll(log);
+			return;
+		}
+		drain();
+		final AtomicInteger threadCount = new AtomicInteger();
+		ExecutorService formatters = Executors.newFixedThreadPool(threads, task -> {
+			Thread t = new Thread(task, "log-formatter-" + threadCount.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		});
+		try {
+			ArrayDeque<Future<StringBuilder>> pending = new ArrayDeque<Future<StringBuilder>>();	// Chunks being formatted, in order
+			int next = 0;	// Index of first entry not yet handed to a formatter
+			while (next < log.size() || !pending.isEmpty()) {
+				while (next < log.size() && pending.size() < 2 * threads) {
+					final int from = next;
+					final int to = Math.min(log.size(), from + CHUNK_ENTRIES);
+					pending.add(formatters.submit(() -> format(log, from, to)));
+					next = to;
+				}
+				writeChars(await(pending.poll()));
+			}
+		} finally {
+			formatters.shutdownNow();
+		}
+	}
+
+	/**
+	 * Write out any buffered text, then flush the underlying writer.
+	 *
+	 * @throws IOException	Thrown if the text cannot be written
+	 */
+	public void flush () throws IOException {
+		drain();
+		out.flush();
+	}
+
+	/**
+	 * Write out any buffered text, then close the underlying writer.
+	 *
+	 * @throws IOException	Thrown if the text cannot be written
+	 */
+	public void close () throws IOException {
+		drain();
+		out.close();
+	}
+
+	private static StringBuilder format (List<?> log, int from, int to) {
+		StringBuilder chunk = new StringBuilder((to - from) * 80);
+		for (int i = from; i < to; i++) {
+			LogFormatter.format(log.get(i), chunk).append(LINE_SEPARATOR);
+		}
+		return chunk;
+	}
+
+	private static StringBuilder await (Future<StringBuilder> chunk) throws IOException {
+		try {
+			return chunk.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while formatting log", e);
+		} catch (ExecutionException e) {
+			throw new IOException("Log could not be formatted", e.getCause());
+		}
+	}
+
+	private void drain () throws IOException {
+		writeChars(buffer);
+		buffer.setLength(0);
+	}
+
+	/**
+	 * Copy text to out through the reused char array, without making a String of it.
+	 */
+	private void writeChars (StringBuilder text) throws IOException {
+		int length = text.length();
+		if (chars.length < length) {
+			chars = new char[length];
+		}
+		text.getChars(0, length, chars, 0);
+		out.write(chars, 0, length);
+	}
+}
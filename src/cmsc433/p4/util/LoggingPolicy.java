@@ -0,0 +1,151 @@
+package cmsc433.p4.util;
+
+import java.util.Arrays;
+
+import cmsc433.p4.enums.LogAction;
+import cmsc433.p4.messages.LogMsg.EventType;
+
+/**
+ * Policy deciding, per type of event, whether an actor sends its events to the logger:
+ * all of them, one in every N, only periodic counts, or none.  Events are filtered by
+ * the actor that would have logged them, before any message is sent, so events that
+ * are not needed cost the logger nothing.
+ *
+ * USER_START and USER_TERMINATE are always logged, since the logger relies on them to
+ * know when a simulation is over.  Filtering other events makes the log unsuitable for
+ * checking the system's behaviour event by event; it is meant for load tests, where a
+ * full audit log is not needed.  Virtual-time simulations do not depend on the policy,
+ * since their clock tracks outstanding work by asking users and managers, not by
+ * watching the log.
+ *
+ * Instances are immutable; each with...() method returns a copy with one setting
+ * changed, so a single instance may be given to many actors.
+ */
+public class LoggingPolicy {
+
+	private final LogAction[] actions;		// Action, by EventType ordinal
+	private final int[] sampleEvery;		// For SAMPLE, one event in this many is logged, by EventType ordinal
+	private final long aggregationWindowMs;	// Longest time counts are held before being sent
+
+	/**
+	 * Create policy logging every event, as actors do without a policy.
+	 */
+	public LoggingPolicy () {
+		this(fill(LogAction.LOG), new int[EventType.values().length], 100);
+	}
+
+	private LoggingPolicy (LogAction[] actions, int[] sampleEvery, long aggregationWindowMs) {
+		this.actions = actions;
+		this.sampleEvery = sampleEvery;
+		this.aggregationWindowMs = aggregationWindowMs;
+	}
+
+	private static LogAction[] fill (LogAction action) {
+		LogAction[] actions = new LogAction[EventType.values().length];
+		Arrays.fill(actions, action);
+		return actions;
+	}
+
+	/**
+	 * @param type	Type of event
+	 * @return		Copy of this policy logging every event of the given type
+	 */
+	public LoggingPolicy withLogged (EventType type) {
+		return with(type, LogAction.LOG, 0);
+	}
+
+	/**
+	 * @param type	Type of event
+	 * @return		Copy of this policy logging no events of the given type
+	 */
+	public LoggingPolicy withSuppressed (EventType type) {
+		return with(type, LogAction.SUPPRESS, 0);
+	}
+
+	/**
+	 * @param type		Type of event
+	 * @param every		Log the first event of the given type, and one in every this many after that
+	 * @return			Copy of this policy sampling events of the given type
+	 */
+	public LoggingPolicy withSampled (EventType type, int every) {
+		if (every < 1) {
+			throw new IllegalArgumentException("Sampling interval must be at least 1: " + every);
+		}
+		return with(type, LogAction.SAMPLE, every);
+	}
+
+	/**
+	 * @param type	Type of event
+	 * @return		Copy of this policy counting events of the given type, and logging the
+	 * 				counts as LogAggregateMsgs
+	 */
+	public LoggingPolicy withAggregated (EventType type) {
+		return with(type, LogAction.AGGREGATE, 0);
+	}
+
+	/**
+	 * @param aggregationWindowMs	Longest time counts are held before being sent to the logger
+	 * @return						Copy of this policy with the given aggregation window
+	 */
+	public LoggingPolicy withAggregationWindow (long aggregationWindowMs) {
+		if (aggregationWindowMs < 1) {
+			throw new IllegalArgumentException("Aggregation window must be positive: " + aggregationWindowMs);
+		}
+		return new LoggingPolicy(actions, sampleEvery, aggregationWindowMs);
+	}
+
+	private LoggingPolicy with (EventType type, LogAction action, int every) {
+		if ((type == EventType.USER_START || type == EventType.USER_TERMINATE) && action != LogAction.LOG) {
+			throw new IllegalArgumentException(type + " events are always logged");
+		}
+		LogAction[] newActions = actions.clone();
+		int[] newSampleEvery = sampleEvery.clone();
+		newActions[type.ordinal()] = action;
+		newSampleEvery[type.ordinal()] = every;
+		return new LoggingPolicy(newActions, newSampleEvery, aggregationWindowMs);
+	}
+
+	/**
+	 * @param type	Type of event
+	 * @return		What is done with events of the given type
+	 */
+	public LogAction getAction (EventType type) {
+		return actions[type.ordinal()];
+	}
+
+	/**
+	 * @param type	Type of event
+	 * @return		For a sampled type, one event in this many is logged
+	 */
+	public int getSampleEvery (EventType type) {
+		return sampleEvery[type.ordinal()];
+	}
+
+	public long getAggregationWindowMs () {
+		return aggregationWindowMs;
+	}
+
+	/**
+	 * @return	True if events of some type are counted instead of logged
+	 */
+	public boolean aggregatesAny () {
+		for (LogAction action : actions) {
+			if (action == LogAction.AGGREGATE) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return	True if every event is logged
+	 */
+	public boolean logsEverything () {
+		for (LogAction action : actions) {
+			if (action != LogAction.LOG) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -1,6 +1,8 @@
 package cmsc433.p4.util;
 
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.util.ArrayList;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -29,7 +31,7 @@ public class Main {
 
 	ActorSystem system = ActorSystem.create("Resource manager system");
 
-	public static void main(String[] args) throws FileNotFoundException {
+	public static void main(String[] args) throws IOException {
 		// Create actor system and instantiate a simulation manager.
 				
 		ActorSystem system = ActorSystem.create("Simulation");
@@ -63,8 +65,10 @@ public class Main {
 		
 		// It is critical not to examine the log until after the actor system has shutdown. Otherwise, the log
 		// may still be being modified as ResourceManagers send messages to the LoggerActor.
-		for (Object o : msg.getLog())
-			System.out.println(o);
+		// Long logs are formatted on every core, and written in order.
+		LogTextWriter logText = new LogTextWriter(new OutputStreamWriter(System.out));
+		logText.writeAll(msg.getLog(), Runtime.getRuntime().availableProcessors());
+		logText.flush();
 	}
 
 	private static ArrayList<NodeSpecification> setupTest1 () throws FileNotFoundException {
@@ -0,0 +1,224 @@
+package cmsc433.p4.util;
+
+import cmsc433.p4.enums.AccessGrantPolicy;
+
+/**
+ * Settings a resource manager is created with.
+ *
+ * Instances are immutable; each with...() method returns a copy with one setting
+ * changed, so a single instance may be given to many managers.
+ */
+public class ManagerOptions {
+
+	private final AccessGrantPolicy grantPolicy;	// Ordering of grants for contended resources
+	private final int shardCount;					// Number of shard actors local resources are split across
+	private final long discoveryWindowMs;			// How long unknown names are collected before a discovery batch is sent
+	private final int discoveryBatchSize;			// Number of unknown names that forces a discovery batch out early
+	private final boolean advertiseResources;		// True if local resources are pushed to peers at startup
+	private final LoggingPolicy loggingPolicy;		// Which events are sent to the logger
+	private final int localLogBatchSize;			// Events per batch from a local event log; 0 to send each event at once
+	private final EventRing eventRing;				// Ring managers publish events to, or null to send them to the logger
+	private final ResourceRegistry resourceRegistry;	// IDs of the system's resources, as carried by requests, or null if none
+	private final long negativeCacheTtlMs;			// How long a resource found to exist nowhere is denied without discovery
+
+	/**
+	 * Create default options:  reader-batching grants, a single unsharded actor, and
+	 * one discovery broadcast per unknown resource, no advertisement, every event
+	 * logged as it happens, and missing resources remembered for
+	 * NegativeCache.DEFAULT_TTL_MS.
+	 */
+	public ManagerOptions () {
+		this(AccessGrantPolicy.READER_BATCHING, 1, 0, 1, false, new LoggingPolicy(), 0, null, null, NegativeCache.DEFAULT_TTL_MS);
+	}
+
+	private ManagerOptions (AccessGrantPolicy grantPolicy, int shardCount, long discoveryWindowMs, int discoveryBatchSize,
+			boolean advertiseResources, LoggingPolicy loggingPolicy, int localLogBatchSize, EventRing eventRing,
+			ResourceRegistry resourceRegistry, long negativeCacheTtlMs) {
+		this.grantPolicy = grantPolicy;
+		this.shardCount = shardCount;
+		this.discoveryWindowMs = discoveryWindowMs;
+		this.discoveryBatchSize = discoveryBatchSize;
+		this.advertiseResources = advertiseResources;
+		this.loggingPolicy = loggingPolicy;
+		this.localLogBatchSize = localLogBatchSize;
+		this.eventRing = eventRing;
+		this.resourceRegistry = resourceRegistry;
+		this.negativeCacheTtlMs = negativeCacheTtlMs;
+	}
+
+	/**
+	 * @param grantPolicy	Ordering of grants for contended resources
+	 * @return				Copy of these options with the given grant policy
+	 */
+	public ManagerOptions withGrantPolicy (AccessGrantPolicy grantPolicy) {
+		return new ManagerOptions(grantPolicy, shardCount, discoveryWindowMs, discoveryBatchSize, advertiseResources, loggingPolicy, localLogBatchSize, eventRing, resourceRegistry, negativeCacheTtlMs);
+	}
+
+	/**
+	 * @param shardCount	Number of shard actors local resources are split across
+	 * @return				Copy of these options with the given shard count
+	 */
+	public ManagerOptions withShardCount (int shardCount) {
+		return new ManagerOptions(grantPolicy, shardCount, discoveryWindowMs, discoveryBatchSize, advertiseResources, loggingPolicy, localLogBatchSize, eventRing, resourceRegistry, negativeCacheTtlMs);
+	}
+
+	/**
+	 * Coalesce discovery of unknown resources into one batch per peer.  Names are
+	 * collected for up to windowMs milliseconds, or until maxNames are pending.
+	 *
+	 * @param windowMs		How long unknown names are collected before a batch is sent
+	 * @param maxNames		Number of pending names that forces a batch out early
+	 * @return				Copy of these options with the given discovery batching
+	 */
+	public ManagerOptions withDiscoveryBatching (long windowMs, int maxNames) {
+		return new ManagerOptions(grantPolicy, shardCount, windowMs, maxNames, advertiseResources, loggingPolicy, localLogBatchSize, eventRing, resourceRegistry, negativeCacheTtlMs);
+	}
+
+	/**
+	 * Push the names of local resources to every remote manager once remote managers
+	 * are known, so that first access to a remote resource needs no discovery.
+	 *
+	 * @param advertiseResources	True if local resources are advertised at startup
+	 * @return						Copy of these options with the given advertisement setting
+	 */
+	public ManagerOptions withResourceAdvertisement (boolean advertiseResources) {
+		return new ManagerOptions(grantPolicy, shardCount, discoveryWindowMs, discoveryBatchSize, advertiseResources, loggingPolicy, localLogBatchSize, eventRing, resourceRegistry, negativeCacheTtlMs);
+	}
+
+	/**
+	 * @param loggingPolicy	Which events managers send to the logger
+	 * @return				Copy of these options with the given logging policy
+	 */
+	public ManagerOptions withLoggingPolicy (LoggingPolicy loggingPolicy) {
+		if (eventRing != null && !loggingPolicy.logsEverything()) {
+			throw new IllegalArgumentException("Managers publishing to an event ring log every event");
+		}
+		return new ManagerOptions(grantPolicy, shardCount, discoveryWindowMs, discoveryBatchSize, advertiseResources, loggingPolicy, localLogBatchSize, eventRing, resourceRegistry, negativeCacheTtlMs);
+	}
+
+	/**
+	 * Keep a local event log in every manager, stamped with the manager's
+	 * HybridLogicalClock, and send it to the logger in batches rather than one event at
+	 * a time.  The logger merges the local logs once every user has terminated; see
+	 * CausalLogMerger for the order of the merged log.  Users of a system built with this
+	 * setting stamp their events too.
+	 *
+	 * @param batchSize	Events sent to the logger at once
+	 * @return			Copy of these options with local event logs
+	 */
+	public ManagerOptions withLocalLogBuffer (int batchSize) {
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("Batch size must be at least 1: " + batchSize);
+		}
+		if (eventRing != null) {
+			throw new IllegalArgumentException("Managers publishing to an event ring keep no local event logs");
+		}
+		return new ManagerOptions(grantPolicy, shardCount, discoveryWindowMs, discoveryBatchSize, advertiseResources, loggingPolicy, batchSize, eventRing, resourceRegistry, negativeCacheTtlMs);
+	}
+
+	/**
+	 * Publish managers' events to an event ring instead of sending them to the logger as
+	 * messages, so that logging an event allocates nothing.  The ring is shared by every
+	 * manager given these options; the logger should be given it too (see
+	 * LoggerActor.makeLogger), so that users' events reach the same sink.  Managers
+	 * publishing to a ring log every event, and keep no local event logs.
+	 *
+	 * @param eventRing	Ring to publish events to
+	 * @return			Copy of these options with the given ring
+	 */
+	public ManagerOptions withEventRing (EventRing eventRing) {
+		if (!loggingPolicy.logsEverything() || localLogBatchSize > 0) {
+			throw new IllegalArgumentException("Managers publishing to an event ring log every event and keep no local event logs");
+		}
+		return new ManagerOptions(grantPolicy, shardCount, discoveryWindowMs, discoveryBatchSize, advertiseResources, loggingPolicy, localLogBatchSize, eventRing, resourceRegistry, negativeCacheTtlMs);
+	}
+
+	/**
+	 * Find local resources by the IDs that requests carry, rather than by name.  Every
+	 * manager and user of a system must be given the same registry; Systems.makeSystem
+	 * builds one for each system it makes.  A manager without a registry, or given a
+	 * resource its registry lacks, registers its own resources, and finds them by name.
+	 *
+	 * @param resourceRegistry	IDs of the system's resources
+	 * @return					Copy of these options with the given registry
+	 */
+	public ManagerOptions withResourceRegistry (ResourceRegistry resourceRegistry) {
+		return new ManagerOptions(grantPolicy, shardCount, discoveryWindowMs, discoveryBatchSize, advertiseResources, loggingPolicy, localLogBatchSize, eventRing, resourceRegistry, negativeCacheTtlMs);
+	}
+
+	/**
+	 * Deny requests for a resource that discovery found to exist nowhere, without
+	 * discovering it again, for ttlMs milliseconds.  A resource created elsewhere within
+	 * that time is not found until the entry expires; 0 remembers nothing, so every
+	 * request for a missing resource is discovered afresh.
+	 *
+	 * @param ttlMs		Lifetime of an entry of each manager's NegativeCache, in milliseconds
+	 * @return			Copy of these options with the given lifetime
+	 */
+	public ManagerOptions withNegativeCacheTtl (long ttlMs) {
+		if (ttlMs < 0) {
+			throw new IllegalArgumentException("Negative cache lifetime must not be negative: " + ttlMs);
+		}
+		return new ManagerOptions(grantPolicy, shardCount, discoveryWindowMs, discoveryBatchSize, advertiseResources, loggingPolicy, localLogBatchSize, eventRing, resourceRegistry, ttlMs);
+	}
+
+	public AccessGrantPolicy getGrantPolicy () {
+		return grantPolicy;
+	}
+
+	public int getShardCount () {
+		return shardCount;
+	}
+
+	public long getDiscoveryWindowMs () {
+		return discoveryWindowMs;
+	}
+
+	public int getDiscoveryBatchSize () {
+		return discoveryBatchSize;
+	}
+
+	public boolean isAdvertisingResources () {
+		return advertiseResources;
+	}
+
+	public LoggingPolicy getLoggingPolicy () {
+		return loggingPolicy;
+	}
+
+	public int getLocalLogBatchSize () {
+		return localLogBatchSize;
+	}
+
+	/**
+	 * @return	Ring managers publish events to, or null if they send events to the logger
+	 */
+	public EventRing getEventRing () {
+		return eventRing;
+	}
+
+	/**
+	 * @return	IDs of the system's resources, as carried by requests, or null if requests carry none
+	 */
+	public ResourceRegistry getResourceRegistry () {
+		return resourceRegistry;
+	}
+
+	public long getNegativeCacheTtlMs () {
+		return negativeCacheTtlMs;
+	}
+
+	/**
+	 * @return	True if managers keep local event logs
+	 */
+	public boolean isLocalLogBuffered () {
+		return localLogBatchSize > 0;
+	}
+
+	/**
+	 * @return	True if discovery requests are coalesced into batches
+	 */
+	public boolean isDiscoveryBatched () {
+		return discoveryWindowMs > 0 && discoveryBatchSize > 1;
+	}
+}
@@ -0,0 +1,94 @@
+package cmsc433.p4.util;
+
+import java.util.HashMap;
+
+/**
+ * Cache of resource names recently found not to exist anywhere in the system.
+ *
+ * Entries expire after a fixed time-to-live, so a resource that appears later is
+ * eventually discovered even if no invalidation reaches this cache.  Managers take the
+ * time-to-live from ManagerOptions.withNegativeCacheTtl, and report the counts of hits
+ * and misses in answer to a ManagerStatsRequestMsg.  Expired entries
+ * are dropped lazily on lookup, and swept whenever the cache grows past its size
+ * bound.  Instances are owned by exactly one actor and must not be shared.
+ */
+public class NegativeCache {
+
+	public static final long DEFAULT_TTL_MS = 5000;		// Default lifetime of an entry
+	private static final int SWEEP_THRESHOLD = 4096;	// Size above which expired entries are swept
+
+	private final long ttlMs;
+	private final HashMap<String, Long> expiries = new HashMap<>();	// Resource name -> expiry time
+	private long hits = 0;
+	private long misses = 0;
+
+	/**
+	 * Create cache with default time-to-live.
+	 */
+	public NegativeCache () {
+		this(DEFAULT_TTL_MS);
+	}
+
+	/**
+	 * @param ttlMs	Lifetime of an entry, in milliseconds
+	 */
+	public NegativeCache (long ttlMs) {
+		this.ttlMs = ttlMs;
+	}
+
+	/**
+	 * Determine if the resource is known not to exist, counting a hit or a miss.
+	 *
+	 * @param resourceName	Name of resource
+	 * @return				True if resource was recently found not to exist
+	 */
+	public boolean contains (String resourceName) {
+		Long expiry = expiries.get(resourceName);
+		if (expiry != null && expiry <= System.currentTimeMillis()) {
+			expiries.remove(resourceName);
+			expiry = null;
+		}
+		if (expiry == null) {
+			misses++;
+			return false;
+		}
+		hits++;
+		return true;
+	}
+
+	/**
+	 * Record that the resource was found not to exist.
+	 *
+	 * @param resourceName	Name of resource
+	 */
+	public void add (String resourceName) {
+		long now = System.currentTimeMillis();
+		if (expiries.size() >= SWEEP_THRESHOLD) {
+			expiries.values().removeIf(expiry -> expiry <= now);
+		}
+		expiries.put(resourceName, now + ttlMs);
+	}
+
+	/**
+	 * Forget any entry for the resource, e.g. because it was created or advertised.
+	 *
+	 * @param resourceName	Name of resource
+	 */
+	public void invalidate (String resourceName) {
+		expiries.remove(resourceName);
+	}
+
+	/**
+	 * @return	Number of lookups answered from the cache
+	 */
+	public long getHits () {
+		return hits;
+	}
+
+	/**
+	 * @return	Number of lookups that required discovery
+	 */
+	public long getMisses () {
+		return misses;
+	}
+}
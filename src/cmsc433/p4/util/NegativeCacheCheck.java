@@ -0,0 +1,134 @@
+package cmsc433.p4.util;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import cmsc433.p4.actors.LoggerActor;
+import cmsc433.p4.actors.ResourceManagerActor;
+import cmsc433.p4.enums.AccessRequestDenialReason;
+import cmsc433.p4.enums.AccessRequestType;
+import cmsc433.p4.messages.AccessRequestDeniedMsg;
+import cmsc433.p4.messages.AccessRequestMsg;
+import cmsc433.p4.messages.AddInitialLocalResourcesRequestMsg;
+import cmsc433.p4.messages.AddRemoteManagersRequestMsg;
+import cmsc433.p4.messages.ManagerStatsRequestMsg;
+import cmsc433.p4.messages.ManagerStatsResponseMsg;
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Inbox;
+import akka.pattern.Patterns;
+import scala.concurrent.Await;
+import scala.concurrent.duration.Duration;
+import scala.concurrent.duration.FiniteDuration;
+
+/**
+ * Check that a manager's negative cache uses the lifetime given in its ManagerOptions,
+ * and that a ManagerStatsRequestMsg reports the cache's counts.
+ *
+ * Two managers are set up, one owning a resource and one owning none.  The second is
+ * asked REQUESTS times, one request at a time, for a resource neither owns.  The check
+ * fails, with an exception, unless every request is denied as not found and the second
+ * manager then reports:
+ * <ul>
+ * <li>with the default lifetime, one miss, for the discovery of the first request, and a
+ *     hit for every later request;</li>
+ * <li>with a lifetime of 0, a miss for every request, each discovered afresh.</li>
+ * </ul>
+ * Both are checked for single managers and for sharded managers, whose front must sum
+ * the counts of its shards.
+ *
+ */
+public class NegativeCacheCheck {
+
+	private static final int REQUESTS = 20;
+	private static final int SHARDS = 4;
+	private static final long TIMEOUT_MS = 10 * 1000L;	// Longest a manager may take to answer
+
+	private NegativeCacheCheck () {
+	}
+
+	private static void check (boolean condition, String message) {
+		if (!condition) {
+			throw new IllegalStateException(message);
+		}
+	}
+
+	/**
+	 * @param manager	Manager to ask
+	 * @param msg		Request to send
+	 * @return			Answer of manager
+	 * @throws Exception	Thrown if the manager does not answer in time
+	 */
+	private static Object ask (ActorRef manager, Object msg) throws Exception {
+		return Await.result(Patterns.ask(manager, msg, TIMEOUT_MS), Duration.Inf());
+	}
+
+	/**
+	 * Request a missing resource REQUESTS times from a manager set up with the given
+	 * options, and return the counts it then reports.
+	 *
+	 * @param system	Actor system to run in
+	 * @param options	Settings of both managers
+	 * @return			Counts reported by the manager asked
+	 * @throws Exception	Thrown if a manager does not answer in time
+	 */
+	private static ManagerStatsResponseMsg run (ActorSystem system, ManagerOptions options) throws Exception {
+		ActorRef logger = LoggerActor.makeLogger(system.deadLetters(), system);
+		ActorRef asked = ResourceManagerActor.makeResourceManager(logger, system, options);
+		ActorRef owner = ResourceManagerActor.makeResourceManager(logger, system, options);
+		try {
+			ArrayList<ActorRef> managers = new ArrayList<ActorRef>();
+			managers.add(asked);
+			managers.add(owner);
+			ask(asked, new AddInitialLocalResourcesRequestMsg(new ArrayList<Resource>()));
+			ask(owner, new AddInitialLocalResourcesRequestMsg(Systems.makeResources("Present", 1)));
+			AddRemoteManagersRequestMsg remotes = new AddRemoteManagersRequestMsg(managers);
+			ask(asked, remotes);
+			ask(owner, remotes);
+
+			Inbox user = Inbox.create(system);
+			FiniteDuration timeout = Duration.create(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+			for (int i = 0; i < REQUESTS; i++) {
+				AccessRequest request = new AccessRequest("Missing", AccessRequestType.CONCURRENT_READ_NONBLOCKING);
+				user.send(asked, new AccessRequestMsg(request, user.getRef(), i));
+				Object answer = user.receive(timeout);
+				check(answer instanceof AccessRequestDeniedMsg
+						&& ((AccessRequestDeniedMsg) answer).getReason() == AccessRequestDenialReason.RESOURCE_NOT_FOUND,
+						"Request " + i + " for a missing resource answered with " + answer);
+			}
+			return (ManagerStatsResponseMsg) ask(asked, new ManagerStatsRequestMsg());
+		} finally {
+			system.stop(asked);
+			system.stop(owner);
+			system.stop(logger);
+		}
+	}
+
+	/**
+	 * @param stats		Counts reported
+	 * @param hits		Hits expected
+	 * @param misses	Misses expected
+	 * @param what		Description of the managers
+	 */
+	private static void checkCounts (ManagerStatsResponseMsg stats, long hits, long misses, String what) {
+		check(stats.getNegativeCacheHits() == hits && stats.getNegativeCacheMisses() == misses,
+				String.format("%s reported %d hits and %d misses, not %d and %d", what,
+						stats.getNegativeCacheHits(), stats.getNegativeCacheMisses(), hits, misses));
+	}
+
+	public static void main (String[] args) throws Exception {
+		ActorSystem system = ActorSystem.create("NegativeCacheCheck");
+		try {
+			for (int shards : new int[] {1, SHARDS}) {
+				ManagerOptions options = new ManagerOptions().withShardCount(shards);
+				String what = (shards == 1) ? "Manager" : "Manager of " + shards + " shards";
+				checkCounts(run(system, options), REQUESTS - 1, 1, what);
+				checkCounts(run(system, options.withNegativeCacheTtl(0)), 0, REQUESTS, what + " without caching");
+			}
+			System.out.println(String.format("Negative cache checks passed:  %d requests for a missing resource, "
+					+ "single and %d-shard managers, default and zero lifetimes", REQUESTS, SHARDS));
+		} finally {
+			system.terminate();
+		}
+	}
+}
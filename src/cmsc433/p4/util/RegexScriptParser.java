@@ -0,0 +1,102 @@
+package cmsc433.p4.util;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.Scanner;
+
+import cmsc433.p4.enums.AccessRequestType;
+import cmsc433.p4.enums.AccessType;
+import cmsc433.p4.enums.ManagementRequestType;
+
+/**
+ * The parser UserScript used before ScriptParser:  a file is read line by line with a
+ * Scanner into a string, which is then split with regular expressions into lines,
+ * statements and words.  It is kept only as the reference that ScriptParser is checked
+ * against (ScriptParserCheck) and timed against (ScriptParserBenchmark).
+ *
+ */
+final class RegexScriptParser {
+
+	private RegexScriptParser () {
+	}
+
+	/**
+	 * Parse script text.
+	 *
+	 * @param script	Script text
+	 * @return			List of steps
+	 */
+	static ArrayList<ArrayList<Object>> parse (String script) {
+		ArrayList<ArrayList<Object>> result = new ArrayList<ArrayList<Object>> ();
+		
+		String[] lines = script.split("(\r|\n)+");
+		for (String line : lines) {
+			if (line.isEmpty()) 
+				continue;
+			
+			ArrayList<Object> thisLine = new ArrayList<Object> ();
+			
+			String[] statements = line.trim().split("\\|");
+			for (String statement : statements) {				
+				
+				String[] parts = statement.trim().split("\\s");
+				
+				if (parts.length < 2) 
+					throw new IllegalArgumentException("Script statement: " + statement + " did not have enough arguments\n\ton line: " + line);
+				
+				String command = parts[0];
+				String resource_name = parts[parts.length - 1];
+				
+				for (int i = 1; i < parts.length - 1; i++)
+					if (!parts[i].isEmpty())
+						throw new IllegalArgumentException("Script statement: " + statement + " had too many arguments\n\ton line: " + line);
+				
+				Object action;
+				if (command.equalsIgnoreCase("write-request-n")) {
+					action = new AccessRequest(resource_name, AccessRequestType.EXCLUSIVE_WRITE_NONBLOCKING); 
+				} else if (command.equalsIgnoreCase("write-request-b")) {
+					action = new AccessRequest(resource_name, AccessRequestType.EXCLUSIVE_WRITE_BLOCKING);
+				} else if (command.equalsIgnoreCase("read-request-n")) {
+					action = new AccessRequest(resource_name, AccessRequestType.CONCURRENT_READ_NONBLOCKING);
+				} else if (command.equalsIgnoreCase("read-request-b")) {
+					action = new AccessRequest(resource_name, AccessRequestType.CONCURRENT_READ_BLOCKING);
+				} else if (command.equalsIgnoreCase("write-release")) {
+					action = new AccessRelease(resource_name, AccessType.EXCLUSIVE_WRITE);
+				} else if (command.equalsIgnoreCase("read-release")) {
+					action = new AccessRelease(resource_name, AccessType.CONCURRENT_READ);
+				} else if (command.equalsIgnoreCase("enable")) {
+					action = new ManagementRequest(resource_name, ManagementRequestType.ENABLE);
+				} else if (command.equalsIgnoreCase("disable")) {
+					action = new ManagementRequest(resource_name, ManagementRequestType.DISABLE);
+				} else if (command.equalsIgnoreCase("sleep")) { 
+					action = new SleepStep (Long.parseLong(resource_name));
+				} else {
+					throw new IllegalArgumentException("Illegal command: " + command + "\n\ton the line: " + line);
+				}
+				thisLine.add(action);
+			}
+			result.add(thisLine);
+		}
+		return result;
+	}
+
+	/**
+	 * Parse a script file.
+	 *
+	 * @param filename	Name of script file
+	 * @return			List of steps
+	 * @throws FileNotFoundException	Thrown if file cannot be opened
+	 */
+	static ArrayList<ArrayList<Object>> parseFile (String filename) throws FileNotFoundException {
+		Scanner input = new Scanner (new File(filename));
+		StringBuilder str = new StringBuilder();
+		while (input.hasNext()) {
+			str.append(input.nextLine());
+			str.append('\n');
+		}
+		input.close();
+		
+		return parse(str.toString());
+	}
+}
@@ -0,0 +1,130 @@
+package cmsc433.p4.util;
+
+import java.util.HashMap;
+
+import cmsc433.p4.enums.AccessRequestType;
+import cmsc433.p4.enums.AccessType;
+import akka.actor.ActorRef;
+
+/**
+ * Reader / writer lock state of a single resource owned by a resource manager.
+ *
+ * At most one user may hold EXCLUSIVE_WRITE access at a time, and that user may
+ * also hold CONCURRENT_READ access.  Any number of users may hold CONCURRENT_READ
+ * access when no other user is writing.  Access is re-entrant:  each user keeps a
+ * hold count per access type, and must release once per grant.  Every operation
+ * runs in constant time regardless of how many users hold the resource.
+ *
+ * Instances are owned by exactly one actor and must not be shared.
+ */
+public class ResourceLockState {
+
+	private ActorRef writer = null;									// User holding write access, if any
+	private int writeHolds = 0;										// Re-entrant write hold count of writer
+	private final HashMap<ActorRef, Integer> readHolds = new HashMap<>();	// Re-entrant read hold counts per user
+
+	/**
+	 * Determines if the given request could be granted to the user right now.
+	 * Reads conflict only with another user's write; writes conflict with any
+	 * access held by another user.
+	 *
+	 * @param user	User making the request
+	 * @param type	Type of access requested
+	 * @return		True if the request does not conflict with other holders
+	 */
+	public boolean canGrant (ActorRef user, AccessRequestType type) {
+		boolean otherWriter = writer != null && !writer.equals(user);
+		if (type == AccessRequestType.CONCURRENT_READ_BLOCKING || type == AccessRequestType.CONCURRENT_READ_NONBLOCKING) {
+			return !otherWriter;
+		}
+		int ownReads = readHolds.containsKey(user) ? 1 : 0;
+		return !otherWriter && readHolds.size() == ownReads;
+	}
+
+	/**
+	 * Record a grant of the given request to the user.  Caller must have checked canGrant().
+	 *
+	 * @param user	User being granted access
+	 * @param type	Type of access granted
+	 */
+	public void grant (ActorRef user, AccessRequestType type) {
+		if (toAccessType(type) == AccessType.CONCURRENT_READ) {
+			readHolds.merge(user, 1, Integer::sum);
+		} else {
+			writer = user;
+			writeHolds++;
+		}
+	}
+
+	/**
+	 * Release one hold of the given access type by the user.
+	 *
+	 * @param user	User releasing access
+	 * @param type	Type of access being released
+	 * @return		True if the user held that access, false if the release should be ignored
+	 */
+	public boolean release (ActorRef user, AccessType type) {
+		if (type == AccessType.CONCURRENT_READ) {
+			Integer holds = readHolds.get(user);
+			if (holds == null) {
+				return false;
+			}
+			if (holds == 1) {
+				readHolds.remove(user);
+			} else {
+				readHolds.put(user, holds - 1);
+			}
+			return true;
+		} else {
+			if (writer == null || !writer.equals(user)) {
+				return false;
+			}
+			if (--writeHolds == 0) {
+				writer = null;
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * @param user	User to check
+	 * @return		True if the user holds any access to the resource
+	 */
+	public boolean isHeldBy (ActorRef user) {
+		return user.equals(writer) || readHolds.containsKey(user);
+	}
+
+	/**
+	 * @return	True if no user holds any access to the resource
+	 */
+	public boolean isFree () {
+		return writer == null && readHolds.isEmpty();
+	}
+
+	/**
+	 * @return	True if some user currently holds write access
+	 */
+	public boolean isWriteLocked () {
+		return writer != null;
+	}
+
+	/**
+	 * @return	Number of distinct users holding read access
+	 */
+	public int getReaderCount () {
+		return readHolds.size();
+	}
+
+	/**
+	 * Map a request type onto the access type it grants.
+	 *
+	 * @param type	Request type
+	 * @return		Access type granted by the request
+	 */
+	public static AccessType toAccessType (AccessRequestType type) {
+		if (type == AccessRequestType.CONCURRENT_READ_BLOCKING || type == AccessRequestType.CONCURRENT_READ_NONBLOCKING) {
+			return AccessType.CONCURRENT_READ;
+		}
+		return AccessType.EXCLUSIVE_WRITE;
+	}
+}
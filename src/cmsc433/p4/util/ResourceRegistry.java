@@ -0,0 +1,94 @@
+package cmsc433.p4.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Table of small integer IDs for resource names, built once when a system is set up.
+ *
+ * Systems.makeSystem registers the name of every resource in the system and gives the
+ * one registry to every manager and user (see ManagerOptions.withResourceRegistry and
+ * UserOptions.withResourceRegistry).  Users put the ID of the resource they name into
+ * each request and release they send, so managers find their tables for a resource by
+ * ID, without hashing its name.  Names that are not registered, such as misspelt names
+ * in scripts, have no ID; requests naming them carry NO_ID and are handled by name.
+ *
+ * Instances are immutable, and so may be shared by the actors of a system; names are
+ * never added to a registry once it is built.
+ */
+public final class ResourceRegistry {
+
+	public static final int NO_ID = -1;		// ID of a name that is not registered
+
+	private final HashMap<String, Integer> ids;		// Name -> ID
+	private final ArrayList<String> names;			// Names, by ID
+
+	/**
+	 * Create an empty registry.
+	 */
+	public ResourceRegistry () {
+		this(new HashMap<String, Integer>(), new ArrayList<String>());
+	}
+
+	/**
+	 * Create a registry of the given names, with IDs in the order the names are given.
+	 * A name given more than once is registered once.
+	 *
+	 * @param resourceNames	Names to register
+	 */
+	public ResourceRegistry (Iterable<String> resourceNames) {
+		this();
+		for (String name : resourceNames) {
+			register(name);
+		}
+	}
+
+	private ResourceRegistry (HashMap<String, Integer> ids, ArrayList<String> names) {
+		this.ids = ids;
+		this.names = names;
+	}
+
+	private void register (String resourceName) {
+		if (!ids.containsKey(resourceName)) {
+			ids.put(resourceName, names.size());
+			names.add(resourceName);
+		}
+	}
+
+	/**
+	 * @param resourceNames	Names to register
+	 * @return				Copy of this registry with the given names registered too, after
+	 * 						the names already registered, whose IDs are unchanged
+	 */
+	public ResourceRegistry withNames (Iterable<String> resourceNames) {
+		ResourceRegistry copy = new ResourceRegistry(new HashMap<String, Integer>(ids), new ArrayList<String>(names));
+		for (String name : resourceNames) {
+			copy.register(name);
+		}
+		return copy;
+	}
+
+	/**
+	 * @param resourceName	Name of resource
+	 * @return				ID of resource name, or NO_ID if the name is not registered
+	 */
+	public int idOf (String resourceName) {
+		Integer id = ids.get(resourceName);
+		return (id == null) ? NO_ID : id;
+	}
+
+	/**
+	 * @param id	ID of resource name
+	 * @return		Name with the given ID
+	 */
+	public String nameOf (int id) {
+		return names.get(id);
+	}
+
+	/**
+	 * @return	Number of names registered
+	 */
+	public int size () {
+		return names.size();
+	}
+}
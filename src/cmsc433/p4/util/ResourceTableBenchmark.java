@@ -0,0 +1,170 @@
+package cmsc433.p4.util;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+
+import cmsc433.p4.enums.AccessRequestType;
+import cmsc433.p4.messages.AccessRequestMsg;
+
+/**
+ * Microbenchmark of the local-resource tables of a manager:  tables keyed by resource
+ * name, as managers used to keep them, against IntMaps keyed by the ResourceRegistry ID
+ * that requests carry, as they keep them now.
+ *
+ * For a growing number of resources, each operation is what a manager does with a
+ * request for a local resource:  check the resource is local, then find the resource,
+ * its lock state, its wait queue and its pending disables.  Three ways are timed:
+ * <ul>
+ * <li>name:  five lookups keyed by the request's resource name;</li>
+ * <li>ID:  five IntMap lookups keyed by the ID the request carries;</li>
+ * <li>ID+send:  as ID, plus the registry lookup the sender makes to put the ID into
+ *     the request, so the cost is counted for the system as a whole.</li>
+ * </ul>
+ * Requests carry their own copies of the names, as requests from parsed scripts do, and
+ * are visited in turn.  Mean nanoseconds and bytes allocated per operation are printed.
+ *
+ */
+public class ResourceTableBenchmark {
+
+	private static final int[] RESOURCE_COUNTS = {10, 1000, 100000};
+	private static final int OPERATIONS_PER_RUN = 2000000;
+	private static final int WARMUP_RUNS = 3;
+	private static final int MEASURED_RUNS = 5;
+
+	private static volatile long sink;	// Results of timed work, kept so it cannot be optimized away
+
+	private interface Workload {
+		long run (ArrayList<AccessRequestMsg> requests, int operations);
+	}
+
+	/**
+	 * Tables of one manager, keyed by name.
+	 */
+	private static class ByName {
+		final HashMap<String, Resource> localResources = new HashMap<>();
+		final HashMap<String, ResourceLockState> lockStates = new HashMap<>();
+		final HashMap<String, Queue<Object>> waitQueues = new HashMap<>();
+		final HashMap<String, List<Object>> disableRequests = new HashMap<>();
+
+		ByName (ArrayList<Resource> resources) {
+			for (Resource r : resources) {
+				localResources.put(r.getName(), r);
+				lockStates.put(r.getName(), new ResourceLockState());
+				waitQueues.put(r.getName(), new LinkedList<Object>());
+				disableRequests.put(r.getName(), new LinkedList<Object>());
+			}
+		}
+	}
+
+	/**
+	 * Tables of one manager, keyed by registry ID.
+	 */
+	private static class ById {
+		final ResourceRegistry registry;
+		final IntMap<Resource> localResources = new IntMap<>();
+		final IntMap<ResourceLockState> lockStates = new IntMap<>();
+		final IntMap<Queue<Object>> waitQueues = new IntMap<>();
+		final IntMap<List<Object>> disableRequests = new IntMap<>();
+
+		ById (ResourceRegistry registry, ArrayList<Resource> resources) {
+			this.registry = registry;
+			for (Resource r : resources) {
+				int id = registry.idOf(r.getName());
+				localResources.put(id, r);
+				lockStates.put(id, new ResourceLockState());
+				waitQueues.put(id, new LinkedList<Object>());
+				disableRequests.put(id, new LinkedList<Object>());
+			}
+		}
+	}
+
+	private ResourceTableBenchmark () {
+	}
+
+	private static long lookupByName (ByName tables, ArrayList<AccessRequestMsg> requests, int operations) {
+		long check = 0;
+		for (int i = 0; i < operations; i++) {
+			String name = requests.get(i % requests.size()).getAccessRequest().getResourceName();
+			check += tables.localResources.containsKey(name) ? 1 : 0;
+			check += tables.localResources.get(name).getName().length();
+			check += tables.lockStates.get(name).isFree() ? 1 : 0;
+			check += tables.waitQueues.get(name).size();
+			check += tables.disableRequests.get(name).size();
+		}
+		return check;
+	}
+
+	private static long lookupById (ById tables, ArrayList<AccessRequestMsg> requests, int operations, boolean countSender) {
+		long check = 0;
+		for (int i = 0; i < operations; i++) {
+			AccessRequestMsg msg = requests.get(i % requests.size());
+			int id = countSender ? tables.registry.idOf(msg.getAccessRequest().getResourceName()) : msg.getResourceId();
+			check += tables.localResources.containsKey(id) ? 1 : 0;
+			check += tables.localResources.get(id).getName().length();
+			check += tables.lockStates.get(id).isFree() ? 1 : 0;
+			check += tables.waitQueues.get(id).size();
+			check += tables.disableRequests.get(id).size();
+		}
+		return check;
+	}
+
+	/**
+	 * @return	Bytes allocated so far by the current thread
+	 */
+	private static long allocatedBytes () {
+		return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+				.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	/**
+	 * @param workload	Work to time
+	 * @param requests	Requests to handle, in turn
+	 * @return			Mean nanoseconds and bytes allocated per operation over the measured runs
+	 */
+	private static double[] measure (Workload workload, ArrayList<AccessRequestMsg> requests) {
+		long check = 0;
+		for (int i = 0; i < WARMUP_RUNS; i++) {
+			check += workload.run(requests, OPERATIONS_PER_RUN);
+		}
+		long bytes = allocatedBytes();
+		long start = System.nanoTime();
+		for (int i = 0; i < MEASURED_RUNS; i++) {
+			check += workload.run(requests, OPERATIONS_PER_RUN);
+		}
+		long elapsed = System.nanoTime() - start;
+		bytes = allocatedBytes() - bytes;
+		sink += check;
+		double operations = (double) MEASURED_RUNS * OPERATIONS_PER_RUN;
+		return new double[] {elapsed / operations, bytes / operations};
+	}
+
+	public static void main (String[] args) {
+		System.out.println(String.format("%10s %12s %12s %12s %12s %12s %12s", "resources",
+				"name ns/op", "ID ns/op", "ID+send ns", "name B/op", "ID B/op", "ID+send B"));
+		for (int count : RESOURCE_COUNTS) {
+			ArrayList<Resource> resources = Systems.makeResources("Resource", count);
+			ArrayList<String> names = new ArrayList<String>(count);
+			for (Resource r : resources) {
+				names.add(r.getName());
+			}
+			ResourceRegistry registry = new ResourceRegistry(names);
+			ArrayList<AccessRequestMsg> requests = new ArrayList<AccessRequestMsg>(count);
+			for (Resource r : resources) {
+				requests.add(new AccessRequestMsg(new AccessRequest(new String(r.getName()), AccessRequestType.CONCURRENT_READ_BLOCKING),
+						null, 0, 0, registry.idOf(r.getName())));
+			}
+			final ByName byName = new ByName(resources);
+			final ById byId = new ById(registry, resources);
+
+			double[] name = measure((reqs, n) -> lookupByName(byName, reqs, n), requests);
+			double[] id = measure((reqs, n) -> lookupById(byId, reqs, n, false), requests);
+			double[] idSend = measure((reqs, n) -> lookupById(byId, reqs, n, true), requests);
+			System.out.println(String.format("%10d %12.1f %12.1f %12.1f %12.1f %12.1f %12.1f", count,
+					name[0], id[0], idSend[0], name[1], id[1], idSend[1]));
+		}
+	}
+}
@@ -0,0 +1,247 @@
+package cmsc433.p4.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Writer of batches of log text to a sequence of size-limited files, on a thread of its
+ * own.
+ *
+ * The logger hands over each batch and carries on; the writer thread encodes batches
+ * into a reused direct buffer and writes them with a file channel.  Whatever batches
+ * have queued up while a write was in progress are written as one group, so under load
+ * there are far fewer writes (and, when syncing, forces) than batches.  At most
+ * queuedBatches batches wait to be written; beyond that, write() waits for the writer,
+ * so memory use stays bounded however long the run.
+ *
+ * write(), flush() and close() must be called from a single thread.
+ */
+public class RotatingLogWriter {
+
+	private static final Object CLOSE = new Object();	// Queue entry telling the writer thread to finish
+
+	private final LogSinkOptions options;
+	private final ArrayBlockingQueue<Object> queue;		// Batches (String) and flush requests (CountDownLatch)
+	private final Thread thread;						// Writer thread
+	private volatile IOException failure = null;		// First error of the writer thread, if any
+	private boolean closed = false;
+
+	// Owned by the writer thread until it has finished
+	private final ArrayList<String> files = new ArrayList<String>();	// Files written, in order
+	private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+	private ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);	// Encoded text awaiting writing
+	private FileChannel channel = null;				// Current file
+	private long fileBytes = 0;						// Size of current file
+	private long bytesWritten = 0;					// Size of all files
+
+	/**
+	 * Create writer and start its thread.  No file is created until the first batch.
+	 *
+	 * @param options	Where and how to write
+	 */
+	public RotatingLogWriter (LogSinkOptions options) {
+		this.options = options;
+		this.queue = new ArrayBlockingQueue<Object>(options.getQueuedBatches() + 1);
+		this.thread = new Thread(this::run, "log-writer-" + options.getBaseName());
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	/**
+	 * Queue a batch of text for writing, waiting if the queue is full.
+	 *
+	 * @param batch		Text of complete log lines
+	 * @throws IOException	Thrown if the writer has failed or been closed
+	 */
+	public void write (String batch) throws IOException {
+		enqueue(batch);
+	}
+
+	/**
+	 * Wait until every batch queued so far has been written.
+	 *
+	 * @throws IOException	Thrown if the writer has failed or been closed
+	 */
+	public void flush () throws IOException {
+		CountDownLatch done = new CountDownLatch(1);
+		enqueue(done);
+		try {
+			done.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while flushing log", e);
+		}
+		checkFailure();
+	}
+
+	/**
+	 * Write every queued batch, close the current file and stop the writer thread.
+	 *
+	 * @throws IOException	Thrown if the writer has failed
+	 */
+	public void close () throws IOException {
+		if (closed) {
+			return;
+		}
+		enqueue(CLOSE);
+		closed = true;
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while closing log", e);
+		}
+		checkFailure();
+	}
+
+	/**
+	 * @return	Files written so far, in order.  Only valid after flush() or close().
+	 */
+	public ArrayList<String> getFiles () {
+		return new ArrayList<String>(files);
+	}
+
+	/**
+	 * @return	Bytes written so far.  Only valid after flush() or close().
+	 */
+	public long getBytesWritten () {
+		return bytesWritten;
+	}
+
+	private void enqueue (Object entry) throws IOException {
+		if (closed) {
+			throw new IOException("Log writer is closed");
+		}
+		checkFailure();
+		try {
+			queue.put(entry);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while queueing log batch", e);
+		}
+	}
+
+	private void checkFailure () throws IOException {
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	// ---- Writer thread ----
+
+	private void run () {
+		ArrayList<Object> group = new ArrayList<Object>();
+		boolean done = false;
+		while (!done) {
+			try {
+				group.add(queue.take());
+			} catch (InterruptedException e) {
+				break;
+			}
+			queue.drainTo(group);
+			// After a failure, batches are dropped, but flushes and closing still complete
+			for (Object entry : group) {
+				try {
+					if (failure == null) {
+						if (entry instanceof String) {
+							writeBatch((String) entry);
+						} else {
+							finishGroup();
+						}
+					}
+				} catch (IOException e) {
+					failure = e;
+				}
+				if (entry instanceof CountDownLatch) {
+					((CountDownLatch) entry).countDown();
+				}
+				done |= (entry == CLOSE);
+			}
+			try {
+				if (failure == null) {
+					finishGroup();
+				}
+			} catch (IOException e) {
+				failure = e;
+			}
+			group.clear();
+		}
+		try {
+			closeFile();
+		} catch (IOException e) {
+			if (failure == null) {
+				failure = e;
+			}
+		}
+	}
+
+	/**
+	 * Encode a batch into the buffer, writing the buffer out whenever it fills.  A new
+	 * file is started first if the batch would take the current one past its limit.
+	 */
+	private void writeBatch (String batch) throws IOException {
+		long batchBytes = batch.length();	// Exact for ASCII text, which log lines almost always are
+		if (channel == null || (fileBytes > 0 && fileBytes + buffer.position() + batchBytes > options.getMaxFileBytes())) {
+			finishGroup();
+			closeFile();
+			openFile();
+		}
+		CharBuffer chars = CharBuffer.wrap(batch);
+		encoder.reset();
+		CoderResult result;
+		while ((result = encoder.encode(chars, buffer, true)).isOverflow()) {
+			drainBuffer();
+		}
+		if (result.isError()) {
+			result.throwException();
+		}
+		while (encoder.flush(buffer).isOverflow()) {
+			drainBuffer();
+		}
+	}
+
+	/**
+	 * Write out whatever the buffer holds, and force the file to disk if syncing.
+	 */
+	private void finishGroup () throws IOException {
+		drainBuffer();
+		if (channel != null && options.isSync()) {
+			channel.force(false);
+		}
+	}
+
+	private void drainBuffer () throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			int n = channel.write(buffer);
+			fileBytes += n;
+			bytesWritten += n;
+		}
+		buffer.clear();
+	}
+
+	private void openFile () throws IOException {
+		String name = options.fileName(files.size());
+		channel = FileChannel.open(Paths.get(name), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+		files.add(name);
+		fileBytes = 0;
+	}
+
+	private void closeFile () throws IOException {
+		if (channel != null) {
+			channel.close();
+			channel = null;
+		}
+	}
+}
@@ -0,0 +1,264 @@
+package cmsc433.p4.util;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import cmsc433.p4.enums.AccessRequestType;
+import cmsc433.p4.enums.AccessType;
+import cmsc433.p4.enums.ManagementRequestType;
+
+/**
+ * Hand-written parser for the text grammar of user scripts (see UserScript.fromString).
+ *
+ * The parser works directly on UTF-8 encoded bytes, so a script file can be parsed from a
+ * memory-mapped buffer without first being copied into a string and split with regular
+ * expressions.  Only resource names and error messages are ever decoded.  Names are shared
+ * between all requests of one parse, so a name repeated throughout a script is stored once.
+ *
+ * Instances parse a single buffer and must not be shared.
+ */
+final class ScriptParser {
+
+	private final ByteBuffer buf;									// Script text, UTF-8 encoded
+	private final HashMap<String, String> names = new HashMap<>();	// Resource names seen so far
+	private byte[] scratch = new byte[64];							// Buffer for decoding names
+
+	/**
+	 * @param buf	Script text, UTF-8 encoded, from position to limit
+	 */
+	ScriptParser (ByteBuffer buf) {
+		this.buf = buf;
+	}
+
+	/**
+	 * Parse script text.
+	 *
+	 * @param text	Script text
+	 * @return		List of steps
+	 */
+	static ArrayList<ArrayList<Object>> parse (String text) {
+		return new ScriptParser(ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8))).parseSteps();
+	}
+
+	/**
+	 * Parse a single non-empty line of script text.
+	 *
+	 * @param line	Line of script, without line terminator
+	 * @return		Step containing one request per statement on the line
+	 */
+	static ArrayList<Object> parseLine (String line) {
+		byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+		return new ScriptParser(ByteBuffer.wrap(bytes)).parseLine(0, bytes.length);
+	}
+
+	/**
+	 * Parse a script file by memory-mapping it.  Files must be smaller than 2GB; larger
+	 * scripts should be streamed with UserScript.streamFromFile.
+	 *
+	 * @param filename	Name of script file
+	 * @return			List of steps
+	 * @throws FileNotFoundException	Thrown if file cannot be opened
+	 */
+	static ArrayList<ArrayList<Object>> parseFile (String filename) throws FileNotFoundException {
+		try (RandomAccessFile file = new RandomAccessFile(filename, "r")) {
+			FileChannel channel = file.getChannel();
+			return new ScriptParser(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())).parseSteps();
+		} catch (FileNotFoundException e) {
+			throw e;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Parse every line of the buffer.  Lines are separated by runs of CR / LF characters,
+	 * and empty lines are skipped.
+	 *
+	 * @return	List of steps
+	 */
+	ArrayList<ArrayList<Object>> parseSteps () {
+		ArrayList<ArrayList<Object>> steps = new ArrayList<ArrayList<Object>>();
+		int end = buf.limit();
+		int pos = buf.position();
+		while (pos < end) {
+			int lineEnd = pos;
+			while (lineEnd < end && buf.get(lineEnd) != '\n' && buf.get(lineEnd) != '\r') {
+				lineEnd++;
+			}
+			if (lineEnd > pos) {
+				steps.add(parseLine(pos, lineEnd));
+			}
+			pos = lineEnd + 1;
+		}
+		return steps;
+	}
+
+	/**
+	 * Parse one non-empty line into a step.  Statements are separated by '|'; as with
+	 * String.split, separators at the end of the line are ignored.
+	 *
+	 * @param lineStart		Index of first byte of line
+	 * @param lineEnd		Index after last byte of line
+	 * @return				Step containing one request per statement on the line
+	 */
+	private ArrayList<Object> parseLine (int lineStart, int lineEnd) {
+		ArrayList<Object> step = new ArrayList<Object>();
+		int s = skipBlanks(lineStart, lineEnd);
+		int e = trimBlanks(s, lineEnd);
+		if (s == e) {
+			parseStatement(s, e, lineStart, lineEnd);	// Reports the error
+		}
+		while (e > s && buf.get(e - 1) == '|') {
+			e--;
+		}
+		int statementStart = s;
+		while (statementStart < e) {
+			int statementEnd = statementStart;
+			while (statementEnd < e && buf.get(statementEnd) != '|') {
+				statementEnd++;
+			}
+			step.add(parseStatement(statementStart, statementEnd, lineStart, lineEnd));
+			statementStart = statementEnd + 1;
+		}
+		return step;
+	}
+
+	/**
+	 * Parse one statement, consisting of a command and an argument separated by whitespace.
+	 *
+	 * @param start			Index of first byte of statement
+	 * @param end			Index after last byte of statement
+	 * @param lineStart		Index of first byte of line, for error messages
+	 * @param lineEnd		Index after last byte of line, for error messages
+	 * @return				Request described by statement
+	 */
+	private Object parseStatement (int start, int end, int lineStart, int lineEnd) {
+		int commandStart = skipBlanks(start, end);
+		int argumentEnd = trimBlanks(commandStart, end);
+		int commandEnd = commandStart;
+		while (commandEnd < argumentEnd && !isSpace(buf.get(commandEnd))) {
+			commandEnd++;
+		}
+		int argumentStart = commandEnd;
+		while (argumentStart < argumentEnd && isSpace(buf.get(argumentStart))) {
+			argumentStart++;
+		}
+		if (argumentStart == argumentEnd) {
+			throw new IllegalArgumentException("Script statement: " + decode(start, end) + " did not have enough arguments\n\ton line: " + decode(lineStart, lineEnd));
+		}
+		for (int i = argumentStart; i < argumentEnd; i++) {
+			if (isSpace(buf.get(i))) {
+				throw new IllegalArgumentException("Script statement: " + decode(start, end) + " had too many arguments\n\ton line: " + decode(lineStart, lineEnd));
+			}
+		}
+
+		if (commandIs(commandStart, commandEnd, "write-request-n")) {
+			return new AccessRequest(name(argumentStart, argumentEnd), AccessRequestType.EXCLUSIVE_WRITE_NONBLOCKING);
+		} else if (commandIs(commandStart, commandEnd, "write-request-b")) {
+			return new AccessRequest(name(argumentStart, argumentEnd), AccessRequestType.EXCLUSIVE_WRITE_BLOCKING);
+		} else if (commandIs(commandStart, commandEnd, "read-request-n")) {
+			return new AccessRequest(name(argumentStart, argumentEnd), AccessRequestType.CONCURRENT_READ_NONBLOCKING);
+		} else if (commandIs(commandStart, commandEnd, "read-request-b")) {
+			return new AccessRequest(name(argumentStart, argumentEnd), AccessRequestType.CONCURRENT_READ_BLOCKING);
+		} else if (commandIs(commandStart, commandEnd, "write-release")) {
+			return new AccessRelease(name(argumentStart, argumentEnd), AccessType.EXCLUSIVE_WRITE);
+		} else if (commandIs(commandStart, commandEnd, "read-release")) {
+			return new AccessRelease(name(argumentStart, argumentEnd), AccessType.CONCURRENT_READ);
+		} else if (commandIs(commandStart, commandEnd, "enable")) {
+			return new ManagementRequest(name(argumentStart, argumentEnd), ManagementRequestType.ENABLE);
+		} else if (commandIs(commandStart, commandEnd, "disable")) {
+			return new ManagementRequest(name(argumentStart, argumentEnd), ManagementRequestType.DISABLE);
+		} else if (commandIs(commandStart, commandEnd, "sleep")) {
+			return new SleepStep(Long.parseLong(decode(argumentStart, argumentEnd)));
+		} else {
+			throw new IllegalArgumentException("Illegal command: " + decode(commandStart, commandEnd) + "\n\ton the line: " + decode(lineStart, lineEnd));
+		}
+	}
+
+	/**
+	 * @param start		Index of first byte of command
+	 * @param end		Index after last byte of command
+	 * @param command	Lower-case command name
+	 * @return			True if the bytes spell the command, ignoring case
+	 */
+	private boolean commandIs (int start, int end, String command) {
+		if (end - start != command.length()) {
+			return false;
+		}
+		for (int i = 0; i < command.length(); i++) {
+			int b = buf.get(start + i);
+			if (b >= 'A' && b <= 'Z') {
+				b += 'a' - 'A';
+			}
+			if (b != command.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @param start		Index of first byte of name
+	 * @param end		Index after last byte of name
+	 * @return			Resource name, shared with earlier occurrences of the same name
+	 */
+	private String name (int start, int end) {
+		String name = decode(start, end);
+		String shared = names.putIfAbsent(name, name);
+		return (shared != null) ? shared : name;
+	}
+
+	/**
+	 * @param start		Index of first byte
+	 * @param end		Index after last byte
+	 * @return			Bytes decoded as UTF-8
+	 */
+	private String decode (int start, int end) {
+		int length = end - start;
+		if (buf.hasArray()) {
+			return new String(buf.array(), buf.arrayOffset() + start, length, StandardCharsets.UTF_8);
+		}
+		if (scratch.length < length) {
+			scratch = new byte[Math.max(length, 2 * scratch.length)];
+		}
+		for (int i = 0; i < length; i++) {
+			scratch[i] = buf.get(start + i);
+		}
+		return new String(scratch, 0, length, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * @return	Index of first byte in range that String.trim() would keep, or end
+	 */
+	private int skipBlanks (int start, int end) {
+		while (start < end && (buf.get(start) & 0xff) <= ' ') {
+			start++;
+		}
+		return start;
+	}
+
+	/**
+	 * @return	Index after last byte in range that String.trim() would keep, or start
+	 */
+	private int trimBlanks (int start, int end) {
+		while (end > start && (buf.get(end - 1) & 0xff) <= ' ') {
+			end--;
+		}
+		return end;
+	}
+
+	/**
+	 * @param b		Byte of script
+	 * @return		True if b is a whitespace character, as matched by the regular expression \s
+	 */
+	private static boolean isSpace (byte b) {
+		return b == ' ' || b == '\t' || b == '\n' || b == 0x0B || b == '\f' || b == '\r';
+	}
+}
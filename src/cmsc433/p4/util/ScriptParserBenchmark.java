@@ -0,0 +1,58 @@
+package cmsc433.p4.util;
+
+import java.io.File;
+import java.util.ArrayList;
+
+/**
+ * Benchmark of loading a large script:  with the regular-expression parser scripts were
+ * read with before (RegexScriptParser), with ScriptParser over a memory-mapped file, as
+ * UserScript.fromFile now does, and from the precompiled binary form, as
+ * UserScript.fromBinaryFile does.  Each is run several times to warm up, then timed.
+ *
+ */
+public class ScriptParserBenchmark {
+
+	private static final int LINES = 300000;
+	private static final int WARMUP_RUNS = 3;
+	private static final int MEASURED_RUNS = 5;
+
+	private static volatile long sink;	// Sizes of scripts loaded, kept so loading cannot be optimized away
+
+	private interface Loader {
+		ArrayList<ArrayList<Object>> load () throws Exception;
+	}
+
+	private ScriptParserBenchmark () {
+	}
+
+	/**
+	 * @param loader	Way of loading the script
+	 * @return			Mean milliseconds per load over the measured runs
+	 * @throws Exception	Thrown if loading fails
+	 */
+	private static double measure (Loader loader) throws Exception {
+		for (int i = 0; i < WARMUP_RUNS; i++) {
+			sink += loader.load().size();
+		}
+		long start = System.nanoTime();
+		for (int i = 0; i < MEASURED_RUNS; i++) {
+			sink += loader.load().size();
+		}
+		return (System.nanoTime() - start) / 1e6 / MEASURED_RUNS;
+	}
+
+	public static void main (String[] args) throws Exception {
+		final String text = ScriptParserCheck.generateScript(LINES).getPath();
+		File binaryFile = File.createTempFile("script", ".bin");
+		binaryFile.deleteOnExit();
+		final String binary = binaryFile.getPath();
+		BinaryScriptFormat.write(ScriptParser.parseFile(text), binary);
+
+		System.out.println(String.format("%d-line script, %d bytes of text, %d bytes of binary", LINES,
+				new File(text).length(), binaryFile.length()));
+		System.out.println(String.format("%-20s %10s", "loader", "ms/load"));
+		System.out.println(String.format("%-20s %10.1f", "regex", measure(() -> RegexScriptParser.parseFile(text))));
+		System.out.println(String.format("%-20s %10.1f", "mapped text", measure(() -> ScriptParser.parseFile(text))));
+		System.out.println(String.format("%-20s %10.1f", "binary", measure(() -> BinaryScriptFormat.read(binary))));
+	}
+}
@@ -0,0 +1,169 @@
+package cmsc433.p4.util;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.Callable;
+
+/**
+ * Check that ScriptParser reads scripts exactly as the regular-expression parser it
+ * replaced (RegexScriptParser) did, and that the binary format reproduces what it reads.
+ *
+ * Every script is parsed by both parsers, which must return the same steps, or throw
+ * exceptions of the same class with the same message.  Scripts checked are:
+ * <ul>
+ * <li>short texts covering the edge cases of the grammar:  blank and CR/LF lines,
+ *     leading, trailing and repeated separators, runs of blanks, case, and errors;</li>
+ * <li>the script files named on the command line or, if none are, the script files
+ *     Main reads that are present in the working directory;</li>
+ * <li>a generated script file using every command.</li>
+ * </ul>
+ * Each file is also written with BinaryScriptFormat and read back.  The check throws
+ * an exception at the first difference.
+ *
+ */
+public class ScriptParserCheck {
+
+	private static final String[] MAIN_SCRIPTS = {"test1script1new.txt", "test1script2new.txt", "test2script.txt",
+			"test3script1.txt", "test3script2.txt"};
+
+	private static final String[] TEXTS = {
+		"",
+		"\n\n\r\n",
+		"read-request-b Printer_0",
+		"READ-REQUEST-B Printer_0\r\nread-release Printer_0\r\n",
+		"write-request-n A | write-request-b B | sleep 100\nwrite-release A|write-release B",
+		"  enable   X  \n\tdisable\tX\t",
+		"read-request-n A |",
+		"read-request-n A ||",
+		"read-request-n A | | read-release A",
+		"| read-request-n A",
+		"read-request-n",
+		"read-request-n A B",
+		"frobnicate A",
+		"sleep soon",
+		"sleep 10 | sleep 20\n\n\nsleep 5",
+		"read-request-b Caf\u00e9 | read-release Caf\u00e9",
+	};
+
+	private ScriptParserCheck () {
+	}
+
+	/**
+	 * @param parse	Parse to run
+	 * @return		Description of the steps parsed, or of the exception thrown
+	 */
+	private static String outcome (Callable<ArrayList<ArrayList<Object>>> parse) {
+		try {
+			return describe(parse.call());
+		} catch (Exception e) {
+			return "error: " + e.getClass().getName() + ": " + e.getMessage();
+		}
+	}
+
+	/**
+	 * @param steps	Steps of a script
+	 * @return		Description of every request and sleep, step by step
+	 */
+	private static String describe (ArrayList<ArrayList<Object>> steps) {
+		StringBuilder sb = new StringBuilder();
+		for (ArrayList<Object> step : steps) {
+			for (Object o : step) {
+				sb.append(o.getClass().getSimpleName()).append(' ');
+				sb.append((o instanceof SleepStep) ? Long.toString(((SleepStep) o).getDurationMs()) : o.toString());
+				sb.append(" | ");
+			}
+			sb.append('\n');
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * @param what		Name of script checked
+	 * @param expected	Outcome of the reference parse
+	 * @param actual	Outcome of the parse being checked
+	 */
+	private static void checkSame (String what, String expected, String actual) {
+		if (!expected.equals(actual)) {
+			throw new IllegalStateException("Scripts differ for " + what + "\nexpected:\n" + expected + "\nactual:\n" + actual);
+		}
+	}
+
+	/**
+	 * Parse a script file with both parsers, and read it back from binary form.
+	 *
+	 * @param filename	Name of script file
+	 * @throws IOException	Thrown if the binary form cannot be written
+	 */
+	private static void checkFile (final String filename) throws IOException {
+		String expected = outcome(() -> RegexScriptParser.parseFile(filename));
+		checkSame(filename, expected, outcome(() -> ScriptParser.parseFile(filename)));
+		if (!expected.startsWith("error: ")) {
+			File binary = File.createTempFile("script", ".bin");
+			binary.deleteOnExit();
+			BinaryScriptFormat.write(ScriptParser.parseFile(filename), binary.getPath());
+			checkSame(filename + " (binary)", expected, outcome(() -> BinaryScriptFormat.read(binary.getPath())));
+		}
+		System.out.println("ok  " + filename);
+	}
+
+	/**
+	 * @param lines		Number of lines
+	 * @return			Generated script file using every command, with a random number of
+	 * 					statements per line and irregular spacing
+	 * @throws IOException	Thrown if the file cannot be written
+	 */
+	static File generateScript (int lines) throws IOException {
+		String[] commands = {"write-request-n", "write-request-b", "read-request-n", "read-request-b",
+				"write-release", "read-release", "enable", "disable", "sleep"};
+		String[] gaps = {" ", "  ", "\t", " \t "};
+		Random random = new Random(0);
+		File file = File.createTempFile("script", ".txt");
+		file.deleteOnExit();
+		try (Writer out = new FileWriter(file)) {
+			for (int i = 0; i < lines; i++) {
+				int statements = 1 + random.nextInt(3);
+				for (int s = 0; s < statements; s++) {
+					if (s > 0) {
+						out.write(gaps[random.nextInt(gaps.length)].substring(1) + "|" + gaps[random.nextInt(gaps.length)]);
+					}
+					String command = commands[random.nextInt(commands.length)];
+					String argument = command.equals("sleep") ? Integer.toString(random.nextInt(1000))
+							: "Resource_" + random.nextInt(100);
+					out.write(command + gaps[random.nextInt(gaps.length)] + argument);
+				}
+				out.write((random.nextInt(10) == 0) ? "\r\n\n" : "\n");
+			}
+		}
+		return file;
+	}
+
+	public static void main (String[] args) throws Exception {
+		for (final String text : TEXTS) {
+			String what = "\"" + text.replace("\n", "\\n").replace("\r", "\\r").replace("\t", "\\t") + "\"";
+			checkSame(what, outcome(() -> RegexScriptParser.parse(text)), outcome(() -> ScriptParser.parse(text)));
+			System.out.println("ok  " + what);
+		}
+
+		ArrayList<String> files = new ArrayList<String>();
+		if (args.length > 0) {
+			for (String a : args) {
+				files.add(a);
+			}
+		} else {
+			for (String f : MAIN_SCRIPTS) {
+				if (new File(f).isFile()) {
+					files.add(f);
+				}
+			}
+		}
+		files.add(generateScript(10000).getPath());
+		for (String f : files) {
+			checkFile(f);
+		}
+		System.out.println("ScriptParser matches RegexScriptParser on " + TEXTS.length + " texts and " + files.size() + " files");
+	}
+}
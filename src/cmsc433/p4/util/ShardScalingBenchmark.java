@@ -0,0 +1,42 @@
+package cmsc433.p4.util;
+
+import akka.actor.ActorSystem;
+import com.typesafe.config.ConfigFactory;
+
+/**
+ * Benchmark of how a sharded manager's throughput grows with its shard count.  Load
+ * generators offer more load than a single actor can handle to one manager owning many
+ * resources, so requests for different resources can proceed on different shards.  A
+ * row of throughput and latency is printed for each shard count; throughput can grow
+ * only up to the number of cores.
+ *
+ */
+public class ShardScalingBenchmark {
+
+	private static final int[] SHARD_COUNTS = {1, 2, 4, 8};
+	private static final int RESOURCES = 1024;
+	private static final int GENERATORS = 8;
+	private static final double RATE_PER_GENERATOR = 50000;	// Requests per second
+	private static final long DURATION_MS = 3000;
+
+	private ShardScalingBenchmark () {
+	}
+
+	public static void main (String[] args) throws Exception {
+		ActorSystem system = ActorSystem.create("ShardScalingBenchmark",
+				ConfigFactory.parseString("akka.log-dead-letters = off").withFallback(ConfigFactory.load()));
+		LoadProfile profile = new LoadProfile(RATE_PER_GENERATOR, DURATION_MS);
+		try {
+			LoadRunner.run(system, new ManagerOptions(), RESOURCES, GENERATORS, profile);	// Warm up
+			System.out.println(String.format("%-8s %6s ", "shards", "cores") + LoadRunner.Result.header());
+			int cores = Runtime.getRuntime().availableProcessors();
+			for (int shards : SHARD_COUNTS) {
+				LoadRunner.Result result = LoadRunner.run(system, new ManagerOptions().withShardCount(shards),
+						RESOURCES, GENERATORS, profile);
+				System.out.println(String.format("%-8d %6d ", shards, cores) + result);
+			}
+		} finally {
+			system.terminate();
+		}
+	}
+}
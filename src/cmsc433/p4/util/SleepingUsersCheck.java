@@ -0,0 +1,102 @@
+package cmsc433.p4.util;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+
+import cmsc433.p4.actors.SimulationManagerActor;
+import cmsc433.p4.enums.AccessRequestType;
+import cmsc433.p4.enums.AccessType;
+import cmsc433.p4.messages.LogMsg;
+import cmsc433.p4.messages.SimulationFinishMsg;
+import cmsc433.p4.messages.SimulationStartMsg;
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.pattern.Patterns;
+import scala.concurrent.Await;
+import scala.concurrent.duration.Duration;
+
+/**
+ * Check that sleeping users do not hold threads:  10,000 users all sleep at once, then
+ * read and release a shared resource.  Were each sleep to block a dispatcher thread,
+ * the sleeps would run a few at a time and the simulation would take many times the
+ * length of one sleep.  The check fails, with an exception, unless every user
+ * terminates within a small multiple of the sleep and the JVM starts no more than a
+ * bounded number of threads while the simulation runs.
+ *
+ */
+public class SleepingUsersCheck {
+
+	private static final int USERS = 10000;
+	private static final long SLEEP_MS = 1000;
+	private static final long MAX_ELAPSED_MS = 10 * SLEEP_MS;	// Blocking sleeps would take USERS / threads * SLEEP_MS
+	private static final int MAX_NEW_THREADS = 100;				// Dispatcher, scheduler and a margin, whatever the user count
+
+	private SleepingUsersCheck () {
+	}
+
+	/**
+	 * @param resourceName	Resource to read
+	 * @return				Script sleeping, then reading and releasing the resource
+	 */
+	private static UserScript makeScript (String resourceName) {
+		ArrayList<ArrayList<Object>> steps = new ArrayList<ArrayList<Object>>();
+		ArrayList<Object> sleep = new ArrayList<Object>();
+		sleep.add(new SleepStep(SLEEP_MS));
+		steps.add(sleep);
+		ArrayList<Object> read = new ArrayList<Object>();
+		read.add(new AccessRequest(resourceName, AccessRequestType.CONCURRENT_READ_BLOCKING));
+		steps.add(read);
+		ArrayList<Object> release = new ArrayList<Object>();
+		release.add(new AccessRelease(resourceName, AccessType.CONCURRENT_READ));
+		steps.add(release);
+		return new UserScript(steps);
+	}
+
+	private static void check (boolean condition, String failure) {
+		if (!condition) {
+			throw new IllegalStateException(failure);
+		}
+	}
+
+	public static void main (String[] args) throws Exception {
+		ArrayList<Resource> resources = Systems.makeResources("Shared", 1);
+		ArrayList<UserScript> scripts = new ArrayList<UserScript>(USERS);
+		for (int i = 0; i < USERS; i++) {
+			scripts.add(makeScript(resources.get(0).getName()));
+		}
+		ArrayList<NodeSpecification> nodes = new ArrayList<NodeSpecification>();
+		nodes.add(new NodeSpecification(resources, scripts));
+
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		ActorSystem system = ActorSystem.create("SleepingUsersCheck");
+		SimulationFinishMsg result;
+		long elapsedMs;
+		int newThreads;
+		try {
+			threads.resetPeakThreadCount();
+			int threadsBefore = threads.getThreadCount();
+			long start = System.nanoTime();
+			ActorRef simulationManager = SimulationManagerActor.makeSimulationManager(nodes, system);
+			result = (SimulationFinishMsg) Await.result(
+					Patterns.ask(simulationManager, new SimulationStartMsg(), 60 * 1000L), Duration.Inf());
+			elapsedMs = (System.nanoTime() - start) / 1000000;
+			newThreads = threads.getPeakThreadCount() - threadsBefore;
+		} finally {
+			system.terminate();
+		}
+		// The log may still grow until the actor system has shut down
+		Await.ready(system.whenTerminated(), Duration.Inf());
+
+		int terminated = 0;
+		for (Object o : result.getLog()) {
+			if (o instanceof LogMsg && ((LogMsg) o).getType() == LogMsg.EventType.USER_TERMINATE) {
+				terminated++;
+			}
+		}
+		System.out.println(String.format("%d users terminated in %d ms, %d threads started", terminated, elapsedMs, newThreads));
+		check(terminated == USERS, "Only " + terminated + " of " + USERS + " users terminated");
+		check(elapsedMs <= MAX_ELAPSED_MS, "Users took " + elapsedMs + " ms, more than " + MAX_ELAPSED_MS);
+		check(newThreads <= MAX_NEW_THREADS, newThreads + " threads started, more than " + MAX_NEW_THREADS);
+	}
+}
@@ -0,0 +1,150 @@
+package cmsc433.p4.util;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import cmsc433.p4.enums.AccessRequestType;
+import cmsc433.p4.enums.AccessType;
+import cmsc433.p4.enums.ManagementRequestType;
+import cmsc433.p4.enums.ScriptMix;
+
+/**
+ * One point of a parameter sweep:  the shape of a simulated system and the kind of
+ * scripts its users run.
+ * 
+ * Every node has the same number of resources and users.  Users pick resources from
+ * the whole system uniformly at random, so most requests are for remote resources
+ * once there are several nodes.
+ * 
+ * Instances are immutable.  Each call to makeNodes() creates fresh resources and
+ * scripts, so one configuration may be simulated many times, concurrently.
+ */
+public class SweepConfiguration {
+
+	private final int nodeCount;			// Number of nodes, each with its own manager
+	private final int resourcesPerNode;		// Number of resources local to each node
+	private final int usersPerNode;			// Number of users local to each node
+	private final int stepsPerUser;			// Number of steps in each user's script
+	private final ScriptMix mix;			// Kind of requests users make
+
+	public SweepConfiguration (int nodeCount, int resourcesPerNode, int usersPerNode, int stepsPerUser, ScriptMix mix) {
+		if (nodeCount < 1 || resourcesPerNode < 1) {
+			throw new IllegalArgumentException("A swept system needs at least one node and one resource per node");
+		}
+		this.nodeCount = nodeCount;
+		this.resourcesPerNode = resourcesPerNode;
+		this.usersPerNode = usersPerNode;
+		this.stepsPerUser = stepsPerUser;
+		this.mix = mix;
+	}
+
+	/**
+	 * Make every combination of the given node counts, resource counts and mixes.
+	 * 
+	 * @param nodeCounts		Numbers of nodes
+	 * @param resourceCounts	Numbers of resources per node
+	 * @param mixes				Kinds of scripts
+	 * @param usersPerNode		Number of users on every node
+	 * @param stepsPerUser		Number of steps in every script
+	 * @return					Configurations, varying mix fastest
+	 */
+	public static ArrayList<SweepConfiguration> grid (int[] nodeCounts, int[] resourceCounts, ScriptMix[] mixes,
+			int usersPerNode, int stepsPerUser) {
+		ArrayList<SweepConfiguration> configurations = new ArrayList<SweepConfiguration>();
+		for (int nodes : nodeCounts) {
+			for (int resources : resourceCounts) {
+				for (ScriptMix mix : mixes) {
+					configurations.add(new SweepConfiguration(nodes, resources, usersPerNode, stepsPerUser, mix));
+				}
+			}
+		}
+		return configurations;
+	}
+
+	public int getNodeCount () {
+		return nodeCount;
+	}
+
+	public int getResourcesPerNode () {
+		return resourcesPerNode;
+	}
+
+	public int getUsersPerNode () {
+		return usersPerNode;
+	}
+
+	public int getStepsPerUser () {
+		return stepsPerUser;
+	}
+
+	public ScriptMix getMix () {
+		return mix;
+	}
+
+	/**
+	 * Make the node specifications of one simulation of this configuration.
+	 * 
+	 * @param seed	Seed of the random choices in the users' scripts
+	 * @return		Node specifications
+	 */
+	public ArrayList<NodeSpecification> makeNodes (long seed) {
+		Random random = new Random(seed);
+		ArrayList<ArrayList<Resource>> resources = new ArrayList<ArrayList<Resource>>();
+		ArrayList<String> names = new ArrayList<String>();
+		for (int n = 0; n < nodeCount; n++) {
+			ArrayList<Resource> local = Systems.makeResources("Node" + n, resourcesPerNode);
+			for (Resource r : local) {
+				names.add(r.getName());
+			}
+			resources.add(local);
+		}
+
+		ArrayList<NodeSpecification> nodes = new ArrayList<NodeSpecification>();
+		for (int n = 0; n < nodeCount; n++) {
+			ArrayList<UserScript> scripts = new ArrayList<UserScript>();
+			for (int u = 0; u < usersPerNode; u++) {
+				scripts.add(makeScript(names, random));
+			}
+			nodes.add(new NodeSpecification(resources.get(n), scripts));
+		}
+		return nodes;
+	}
+
+	/**
+	 * @param names		Names of all resources in the system
+	 * @param random	Source of random choices
+	 * @return			Script of stepsPerUser steps, each undoing the one before it if
+	 * 					that one acquired access or disabled a resource
+	 */
+	private UserScript makeScript (ArrayList<String> names, Random random) {
+		ArrayList<ArrayList<Object>> steps = new ArrayList<ArrayList<Object>>(stepsPerUser);
+		Object undo = null;		// Request undoing the previous step, if any
+		for (int i = 0; i < stepsPerUser; i++) {
+			ArrayList<Object> step = new ArrayList<Object>(1);
+			if (undo != null) {
+				step.add(undo);
+				undo = null;
+			} else {
+				String name = names.get(random.nextInt(names.size()));
+				if (random.nextDouble() < mix.getManagementFraction()) {
+					step.add(new ManagementRequest(name, ManagementRequestType.DISABLE));
+					undo = new ManagementRequest(name, ManagementRequestType.ENABLE);
+				} else if (random.nextDouble() < mix.getReadFraction()) {
+					step.add(new AccessRequest(name, AccessRequestType.CONCURRENT_READ_BLOCKING));
+					undo = new AccessRelease(name, AccessType.CONCURRENT_READ);
+				} else {
+					step.add(new AccessRequest(name, AccessRequestType.EXCLUSIVE_WRITE_BLOCKING));
+					undo = new AccessRelease(name, AccessType.EXCLUSIVE_WRITE);
+				}
+			}
+			steps.add(step);
+		}
+		return new UserScript(steps);
+	}
+
+	@Override
+	public String toString () {
+		return nodeCount + " nodes x " + resourcesPerNode + " resources x " + usersPerNode + " users, "
+				+ stepsPerUser + " steps, " + mix;
+	}
+}
@@ -0,0 +1,199 @@
+package cmsc433.p4.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+import cmsc433.p4.actors.SimulationManagerActor;
+import cmsc433.p4.enums.ScriptMix;
+import cmsc433.p4.messages.LogMsg;
+import cmsc433.p4.messages.SimulationFinishMsg;
+import cmsc433.p4.messages.SimulationStartMsg;
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.pattern.Patterns;
+import scala.concurrent.Await;
+import scala.concurrent.Future;
+import scala.concurrent.duration.Duration;
+
+/**
+ * Runner of parameter sweeps:  many independent simulations executing concurrently in
+ * one actor system.
+ * 
+ * Every simulation has its own simulation manager, and hence its own logger, resource
+ * managers and users, so simulations share nothing but the actor system's dispatcher.
+ * Running several at once keeps all cores busy even though a single small simulation
+ * cannot.  Each configuration is simulated a number of times, and a summary row of
+ * throughput and completion time is produced for it.
+ * 
+ */
+public class SweepRunner {
+
+	private static final long SIMULATION_TIMEOUT_MS = 10 * 60 * 1000L;	// Longest a single simulation may run
+
+	/**
+	 * Results of all simulations of one configuration.
+	 */
+	public static class Summary {
+		private final SweepConfiguration configuration;
+		private int simulations = 0;		// Number of simulations run
+		private long events = 0;			// Events logged, over all simulations
+		private long responses = 0;			// Requests granted or denied, over all simulations
+		private long totalNanos = 0;		// Completion time, summed over all simulations
+		private long maxNanos = 0;			// Longest completion time
+
+		Summary (SweepConfiguration configuration) {
+			this.configuration = configuration;
+		}
+
+		/**
+		 * Add the result of one simulation.
+		 * 
+		 * @param msg	Result of simulation
+		 */
+		void add (SimulationFinishMsg msg) {
+			simulations++;
+			events += msg.getLog().size();
+			for (Object o : msg.getLog()) {
+				if (o instanceof LogMsg) {
+					switch (((LogMsg) o).getType()) {
+					case ACCESS_REQUEST_GRANTED:
+					case ACCESS_REQUEST_DENIED:
+					case MANAGEMENT_REQUEST_GRANTED:
+					case MANAGEMENT_REQUEST_DENIED:
+						responses++;
+						break;
+					default:
+						break;
+					}
+				}
+			}
+			totalNanos += msg.getElapsedNanos();
+			maxNanos = Math.max(maxNanos, msg.getElapsedNanos());
+		}
+
+		public SweepConfiguration getConfiguration () {
+			return configuration;
+		}
+
+		public int getSimulations () {
+			return simulations;
+		}
+
+		/**
+		 * @return	Requests granted or denied per second of simulation time
+		 */
+		public double getResponsesPerSecond () {
+			return (totalNanos == 0) ? 0 : responses * 1e9 / totalNanos;
+		}
+
+		/**
+		 * @return	Mean time from starting the users to receiving the log, in milliseconds
+		 */
+		public double getMeanCompletionMs () {
+			return (simulations == 0) ? 0 : totalNanos / 1e6 / simulations;
+		}
+
+		/**
+		 * @return	Longest time from starting the users to receiving the log, in milliseconds
+		 */
+		public double getMaxCompletionMs () {
+			return maxNanos / 1e6;
+		}
+
+		/**
+		 * @return	Mean number of events logged per simulation
+		 */
+		public double getMeanEvents () {
+			return (simulations == 0) ? 0 : (double) events / simulations;
+		}
+
+		@Override
+		public String toString () {
+			return String.format("%-48s %4d %10.0f %12.0f %10.1f %10.1f", configuration, simulations, getMeanEvents(),
+					getResponsesPerSecond(), getMeanCompletionMs(), getMaxCompletionMs());
+		}
+	}
+
+	/**
+	 * A simulation that has been started but whose result has not been collected.
+	 */
+	private static class Launch {
+		final Summary summary;			// Summary the result is added to
+		final Future<Object> result;	// Eventual SimulationFinishMsg
+
+		Launch (Summary summary, Future<Object> result) {
+			this.summary = summary;
+			this.result = result;
+		}
+	}
+
+	private SweepRunner () {
+	}
+
+	/**
+	 * Simulate every configuration the given number of times, with up to parallelism
+	 * simulations running at once.  Simulations are started in order, and a new one is
+	 * started as soon as the oldest running one finishes.
+	 * 
+	 * @param system			Actor system to run simulations in
+	 * @param configurations	Configurations to simulate
+	 * @param repetitions		Number of simulations of each configuration
+	 * @param parallelism		Maximum number of simulations running at once
+	 * @return					One summary per configuration, in the same order
+	 * @throws Exception		Thrown if a simulation fails or times out
+	 */
+	public static ArrayList<Summary> run (ActorSystem system, List<SweepConfiguration> configurations, int repetitions,
+			int parallelism) throws Exception {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("Parallelism must be at least 1: " + parallelism);
+		}
+		ArrayList<Summary> summaries = new ArrayList<Summary>(configurations.size());
+		ArrayDeque<Summary> toLaunch = new ArrayDeque<Summary>();
+		for (SweepConfiguration c : configurations) {
+			Summary summary = new Summary(c);
+			summaries.add(summary);
+			for (int i = 0; i < repetitions; i++) {
+				toLaunch.add(summary);
+			}
+		}
+
+		ArrayDeque<Launch> running = new ArrayDeque<Launch>();
+		long seed = 0;
+		while (!toLaunch.isEmpty() || !running.isEmpty()) {
+			while (!toLaunch.isEmpty() && running.size() < parallelism) {
+				Summary summary = toLaunch.poll();
+				ArrayList<NodeSpecification> nodes = summary.getConfiguration().makeNodes(seed++);
+				ActorRef simulationManager = SimulationManagerActor.makeSimulationManager(nodes, system);
+				running.add(new Launch(summary, Patterns.ask(simulationManager, new SimulationStartMsg(), SIMULATION_TIMEOUT_MS)));
+			}
+			Launch oldest = running.poll();
+			oldest.summary.add((SimulationFinishMsg) Await.result(oldest.result, Duration.Inf()));
+		}
+		return summaries;
+	}
+
+	/**
+	 * @return	Header line for a table of summaries printed with Summary.toString()
+	 */
+	public static String header () {
+		return String.format("%-48s %4s %10s %12s %10s %10s", "configuration", "sims", "events", "responses/s",
+				"mean ms", "max ms");
+	}
+
+	public static void main (String[] args) throws Exception {
+		ActorSystem system = ActorSystem.create("Sweep");
+		ArrayList<SweepConfiguration> configurations = SweepConfiguration.grid(new int[] {1, 2, 4}, new int[] {1, 4},
+				ScriptMix.values(), 4, 200);
+		int parallelism = Runtime.getRuntime().availableProcessors();
+		try {
+			ArrayList<Summary> summaries = run(system, configurations, 3, parallelism);
+			System.out.println(header());
+			for (Summary s : summaries) {
+				System.out.println(s);
+			}
+		} finally {
+			system.terminate();
+		}
+	}
+}
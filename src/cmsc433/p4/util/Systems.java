@@ -2,13 +2,17 @@ package cmsc433.p4.util;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 
 import cmsc433.p4.actors.ResourceManagerActor;
 import cmsc433.p4.actors.UserActor;
+import cmsc433.p4.enums.ResourcePlacement;
 import cmsc433.p4.messages.AddInitialLocalResourcesRequestMsg;
 import cmsc433.p4.messages.AddInitialLocalResourcesResponseMsg;
 import cmsc433.p4.messages.AddLocalUsersRequestMsg;
 import cmsc433.p4.messages.AddLocalUsersResponseMsg;
+import cmsc433.p4.messages.AddPlacementRingRequestMsg;
+import cmsc433.p4.messages.AddPlacementRingResponseMsg;
 import cmsc433.p4.messages.AddRemoteManagersRequestMsg;
 import cmsc433.p4.messages.AddRemoteManagersResponseMsg;
 import akka.actor.ActorRef;
@@ -80,6 +84,47 @@ public class Systems {
 	 * @return List of user actors created
 	 */
 	public static SystemActors makeSystem(ArrayList<NodeSpecification> nodes, ActorRef logger, ActorSystem system) {
+		return makeSystem(nodes, logger, system, ResourcePlacement.NODE_LOCAL, new ManagerOptions(), new UserOptions());
+	}
+	
+	/**
+	 * Create system of resource-manager, user actors from node list and
+	 * return actors, placing resources on managers as specified and creating every
+	 * manager and user with the given settings.
+	 * 
+	 * With CONSISTENT_HASH placement, every resource in the node list is assigned to
+	 * the manager chosen by a consistent-hash ring over all managers, and the ring is given
+	 * to every manager so that remote resources can be located without discovery.
+	 * Users still belong to the manager of the node they are specified on.
+	 * 
+	 * Every resource in the node list is given an ID in one ResourceRegistry, which
+	 * replaces any registry in options or userOptions and is given to every manager and
+	 * user, so requests carry the IDs of the resources they name.  Users stamp their
+	 * messages and events exactly when the managers keep local event logs, whatever
+	 * userOptions say.  If userOptions give a simulation clock, the clock is told every
+	 * user and manager created, so it can track their outstanding work.
+	 * 
+	 * @param nodes		List of node specs (resource list, user scripts)
+	 * @param logger	Actor to send logging messages to
+	 * @param context	Context in which to install actors
+	 * @param placement	How resources are assigned to managers
+	 * @param options	Settings for every resource manager
+	 * @param userOptions	Settings for every user
+	 * @return List of user actors created
+	 */
+	public static SystemActors makeSystem(ArrayList<NodeSpecification> nodes, ActorRef logger, ActorSystem system, ResourcePlacement placement,
+			ManagerOptions options, UserOptions userOptions) {
+		
+		// Give every resource of the system an ID, shared by all its managers and users
+		ArrayList<String> resourceNames = new ArrayList<String>();
+		for (NodeSpecification spec : nodes) {
+			for (Resource r : spec.getResources()) {
+				resourceNames.add(r.getName());
+			}
+		}
+		ResourceRegistry registry = new ResourceRegistry(resourceNames);
+		options = options.withResourceRegistry(registry);
+		userOptions = userOptions.withStampedLog(options.isLocalLogBuffered()).withResourceRegistry(registry);
 
 		ArrayList<ActorRef> managers = new ArrayList<ActorRef>();
 		ArrayList<ActorRef> users = new ArrayList<ActorRef>();
@@ -87,16 +132,41 @@ public class Systems {
 		long futureDelay = 1000; // millisecond
 		Duration awaitDelay = Duration.Inf();
 		
-		// For each node spec, create manager, users, accumulating each
+		// Create one manager per node spec
 		
 		for (NodeSpecification spec : nodes) {
-			
-			// Create manager, add to list of managers.
-			ActorRef manager = ResourceManagerActor.makeResourceManager(logger, system);
-			managers.add(manager);
+			managers.add(ResourceManagerActor.makeResourceManager(logger, system, options));
+		}
+		
+		// Decide which manager each resource is placed on
+		
+		ConsistentHashRing ring = null;
+		HashMap<ActorRef, ArrayList<Resource>> placed = new HashMap<ActorRef, ArrayList<Resource>>();
+		for (ActorRef m : managers) {
+			placed.put(m, new ArrayList<Resource>());
+		}
+		if (placement == ResourcePlacement.CONSISTENT_HASH) {
+			ring = new ConsistentHashRing(managers);
+			for (NodeSpecification spec : nodes) {
+				for (Resource r : spec.getResources()) {
+					placed.get(ring.ownerOf(r.getName())).add(r);
+				}
+			}
+		}
+		else {
+			for (int i = 0; i < nodes.size(); i++) {
+				placed.get(managers.get(i)).addAll(nodes.get(i).getResources());
+			}
+		}
+		
+		// For each node spec, install resources and users in its manager
+		
+		for (int i = 0; i < nodes.size(); i++) {
+			NodeSpecification spec = nodes.get(i);
+			ActorRef manager = managers.get(i);
 			
 			// Assign local resources to new manager.
-			AddInitialLocalResourcesRequestMsg rmsg = new AddInitialLocalResourcesRequestMsg (spec.getResources());
+			AddInitialLocalResourcesRequestMsg rmsg = new AddInitialLocalResourcesRequestMsg (placed.get(manager));
 			Future<Object> fmsg = Patterns.ask(manager, rmsg, futureDelay);
 			try {
 				AddInitialLocalResourcesResponseMsg ack = (AddInitialLocalResourcesResponseMsg)Await.result(fmsg, awaitDelay);
@@ -110,7 +180,7 @@ public class Systems {
 			
 			// Create users and add them into manager
 			for (UserScript s : spec.getUserScripts()) {
-				ActorRef user = UserActor.makeUser(s, manager, logger, system);
+				ActorRef user = UserActor.makeUser(s, manager, logger, system, userOptions);
 				users.add(user);
 			}
 			AddLocalUsersRequestMsg amsg = new AddLocalUsersRequestMsg(users);
@@ -139,6 +209,35 @@ public class Systems {
 			}
 		}
 		
+		// Share the placement ring, if any, with each manager
+		if (ring != null) {
+			for (ActorRef m : managers) {
+				Future<Object> fmsg = Patterns.ask(m, new AddPlacementRingRequestMsg(ring), futureDelay);
+				try {
+					AddPlacementRingResponseMsg msg = (AddPlacementRingResponseMsg)Await.result(fmsg, awaitDelay);
+				}
+				catch (Exception e) {
+					System.out.println(e);
+					System.out.println("Error in makeSystem(): placement ring");
+					return null;
+				}
+			}
+		}
+		
+		// Tell the simulation clock, if any, whose work to track, before any user starts
+		ActorRef clock = userOptions.getClock();
+		if (clock != null) {
+			try {
+				Await.result(Patterns.ask(clock, new AddLocalUsersRequestMsg(users), futureDelay), awaitDelay);
+				Await.result(Patterns.ask(clock, new AddRemoteManagersRequestMsg(managers), futureDelay), awaitDelay);
+			}
+			catch (Exception e) {
+				System.out.println(e);
+				System.out.println("Error in makeSystem(): simulation clock");
+				return null;
+			}
+		}
+		
 		// Return list of users
 
 		return new SystemActors(managers, users);
@@ -0,0 +1,100 @@
+package cmsc433.p4.util;
+
+import akka.actor.ActorRef;
+
+/**
+ * Settings a user actor is created with.
+ *
+ * Instances are immutable; each with...() method returns a copy with one setting
+ * changed, so a single instance may be given to many users.
+ */
+public class UserOptions {
+
+	private final int window;				// Maximum number of steps awaiting responses at once
+	private final ActorRef clock;			// Simulation clock ending sleeps in virtual time, or null for real time
+	private final boolean stampedLog;		// True if messages and events are stamped for merging with local event logs
+	private final ResourceRegistry resourceRegistry;	// IDs of the system's resources, put in requests, or null if none
+
+	/**
+	 * Create default options:  one step at a time, sleeps in real time, and nothing
+	 * stamped.
+	 */
+	public UserOptions () {
+		this(1, null, false, null);
+	}
+
+	private UserOptions (int window, ActorRef clock, boolean stampedLog, ResourceRegistry resourceRegistry) {
+		this.window = window;
+		this.clock = clock;
+		this.stampedLog = stampedLog;
+		this.resourceRegistry = resourceRegistry;
+	}
+
+	/**
+	 * Pipeline the user:  send a step while up to window - 1 earlier steps still await
+	 * responses.
+	 *
+	 * @param window	Maximum number of steps awaiting responses at once; 1 for a non-pipelined user
+	 * @return			Copy of these options with the given window
+	 */
+	public UserOptions withWindow (int window) {
+		if (window < 1) {
+			throw new IllegalArgumentException("Window must be at least 1: " + window);
+		}
+		return new UserOptions(window, clock, stampedLog, resourceRegistry);
+	}
+
+	/**
+	 * @param clock		Simulation clock keeping virtual time, or null for real time
+	 * @return			Copy of these options with the given clock
+	 */
+	public UserOptions withClock (ActorRef clock) {
+		return new UserOptions(window, clock, stampedLog, resourceRegistry);
+	}
+
+	/**
+	 * Stamp messages and events with a HybridLogicalClock, as users of a system whose
+	 * managers keep local event logs must (see ManagerOptions.withLocalLogBuffer).
+	 * Systems.makeSystem sets this to match the managers it creates.
+	 *
+	 * @param stampedLog	True if messages and events are stamped
+	 * @return				Copy of these options with the given stamping
+	 */
+	public UserOptions withStampedLog (boolean stampedLog) {
+		return new UserOptions(window, clock, stampedLog, resourceRegistry);
+	}
+
+	/**
+	 * Put the ID of the resource named into every request and release, so managers given
+	 * the same registry find the resource without hashing its name.  Systems.makeSystem
+	 * sets this to the registry it gives the managers it creates.
+	 *
+	 * @param resourceRegistry	IDs of the system's resources
+	 * @return					Copy of these options with the given registry
+	 */
+	public UserOptions withResourceRegistry (ResourceRegistry resourceRegistry) {
+		return new UserOptions(window, clock, stampedLog, resourceRegistry);
+	}
+
+	public int getWindow () {
+		return window;
+	}
+
+	/**
+	 * @return	Simulation clock keeping virtual time, or null for real time
+	 */
+	public ActorRef getClock () {
+		return clock;
+	}
+
+	public boolean isLogStamped () {
+		return stampedLog;
+	}
+
+	/**
+	 * @return	IDs of the system's resources, put in requests, or null if requests carry none
+	 */
+	public ResourceRegistry getResourceRegistry () {
+		return resourceRegistry;
+	}
+}
@@ -1,13 +1,13 @@
 package cmsc433.p4.util;
 
-import java.io.File;
+import java.io.BufferedReader;
 import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
-import java.util.Scanner;
-
-import cmsc433.p4.enums.AccessRequestType;
-import cmsc433.p4.enums.AccessType;
-import cmsc433.p4.enums.ManagementRequestType;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 /**
  * Class of scripts run by user actors.
@@ -17,12 +17,22 @@ import cmsc433.p4.enums.ManagementRequestType;
  * should be sent, then the corresponding response received, before the next step is
  * executed.
  * 
+ * Scripts are immutable.  A script is a cursor into a backing list of steps that is
+ * never modified, so rest() takes constant time and shares the list with the script
+ * it was called on.  A script streamed from a file instead reads each step from disk
+ * when it is first needed, so scripts larger than memory can be run; a streamed
+ * script, and every script obtained from it by rest(), must be used by a single user
+ * and only in order.
+ * 
  * @author Rance Cleaveland
  *
  */
 public class UserScript {
 	
-	private ArrayList<ArrayList<Object>> script;  // List of steps
+	private final ArrayList<ArrayList<Object>> script;  // Backing list of steps, or null if streamed
+	private final int cursor;							// Index in backing list of first step
+	private final StepStream stream;					// Source of steps, if streamed from a file
+	private final long streamIndex;						// Index in stream of first step
 	// TODO Add sleep step. 
 	
 	
@@ -30,25 +40,62 @@ public class UserScript {
 	 * Create empty script.
 	 */
 	public UserScript() {
-		this.script = new ArrayList<ArrayList<Object>>();
+		this(new ArrayList<ArrayList<Object>>());
 	}
 
 	/**
-	 * Create script from list of steps.  List is not copied.
+	 * Create script from list of steps.  List is not copied, and must not be modified
+	 * afterwards.
 	 * 
 	 * @param script	List of steps
 	 */
 	public UserScript(ArrayList<ArrayList<Object>> script) {	
+		this(script, 0);
+	}
+	
+	/**
+	 * Create script starting at the given step of a backing list.
+	 * 
+	 * @param script	Backing list of steps
+	 * @param cursor	Index of first step of script
+	 */
+	private UserScript(ArrayList<ArrayList<Object>> script, int cursor) {
 		this.script = script;
+		this.cursor = cursor;
+		this.stream = null;
+		this.streamIndex = 0;
+	}
+	
+	/**
+	 * Create script starting at the given step of a stream.
+	 * 
+	 * @param stream		Source of steps
+	 * @param streamIndex	Index of first step of script
+	 */
+	private UserScript(StepStream stream, long streamIndex) {
+		this.script = null;
+		this.cursor = 0;
+		this.stream = stream;
+		this.streamIndex = streamIndex;
 	}
 	
 	/**
-	 * Return list of steps in script.
+	 * Return list of steps in script.  A streamed script is read to the end.
 	 * 
 	 * @return	List of steps
 	 */
 	private ArrayList<ArrayList<Object>> getScript() {
-		return script;
+		if (stream != null) {
+			ArrayList<ArrayList<Object>> steps = new ArrayList<ArrayList<Object>>();
+			for (long i = streamIndex; stream.get(i) != null; i++) {
+				steps.add(stream.get(i));
+			}
+			return steps;
+		}
+		if (cursor == 0) {
+			return script;
+		}
+		return new ArrayList<ArrayList<Object>> (script.subList(cursor, script.size()));
 	}
 	
 	/**
@@ -99,26 +146,32 @@ public class UserScript {
 	 * @return	Boolean indicating if script is finished
 	 */
 	public boolean isDone() {
-		return script.isEmpty();
+		if (stream != null) {
+			return stream.get(streamIndex) == null;
+		}
+		return cursor >= script.size();
 	}
 	
 	/**
 	 * Return first step in a script, if script is non-empty.
 	 * 
-	 * @return	First step
+	 * @return	First step, as a list the caller may modify
 	 * @throws Exception	Thrown if script has no steps
 	 */
 	public ArrayList<Object> firstStep () throws Exception {
 		if (isDone()) {
 			throw new Exception ("Empty script");
 		}
+		else if (stream != null) {
+			return new ArrayList<Object> (stream.get(streamIndex));
+		}
 		else {
-			return ((ArrayList<Object>) script.get(0).clone());
+			return new ArrayList<Object> (script.get(cursor));
 		}
 	}
 	
 	/**
-	 * Returns script minus first step, if script is non-empty.
+	 * Returns script minus first step, if script is non-empty.  Takes constant time.
 	 * @return	Rest of script, minus first step
 	 * @throws Exception	Thrown is script has no steps
 	 */
@@ -126,8 +179,11 @@ public class UserScript {
 		if (isDone()) {
 			throw new Exception ("Empty script");
 		}
+		else if (stream != null) {
+			return new UserScript (stream, streamIndex + 1);
+		}
 		else {			
-			return new UserScript (new ArrayList<ArrayList<Object>> (script.subList(1, script.size())));
+			return new UserScript (script, cursor + 1);
 		}
 	}
 	
@@ -142,57 +198,7 @@ public class UserScript {
 	 * @return A UserScript object representing the script
 	 */
 	public static UserScript fromString (String script) {
-		ArrayList<ArrayList<Object>> result = new ArrayList<ArrayList<Object>> ();
-		
-		String[] lines = script.split("(\r|\n)+");
-		for (String line : lines) {
-			if (line.isEmpty()) 
-				continue;
-			
-			ArrayList<Object> thisLine = new ArrayList<Object> ();
-			
-			String[] statements = line.trim().split("\\|");
-			for (String statement : statements) {				
-				
-				String[] parts = statement.trim().split("\\s");
-				
-				if (parts.length < 2) 
-					throw new IllegalArgumentException("Script statement: " + statement + " did not have enough arguments\n\ton line: " + line);
-				
-				String command = parts[0];
-				String resource_name = parts[parts.length - 1];
-				
-				for (int i = 1; i < parts.length - 1; i++)
-					if (!parts[i].isEmpty())
-						throw new IllegalArgumentException("Script statement: " + statement + " had too many arguments\n\ton line: " + line);
-				
-				Object action;
-				if (command.equalsIgnoreCase("write-request-n")) {
-					action = new AccessRequest(resource_name, AccessRequestType.EXCLUSIVE_WRITE_NONBLOCKING); 
-				} else if (command.equalsIgnoreCase("write-request-b")) {
-					action = new AccessRequest(resource_name, AccessRequestType.EXCLUSIVE_WRITE_BLOCKING);
-				} else if (command.equalsIgnoreCase("read-request-n")) {
-					action = new AccessRequest(resource_name, AccessRequestType.CONCURRENT_READ_NONBLOCKING);
-				} else if (command.equalsIgnoreCase("read-request-b")) {
-					action = new AccessRequest(resource_name, AccessRequestType.CONCURRENT_READ_BLOCKING);
-				} else if (command.equalsIgnoreCase("write-release")) {
-					action = new AccessRelease(resource_name, AccessType.EXCLUSIVE_WRITE);
-				} else if (command.equalsIgnoreCase("read-release")) {
-					action = new AccessRelease(resource_name, AccessType.CONCURRENT_READ);
-				} else if (command.equalsIgnoreCase("enable")) {
-					action = new ManagementRequest(resource_name, ManagementRequestType.ENABLE);
-				} else if (command.equalsIgnoreCase("disable")) {
-					action = new ManagementRequest(resource_name, ManagementRequestType.DISABLE);
-				} else if (command.equalsIgnoreCase("sleep")) { 
-					action = new SleepStep (Long.parseLong(resource_name));
-				} else {
-					throw new IllegalArgumentException("Illegal command: " + command + "\n\ton the line: " + line);
-				}
-				thisLine.add(action);
-			}
-			result.add(thisLine);
-		}
-		return new UserScript(result);
+		return new UserScript(ScriptParser.parse(script));
 	}
 	
 	/**
@@ -202,14 +208,131 @@ public class UserScript {
 	 * @throws FileNotFoundException
 	 */
 	public static UserScript fromFile (String filename) throws FileNotFoundException {
-		Scanner input = new Scanner (new File(filename));
-		StringBuilder str = new StringBuilder();
-		while (input.hasNext()) {
-			str.append(input.nextLine());
-			str.append('\n');
+		return new UserScript(ScriptParser.parseFile(filename));
+	}
+	
+	/**
+	 * Creates a UserScript object from a file written by toBinaryFile, without any parsing.
+	 * @param filename - The name of the binary script file
+	 * @return A UserScript that contains the commands stored in the file.
+	 * @throws IOException	Thrown if the file cannot be read or is not a binary script
+	 */
+	public static UserScript fromBinaryFile (String filename) throws IOException {
+		return new UserScript(BinaryScriptFormat.read(filename));
+	}
+	
+	/**
+	 * Writes the remaining steps of this script to a file in precompiled binary form, which
+	 * fromBinaryFile loads much faster than fromFile parses text.
+	 * @param filename - The name of the file to write
+	 * @throws IOException	Thrown if the file cannot be written
+	 */
+	public void toBinaryFile (String filename) throws IOException {
+		BinaryScriptFormat.write(getScript(), filename);
+	}
+	
+	/**
+	 * Creates a UserScript that reads its steps from the specified file as they are needed,
+	 * rather than all at once (using the same grammar as the fromString method).  The file
+	 * is closed once the last step has been read.  A syntax error is reported when the step
+	 * containing it is reached.
+	 * @param filename - The name of the file to stream the script from
+	 * @return A UserScript that reads the commands specified by the script in the file on demand.
+	 * @throws FileNotFoundException
+	 */
+	public static UserScript streamFromFile (String filename) throws FileNotFoundException {
+		return new UserScript(new StepStream(new LineSteps(new BufferedReader(new FileReader(filename)))), 0);
+	}
+	
+	/**
+	 * Creates a UserScript that takes its steps from an iterator as they are needed, such
+	 * as one generating them on the fly, so the steps never all have to be in memory.
+	 * @param steps - Source of steps, each a non-empty list of requests and sleeps; steps
+	 * 		must not be modified once returned
+	 * @return A UserScript containing the steps the iterator returns.
+	 */
+	public static UserScript streamFrom (Iterator<ArrayList<Object>> steps) {
+		return new UserScript(new StepStream(steps), 0);
+	}
+	
+	/**
+	 * Steps of a script taken from an iterator one at a time.  Only the most recently taken
+	 * step is kept, so steps must be requested in order.
+	 */
+	private static class StepStream {
+		private final Iterator<ArrayList<Object>> source;	// Remaining steps of script
+		private long nextIndex = 0;				// Index of next step to take
+		private ArrayList<Object> last = null;	// Step at nextIndex - 1, or null at end of script
+		
+		StepStream (Iterator<ArrayList<Object>> source) {
+			this.source = source;
 		}
-		input.close();
 		
-		return fromString(str.toString());
+		/**
+		 * @param index	Index of step
+		 * @return		Step with the given index, or null if script has fewer steps
+		 */
+		ArrayList<Object> get (long index) {
+			if (index == nextIndex - 1) {
+				return last;
+			}
+			if (index != nextIndex) {
+				throw new IllegalStateException("Streamed script steps must be read in order");
+			}
+			last = ((nextIndex == 0 || last != null) && source.hasNext()) ? source.next() : null;
+			nextIndex++;
+			return last;
+		}
+	}
+	
+	/**
+	 * Steps of a script file, read one line at a time.  The file is closed once the last
+	 * step has been read.
+	 */
+	private static class LineSteps implements Iterator<ArrayList<Object>> {
+		private final BufferedReader reader;	// Remaining lines of script, closed at end of script
+		private ArrayList<Object> next = null;	// Step read ahead by hasNext(), if any
+		private boolean closed = false;			// True once the end of the file has been reached
+		
+		LineSteps (BufferedReader reader) {
+			this.reader = reader;
+		}
+		
+		@Override
+		public boolean hasNext () {
+			if (next == null && !closed) {
+				next = readStep();
+			}
+			return next != null;
+		}
+		
+		@Override
+		public ArrayList<Object> next () {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			ArrayList<Object> step = next;
+			next = null;
+			return step;
+		}
+		
+		/**
+		 * @return	Next step in file, or null if there are no more steps
+		 */
+		private ArrayList<Object> readStep () {
+			try {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					if (!line.isEmpty()) {
+						return ScriptParser.parseLine(line);
+					}
+				}
+				reader.close();
+				closed = true;
+				return null;
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
 	}
 }
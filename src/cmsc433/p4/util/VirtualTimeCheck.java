@@ -0,0 +1,169 @@
+package cmsc433.p4.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import cmsc433.p4.actors.LoggerActor;
+import cmsc433.p4.actors.SimulationClockActor;
+import cmsc433.p4.enums.AccessRequestDenialReason;
+import cmsc433.p4.enums.AccessRequestType;
+import cmsc433.p4.enums.AccessType;
+import cmsc433.p4.enums.ResourcePlacement;
+import cmsc433.p4.messages.LogMsg;
+import cmsc433.p4.messages.LogResultMsg;
+import cmsc433.p4.messages.UserStartMsg;
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Inbox;
+import scala.concurrent.duration.Duration;
+
+/**
+ * Check that a virtual-time simulation orders requests as sleeps would in real time,
+ * whatever the managers' options.
+ *
+ * A holder takes a write lock on a resource, sleeps HOLD_MS, releases the lock and sleeps
+ * again.  Each of PROBES other users, half on the holder's node and half on another, so
+ * that their requests are forwarded, sleeps a different time, then tries to read the
+ * resource without blocking.  In real time a probe waking before the release would be
+ * denied and one waking after it granted; no probe wakes near the release.  The check
+ * fails, with an exception, unless in every run each probe gets exactly that answer, and
+ * the run takes less real time than the sleeps take virtual time.  Runs are made with
+ * default options, and with options that hold events and discovery requests back.
+ *
+ */
+public class VirtualTimeCheck {
+
+	private static final int RUNS = 5;
+	private static final int PROBES = 20;
+	private static final long HOLD_MS = 1000;		// Virtual time the holder keeps its lock
+	private static final long PROBE_SPACING_MS = 100;	// Virtual time between probes waking; probe i wakes at 50 + i * spacing
+	private static final long TIMEOUT_MS = 30 * 1000L;	// Longest a run may take
+
+	private VirtualTimeCheck () {
+	}
+
+	private static void check (boolean condition, String message) {
+		if (!condition) {
+			throw new IllegalStateException(message);
+		}
+	}
+
+	/**
+	 * @param steps		Steps, each a single request, release or sleep
+	 * @return			Script making the steps in turn
+	 */
+	private static UserScript makeScript (Object... steps) {
+		ArrayList<ArrayList<Object>> script = new ArrayList<ArrayList<Object>>();
+		for (Object s : steps) {
+			ArrayList<Object> step = new ArrayList<Object>();
+			step.add(s);
+			script.add(step);
+		}
+		return new UserScript(script);
+	}
+
+	/**
+	 * @param probe	Index of probe
+	 * @return		Virtual time at which the probe wakes and reads
+	 */
+	private static long wakeTime (int probe) {
+		return 50 + probe * PROBE_SPACING_MS;
+	}
+
+	/**
+	 * Run the simulation once and check the answer each probe gets.
+	 *
+	 * @param system	Actor system to run in
+	 * @param options	Settings of the managers
+	 * @return			Real time the run took, in milliseconds
+	 * @throws Exception	Thrown if the system cannot be set up or does not finish in time
+	 */
+	private static long run (ActorSystem system, ManagerOptions options) throws Exception {
+		ArrayList<Resource> resources = Systems.makeResources("Shared", 1);
+		String name = resources.get(0).getName();
+		ArrayList<UserScript> local = new ArrayList<UserScript>();
+		ArrayList<UserScript> remote = new ArrayList<UserScript>();
+		local.add(makeScript(new AccessRequest(name, AccessRequestType.EXCLUSIVE_WRITE_BLOCKING), new SleepStep(HOLD_MS),
+				new AccessRelease(name, AccessType.EXCLUSIVE_WRITE), new SleepStep(HOLD_MS)));
+		for (int i = 0; i < PROBES; i++) {
+			UserScript probe = makeScript(new SleepStep(wakeTime(i)),
+					new AccessRequest(name, AccessRequestType.CONCURRENT_READ_NONBLOCKING),
+					new AccessRelease(name, AccessType.CONCURRENT_READ));
+			((i % 2 == 0) ? local : remote).add(probe);
+		}
+		ArrayList<NodeSpecification> nodes = new ArrayList<NodeSpecification>();
+		nodes.add(new NodeSpecification(resources, local));
+		nodes.add(new NodeSpecification(new ArrayList<Resource>(), remote));
+
+		Inbox results = Inbox.create(system);
+		ActorRef logger = LoggerActor.makeLogger(results.getRef(), system);
+		ActorRef clock = SimulationClockActor.makeClock(system);
+		SystemActors actors = Systems.makeSystem(nodes, logger, system, ResourcePlacement.NODE_LOCAL, options,
+				new UserOptions().withClock(clock));
+		LogResultMsg result;
+		long elapsedMs;
+		try {
+			long start = System.nanoTime();
+			for (ActorRef u : actors.getUsers()) {
+				u.tell(new UserStartMsg(), ActorRef.noSender());
+			}
+			result = (LogResultMsg) results.receive(Duration.create(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+			elapsedMs = (System.nanoTime() - start) / 1000000;
+		} finally {
+			for (ActorRef m : actors.getResourceManagers()) {
+				system.stop(m);
+			}
+			system.stop(clock);
+			system.stop(logger);
+		}
+
+		// Users are created node by node:  the holder and even probes, then odd probes
+		HashMap<ActorRef, Integer> probeOf = new HashMap<ActorRef, Integer>();
+		ArrayList<ActorRef> users = actors.getUsers();
+		for (int i = 0; i < PROBES; i++) {
+			int position = (i % 2 == 0) ? 1 + i / 2 : 1 + (PROBES + 1) / 2 + i / 2;
+			probeOf.put(users.get(position), i);
+		}
+		int answered = 0;
+		for (Object o : result.getLog()) {
+			if (!(o instanceof LogMsg) || !probeOf.containsKey(((LogMsg) o).getUser())) {
+				continue;
+			}
+			LogMsg event = (LogMsg) o;
+			int i = probeOf.get(event.getUser());
+			boolean afterRelease = wakeTime(i) > HOLD_MS;
+			if (event.getType() == LogMsg.EventType.ACCESS_REQUEST_GRANTED) {
+				check(afterRelease, "Probe waking at " + wakeTime(i) + " was granted a read while the lock was held");
+				answered++;
+			} else if (event.getType() == LogMsg.EventType.ACCESS_REQUEST_DENIED) {
+				check(!afterRelease && event.getAccessRequestDenialReason() == AccessRequestDenialReason.RESOURCE_BUSY,
+						"Probe waking at " + wakeTime(i) + " was denied a read because " + event.getAccessRequestDenialReason());
+				answered++;
+			}
+		}
+		check(answered == PROBES, answered + " of " + PROBES + " probes answered");
+		return elapsedMs;
+	}
+
+	public static void main (String[] args) throws Exception {
+		ArrayList<ManagerOptions> settings = new ArrayList<ManagerOptions>();
+		settings.add(new ManagerOptions());
+		settings.add(new ManagerOptions().withLocalLogBuffer(8).withDiscoveryBatching(5, 100));
+		long virtualMs = 2 * HOLD_MS;
+		ActorSystem system = ActorSystem.create("VirtualTimeCheck");
+		try {
+			long slowestMs = 0;
+			for (ManagerOptions options : settings) {
+				for (int r = 0; r < RUNS; r++) {
+					slowestMs = Math.max(slowestMs, run(system, options));
+				}
+			}
+			check(slowestMs < virtualMs, "A run took " + slowestMs + " ms, no less than its " + virtualMs + " ms of sleeps");
+			System.out.println(String.format("Virtual-time checks passed:  %d runs, %d probes each answered as in real time, "
+					+ "slowest run %d ms for %d ms of sleeps", RUNS * settings.size(), PROBES, slowestMs, virtualMs));
+		} finally {
+			system.terminate();
+		}
+	}
+}
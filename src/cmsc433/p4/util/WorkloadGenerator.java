@@ -0,0 +1,298 @@
+package cmsc433.p4.util;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import cmsc433.p4.enums.AccessRequestType;
+import cmsc433.p4.enums.AccessType;
+import cmsc433.p4.enums.ManagementRequestType;
+
+/**
+ * Generator of synthetic user scripts.
+ *
+ * A generated script is a sequence of operations.  An access operation requests access
+ * to a resource in one step, optionally holds it for a while in a sleep step, and
+ * releases it in the next step.  A management operation disables a resource in one
+ * step and enables it again in the next.  Each operation picks a local resource with
+ * the configured probability, and a remote one otherwise; within either list, the
+ * resource at index i is chosen with probability proportional to 1 / (i + 1)^s, where
+ * s is the Zipf exponent (0 gives uniform popularity, larger values concentrate the
+ * load on the first few resources).
+ *
+ * Scripts are generated while they run, so a script of millions of steps takes no more
+ * memory than one of ten.  The same generator and seed always give the same script.
+ *
+ * Instances are immutable; each with...() method returns a copy with one setting
+ * changed, so a single instance may be used to generate many scripts.
+ */
+public class WorkloadGenerator {
+
+	private final long operations;				// Number of operations per script
+	private final double readFraction;			// Share of access operations that are reads
+	private final double blockingFraction;		// Share of access requests that wait for busy resources
+	private final double managementFraction;	// Share of operations that disable and re-enable a resource
+	private final double localFraction;			// Share of operations on resources of the user's own node
+	private final double zipfExponent;			// Skew of resource popularity
+	private final long holdMs;					// How long granted access is held before release; 0 for no sleep
+
+	/**
+	 * Create generator of scripts of the given number of operations:  half reads and
+	 * half writes, all blocking, with no management requests, no hold time, resources
+	 * picked from local and remote lists equally often, and Zipf exponent 1.
+	 *
+	 * @param operations	Number of operations per script
+	 */
+	public WorkloadGenerator (long operations) {
+		this(operations, 0.5, 1.0, 0.0, 0.5, 1.0, 0);
+	}
+
+	private WorkloadGenerator (long operations, double readFraction, double blockingFraction, double managementFraction,
+			double localFraction, double zipfExponent, long holdMs) {
+		if (operations < 0 || zipfExponent < 0 || holdMs < 0) {
+			throw new IllegalArgumentException("Operation count, Zipf exponent and hold time must not be negative");
+		}
+		this.operations = operations;
+		this.readFraction = readFraction;
+		this.blockingFraction = blockingFraction;
+		this.managementFraction = managementFraction;
+		this.localFraction = localFraction;
+		this.zipfExponent = zipfExponent;
+		this.holdMs = holdMs;
+	}
+
+	/**
+	 * @param readFraction		Share of access operations that are reads
+	 * @param blockingFraction	Share of access requests that wait for busy resources
+	 * @return					Copy of this generator with the given access mix
+	 */
+	public WorkloadGenerator withAccessMix (double readFraction, double blockingFraction) {
+		return new WorkloadGenerator(operations, readFraction, blockingFraction, managementFraction, localFraction, zipfExponent, holdMs);
+	}
+
+	/**
+	 * @param managementFraction	Share of operations that disable and re-enable a resource
+	 * @return						Copy of this generator with the given management frequency
+	 */
+	public WorkloadGenerator withManagementFraction (double managementFraction) {
+		return new WorkloadGenerator(operations, readFraction, blockingFraction, managementFraction, localFraction, zipfExponent, holdMs);
+	}
+
+	/**
+	 * @param localFraction	Share of operations on resources of the user's own node
+	 * @return				Copy of this generator with the given locality
+	 */
+	public WorkloadGenerator withLocalFraction (double localFraction) {
+		return new WorkloadGenerator(operations, readFraction, blockingFraction, managementFraction, localFraction, zipfExponent, holdMs);
+	}
+
+	/**
+	 * @param zipfExponent	Skew of resource popularity; 0 for uniform
+	 * @return				Copy of this generator with the given skew
+	 */
+	public WorkloadGenerator withZipfExponent (double zipfExponent) {
+		return new WorkloadGenerator(operations, readFraction, blockingFraction, managementFraction, localFraction, zipfExponent, holdMs);
+	}
+
+	/**
+	 * @param holdMs	How long granted access is held, in a sleep step, before release
+	 * @return			Copy of this generator with the given hold time
+	 */
+	public WorkloadGenerator withHoldMs (long holdMs) {
+		return new WorkloadGenerator(operations, readFraction, blockingFraction, managementFraction, localFraction, zipfExponent, holdMs);
+	}
+
+	/**
+	 * Make a script whose steps are generated as the user reaches them.  The script must
+	 * be run by a single user, like any streamed script.
+	 *
+	 * @param localNames	Names of resources on the user's node, most popular first
+	 * @param remoteNames	Names of resources on other nodes, most popular first
+	 * @param seed			Seed of random choices
+	 * @return				Streamed script
+	 */
+	public UserScript makeScript (ArrayList<String> localNames, ArrayList<String> remoteNames, long seed) {
+		return UserScript.streamFrom(new GeneratedSteps(localNames, remoteNames, seed));
+	}
+
+	/**
+	 * Write a script to a file in the text grammar of UserScript.fromString, one step at a
+	 * time.  The file may be run with UserScript.streamFromFile.
+	 *
+	 * @param filename		Name of file to write
+	 * @param localNames	Names of resources on the user's node, most popular first
+	 * @param remoteNames	Names of resources on other nodes, most popular first
+	 * @param seed			Seed of random choices
+	 * @throws IOException	Thrown if file cannot be written
+	 */
+	public void writeScript (String filename, ArrayList<String> localNames, ArrayList<String> remoteNames, long seed)
+			throws IOException {
+		GeneratedSteps steps = new GeneratedSteps(localNames, remoteNames, seed);
+		try (BufferedWriter out = new BufferedWriter(new FileWriter(filename))) {
+			while (steps.hasNext()) {
+				ArrayList<Object> step = steps.next();
+				for (int i = 0; i < step.size(); i++) {
+					if (i > 0) {
+						out.write(" | ");
+					}
+					out.write(statement(step.get(i)));
+				}
+				out.newLine();
+			}
+		}
+	}
+
+	/**
+	 * @param req	Request or sleep in a generated step
+	 * @return		Statement in the text grammar of scripts
+	 */
+	private static String statement (Object req) {
+		if (req instanceof AccessRequest) {
+			AccessRequest r = (AccessRequest) req;
+			switch (r.getType()) {
+			case EXCLUSIVE_WRITE_NONBLOCKING:	return "write-request-n " + r.getResourceName();
+			case EXCLUSIVE_WRITE_BLOCKING:		return "write-request-b " + r.getResourceName();
+			case CONCURRENT_READ_NONBLOCKING:	return "read-request-n " + r.getResourceName();
+			case CONCURRENT_READ_BLOCKING:		return "read-request-b " + r.getResourceName();
+			}
+		} else if (req instanceof AccessRelease) {
+			AccessRelease r = (AccessRelease) req;
+			return ((r.getType() == AccessType.EXCLUSIVE_WRITE) ? "write-release " : "read-release ") + r.getResourceName();
+		} else if (req instanceof ManagementRequest) {
+			ManagementRequest r = (ManagementRequest) req;
+			return ((r.getType() == ManagementRequestType.ENABLE) ? "enable " : "disable ") + r.getResourceName();
+		} else if (req instanceof SleepStep) {
+			return "sleep " + ((SleepStep) req).getDurationMs();
+		}
+		throw new IllegalArgumentException("Bad request in generated script: " + req);
+	}
+
+	/**
+	 * Steps of one generated script.  Only the steps of the current operation are held.
+	 */
+	private class GeneratedSteps implements Iterator<ArrayList<Object>> {
+		private final ArrayList<String> localNames;
+		private final ArrayList<String> remoteNames;
+		private final ZipfSampler localSampler;			// Popularity of local resources, or null if none
+		private final ZipfSampler remoteSampler;		// Popularity of remote resources, or null if none
+		private final Random random;
+		private long operationsLeft = operations;		// Operations not yet started
+		private final ArrayList<ArrayList<Object>> queued = new ArrayList<ArrayList<Object>>(3);	// Remaining steps of current operation
+		private int nextQueued = 0;						// Index in queued of next step
+
+		GeneratedSteps (ArrayList<String> localNames, ArrayList<String> remoteNames, long seed) {
+			if (localNames.isEmpty() && remoteNames.isEmpty()) {
+				throw new IllegalArgumentException("Generated scripts need at least one resource");
+			}
+			this.localNames = localNames;
+			this.remoteNames = remoteNames;
+			this.localSampler = localNames.isEmpty() ? null : new ZipfSampler(localNames.size(), zipfExponent);
+			this.remoteSampler = remoteNames.isEmpty() ? null : new ZipfSampler(remoteNames.size(), zipfExponent);
+			this.random = new Random(seed);
+		}
+
+		@Override
+		public boolean hasNext () {
+			return nextQueued < queued.size() || operationsLeft > 0;
+		}
+
+		@Override
+		public ArrayList<Object> next () {
+			if (nextQueued == queued.size()) {
+				if (operationsLeft == 0) {
+					throw new NoSuchElementException();
+				}
+				queued.clear();
+				nextQueued = 0;
+				generateOperation();
+				operationsLeft--;
+			}
+			return queued.get(nextQueued++);
+		}
+
+		/**
+		 * Queue the steps of one operation.
+		 */
+		private void generateOperation () {
+			String name = pickResource();
+			if (random.nextDouble() < managementFraction) {
+				queued.add(step(new ManagementRequest(name, ManagementRequestType.DISABLE)));
+				queued.add(step(new ManagementRequest(name, ManagementRequestType.ENABLE)));
+				return;
+			}
+			boolean read = random.nextDouble() < readFraction;
+			boolean blocking = random.nextDouble() < blockingFraction;
+			AccessRequestType type;
+			if (read) {
+				type = blocking ? AccessRequestType.CONCURRENT_READ_BLOCKING : AccessRequestType.CONCURRENT_READ_NONBLOCKING;
+			} else {
+				type = blocking ? AccessRequestType.EXCLUSIVE_WRITE_BLOCKING : AccessRequestType.EXCLUSIVE_WRITE_NONBLOCKING;
+			}
+			queued.add(step(new AccessRequest(name, type)));
+			if (holdMs > 0) {
+				queued.add(step(new SleepStep(holdMs)));
+			}
+			queued.add(step(new AccessRelease(name, read ? AccessType.CONCURRENT_READ : AccessType.EXCLUSIVE_WRITE)));
+		}
+
+		/**
+		 * @return	Name of a resource, local with probability localFraction if there are both
+		 */
+		private String pickResource () {
+			boolean local;
+			if (remoteSampler == null) {
+				local = true;
+			} else if (localSampler == null) {
+				local = false;
+			} else {
+				local = random.nextDouble() < localFraction;
+			}
+			return local ? localNames.get(localSampler.sample(random)) : remoteNames.get(remoteSampler.sample(random));
+		}
+
+		private ArrayList<Object> step (Object req) {
+			ArrayList<Object> step = new ArrayList<Object>(1);
+			step.add(req);
+			return step;
+		}
+	}
+
+	/**
+	 * Sampler of the Zipf distribution over indices 0 .. n-1, by binary search of the
+	 * cumulative distribution.  Takes O(n) memory and O(log n) time per sample.
+	 */
+	private static class ZipfSampler {
+		private final double[] cumulative;	// cumulative[i] = probability of an index <= i
+
+		ZipfSampler (int n, double exponent) {
+			cumulative = new double[n];
+			double total = 0;
+			for (int i = 0; i < n; i++) {
+				total += 1 / Math.pow(i + 1, exponent);
+				cumulative[i] = total;
+			}
+			for (int i = 0; i < n; i++) {
+				cumulative[i] /= total;
+			}
+		}
+
+		int sample (Random random) {
+			double u = random.nextDouble();
+			int lo = 0;
+			int hi = cumulative.length - 1;
+			while (lo < hi) {
+				int mid = (lo + hi) >>> 1;
+				if (cumulative[mid] <= u) {
+					lo = mid + 1;
+				} else {
+					hi = mid;
+				}
+			}
+			return lo;
+		}
+	}
+}